@@ -26,28 +26,43 @@ package org.dbsp.sqlCompiler;
 import com.beust.jcommander.JCommander;
 import com.beust.jcommander.ParameterException;
 import org.dbsp.sqlCompiler.circuit.DBSPCircuit;
+import org.dbsp.sqlCompiler.compiler.CompilationCache;
 import org.dbsp.sqlCompiler.compiler.CompilerOptions;
 import org.dbsp.sqlCompiler.compiler.backend.jit.ToJitVisitor;
 import org.dbsp.sqlCompiler.compiler.backend.jit.ir.JITProgram;
 import org.dbsp.sqlCompiler.compiler.backend.rust.RustFileWriter;
+import org.dbsp.sqlCompiler.compiler.backend.rust.RustModules;
 import org.dbsp.sqlCompiler.compiler.errors.CompilerMessages;
 import org.dbsp.sqlCompiler.compiler.errors.SourcePositionRange;
 import org.dbsp.sqlCompiler.compiler.backend.*;
+import org.dbsp.util.Utilities;
 
 import javax.annotation.Nullable;
 import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Objects;
 
 /**
  * Main entry point of the SQL compiler.
  */
 public class CompilerMain {
+    /**
+     * Name of the main file produced when emitting Rust modules.
+     */
+    static final String LIB_FILE = "lib.rs";
     final CompilerOptions options;
 
     CompilerMain() {
-        this.options = new CompilerOptions();
+        this(new CompilerOptions());
+    }
+
+    CompilerMain(CompilerOptions options) {
+        this.options = options;
     }
 
     void parseOptions(String[] argv) {
@@ -86,14 +101,100 @@ public class CompilerMain {
         }
     }
 
+    /**
+     * Name of the cached file holding the main compiler output.
+     */
+    static final String CACHED_OUTPUT = "output";
+    /**
+     * Name of the cached file holding the JSON schema.
+     */
+    static final String CACHED_SCHEMA = "schema.json";
+
+    /**
+     * Write the main output of the compiler.
+     * An output file is not rewritten if its contents are unchanged.
+     */
+    void writeOutput(byte[] output) throws IOException {
+        @Nullable String outputFile = this.options.ioOptions.outputFile;
+        if (outputFile != null) {
+            Utilities.writeFileIfChanged(outputFile, output);
+        } else {
+            PrintStream stream = this.getOutputStream();
+            stream.write(output);
+            stream.close();
+        }
+    }
+
+    /**
+     * Write the outputs retrieved from the compilation cache.
+     * @return  True if all the outputs required were found.
+     */
+    boolean writeCachedOutputs(Map<String, byte[]> files) throws IOException {
+        boolean modules = this.options.ioOptions.emitModules;
+        byte[] output = files.get(modules ? LIB_FILE : CACHED_OUTPUT);
+        @Nullable String schemaFile = this.options.ioOptions.emitJsonSchema;
+        byte[] schema = files.get(CACHED_SCHEMA);
+        if (output == null || (schemaFile != null && schema == null))
+            return false;
+        if (schemaFile != null)
+            Utilities.writeFileIfChanged(schemaFile, schema);
+        if (modules) {
+            Path directory = Paths.get(Objects.requireNonNull(this.options.ioOptions.outputFile));
+            Files.createDirectories(directory);
+            for (Map.Entry<String, byte[]> file : files.entrySet()) {
+                if (file.getKey().equals(CACHED_SCHEMA))
+                    continue;
+                Utilities.writeFileIfChanged(directory.resolve(file.getKey()).toString(), file.getValue());
+            }
+        } else {
+            this.writeOutput(output);
+        }
+        return true;
+    }
+
     /**
      * Run compiler, return exit code.
      */
     CompilerMessages run() {
         DBSPCompiler compiler = new DBSPCompiler(this.options);
+        byte[] input;
         try {
-            InputStream input = this.getInputFile(this.options.ioOptions.inputFile);
-            compiler.setEntireInput(this.options.ioOptions.inputFile, input);
+            InputStream stream = this.getInputFile(this.options.ioOptions.inputFile);
+            input = Utilities.readAllBytes(stream);
+        } catch (IOException e) {
+            compiler.reportError(SourcePositionRange.INVALID, false,
+                    "Error reading file", e.getMessage());
+            return compiler.messages;
+        }
+        if (this.options.ioOptions.emitModules && this.options.ioOptions.outputFile == null) {
+            compiler.reportError(SourcePositionRange.INVALID, false, "Invalid output",
+                    "Must specify an output directory when outputting modules");
+            return compiler.messages;
+        }
+
+        @Nullable CompilationCache cache = null;
+        String key = "";
+        if (this.options.ioOptions.cacheDirectory != null && !this.options.ioOptions.emitJpeg) {
+            cache = new CompilationCache(this.options.ioOptions);
+            key = new CompilationCache.KeyBuilder()
+                    .add(this.options)
+                    .add(input)
+                    .build();
+            Map<String, byte[]> cached = cache.lookup(key);
+            try {
+                if (cached != null && this.writeCachedOutputs(cached))
+                    return compiler.messages;
+            } catch (IOException e) {
+                compiler.reportError(SourcePositionRange.INVALID,
+                        false, "Error writing to file", e.getMessage());
+                return compiler.messages;
+            }
+        }
+        // Files to store in the cache; they are copied after being written
+        Map<String, Path> outputs = new HashMap<>();
+
+        try {
+            compiler.setEntireInput(this.options.ioOptions.inputFile, new ByteArrayInputStream(input));
         } catch (IOException e) {
             compiler.reportError(SourcePositionRange.INVALID, false,
                     "Error reading file", e.getMessage());
@@ -104,9 +205,10 @@ public class CompilerMain {
             return compiler.messages;
         if (this.options.ioOptions.emitJsonSchema != null) {
             try {
-                PrintStream outputStream = new PrintStream(Files.newOutputStream(Paths.get(this.options.ioOptions.emitJsonSchema)));
-                outputStream.println(Objects.requireNonNull(compiler.ios).toPrettyString());
-                outputStream.close();
+                byte[] schema = (Objects.requireNonNull(compiler.ios).toPrettyString() + System.lineSeparator())
+                        .getBytes(StandardCharsets.UTF_8);
+                Utilities.writeFileIfChanged(this.options.ioOptions.emitJsonSchema, schema);
+                outputs.put(CACHED_SCHEMA, Paths.get(this.options.ioOptions.emitJsonSchema));
             } catch (IOException e) {
                 compiler.reportError(SourcePositionRange.INVALID, false,
                         "Error writing to file", e.getMessage());
@@ -125,23 +227,63 @@ public class CompilerMain {
             ToDotVisitor.toDot(this.options.ioOptions.outputFile, true, dbsp);
             return compiler.messages;
         }
+        // The main output is first written to this file, and then copied
+        // to its destination, which is not rewritten if unchanged
+        @Nullable Path temporary = null;
         try {
-            PrintStream stream = this.getOutputStream();
-            if (this.options.ioOptions.emitJson) {
-                JITProgram program = ToJitVisitor.circuitToJIT(dbsp);
-                String output = program.asJson().toPrettyString();
-                stream.println(output);
-            } else {
+            temporary = Files.createTempFile("sql-to-dbsp", ".out");
+            PrintStream stream = new PrintStream(Files.newOutputStream(temporary), false, StandardCharsets.UTF_8.name());
+            if (this.options.ioOptions.emitModules) {
+                Path directory = Paths.get(Objects.requireNonNull(this.options.ioOptions.outputFile));
+                Files.createDirectories(directory);
+                Path lib = directory.resolve(LIB_FILE);
+                RustModules modules = new RustModules(directory.toString());
                 RustFileWriter writer = new RustFileWriter(stream);
                 writer.emitCodeWithHandle(true);
+                writer.emitModules(modules);
                 writer.add(dbsp);
-                writer.write();
+                writer.writeAndClose();
+                Utilities.writeFileIfChanged(lib.toString(), Files.readAllBytes(temporary));
+                outputs.put(LIB_FILE, lib);
+                for (String module : modules.modules) {
+                    Path file = modules.getFile(module);
+                    outputs.put(file.getFileName().toString(), file);
+                }
+            } else {
+                if (this.options.ioOptions.emitJson) {
+                    JITProgram program = ToJitVisitor.circuitToJIT(dbsp);
+                    String json = program.asJson().toPrettyString();
+                    stream.println(json);
+                } else {
+                    RustFileWriter writer = new RustFileWriter(stream);
+                    writer.emitCodeWithHandle(true);
+                    writer.add(dbsp);
+                    writer.write();
+                }
+                stream.close();
+                this.writeOutput(Files.readAllBytes(temporary));
+                outputs.put(CACHED_OUTPUT, temporary);
+            }
+            // Results with warnings are not cached, so that the warnings are always shown
+            if (cache != null && compiler.messages.errorCount() == 0) {
+                try {
+                    cache.storeFiles(key, outputs);
+                } catch (IOException e) {
+                    compiler.reportError(SourcePositionRange.INVALID,
+                            true, "Error writing to compilation cache", e.getMessage());
+                }
             }
-            stream.close();
         } catch (IOException e) {
             compiler.reportError(SourcePositionRange.INVALID,
                     false, "Error writing to file", e.getMessage());
-            return compiler.messages;
+        } finally {
+            if (temporary != null) {
+                try {
+                    Files.deleteIfExists(temporary);
+                } catch (IOException ignored) {
+                    // A leftover temporary file is harmless
+                }
+            }
         }
         return compiler.messages;
     }
@@ -0,0 +1,290 @@
+/*
+ * Copyright 2023 VMware, Inc.
+ * SPDX-License-Identifier: MIT
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package org.dbsp.sqlCompiler;
+
+import com.beust.jcommander.JCommander;
+import com.beust.jcommander.Parameter;
+import com.beust.jcommander.ParameterException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.NullNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.dbsp.sqlCompiler.compiler.CompilerOptions;
+import org.dbsp.sqlCompiler.compiler.errors.CompilerMessages;
+
+import javax.annotation.Nullable;
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Phaser;
+
+/**
+ * A long-running compiler process.  This avoids paying for the JVM
+ * startup and for loading and warming up Calcite on every compilation.
+ * Requests are read from stdin, or from connections to a local TCP port,
+ * one JSON object per line:
+ *   {"id": 1, "args": ["-j"], "sql": "CREATE TABLE ...; CREATE VIEW ..."}
+ * 'args' are the command-line options of CompilerMain; options that name
+ * files (-o, -js, -cache) and the options that need them (-jpg, -modules)
+ * are rejected, and the program is always given by 'sql'.  Each request
+ * produces one line:
+ *   {"id": 1, "exitCode": 0, "output": "...", "messages": [...]}
+ * 'output' is the compiler output, and 'messages' are the errors and warnings
+ * in the format produced by -je.  Responses of concurrent requests can be
+ * produced out of order; the 'id' is copied from the request.
+ * Requests are queued and compiled by a fixed pool of worker threads;
+ * each request uses a fresh compiler, so requests do not share any state.
+ */
+public class CompilerServer {
+    @SuppressWarnings("CanBeFinal")
+    static class Options {
+        @Parameter(names = "-port", description = "Serve requests on this local TCP port instead of stdin")
+        @Nullable
+        Integer port = null;
+        @Parameter(names = "-threads", description = "Number of requests compiled concurrently")
+        int threads = 1;
+        @Parameter(names = {"-h", "--help", "-"}, help = true, description = "Show this message and exit")
+        boolean help;
+    }
+
+    /**
+     * Name of the input file used for requests that supply the SQL program.
+     */
+    static final String REQUEST_INPUT = "request.sql";
+
+    final ObjectMapper mapper;
+    final ExecutorService workers;
+
+    public CompilerServer(int threads) {
+        this.mapper = new ObjectMapper();
+        this.workers = Executors.newFixedThreadPool(threads);
+    }
+
+    ObjectNode error(JsonNode id, String errorType, @Nullable String message) {
+        ObjectNode response = this.mapper.createObjectNode();
+        response.set("id", id);
+        response.put("exitCode", 1);
+        response.put("output", "");
+        ArrayNode messages = response.putArray("messages");
+        ObjectNode error = messages.addObject();
+        error.put("warning", false);
+        error.put("errorType", errorType);
+        error.put("message", message);
+        return response;
+    }
+
+    /**
+     * The server must not read or write files on behalf of its clients,
+     * and always returns the output in the response.
+     * @return  The first option that the server does not accept, or null.
+     */
+    @Nullable
+    static String rejectedOption(CompilerOptions options) {
+        if (!REQUEST_INPUT.equals(options.ioOptions.inputFile))
+            return options.ioOptions.inputFile;
+        if (options.ioOptions.outputFile != null)
+            return "-o";
+        if (options.ioOptions.emitJsonSchema != null)
+            return "-js";
+        if (options.ioOptions.cacheDirectory != null)
+            return "-cache";
+        if (options.ioOptions.emitJpeg)
+            return "-jpg";
+        if (options.ioOptions.emitModules)
+            return "-modules";
+        return null;
+    }
+
+    /**
+     * Compile the program described by a request.
+     * @return  The response for the request.
+     */
+    public ObjectNode compile(JsonNode request) {
+        JsonNode id = request.has("id") ? request.get("id") : NullNode.getInstance();
+        List<String> args = new ArrayList<>();
+        if (request.has("args"))
+            request.get("args").forEach(a -> args.add(a.asText()));
+        if (!request.has("sql"))
+            return this.error(id, "Invalid request", "Missing 'sql' field");
+        String sql = request.get("sql").asText();
+        args.add(REQUEST_INPUT);
+
+        CompilerOptions options = new CompilerOptions();
+        try {
+            JCommander.newBuilder()
+                    .addObject(options)
+                    .build()
+                    .parse(args.toArray(new String[0]));
+        } catch (ParameterException ex) {
+            return this.error(id, "Invalid arguments", ex.getMessage());
+        }
+        @Nullable String rejected = rejectedOption(options);
+        if (rejected != null)
+            return this.error(id, "Invalid arguments", "Option " + rejected + " is not supported by the server");
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        CompilerMain main = new CompilerMain(options) {
+            @Override
+            PrintStream getOutputStream() throws IOException {
+                return new PrintStream(output, true, StandardCharsets.UTF_8.name());
+            }
+
+            @Override
+            InputStream getInputFile(@Nullable String inputFile) {
+                return new ByteArrayInputStream(sql.getBytes(StandardCharsets.UTF_8));
+            }
+        };
+        CompilerMessages messages;
+        try {
+            messages = main.run();
+        } catch (Throwable ex) {
+            return this.error(id, "This is a bug in the compiler (please report it to the developers)",
+                    ex.getMessage());
+        }
+
+        ObjectNode response = this.mapper.createObjectNode();
+        response.set("id", id);
+        response.put("exitCode", messages.exitCode);
+        response.put("output", new String(output.toByteArray(), StandardCharsets.UTF_8));
+        response.set("messages", messages.toJson());
+        return response;
+    }
+
+    /**
+     * Compile a small program, to load and exercise the compiler classes
+     * before the first request arrives.
+     */
+    void warmUp() {
+        ObjectNode request = this.mapper.createObjectNode();
+        request.put("sql", "CREATE TABLE T(COL1 INT, COL2 VARCHAR);\n" +
+                "CREATE VIEW V AS SELECT COL1 + 1, COUNT(*) FROM T WHERE COL2 > 'a' GROUP BY COL1;");
+        this.compile(request);
+        request.putArray("args").add("-j");
+        this.compile(request);
+    }
+
+    void respond(Writer writer, JsonNode response) {
+        synchronized (writer) {
+            try {
+                writer.write(response.toString());
+                writer.write('\n');
+                writer.flush();
+            } catch (IOException ex) {
+                System.err.println("Error writing response: " + ex.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Serve the requests read from 'input' until the end of the stream.
+     * Returns after all responses have been written to 'output'.
+     */
+    public void serve(InputStream input, OutputStream output) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+        // One party for this thread, and one for each request in flight.
+        Phaser inFlight = new Phaser(1);
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.trim().isEmpty())
+                continue;
+            JsonNode request;
+            try {
+                request = this.mapper.readTree(line);
+            } catch (JsonProcessingException ex) {
+                this.respond(writer, this.error(NullNode.getInstance(), "Invalid request", ex.getMessage()));
+                continue;
+            }
+            inFlight.register();
+            this.workers.submit(() -> {
+                try {
+                    this.respond(writer, this.compile(request));
+                } finally {
+                    inFlight.arriveAndDeregister();
+                }
+            });
+        }
+        inFlight.arriveAndAwaitAdvance();
+    }
+
+    /**
+     * Accept connections on a local port forever; each connection
+     * is served like stdin, and all share the same request queue.
+     */
+    void listen(int port) throws IOException {
+        try (ServerSocket server = new ServerSocket(port, 50, InetAddress.getLoopbackAddress())) {
+            while (true) {
+                Socket socket = server.accept();
+                Thread connection = new Thread(() -> {
+                    try (Socket s = socket) {
+                        this.serve(s.getInputStream(), s.getOutputStream());
+                    } catch (IOException ex) {
+                        System.err.println("Error serving connection: " + ex.getMessage());
+                    }
+                });
+                connection.setDaemon(true);
+                connection.start();
+            }
+        }
+    }
+
+    public void shutdown() {
+        this.workers.shutdown();
+    }
+
+    public static void main(String[] argv) throws IOException {
+        Options options = new Options();
+        JCommander commander = JCommander.newBuilder()
+                .addObject(options)
+                .build();
+        commander.setProgramName("sql-to-dbsp-server");
+        try {
+            commander.parse(argv);
+        } catch (ParameterException ex) {
+            commander.usage();
+            System.exit(1);
+        }
+        if (options.help || options.threads < 1) {
+            commander.usage();
+            System.exit(1);
+        }
+        CompilerServer server = new CompilerServer(options.threads);
+        server.warmUp();
+        if (options.port != null) {
+            server.listen(options.port);
+        } else {
+            server.serve(System.in, System.out);
+        }
+        server.shutdown();
+    }
+}
@@ -78,10 +78,12 @@ public class DBSPPartialCircuit extends DBSPNode implements IDBSPOuterNode, IMod
     }
 
     public void addOperator(DBSPOperator operator) {
-        Logger.INSTANCE.from(this, 1)
-                .append("Adding ")
-                .append(operator.toString())
-                .newline();
+        if (Logger.INSTANCE.isEnabled(this, 1)) {
+            Logger.INSTANCE.from(this, 1)
+                    .append("Adding ")
+                    .append(operator.toString())
+                    .newline();
+        }
         if (this.operatorDeclarations.containsKey(operator.outputName)) {
             compiler.reportError(operator.getSourcePosition(), false, "Duplicate definition",
                     "View " + operator.outputName + " already defined");
@@ -0,0 +1,322 @@
+/*
+ * Copyright 2023 VMware, Inc.
+ * SPDX-License-Identifier: MIT
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package org.dbsp.sqlCompiler.compiler;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.dbsp.sqlCompiler.CompilerMain;
+import org.dbsp.util.IModule;
+import org.dbsp.util.Logger;
+import org.dbsp.util.Utilities;
+
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.security.CodeSource;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * An on-disk cache of compilation results.
+ * Each entry is a directory named by a key, which is a hash of everything
+ * that can influence the compilation results: the compiler version,
+ * the compiler options and the program compiled.
+ * An entry holds a set of files, identified by name.
+ * The cache can be shared by several processes: entries are created
+ * atomically, and a failure to read an entry is treated as a miss.
+ * Entries are evicted when they have not been used for a while,
+ * or when the total size of the cache exceeds a limit,
+ * least recently used entries first.
+ */
+public class CompilationCache implements IModule {
+    /**
+     * Prefix of the names of the directories which hold entries being created.
+     */
+    static final String TEMP_PREFIX = "tmp-";
+    @Nullable
+    static String compilerVersion = null;
+
+    final Path directory;
+    final long maxBytes;
+    final long maxAgeMillis;
+
+    /**
+     * Create a compilation cache.
+     * @param directory     Directory holding the cache; created if it does not exist.
+     * @param maxBytes      Maximum total size of the cached files.
+     * @param maxAgeMillis  Entries not used in this many milliseconds are removed.
+     */
+    public CompilationCache(String directory, long maxBytes, long maxAgeMillis) {
+        this.directory = Paths.get(directory);
+        this.maxBytes = maxBytes;
+        this.maxAgeMillis = maxAgeMillis;
+    }
+
+    /**
+     * Create a compilation cache configured by the compiler options.
+     */
+    public CompilationCache(CompilerOptions.IO options) {
+        this(Objects.requireNonNull(options.cacheDirectory),
+                options.cacheSize * 1024 * 1024,
+                options.cacheAge * 24L * 3600 * 1000);
+    }
+
+    /**
+     * Builds a cache key by hashing a sequence of values.
+     */
+    public static class KeyBuilder {
+        final MessageDigest digest;
+
+        public KeyBuilder() {
+            try {
+                this.digest = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException ex) {
+                throw new RuntimeException(ex);
+            }
+            this.add(getCompilerVersion());
+        }
+
+        public KeyBuilder add(byte[] data) {
+            // The length makes the encoding of the sequence unambiguous
+            int length = data.length;
+            this.digest.update(new byte[] {
+                    (byte) (length >>> 24), (byte) (length >>> 16), (byte) (length >>> 8), (byte) length });
+            this.digest.update(data);
+            return this;
+        }
+
+        public KeyBuilder add(@Nullable Object value) {
+            return this.add(String.valueOf(value).getBytes(StandardCharsets.UTF_8));
+        }
+
+        /**
+         * Add the options which influence the compiler output.
+         * Options that only name files, or that configure the cache, are ignored.
+         */
+        public KeyBuilder add(CompilerOptions options) {
+            ObjectMapper mapper = new ObjectMapper();
+            ObjectNode node = mapper.valueToTree(options);
+            ObjectNode io = (ObjectNode) node.get("ioOptions");
+            io.remove("inputFile");
+            io.remove("outputFile");
+            io.remove("cacheDirectory");
+            io.remove("cacheSize");
+            io.remove("cacheAge");
+            io.put("emitJsonSchema", options.ioOptions.emitJsonSchema != null);
+            return this.add(node.toString());
+        }
+
+        public String build() {
+            return Utilities.toHex(this.digest.digest());
+        }
+    }
+
+    /**
+     * A string which changes whenever the compiler is rebuilt.
+     * Uses the size and timestamp of the jar file or of the
+     * directory tree containing the compiler classes.
+     */
+    static synchronized String getCompilerVersion() {
+        if (compilerVersion != null)
+            return compilerVersion;
+        StringBuilder builder = new StringBuilder();
+        Package pack = CompilerMain.class.getPackage();
+        builder.append(pack != null ? pack.getImplementationVersion() : null);
+        try {
+            CodeSource source = CompilerMain.class.getProtectionDomain().getCodeSource();
+            if (source != null) {
+                File location = new File(source.getLocation().toURI());
+                if (location.isDirectory()) {
+                    long newest = 0;
+                    long count = 0;
+                    try (Stream<Path> files = Files.walk(location.toPath())) {
+                        for (Iterator<Path> it = files.iterator(); it.hasNext(); ) {
+                            newest = Math.max(newest, Files.getLastModifiedTime(it.next()).toMillis());
+                            count++;
+                        }
+                    }
+                    builder.append(":").append(count).append(":").append(newest);
+                } else {
+                    builder.append(":").append(location.length())
+                            .append(":").append(location.lastModified());
+                }
+            }
+        } catch (URISyntaxException | IOException | SecurityException ex) {
+            // Fall back to the implementation version alone
+        }
+        compilerVersion = builder.toString();
+        return compilerVersion;
+    }
+
+    Path entry(String key) {
+        return this.directory.resolve(key);
+    }
+
+    /**
+     * Find the files stored under a key.
+     * @param key  Key of the entry.
+     * @return     A map from file name to file contents, or null on a miss.
+     */
+    @Nullable
+    public Map<String, byte[]> lookup(String key) {
+        Path entry = this.entry(key);
+        if (!Files.isDirectory(entry))
+            return null;
+        Map<String, byte[]> result = new HashMap<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(entry)) {
+            for (Path file : files)
+                result.put(file.getFileName().toString(), Files.readAllBytes(file));
+            // The modification time of the entry records its last use
+            Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException ex) {
+            // The entry may have been evicted concurrently
+            return null;
+        }
+        Logger.INSTANCE.from(this, 1)
+                .append("Cache hit ")
+                .append(key)
+                .newline();
+        return result;
+    }
+
+    /**
+     * Writes the files of a cache entry.
+     */
+    interface EntryWriter {
+        /**
+         * Write the files of the entry in the specified directory.
+         */
+        void write(Path directory) throws IOException;
+    }
+
+    /**
+     * Store a set of files under a key, replacing any previous entry.
+     * @param key    Key of the entry.
+     * @param files  A map from file name to file contents.
+     */
+    public void store(String key, Map<String, byte[]> files) throws IOException {
+        this.store(key, temp -> {
+            for (Map.Entry<String, byte[]> file : files.entrySet())
+                Files.write(temp.resolve(file.getKey()), file.getValue());
+        });
+    }
+
+    /**
+     * Store copies of a set of existing files under a key, replacing any previous entry.
+     * @param key    Key of the entry.
+     * @param files  A map from file name in the cache to the file to copy.
+     */
+    public void storeFiles(String key, Map<String, Path> files) throws IOException {
+        this.store(key, temp -> {
+            for (Map.Entry<String, Path> file : files.entrySet())
+                Files.copy(file.getValue(), temp.resolve(file.getKey()));
+        });
+    }
+
+    void store(String key, EntryWriter writer) throws IOException {
+        Files.createDirectories(this.directory);
+        Path temp = Files.createTempDirectory(this.directory, TEMP_PREFIX);
+        try {
+            writer.write(temp);
+            Path entry = this.entry(key);
+            if (Files.exists(entry))
+                deleteDirectory(entry);
+            Files.move(temp, entry, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException ex) {
+            // Another process may have created the same entry
+            deleteDirectory(temp);
+        }
+        this.evict();
+    }
+
+    static long size(Path entry) throws IOException {
+        long size = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(entry)) {
+            for (Path file : files)
+                size += Files.size(file);
+        }
+        return size;
+    }
+
+    static void deleteDirectory(Path directory) {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files)
+                Files.deleteIfExists(file);
+            Files.deleteIfExists(directory);
+        } catch (IOException ex) {
+            // Ignore: the directory may be deleted concurrently
+        }
+    }
+
+    /**
+     * Remove the entries which have not been used recently,
+     * and then the least recently used entries until the cache fits in the size limit.
+     */
+    public void evict() throws IOException {
+        long now = System.currentTimeMillis();
+        List<Path> entries = new ArrayList<>();
+        Map<Path, Long> lastUsed = new HashMap<>();
+        Map<Path, Long> sizes = new HashMap<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(this.directory)) {
+            for (Path entry : files) {
+                if (!Files.isDirectory(entry))
+                    continue;
+                try {
+                    lastUsed.put(entry, Files.getLastModifiedTime(entry).toMillis());
+                    sizes.put(entry, size(entry));
+                } catch (IOException ex) {
+                    continue;
+                }
+                // Entries being created by other processes are only removed if abandoned
+                if (entry.getFileName().toString().startsWith(TEMP_PREFIX)) {
+                    if (now - lastUsed.get(entry) > this.maxAgeMillis)
+                        deleteDirectory(entry);
+                    continue;
+                }
+                entries.add(entry);
+            }
+        }
+        entries.sort(Comparator.comparing(lastUsed::get).reversed());
+        long total = 0;
+        for (Path entry : entries) {
+            boolean old = now - lastUsed.get(entry) > this.maxAgeMillis;
+            if (!old)
+                total += sizes.get(entry);
+            if (old || total > this.maxBytes) {
+                Logger.INSTANCE.from(this, 1)
+                        .append("Evicting ")
+                        .append(entry.toString())
+                        .newline();
+                deleteDirectory(entry);
+            }
+        }
+    }
+}
@@ -54,6 +54,8 @@ public class CompilerOptions {
         public boolean throwOnError = false;
         @Parameter(names = "-alltables", description = "Generate an input for each CREATE TABLE, even if the table is not used by any view")
         public boolean generateInputForEveryTable = false;
+        @Parameter(names = "-parallel", description = "Compile independent views in parallel")
+        public boolean parallelViews = false;
     }
 
     /**
@@ -68,6 +70,8 @@ public class CompilerOptions {
         public boolean emitJson = false;
         @Parameter(names = "-jpg", description = "Emit a jpg image of the circuit instead of Rust")
         public boolean emitJpeg = false;
+        @Parameter(names = "-modules", description = "Emit Rust code as a set of modules, one per view, in the directory given by -o")
+        public boolean emitModules = false;
         @Parameter(names = "-je", description = "Emit error messages as a JSON array to stderr")
         public boolean emitJsonErrors = false;
         @Parameter(names = "-js", description = "File containing schemas of all views and tables involved (in json)")
@@ -78,6 +82,13 @@ public class CompilerOptions {
         public String inputFile = null;
         @Parameter(names = "-f", description = "Name of function to generate")
         public String functionName = "circuit";
+        @Parameter(names = "-cache", description = "Directory used to cache compilation results")
+        @Nullable
+        public String cacheDirectory = null;
+        @Parameter(names = "-cacheSize", description = "Maximum size of the compilation cache in MB")
+        public long cacheSize = 1024;
+        @Parameter(names = "-cacheAge", description = "Remove compilation cache entries not used in this many days")
+        public int cacheAge = 30;
         @Parameter(names = "-d", description = "SQL syntax dialect used",
                    converter = SqlLexicalRulesConverter.class)
         public Lex lexicalRules;
@@ -27,8 +27,10 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.apache.calcite.runtime.CalciteContextException;
+import org.apache.calcite.sql.SqlKind;
 import org.apache.calcite.sql.SqlNode;
 import org.apache.calcite.sql.SqlNodeList;
+import org.apache.calcite.sql.ddl.SqlCreateView;
 import org.apache.calcite.sql.parser.SqlParseException;
 import org.dbsp.sqlCompiler.circuit.DBSPPartialCircuit;
 import org.dbsp.sqlCompiler.circuit.DBSPCircuit;
@@ -40,10 +42,13 @@ import org.dbsp.sqlCompiler.compiler.errors.SourcePositionRange;
 import org.dbsp.sqlCompiler.compiler.frontend.TypeCompiler;
 import org.dbsp.sqlCompiler.compiler.optimizer.CircuitOptimizer;
 import org.dbsp.sqlCompiler.compiler.sqlparser.CalciteCompiler;
+import org.dbsp.sqlCompiler.compiler.frontend.statements.CreateViewStatement;
 import org.dbsp.sqlCompiler.compiler.frontend.statements.FrontEndStatement;
 import org.dbsp.sqlCompiler.compiler.frontend.CalciteToDBSPCompiler;
 import org.dbsp.sqlCompiler.compiler.frontend.TableContents;
 import org.dbsp.util.IModule;
+import org.dbsp.util.IdScope;
+import org.dbsp.util.Linq;
 import org.dbsp.util.Logger;
 import org.dbsp.util.Unimplemented;
 
@@ -51,6 +56,9 @@ import javax.annotation.Nullable;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.PrintStream;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 /**
  * This class compiles SQL statements into DBSP circuits.
@@ -102,12 +110,21 @@ public class DBSPCompiler implements IModule, ICompilerComponent {
      * Circuit produced by the compiler.
      */
     public @Nullable DBSPCircuit circuit;
+    /**
+     * Counters for node ids and fresh names.  Each compiler has its own,
+     * so compilers are independent of each other and can run on different threads.
+     * A single compiler instance is not thread-safe.
+     */
+    public final IdScope idScope;
 
     public DBSPCompiler(CompilerOptions options) {
         this.options = options;
+        this.idScope = new IdScope();
         this.mapper = new ObjectMapper();
         this.frontend = new CalciteCompiler(options);
-        this.midend = new CalciteToDBSPCompiler(this.frontend, true, options, this);
+        try (IdScope.Entered ignored = this.idScope.enter()) {
+            this.midend = new CalciteToDBSPCompiler(this.frontend, true, options, this);
+        }
         this.messages = new CompilerMessages(this);
         this.sources = new SourceFileContents();
         this.circuit = null;
@@ -168,20 +185,26 @@ public class DBSPCompiler implements IModule, ICompilerComponent {
             this.sources.append(statements);
         }
 
-        try {
+        try (IdScope.Entered ignored = this.idScope.enter()) {
             if (many) {
                 SqlNodeList nodes = this.frontend.parseStatements(statements);
-                for (SqlNode node : nodes) {
-                    FrontEndStatement fe = this.frontend.compile(node.toString(), node, null, this.inputs, this.outputs);
-                    this.midend.compile(fe);
+                if (this.options.optimizerOptions.parallelViews) {
+                    this.compileParallel(nodes);
+                } else {
+                    for (SqlNode node : nodes) {
+                        FrontEndStatement fe = this.frontend.compile(node.toString(), node, null, this.inputs, this.outputs);
+                        this.midend.compile(fe);
+                    }
                 }
             } else {
                 SqlNode node = this.frontend.parse(statements);
-                Logger.INSTANCE.from(this, 2)
-                        .append("Parsing result")
-                        .newline()
-                        .append(node.toString())
-                        .newline();
+                if (Logger.INSTANCE.isEnabled(this, 2)) {
+                    Logger.INSTANCE.from(this, 2)
+                            .append("Parsing result")
+                            .newline()
+                            .append(node.toString())
+                            .newline();
+                }
                 FrontEndStatement fe = this.frontend.compile(statements, node, comment, this.inputs, this.outputs);
                 this.midend.compile(fe);
             }
@@ -204,6 +227,61 @@ public class DBSPCompiler implements IModule, ICompilerComponent {
         }
     }
 
+    /**
+     * Compile a list of statements.  The front-end work (validation,
+     * conversion to RelNode and optimization) for consecutive views that
+     * do not refer to each other runs in parallel.  The views are
+     * added to the catalog and translated to DBSP in program order,
+     * so the result is the same as for a sequential compilation.
+     */
+    void compileParallel(SqlNodeList nodes) {
+        List<SqlNode> views = new ArrayList<>();
+        // Lowercase names of the views in 'views'
+        Set<String> viewNames = new HashSet<>();
+        for (SqlNode node : nodes) {
+            boolean isView = node.getKind() == SqlKind.CREATE_VIEW;
+            if (!isView || CalciteCompiler.mentions(((SqlCreateView) node).query, viewNames)) {
+                this.compileViews(views);
+                views.clear();
+                viewNames.clear();
+            }
+            if (isView) {
+                views.add(node);
+                for (String name: ((SqlCreateView) node).name.names)
+                    viewNames.add(name.toLowerCase(Locale.ROOT));
+            } else {
+                FrontEndStatement fe = this.frontend.compile(node.toString(), node, null, this.inputs, this.outputs);
+                this.midend.compile(fe);
+            }
+        }
+        this.compileViews(views);
+    }
+
+    /**
+     * Compile a list of independent views, running the front-end in parallel.
+     */
+    void compileViews(List<SqlNode> views) {
+        List<ForkJoinTask<CreateViewStatement>> tasks = Linq.map(views,
+                v -> ForkJoinPool.commonPool().submit(() -> this.frontend.compileViewConcurrently(v)));
+        // Wait for all, so that no task is still reading the catalog
+        // if we stop at an error.
+        for (ForkJoinTask<CreateViewStatement> task: tasks)
+            task.quietlyJoin();
+        for (ForkJoinTask<CreateViewStatement> task: tasks) {
+            if (task.isCompletedAbnormally()) {
+                Throwable error = task.getException();
+                if (error instanceof RuntimeException)
+                    throw (RuntimeException) error;
+                if (error instanceof Error)
+                    throw (Error) error;
+                throw new RuntimeException(error);
+            }
+            CreateViewStatement view = task.join();
+            this.frontend.registerView(view, this.outputs);
+            this.midend.compile(view);
+        }
+    }
+
     public void compileStatement(String statement, @Nullable String comment) {
         this.setSource(InputSource.API);
         this.compileInternal(statement, false, comment);
@@ -218,8 +296,10 @@ public class DBSPCompiler implements IModule, ICompilerComponent {
         if (this.circuit == null) {
             this.circuit = this.getFinalCircuit("tmp");
         }
-        CircuitOptimizer optimizer = new CircuitOptimizer(this.options.optimizerOptions, this);
-        this.circuit = optimizer.optimize(circuit);
+        try (IdScope.Entered ignored = this.idScope.enter()) {
+            CircuitOptimizer optimizer = new CircuitOptimizer(this.options.optimizerOptions, this);
+            this.circuit = optimizer.optimize(circuit);
+        }
     }
 
     public void compileStatement(String statement) {
@@ -250,13 +330,15 @@ public class DBSPCompiler implements IModule, ICompilerComponent {
      * @param name  Name to use for the produced circuit.
      */
     public DBSPCircuit getFinalCircuit(String name) {
-        if (this.circuit == null) {
-            DBSPPartialCircuit circuit = this.midend.getFinalCircuit();
-            this.circuit = circuit.seal(name);
+        try (IdScope.Entered ignored = this.idScope.enter()) {
+            if (this.circuit == null) {
+                DBSPPartialCircuit circuit = this.midend.getFinalCircuit();
+                this.circuit = circuit.seal(name);
+            }
+            DBSPCircuit result = this.circuit.rename(name);
+            this.circuit = null;
+            return result;
         }
-        DBSPCircuit result = this.circuit.rename(name);
-        this.circuit = null;
-        return result;
     }
 
     /**
@@ -0,0 +1,313 @@
+/*
+ * Copyright 2022 VMware, Inc.
+ * SPDX-License-Identifier: MIT
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.dbsp.sqlCompiler.compiler.backend;
+
+import org.dbsp.sqlCompiler.compiler.frontend.ColumnarTable;
+import org.dbsp.sqlCompiler.ir.InnerVisitor;
+import org.dbsp.sqlCompiler.ir.expression.DBSPExpression;
+import org.dbsp.sqlCompiler.ir.expression.DBSPTupleExpression;
+import org.dbsp.sqlCompiler.ir.expression.literal.*;
+import org.dbsp.sqlCompiler.ir.type.DBSPType;
+import org.dbsp.sqlCompiler.ir.type.DBSPTypeTuple;
+import org.dbsp.sqlCompiler.ir.type.primitive.*;
+import org.dbsp.util.UnsupportedException;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * This visitor can be used to serialize ZSet literals to a compact binary representation.
+ * The layout is the one used by the Rust 'bincode' crate for a Vec<(T, Weight)>,
+ * so the runtime can deserialize it directly with serde:
+ * - the number of rows as an u64
+ * - for each row the fields of the tuple followed by the weight as an i64.
+ * All numbers are little-endian.  Strings are prefixed by their length in bytes (u64),
+ * nullable values are prefixed by a byte which is 0 for NULL and 1 otherwise.
+ * Unlike CSV this format can also represent negative weights.
+ */
+public class ToBinaryVisitor extends InnerVisitor {
+    static final DateTimeFormatter TIMESTAMP_FORMAT =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS").withZone(ZoneOffset.UTC);
+
+    private final OutputStream stream;
+    private final ByteBuffer buffer;
+
+    public ToBinaryVisitor(OutputStream destination) {
+        super(true);
+        this.stream = destination;
+        this.buffer = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    void flushBuffer() {
+        try {
+            this.stream.write(this.buffer.array(), 0, this.buffer.position());
+            this.buffer.clear();
+        } catch (IOException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    void writeLong(long value) {
+        this.buffer.putLong(value);
+        this.flushBuffer();
+    }
+
+    void writeString(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        this.writeLong(bytes.length);
+        try {
+            this.stream.write(bytes);
+        } catch (IOException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    /**
+     * Write the prefix of a literal which may be nullable.
+     * @return 'true' if the literal has a value which still needs to be written.
+     */
+    boolean writeNullPrefix(DBSPLiteral literal) {
+        if (literal.mayBeNull()) {
+            this.buffer.put((byte)(literal.isNull ? 0 : 1));
+            this.flushBuffer();
+        } else if (literal.isNull) {
+            throw new RuntimeException("Null value for non-nullable literal " + literal);
+        }
+        return !literal.isNull;
+    }
+
+    /**
+     * True if rows of the specified type can be written in this format.
+     * Tables with other column types have to use a different format, e.g., CSV.
+     * @param elementType  Type of the rows of a table.
+     */
+    public static boolean isSupported(DBSPType elementType) {
+        DBSPTypeTuple tuple = elementType.as(DBSPTypeTuple.class);
+        if (tuple == null)
+            return false;
+        for (DBSPType field : tuple.tupFields) {
+            DBSPTypeInteger integer = field.as(DBSPTypeInteger.class);
+            if (integer != null) {
+                if (!integer.signed || (integer.getWidth() != 32 && integer.getWidth() != 64))
+                    return false;
+                continue;
+            }
+            if (!field.is(DBSPTypeBool.class) &&
+                    !field.is(DBSPTypeFloat.class) &&
+                    !field.is(DBSPTypeDouble.class) &&
+                    !field.is(DBSPTypeString.class) &&
+                    !field.is(DBSPTypeDecimal.class) &&
+                    !field.is(DBSPTypeDate.class) &&
+                    !field.is(DBSPTypeTimestamp.class))
+                return false;
+        }
+        return true;
+    }
+
+    @Override
+    public boolean preorder(DBSPLiteral literal) {
+        // NULL literals have this type; other literals reach here only if
+        // their type is not supported by this format.
+        if (!literal.isNull)
+            throw new UnsupportedException(literal);
+        this.writeNullPrefix(literal);
+        return false;
+    }
+
+    @Override
+    public boolean preorder(DBSPBoolLiteral literal) {
+        if (this.writeNullPrefix(literal)) {
+            this.buffer.put((byte)(Objects.requireNonNull(literal.value) ? 1 : 0));
+            this.flushBuffer();
+        }
+        return false;
+    }
+
+    @Override
+    public boolean preorder(DBSPI32Literal literal) {
+        if (this.writeNullPrefix(literal)) {
+            this.buffer.putInt(Objects.requireNonNull(literal.value));
+            this.flushBuffer();
+        }
+        return false;
+    }
+
+    @Override
+    public boolean preorder(DBSPI64Literal literal) {
+        if (this.writeNullPrefix(literal))
+            this.writeLong(Objects.requireNonNull(literal.value));
+        return false;
+    }
+
+    @Override
+    public boolean preorder(DBSPFloatLiteral literal) {
+        if (this.writeNullPrefix(literal)) {
+            this.buffer.putFloat(Objects.requireNonNull(literal.value));
+            this.flushBuffer();
+        }
+        return false;
+    }
+
+    @Override
+    public boolean preorder(DBSPDoubleLiteral literal) {
+        if (this.writeNullPrefix(literal)) {
+            this.buffer.putDouble(Objects.requireNonNull(literal.value));
+            this.flushBuffer();
+        }
+        return false;
+    }
+
+    @Override
+    public boolean preorder(DBSPStringLiteral literal) {
+        if (this.writeNullPrefix(literal))
+            this.writeString(Objects.requireNonNull(literal.value));
+        return false;
+    }
+
+    // Decimals, dates and timestamps are deserialized from strings by the runtime library;
+    // decimals rely on the 'serde-str' feature of the rust_decimal crate.
+
+    @Override
+    public boolean preorder(DBSPDecimalLiteral literal) {
+        if (this.writeNullPrefix(literal))
+            this.writeString(((BigDecimal)Objects.requireNonNull(literal.value)).toPlainString());
+        return false;
+    }
+
+    @Override
+    public boolean preorder(DBSPDateLiteral literal) {
+        if (this.writeNullPrefix(literal)) {
+            int days = (Integer)Objects.requireNonNull(literal.value);
+            this.writeString(LocalDate.ofEpochDay(days).toString());
+        }
+        return false;
+    }
+
+    @Override
+    public boolean preorder(DBSPTimestampLiteral literal) {
+        if (this.writeNullPrefix(literal)) {
+            long millis = (Long)Objects.requireNonNull(literal.value);
+            this.writeString(TIMESTAMP_FORMAT.format(Instant.ofEpochMilli(millis)));
+        }
+        return false;
+    }
+
+    @Override
+    public boolean preorder(DBSPTupleExpression node) {
+        for (DBSPExpression expression : node.fields)
+            expression.accept(this);
+        return false;
+    }
+
+    @Override
+    public boolean preorder(DBSPZSetLiteral literal) {
+        this.writeLong(literal.size());
+        for (Map.Entry<DBSPExpression, Long> entry: literal.data.entrySet()) {
+            entry.getKey().accept(this);
+            this.writeLong(entry.getValue());
+        }
+        return false;
+    }
+
+    @Override
+    public boolean preorder(DBSPExpression expression) {
+        throw new UnsupportedException(expression);
+    }
+
+    /**
+     * Write a literal to a file in the binary format.
+     * @param fileName    File to write to.
+     * @param literal     Literal to write.
+     */
+    public static File toBinary(String fileName, DBSPZSetLiteral literal) throws IOException {
+        File file = new File(fileName);
+        try (OutputStream stream = new BufferedOutputStream(new FileOutputStream(file))) {
+            ToBinaryVisitor visitor = new ToBinaryVisitor(stream);
+            visitor.traverse(literal);
+        }
+        return file;
+    }
+
+    /**
+     * Write the contents of a table to a file in the binary format.
+     * The rows are converted to literals one at a time.
+     * @param fileName    File to write to.
+     * @param table       Table contents to write.
+     */
+    public static File toBinary(String fileName, ColumnarTable table) throws IOException {
+        table.consolidateIfNeeded();
+        File file = new File(fileName);
+        try (OutputStream stream = new BufferedOutputStream(new FileOutputStream(file))) {
+            ToBinaryVisitor visitor = new ToBinaryVisitor(stream);
+            visitor.writeLong(table.size());
+            for (int i = 0; i < table.size(); i++) {
+                visitor.traverse(table.getRow(i));
+                visitor.writeLong(table.getWeight(i));
+            }
+        }
+        return file;
+    }
+
+    /**
+     * Write the contents of a table to a file as a sequence of batches.
+     * Each batch has the layout of a file written by 'toBinary' and
+     * is prefixed by its size in bytes (u64), so the runtime can read
+     * a whole batch into memory and deserialize it from there.
+     * @param fileName    File to write to.
+     * @param table       Table contents to write.
+     * @param batchSize   Maximum number of rows in each batch.
+     */
+    public static File toBinaryBatches(String fileName, ColumnarTable table, int batchSize) throws IOException {
+        if (batchSize <= 0)
+            throw new RuntimeException("Batch size must be positive " + batchSize);
+        table.consolidateIfNeeded();
+        File file = new File(fileName);
+        try (OutputStream stream = new BufferedOutputStream(new FileOutputStream(file))) {
+            ToBinaryVisitor output = new ToBinaryVisitor(stream);
+            ByteArrayOutputStream batch = new ByteArrayOutputStream();
+            ToBinaryVisitor visitor = new ToBinaryVisitor(batch);
+            for (int start = 0; start < table.size(); start += batchSize) {
+                int end = Math.min(table.size(), start + batchSize);
+                batch.reset();
+                visitor.writeLong(end - start);
+                for (int i = start; i < end; i++) {
+                    visitor.traverse(table.getRow(i));
+                    visitor.writeLong(table.getWeight(i));
+                }
+                output.writeLong(batch.size());
+                batch.writeTo(stream);
+            }
+        }
+        return file;
+    }
+}
@@ -23,14 +23,17 @@
 
 package org.dbsp.sqlCompiler.compiler.backend;
 
+import org.dbsp.sqlCompiler.compiler.frontend.ColumnarTable;
 import org.dbsp.sqlCompiler.ir.InnerVisitor;
 import org.dbsp.sqlCompiler.ir.expression.DBSPExpression;
 import org.dbsp.sqlCompiler.ir.expression.DBSPTupleExpression;
 import org.dbsp.sqlCompiler.ir.expression.literal.*;
 import org.dbsp.util.Utilities;
 
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileWriter;
+import java.io.Writer;
 import java.io.IOException;
 import java.util.Map;
 import java.util.function.Supplier;
@@ -188,4 +191,29 @@ public class ToCsvVisitor extends InnerVisitor {
         writer.close();
         return file;
     }
+
+    /**
+     * Write the contents of a table to a file in csv format.
+     * The rows are converted to literals one at a time.
+     * @param fileName    File to write to.
+     * @param table       Table contents to write.
+     */
+    public static File toCsv(String fileName, ColumnarTable table) throws IOException {
+        table.consolidateIfNeeded();
+        File file = new File(fileName);
+        try (Writer writer = new BufferedWriter(new FileWriter(file))) {
+            ToCsvVisitor visitor = new ToCsvVisitor(writer, () -> "");
+            for (int i = 0; i < table.size(); i++) {
+                DBSPTupleExpression row = table.getRow(i);
+                long weight = table.getWeight(i);
+                if (weight < 0)
+                    throw new RuntimeException("ZSet with negative weights is not representable as CSV");
+                for (; weight != 0; weight--) {
+                    visitor.traverse(row);
+                    writer.append("\n");
+                }
+            }
+        }
+        return file;
+    }
 }
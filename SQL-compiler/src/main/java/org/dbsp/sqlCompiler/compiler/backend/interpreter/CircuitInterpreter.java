@@ -0,0 +1,503 @@
+/*
+ * Copyright 2022 VMware, Inc.
+ * SPDX-License-Identifier: MIT
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.dbsp.sqlCompiler.compiler.backend.interpreter;
+
+import org.dbsp.sqlCompiler.circuit.DBSPCircuit;
+import org.dbsp.sqlCompiler.circuit.IDBSPDeclaration;
+import org.dbsp.sqlCompiler.circuit.operator.*;
+import org.dbsp.sqlCompiler.compiler.frontend.ColumnarTable;
+import org.dbsp.sqlCompiler.ir.CircuitVisitor;
+import org.dbsp.sqlCompiler.ir.DBSPAggregate;
+import org.dbsp.sqlCompiler.ir.expression.*;
+import org.dbsp.sqlCompiler.ir.expression.literal.DBSPZSetLiteral;
+import org.dbsp.sqlCompiler.ir.statement.DBSPLetStatement;
+import org.dbsp.sqlCompiler.ir.type.DBSPType;
+import org.dbsp.sqlCompiler.ir.type.DBSPTypeVec;
+import org.dbsp.sqlCompiler.ir.type.primitive.DBSPTypeUSize;
+import org.dbsp.util.Unimplemented;
+
+import javax.annotation.Nullable;
+import java.util.*;
+
+/**
+ * Interprets a DBSP circuit in the JVM.
+ * This is a reference implementation, which favors simplicity over speed:
+ * each step evaluates all operators in topological order.
+ * Incremental operators are implemented by integrating their inputs,
+ * evaluating the non-incremental version of the operator, and
+ * differentiating the result.
+ * Window aggregates and the lowered forms of aggregates and flatmaps
+ * (which only appear after the circuit is prepared for Rust)
+ * are not supported and throw Unimplemented.
+ */
+public class CircuitInterpreter extends CircuitVisitor {
+    final DBSPCircuit circuit;
+    final ExpressionEvaluator evaluator;
+    /**
+     * Value produced by each operator in the current step.
+     */
+    final Map<DBSPOperator, ZSet> values;
+    /**
+     * State kept between steps by the stateful operators.
+     */
+    final Map<DBSPOperator, ZSet> state;
+    /**
+     * Second state for the operators with two pieces of state,
+     * e.g., for incremental join the integral of the right input.
+     */
+    final Map<DBSPOperator, ZSet> secondState;
+    @Nullable
+    List<ZSet> inputs;
+
+    public CircuitInterpreter(DBSPCircuit circuit) {
+        super(true);
+        this.circuit = circuit;
+        Map<String, DBSPExpression> globals = new HashMap<>();
+        for (Map.Entry<String, IDBSPDeclaration> decl: circuit.circuit.declarations.entrySet()) {
+            DBSPLetStatement let = decl.getValue().as(DBSPLetStatement.class);
+            if (let != null && let.initializer != null)
+                globals.put(decl.getKey(), let.initializer);
+        }
+        this.evaluator = new ExpressionEvaluator(globals);
+        this.values = new HashMap<>();
+        this.state = new HashMap<>();
+        this.secondState = new HashMap<>();
+        this.inputs = null;
+    }
+
+    /**
+     * Convert a Z-set literal to a Z-set of runtime values.
+     */
+    public static ZSet toZSet(DBSPZSetLiteral literal) {
+        return (ZSet) Objects.requireNonNull(new ExpressionEvaluator().evaluate(literal));
+    }
+
+    /**
+     * Convert the contents of a table to a Z-set of runtime values.
+     * The rows are converted one at a time.
+     */
+    public static ZSet toZSet(ColumnarTable table) {
+        ExpressionEvaluator evaluator = new ExpressionEvaluator();
+        ZSet zset = new ZSet(table.size());
+        for (int i = 0; i < table.size(); i++)
+            zset.add(Objects.requireNonNull(evaluator.evaluate(table.getRow(i))), table.getWeight(i));
+        return zset;
+    }
+
+    /**
+     * Execute one step of the circuit.
+     * @param inputs  One input for each circuit input, in the order of
+     *                circuit.getInputTables().
+     * @return        The circuit outputs.
+     */
+    public List<ZSet> step(List<ZSet> inputs) {
+        if (inputs.size() != this.circuit.circuit.inputOperators.size())
+            throw new RuntimeException("Circuit expects " + this.circuit.circuit.inputOperators.size() +
+                    " inputs, but received " + inputs.size());
+        this.inputs = inputs;
+        this.values.clear();
+        this.apply(this.circuit);
+        List<ZSet> result = new ArrayList<>();
+        for (DBSPOperator output: this.circuit.circuit.outputOperators)
+            result.add(this.getValue(output));
+        this.inputs = null;
+        return result;
+    }
+
+    public List<ZSet> step(ZSet... inputs) {
+        return this.step(Arrays.asList(inputs));
+    }
+
+    ZSet getValue(DBSPOperator operator) {
+        ZSet value = this.values.get(operator);
+        if (value == null)
+            throw new RuntimeException("No value computed for " + operator);
+        return value;
+    }
+
+    ZSet getInput(DBSPOperator operator, int index) {
+        return this.getValue(operator.inputs.get(index));
+    }
+
+    void setValue(DBSPOperator operator, ZSet value) {
+        this.values.put(operator, value);
+    }
+
+    /**
+     * Get the function of an operator, resolving references to declarations.
+     */
+    DBSPExpression getFunction(DBSPOperator operator) {
+        DBSPExpression function = operator.getFunction();
+        while (function.is(DBSPVariablePath.class)) {
+            String name = function.to(DBSPVariablePath.class).variable;
+            DBSPExpression definition = this.evaluator.globals.get(name);
+            if (definition == null)
+                break;
+            function = definition;
+        }
+        return function;
+    }
+
+    DBSPClosureExpression getClosure(DBSPOperator operator) {
+        DBSPExpression function = this.getFunction(operator);
+        DBSPClosureExpression closure = function.as(DBSPClosureExpression.class);
+        if (closure == null)
+            throw new Unimplemented(operator);
+        return closure;
+    }
+
+    /**
+     * Integrate a value in the state of an operator.
+     */
+    static ZSet integrate(Map<DBSPOperator, ZSet> state, DBSPOperator operator, ZSet delta) {
+        ZSet integral = state.computeIfAbsent(operator, o -> new ZSet());
+        integral.add(delta);
+        return integral;
+    }
+
+    /**
+     * Returns the difference between the current and the previous
+     * value of the operator, and saves the current value.
+     */
+    static ZSet differentiate(Map<DBSPOperator, ZSet> state, DBSPOperator operator, ZSet current) {
+        ZSet previous = state.get(operator);
+        state.put(operator, current);
+        if (previous == null)
+            return current.copy();
+        return current.minus(previous);
+    }
+
+    /**
+     * Group the elements of an indexed Z-set by key.
+     */
+    static Map<Object, List<Map.Entry<Object, Long>>> groupByKey(ZSet indexed) {
+        Map<Object, List<Map.Entry<Object, Long>>> result = new HashMap<>();
+        indexed.forEach((kv, w) -> {
+            Tuple tuple = (Tuple) kv;
+            result.computeIfAbsent(Objects.requireNonNull(tuple.get(0)), k -> new ArrayList<>())
+                    .add(new AbstractMap.SimpleEntry<>(tuple.get(1), w));
+        });
+        return result;
+    }
+
+    ZSet join(DBSPOperator operator, ZSet left, ZSet right) {
+        DBSPClosureExpression closure = this.getClosure(operator);
+        Map<Object, List<Map.Entry<Object, Long>>> rightGroups = groupByKey(right);
+        ZSet result = new ZSet();
+        left.forEach((kv, lw) -> {
+            Tuple tuple = (Tuple) kv;
+            Object key = Objects.requireNonNull(tuple.get(0));
+            List<Map.Entry<Object, Long>> matches = rightGroups.get(key);
+            if (matches == null)
+                return;
+            for (Map.Entry<Object, Long> match: matches) {
+                Object value = this.evaluator.apply(closure, key, tuple.get(1), match.getKey());
+                result.add(Objects.requireNonNull(value), Math.multiplyExact(lw, match.getValue()));
+            }
+        });
+        return result;
+    }
+
+    static ZSet distinct(ZSet input) {
+        ZSet result = new ZSet(input.size());
+        input.forEach((k, w) -> {
+            if (w > 0)
+                result.add(k, 1);
+        });
+        return result;
+    }
+
+    ZSet aggregate(DBSPAggregateOperatorBase operator, ZSet input) {
+        Map<Object, List<Map.Entry<Object, Long>>> groups = groupByKey(input);
+        ZSet result = new ZSet(groups.size());
+        if (operator.aggregate != null) {
+            DBSPAggregate aggregate = operator.aggregate;
+            DBSPExpression zero = aggregate.getZero();
+            DBSPClosureExpression increment = aggregate.getIncrement();
+            DBSPClosureExpression post = aggregate.getPostprocessing();
+            for (Map.Entry<Object, List<Map.Entry<Object, Long>>> group: groups.entrySet()) {
+                Object accumulator = this.evaluator.evaluate(zero);
+                for (Map.Entry<Object, Long> entry: group.getValue())
+                    accumulator = this.evaluator.apply(increment, accumulator, entry.getKey(), entry.getValue());
+                Object value = this.evaluator.apply(post, accumulator);
+                result.add(new Tuple(group.getKey(), value), 1);
+            }
+            return result;
+        }
+        // The only aggregation function generated by the compiler collects
+        // all values in a vector, which is used for ORDER BY.
+        DBSPType outputType = operator.getNonVoidType();
+        boolean toVec = false;
+        if (operator.is(DBSPAggregateOperator.class))
+            toVec = operator.to(DBSPAggregateOperator.class).outputElementType.is(DBSPTypeVec.class);
+        else if (operator.is(DBSPIncrementalAggregateOperator.class))
+            toVec = operator.to(DBSPIncrementalAggregateOperator.class).outputElementType.is(DBSPTypeVec.class);
+        if (!toVec)
+            throw new Unimplemented(operator);
+        for (Map.Entry<Object, List<Map.Entry<Object, Long>>> group: groups.entrySet()) {
+            List<Object> vector = new ArrayList<>();
+            for (Map.Entry<Object, Long> entry: group.getValue()) {
+                if (entry.getValue() < 0)
+                    throw new RuntimeException("Negative weight " + entry.getValue() + " in " + outputType);
+                for (long i = 0; i < entry.getValue(); i++)
+                    vector.add(entry.getKey());
+            }
+            result.add(new Tuple(group.getKey(), vector), 1);
+        }
+        return result;
+    }
+
+    Comparator<Object> getComparator(DBSPComparatorExpression comparator) {
+        if (comparator.is(DBSPNoComparatorExpression.class))
+            return (left, right) -> 0;
+        DBSPFieldComparatorExpression field = comparator.to(DBSPFieldComparatorExpression.class);
+        Comparator<Object> source = this.getComparator(field.source);
+        int fieldNo = field.fieldNo;
+        Comparator<Object> compareField = (left, right) ->
+                Values.compare(((Tuple) left).get(fieldNo), ((Tuple) right).get(fieldNo));
+        if (!field.ascending)
+            compareField = compareField.reversed();
+        return source.thenComparing(compareField);
+    }
+
+    /////////////////////////// Operators
+
+    @Override
+    public boolean preorder(DBSPOperator operator) {
+        throw new Unimplemented(operator);
+    }
+
+    @Override
+    public boolean preorder(DBSPSourceOperator operator) {
+        int index = this.circuit.circuit.inputOperators.indexOf(operator);
+        this.setValue(operator, Objects.requireNonNull(this.inputs).get(index));
+        return false;
+    }
+
+    @Override
+    public boolean preorder(DBSPConstantOperator operator) {
+        this.setValue(operator, (ZSet) Objects.requireNonNull(this.evaluator.evaluate(operator.getFunction())));
+        return false;
+    }
+
+    @Override
+    public boolean preorder(DBSPSinkOperator operator) {
+        this.setValue(operator, this.getInput(operator, 0));
+        return false;
+    }
+
+    @Override
+    public boolean preorder(DBSPNoopOperator operator) {
+        this.setValue(operator, this.getInput(operator, 0));
+        return false;
+    }
+
+    @Override
+    public boolean preorder(DBSPMapOperator operator) {
+        ZSet input = this.getInput(operator, 0);
+        DBSPExpression function = this.getFunction(operator);
+        ZSet result = new ZSet(input.size());
+        if (function.is(DBSPSortExpression.class)) {
+            // Sort the vectors produced by an aggregation
+            Comparator<Object> comparator = this.getComparator(
+                    function.to(DBSPSortExpression.class).comparator);
+            input.forEach((kv, w) -> {
+                @SuppressWarnings("unchecked")
+                List<Object> vector = new ArrayList<>((List<Object>) Objects.requireNonNull(((Tuple) kv).get(1)));
+                vector.sort(comparator);
+                result.add(vector, w);
+            });
+        } else {
+            DBSPClosureExpression closure = this.getClosure(operator);
+            input.forEach((k, w) -> result.add(Objects.requireNonNull(this.evaluator.apply(closure, k)), w));
+        }
+        this.setValue(operator, result);
+        return false;
+    }
+
+    @Override
+    public boolean preorder(DBSPMapIndexOperator operator) {
+        ZSet input = this.getInput(operator, 0);
+        DBSPClosureExpression closure = this.getClosure(operator);
+        ZSet result = new ZSet(input.size());
+        input.forEach((k, w) -> result.add(Objects.requireNonNull(this.evaluator.apply(closure, k)), w));
+        this.setValue(operator, result);
+        return false;
+    }
+
+    @Override
+    public boolean preorder(DBSPIndexOperator operator) {
+        ZSet input = this.getInput(operator, 0);
+        DBSPClosureExpression closure = this.getClosure(operator);
+        ZSet result = new ZSet(input.size());
+        input.forEach((k, w) -> result.add(Objects.requireNonNull(this.evaluator.apply(closure, k)), w));
+        this.setValue(operator, result);
+        return false;
+    }
+
+    @Override
+    public boolean preorder(DBSPFilterOperator operator) {
+        ZSet input = this.getInput(operator, 0);
+        DBSPClosureExpression closure = this.getClosure(operator);
+        ZSet result = new ZSet();
+        input.forEach((k, w) -> {
+            if (Boolean.TRUE.equals(this.evaluator.apply(closure, k)))
+                result.add(k, w);
+        });
+        this.setValue(operator, result);
+        return false;
+    }
+
+    @Override
+    public boolean preorder(DBSPFlatMapOperator operator) {
+        ZSet input = this.getInput(operator, 0);
+        DBSPExpression function = this.getFunction(operator);
+        DBSPFlatmap flatmap = function.as(DBSPFlatmap.class);
+        if (flatmap == null) {
+            // A closure that returns an Option or a vector
+            DBSPClosureExpression closure = this.getClosure(operator);
+            ZSet result = new ZSet();
+            input.forEach((k, w) -> {
+                Object value = this.evaluator.apply(closure, k);
+                if (value instanceof List) {
+                    for (Object e: (List<?>) value)
+                        result.add(Objects.requireNonNull(e), w);
+                } else if (value != null) {
+                    result.add(value, w);
+                }
+            });
+            this.setValue(operator, result);
+            return false;
+        }
+        int fieldsSkipped = flatmap.indexType != null ? 2 : 1;
+        int prefix = flatmap.outputElementType.size() - fieldsSkipped;
+        ZSet result = new ZSet();
+        input.forEach((k, w) -> {
+            Tuple row = (Tuple) k;
+            List<?> collection = (List<?>) row.get(flatmap.collectionFieldIndex);
+            if (collection == null)
+                return;
+            for (int index = 0; index < collection.size(); index++) {
+                Object[] fields = new Object[flatmap.outputElementType.size()];
+                for (int i = 0; i < prefix; i++)
+                    fields[i] = row.get(i);
+                fields[prefix] = collection.get(index);
+                if (flatmap.indexType != null)
+                    fields[prefix + 1] = Values.cast((long) index + 1,
+                            DBSPTypeUSize.INSTANCE, flatmap.indexType);
+                result.add(new Tuple(fields), w);
+            }
+        });
+        this.setValue(operator, result);
+        return false;
+    }
+
+    @Override
+    public boolean preorder(DBSPSumOperator operator) {
+        ZSet result = new ZSet();
+        for (DBSPOperator input: operator.inputs)
+            result.add(this.getValue(input));
+        this.setValue(operator, result);
+        return false;
+    }
+
+    @Override
+    public boolean preorder(DBSPSubtractOperator operator) {
+        this.setValue(operator, this.getInput(operator, 0).minus(this.getInput(operator, 1)));
+        return false;
+    }
+
+    @Override
+    public boolean preorder(DBSPNegateOperator operator) {
+        this.setValue(operator, this.getInput(operator, 0).negate());
+        return false;
+    }
+
+    @Override
+    public boolean preorder(DBSPDistinctOperator operator) {
+        this.setValue(operator, distinct(this.getInput(operator, 0)));
+        return false;
+    }
+
+    @Override
+    public boolean preorder(DBSPJoinOperator operator) {
+        this.setValue(operator, this.join(operator, this.getInput(operator, 0), this.getInput(operator, 1)));
+        return false;
+    }
+
+    @Override
+    public boolean preorder(DBSPAggregateOperator operator) {
+        this.setValue(operator, this.aggregate(operator, this.getInput(operator, 0)));
+        return false;
+    }
+
+    @Override
+    public boolean preorder(DBSPWindowAggregateOperator operator) {
+        throw new Unimplemented(operator);
+    }
+
+    @Override
+    public boolean preorder(DBSPIntegralOperator operator) {
+        ZSet integral = integrate(this.state, operator, this.getInput(operator, 0));
+        this.setValue(operator, integral.copy());
+        return false;
+    }
+
+    @Override
+    public boolean preorder(DBSPDifferentialOperator operator) {
+        this.setValue(operator, differentiate(this.state, operator, this.getInput(operator, 0)));
+        return false;
+    }
+
+    @Override
+    public boolean preorder(DBSPIncrementalDistinctOperator operator) {
+        ZSet integral = integrate(this.state, operator, this.getInput(operator, 0));
+        this.setValue(operator, differentiate(this.secondState, operator, distinct(integral)));
+        return false;
+    }
+
+    @Override
+    public boolean preorder(DBSPIncrementalAggregateOperator operator) {
+        ZSet integral = integrate(this.state, operator, this.getInput(operator, 0));
+        this.setValue(operator, differentiate(this.secondState, operator, this.aggregate(operator, integral)));
+        return false;
+    }
+
+    @Override
+    public boolean preorder(DBSPIncrementalJoinOperator operator) {
+        // The delta of a join is dL join dR + IL' join dR + dL join IR',
+        // where IL' and IR' are the integrals of the inputs before this step.
+        ZSet left = this.getInput(operator, 0);
+        ZSet right = this.getInput(operator, 1);
+        ZSet leftIntegral = this.state.computeIfAbsent(operator, o -> new ZSet());
+        ZSet rightIntegral = this.secondState.computeIfAbsent(operator, o -> new ZSet());
+        ZSet result = this.join(operator, left, right);
+        result.add(this.join(operator, leftIntegral, right));
+        result.add(this.join(operator, left, rightIntegral));
+        leftIntegral.add(left);
+        rightIntegral.add(right);
+        this.setValue(operator, result);
+        return false;
+    }
+}
@@ -0,0 +1,774 @@
+/*
+ * Copyright 2022 VMware, Inc.
+ * SPDX-License-Identifier: MIT
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.dbsp.sqlCompiler.compiler.backend.interpreter;
+
+import org.dbsp.sqlCompiler.circuit.IDBSPInnerNode;
+import org.dbsp.sqlCompiler.ir.DBSPParameter;
+import org.dbsp.sqlCompiler.ir.InnerVisitor;
+import org.dbsp.sqlCompiler.ir.expression.*;
+import org.dbsp.sqlCompiler.ir.expression.literal.*;
+import org.dbsp.sqlCompiler.ir.path.DBSPPathSegment;
+import org.dbsp.sqlCompiler.ir.path.DBSPSimplePathSegment;
+import org.dbsp.sqlCompiler.ir.pattern.*;
+import org.dbsp.sqlCompiler.ir.statement.DBSPExpressionStatement;
+import org.dbsp.sqlCompiler.ir.statement.DBSPLetStatement;
+import org.dbsp.sqlCompiler.ir.statement.DBSPStatement;
+import org.dbsp.sqlCompiler.ir.type.DBSPType;
+import org.dbsp.sqlCompiler.ir.type.IsDateType;
+import org.dbsp.sqlCompiler.ir.type.primitive.*;
+import org.dbsp.util.Unimplemented;
+
+import javax.annotation.Nullable;
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+
+/**
+ * Evaluates expressions of the inner IR to Java values.
+ * The representation of values is described in {@link Values}.
+ * Expressions that are not supported throw Unimplemented.
+ */
+public class ExpressionEvaluator extends InnerVisitor {
+    /**
+     * Precision used for decimal division; same as the Rust Decimal type.
+     */
+    static final MathContext DECIMAL_CONTEXT = new MathContext(28, RoundingMode.HALF_EVEN);
+
+    /**
+     * Definitions which are visible in all scopes,
+     * e.g., the declarations in a circuit.
+     */
+    final Map<String, DBSPExpression> globals;
+    /**
+     * Stack of variable scopes; the innermost scope is last.
+     */
+    final List<Map<String, Object>> scopes;
+    @Nullable
+    Object result;
+
+    public ExpressionEvaluator(Map<String, DBSPExpression> globals) {
+        super(true);
+        this.globals = globals;
+        this.scopes = new ArrayList<>();
+        this.result = null;
+    }
+
+    public ExpressionEvaluator() {
+        this(new HashMap<>());
+    }
+
+    @Nullable
+    public Object evaluate(DBSPExpression expression) {
+        expression.accept(this);
+        Object value = this.result;
+        this.result = null;
+        return value;
+    }
+
+    /**
+     * Apply a closure to the specified arguments.
+     */
+    @Nullable
+    public Object apply(DBSPClosureExpression closure, @Nullable Object... arguments) {
+        if (closure.parameters.length != arguments.length)
+            throw new RuntimeException("Closure " + closure + " expects " + closure.parameters.length +
+                    " arguments, but is invoked with " + arguments.length);
+        Map<String, Object> scope = new HashMap<>();
+        for (int i = 0; i < arguments.length; i++) {
+            DBSPParameter param = closure.parameters[i];
+            this.bind(scope, param.pattern, arguments[i]);
+        }
+        this.scopes.add(scope);
+        try {
+            return this.evaluate(closure.body);
+        } finally {
+            this.scopes.remove(this.scopes.size() - 1);
+        }
+    }
+
+    void bind(Map<String, Object> scope, DBSPPattern pattern, @Nullable Object value) {
+        if (pattern.is(DBSPIdentifierPattern.class)) {
+            scope.put(pattern.to(DBSPIdentifierPattern.class).identifier, value);
+        } else if (pattern.is(DBSPRefPattern.class)) {
+            this.bind(scope, pattern.to(DBSPRefPattern.class).pattern, value);
+        } else if (pattern.is(DBSPTuplePattern.class)) {
+            DBSPTuplePattern tuple = pattern.to(DBSPTuplePattern.class);
+            Tuple t = (Tuple) Objects.requireNonNull(value);
+            for (int i = 0; i < tuple.fields.length; i++)
+                this.bind(scope, tuple.fields[i], t.get(i));
+        } else if (!pattern.is(DBSPWildcardPattern.class)) {
+            throw new Unimplemented(pattern);
+        }
+    }
+
+    @Nullable
+    Object lookup(String variable) {
+        for (int i = this.scopes.size() - 1; i >= 0; i--) {
+            Map<String, Object> scope = this.scopes.get(i);
+            if (scope.containsKey(variable))
+                return scope.get(variable);
+        }
+        DBSPExpression global = this.globals.get(variable);
+        if (global != null)
+            return this.evaluate(global);
+        throw new RuntimeException("Undefined variable " + variable);
+    }
+
+    boolean isDefined(String variable) {
+        for (Map<String, Object> scope: this.scopes)
+            if (scope.containsKey(variable))
+                return true;
+        return false;
+    }
+
+    void set(@Nullable Object value) {
+        this.result = value;
+    }
+
+    /////////////////////////// Expressions
+
+    @Override
+    public boolean preorder(IDBSPInnerNode node) {
+        throw new Unimplemented(node);
+    }
+
+    @Override
+    public boolean preorder(DBSPLiteral literal) {
+        Object value = literal.value;
+        if (value instanceof Integer)
+            value = ((Integer) value).longValue();
+        else if (value instanceof Short)
+            value = ((Short) value).longValue();
+        else if (value instanceof Float)
+            value = ((Float) value).doubleValue();
+        this.set(value);
+        return false;
+    }
+
+    @Override
+    public boolean preorder(DBSPTimeLiteral literal) {
+        throw new Unimplemented(literal);
+    }
+
+    @Override
+    public boolean preorder(DBSPGeoPointLiteral literal) {
+        throw new Unimplemented(literal);
+    }
+
+    @Override
+    public boolean preorder(DBSPVecLiteral literal) {
+        if (literal.isNull) {
+            this.set(null);
+            return false;
+        }
+        List<Object> list = new ArrayList<>(literal.data.size());
+        for (DBSPExpression e: literal.data)
+            list.add(this.evaluate(e));
+        this.set(list);
+        return false;
+    }
+
+    @Override
+    public boolean preorder(DBSPZSetLiteral literal) {
+        ZSet zset = new ZSet(literal.size());
+        for (Map.Entry<DBSPExpression, Long> entry: literal.data.entrySet())
+            zset.add(Objects.requireNonNull(this.evaluate(entry.getKey())), entry.getValue());
+        this.set(zset);
+        return false;
+    }
+
+    @Override
+    public boolean preorder(DBSPTupleExpression expression) {
+        this.set(this.evaluateFields(expression.fields));
+        return false;
+    }
+
+    @Override
+    public boolean preorder(DBSPRawTupleExpression expression) {
+        this.set(this.evaluateFields(expression.fields));
+        return false;
+    }
+
+    Tuple evaluateFields(DBSPExpression[] fields) {
+        Object[] values = new Object[fields.length];
+        for (int i = 0; i < fields.length; i++)
+            values[i] = this.evaluate(fields[i]);
+        return new Tuple(values);
+    }
+
+    @Override
+    public boolean preorder(DBSPVariablePath expression) {
+        this.set(this.lookup(expression.variable));
+        return false;
+    }
+
+    @Override
+    public boolean preorder(DBSPBorrowExpression expression) {
+        this.set(this.evaluate(expression.expression));
+        return false;
+    }
+
+    @Override
+    public boolean preorder(DBSPDerefExpression expression) {
+        this.set(this.evaluate(expression.expression));
+        return false;
+    }
+
+    @Override
+    public boolean preorder(DBSPCloneExpression expression) {
+        // All values are immutable
+        this.set(this.evaluate(expression.expression));
+        return false;
+    }
+
+    @Override
+    public boolean preorder(DBSPIsNullExpression expression) {
+        this.set(this.evaluate(expression.expression) == null);
+        return false;
+    }
+
+    @Override
+    public boolean preorder(DBSPFieldExpression expression) {
+        Object source = this.evaluate(expression.expression);
+        if (source == null)
+            throw new RuntimeException("Field access in NULL value " + expression);
+        this.set(((Tuple) source).get(expression.fieldNo));
+        return false;
+    }
+
+    @Override
+    public boolean preorder(DBSPIndexExpression expression) {
+        Object array = this.evaluate(expression.array);
+        Object index = this.evaluate(expression.index);
+        if (array == null || index == null) {
+            this.set(null);
+            return false;
+        }
+        List<?> list = (List<?>) array;
+        // Indexes start from 1 in SQL
+        long i = Values.toLong(index) - 1;
+        if (i < 0 || i >= list.size())
+            this.set(null);
+        else
+            this.set(list.get((int) i));
+        return false;
+    }
+
+    @Override
+    public boolean preorder(DBSPCastExpression expression) {
+        Object value = this.evaluate(expression.source);
+        this.set(Values.cast(value, expression.source.getNonVoidType(), expression.destinationType));
+        return false;
+    }
+
+    @Override
+    public boolean preorder(DBSPIfExpression expression) {
+        Object condition = this.evaluate(expression.condition);
+        if (Boolean.TRUE.equals(condition))
+            this.set(this.evaluate(expression.positive));
+        else
+            this.set(this.evaluate(expression.negative));
+        return false;
+    }
+
+    @Override
+    public boolean preorder(DBSPBlockExpression expression) {
+        this.scopes.add(new HashMap<>());
+        try {
+            for (DBSPStatement statement: expression.contents)
+                statement.accept(this);
+            if (expression.lastExpression != null)
+                this.set(this.evaluate(expression.lastExpression));
+            else
+                this.set(Tuple.EMPTY);
+        } finally {
+            this.scopes.remove(this.scopes.size() - 1);
+        }
+        return false;
+    }
+
+    @Override
+    public boolean preorder(DBSPLetStatement statement) {
+        Object value = null;
+        if (statement.initializer != null)
+            value = this.evaluate(statement.initializer);
+        this.scopes.get(this.scopes.size() - 1).put(statement.variable, value);
+        return false;
+    }
+
+    @Override
+    public boolean preorder(DBSPExpressionStatement statement) {
+        this.evaluate(statement.expression);
+        return false;
+    }
+
+    @Override
+    public boolean preorder(DBSPUnaryExpression expression) {
+        Object value = this.evaluate(expression.source);
+        switch (expression.operation) {
+            case "wrap_bool":
+                this.set(Boolean.TRUE.equals(value));
+                return false;
+            case "indicator":
+                this.set(value == null ? 0L : 1L);
+                return false;
+            case "is_true":
+                this.set(Boolean.TRUE.equals(value));
+                return false;
+            case "is_false":
+                this.set(Boolean.FALSE.equals(value));
+                return false;
+            case "is_not_true":
+                this.set(!Boolean.TRUE.equals(value));
+                return false;
+            case "is_not_false":
+                this.set(!Boolean.FALSE.equals(value));
+                return false;
+            default:
+                break;
+        }
+        if (value == null) {
+            this.set(null);
+            return false;
+        }
+        switch (expression.operation) {
+            case "!":
+                if (value instanceof Boolean)
+                    this.set(!(Boolean) value);
+                else
+                    this.set(~(Long) value);
+                break;
+            case "+":
+                this.set(value);
+                break;
+            case "-":
+                if (value instanceof Long)
+                    this.set(Values.checkRange(Math.negateExact((Long) value), expression.getNonVoidType()));
+                else if (value instanceof Double)
+                    this.set(-(Double) value);
+                else if (value instanceof BigDecimal)
+                    this.set(((BigDecimal) value).negate());
+                else
+                    throw new Unimplemented(expression);
+                break;
+            default:
+                throw new Unimplemented(expression);
+        }
+        return false;
+    }
+
+    @Override
+    public boolean preorder(DBSPBinaryExpression expression) {
+        Object left = this.evaluate(expression.left);
+        String op = expression.operation;
+        DBSPType leftType = expression.left.getNonVoidType();
+        if (leftType.is(DBSPTypeBool.class) && (op.equals("&&") || op.equals("||"))) {
+            // Short-circuit evaluation, with the three-valued SQL semantics
+            Boolean shortCircuit = op.equals("&&") ? Boolean.FALSE : Boolean.TRUE;
+            if (shortCircuit.equals(left)) {
+                this.set(shortCircuit);
+                return false;
+            }
+            Object right = this.evaluate(expression.right);
+            if (shortCircuit.equals(right))
+                this.set(shortCircuit);
+            else if (left == null || right == null)
+                this.set(null);
+            else
+                this.set(!shortCircuit);
+            return false;
+        }
+        Object right = this.evaluate(expression.right);
+        this.set(this.binary(expression, left, right));
+        return false;
+    }
+
+    @Nullable
+    Object binary(DBSPBinaryExpression expression, @Nullable Object left, @Nullable Object right) {
+        String op = expression.operation;
+        DBSPType type = expression.getNonVoidType();
+        switch (op) {
+            case "agg_plus":
+                if (left == null)
+                    return right;
+                if (right == null)
+                    return left;
+                return this.arithmetic("+", type, left, right);
+            case "agg_min":
+            case "agg_max":
+                if (left == null)
+                    return right;
+                if (right == null)
+                    return left;
+                int c = Values.compare(left, right);
+                if (op.equals("agg_min"))
+                    return c <= 0 ? left : right;
+                return c >= 0 ? left : right;
+            case "is_distinct":
+                return !Values.equal(left, right);
+            case "mul_weight":
+                if (left == null)
+                    return null;
+                return this.arithmetic("*", expression.left.getNonVoidType(), left, Objects.requireNonNull(right));
+            default:
+                break;
+        }
+        if (left == null || right == null)
+            return null;
+        switch (op) {
+            case "==":
+                return Values.equal(left, right);
+            case "!=":
+                return !Values.equal(left, right);
+            case "<":
+                return Values.compare(left, right) < 0;
+            case ">":
+                return Values.compare(left, right) > 0;
+            case "<=":
+                return Values.compare(left, right) <= 0;
+            case ">=":
+                return Values.compare(left, right) >= 0;
+            case "min":
+                return Values.compare(left, right) <= 0 ? left : right;
+            case "max":
+                return Values.compare(left, right) >= 0 ? left : right;
+            case "||":
+                if (left instanceof String)
+                    return left + (String) right;
+                break;
+            default:
+                break;
+        }
+        DBSPType leftType = expression.left.getNonVoidType();
+        DBSPType rightType = expression.right.getNonVoidType();
+        if (leftType.is(IsDateType.class) || rightType.is(IsDateType.class))
+            return this.dateArithmetic(expression, left, right);
+        return this.arithmetic(op, type, left, right);
+    }
+
+    /**
+     * Arithmetic on dates, timestamps, and intervals.
+     * All values are converted to milliseconds.
+     */
+    Object dateArithmetic(DBSPBinaryExpression expression, Object left, Object right) {
+        DBSPType leftType = expression.left.getNonVoidType();
+        DBSPType rightType = expression.right.getNonVoidType();
+        DBSPType type = expression.getNonVoidType();
+        if (leftType.is(DBSPTypeMonthsInterval.class) || rightType.is(DBSPTypeMonthsInterval.class)
+                || type.is(DBSPTypeMonthsInterval.class))
+            throw new Unimplemented(expression);
+        long l = toMillis((Long) left, leftType);
+        long result;
+        switch (expression.operation) {
+            case "+":
+                result = Math.addExact(l, toMillis((Long) right, rightType));
+                break;
+            case "-":
+                result = Math.subtractExact(l, toMillis((Long) right, rightType));
+                break;
+            case "*":
+                result = Math.multiplyExact(l, Values.toLong(right));
+                break;
+            default:
+                throw new Unimplemented(expression);
+        }
+        if (type.is(DBSPTypeDate.class))
+            return Math.floorDiv(result, Values.MILLIS_PER_DAY);
+        return result;
+    }
+
+    static long toMillis(long value, DBSPType type) {
+        if (type.is(DBSPTypeDate.class))
+            return value * Values.MILLIS_PER_DAY;
+        return value;
+    }
+
+    Object arithmetic(String op, DBSPType type, Object left, Object right) {
+        if (left instanceof Long && right instanceof Long) {
+            long l = (Long) left;
+            long r = (Long) right;
+            long result;
+            switch (op) {
+                case "+":
+                    result = Math.addExact(l, r);
+                    break;
+                case "-":
+                    result = Math.subtractExact(l, r);
+                    break;
+                case "*":
+                    result = Math.multiplyExact(l, r);
+                    break;
+                case "/":
+                    if (r == 0)
+                        return null;
+                    result = l / r;
+                    break;
+                case "%":
+                    result = l % r;
+                    break;
+                case "&":
+                    result = l & r;
+                    break;
+                case "|":
+                    result = l | r;
+                    break;
+                case "^":
+                    result = l ^ r;
+                    break;
+                case "<<":
+                    result = l << r;
+                    break;
+                case ">>":
+                    result = l >> r;
+                    break;
+                default:
+                    throw new Unimplemented("Operation " + op, type);
+            }
+            return Values.checkRange(result, type);
+        }
+        if (left instanceof Double || right instanceof Double) {
+            double l = Values.toDouble(left);
+            double r = Values.toDouble(right);
+            double result;
+            switch (op) {
+                case "+":
+                    result = l + r;
+                    break;
+                case "-":
+                    result = l - r;
+                    break;
+                case "*":
+                    result = l * r;
+                    break;
+                case "/":
+                    result = l / r;
+                    break;
+                case "%":
+                    result = l % r;
+                    break;
+                default:
+                    throw new Unimplemented("Operation " + op, type);
+            }
+            if (type.is(DBSPTypeFloat.class))
+                return (double) (float) result;
+            return result;
+        }
+        if (left instanceof BigDecimal || right instanceof BigDecimal) {
+            BigDecimal l = Values.toDecimal(left);
+            BigDecimal r = Values.toDecimal(right);
+            switch (op) {
+                case "+":
+                    return l.add(r);
+                case "-":
+                    return l.subtract(r);
+                case "*":
+                    return l.multiply(r);
+                case "/":
+                    if (r.signum() == 0)
+                        return null;
+                    return l.divide(r, DECIMAL_CONTEXT);
+                case "%":
+                    return l.remainder(r);
+                default:
+                    throw new Unimplemented("Operation " + op, type);
+            }
+        }
+        if (left instanceof Boolean && right instanceof Boolean) {
+            boolean l = (Boolean) left;
+            boolean r = (Boolean) right;
+            switch (op) {
+                case "&":
+                    return l & r;
+                case "|":
+                    return l | r;
+                case "^":
+                    return l ^ r;
+                default:
+                    break;
+            }
+        }
+        throw new Unimplemented("Operation " + op + " on " + left + " and " + right, type);
+    }
+
+    @Override
+    public boolean preorder(DBSPApplyExpression expression) {
+        DBSPExpression function = expression.function;
+        if (function.is(DBSPClosureExpression.class)) {
+            Object[] args = this.evaluateArguments(expression.arguments);
+            this.set(this.apply(function.to(DBSPClosureExpression.class), args));
+            return false;
+        }
+        String name = null;
+        if (function.is(DBSPPathExpression.class)) {
+            DBSPPathSegment[] components = function.to(DBSPPathExpression.class).path.components;
+            if (components.length == 1 && components[0].is(DBSPSimplePathSegment.class))
+                name = components[0].to(DBSPSimplePathSegment.class).identifier;
+        } else if (function.is(DBSPVariablePath.class)) {
+            String variable = function.to(DBSPVariablePath.class).variable;
+            if (!this.isDefined(variable)) {
+                DBSPExpression global = this.globals.get(variable);
+                if (global != null && global.is(DBSPClosureExpression.class)) {
+                    Object[] args = this.evaluateArguments(expression.arguments);
+                    this.set(this.apply(global.to(DBSPClosureExpression.class), args));
+                    return false;
+                }
+                name = variable;
+            }
+        }
+        if (name == null)
+            throw new Unimplemented(expression);
+        Object[] args = this.evaluateArguments(expression.arguments);
+        this.set(this.callFunction(expression, name, args));
+        return false;
+    }
+
+    @Override
+    public boolean preorder(DBSPStructExpression expression) {
+        // The only constructor generated by the compiler is Some
+        DBSPExpression function = expression.function;
+        String name = null;
+        if (function.is(DBSPPathExpression.class)) {
+            DBSPPathSegment[] components = function.to(DBSPPathExpression.class).path.components;
+            if (components.length == 1 && components[0].is(DBSPSimplePathSegment.class))
+                name = components[0].to(DBSPSimplePathSegment.class).identifier;
+        }
+        if (!"Some".equals(name) || expression.arguments.length != 1)
+            throw new Unimplemented(expression);
+        this.set(this.evaluate(expression.arguments[0]));
+        return false;
+    }
+
+    Object[] evaluateArguments(DBSPExpression[] arguments) {
+        Object[] args = new Object[arguments.length];
+        for (int i = 0; i < arguments.length; i++)
+            args[i] = this.evaluate(arguments[i]);
+        return args;
+    }
+
+    /**
+     * Evaluate a call to a function from the Rust SQL runtime library.
+     */
+    @Nullable
+    Object callFunction(DBSPApplyExpression expression, String name, Object[] args) {
+        DBSPType type = expression.getNonVoidType();
+        switch (name) {
+            case "Some":
+                return args[0];
+            case "vec!":
+                return Collections.unmodifiableList(Arrays.asList(args));
+            case "element":
+            case "elementN": {
+                List<?> list = (List<?>) Objects.requireNonNull(args[0]);
+                return list.size() == 1 ? list.get(0) : null;
+            }
+            default:
+                break;
+        }
+        for (Object arg: args)
+            if (arg == null)
+                return null;
+        if (name.startsWith("abs_")) {
+            Object value = args[0];
+            if (value instanceof Long)
+                return Values.checkRange(Math.abs((Long) value), type);
+            if (value instanceof Double)
+                return Math.abs((Double) value);
+            return ((BigDecimal) value).abs();
+        } else if (name.startsWith("ln_")) {
+            return Math.log(Values.toDouble(args[0]));
+        } else if (name.startsWith("log10_")) {
+            return Math.log10(Values.toDouble(args[0]));
+        } else if (name.startsWith("power_")) {
+            double result = Math.pow(Values.toDouble(args[0]), Values.toDouble(args[1]));
+            return Values.fromDouble(result, type);
+        } else if (name.startsWith("round_")) {
+            int digits = (int) Values.toLong(args[1]);
+            Object value = args[0];
+            if (value instanceof BigDecimal)
+                return ((BigDecimal) value).setScale(digits, RoundingMode.HALF_EVEN);
+            if (value instanceof Double)
+                return Values.fromDouble(BigDecimal.valueOf((Double) value)
+                        .setScale(digits, RoundingMode.HALF_UP).doubleValue(), type);
+            return value;
+        } else if (name.startsWith("extract_")) {
+            return extract(expression, name, (Long) args[0]);
+        }
+        throw new Unimplemented("Function " + name, expression);
+    }
+
+    static Object extract(DBSPApplyExpression expression, String name, long value) {
+        String[] parts = name.split("_", 3);
+        if (parts.length != 3)
+            throw new Unimplemented(expression);
+        String unit = parts[2];
+        if (expression.arguments[0].getNonVoidType().mayBeNull)
+            unit = unit.substring(0, unit.length() - 1);
+        long millis = toMillis(value, expression.arguments[0].getNonVoidType());
+        LocalDateTime time = LocalDateTime.ofEpochSecond(
+                Math.floorDiv(millis, 1000), (int) Math.floorMod(millis, 1000) * 1_000_000, ZoneOffset.UTC);
+        switch (unit.toLowerCase()) {
+            case "year":
+                return (long) time.getYear();
+            case "month":
+                return (long) time.getMonthValue();
+            case "day":
+                return (long) time.getDayOfMonth();
+            case "hour":
+                return (long) time.getHour();
+            case "minute":
+                return (long) time.getMinute();
+            case "second":
+                return (long) time.getSecond();
+            case "doy":
+                return (long) time.getDayOfYear();
+            case "dow":
+                return (long) (time.getDayOfWeek().getValue() % 7 + 1);
+            case "isodow":
+                return (long) time.getDayOfWeek().getValue();
+            case "epoch":
+                return Math.floorDiv(millis, 1000);
+            default:
+                throw new Unimplemented(expression);
+        }
+    }
+
+    @Override
+    public boolean preorder(DBSPApplyMethodExpression expression) {
+        Object self = this.evaluate(expression.self);
+        String name = null;
+        if (expression.function.is(DBSPPathExpression.class)) {
+            DBSPPathSegment[] components = expression.function.to(DBSPPathExpression.class).path.components;
+            if (components.length == 1 && components[0].is(DBSPSimplePathSegment.class))
+                name = components[0].to(DBSPSimplePathSegment.class).identifier;
+        }
+        if ("len".equals(name) && self instanceof List) {
+            this.set((long) ((List<?>) self).size());
+            return false;
+        }
+        throw new Unimplemented(expression);
+    }
+}
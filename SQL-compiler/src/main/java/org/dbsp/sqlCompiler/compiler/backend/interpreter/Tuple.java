@@ -0,0 +1,88 @@
+/*
+ * Copyright 2022 VMware, Inc.
+ * SPDX-License-Identifier: MIT
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.dbsp.sqlCompiler.compiler.backend.interpreter;
+
+import javax.annotation.Nullable;
+import java.util.Arrays;
+
+/**
+ * Runtime representation of tuples and raw tuples.
+ * Indexed Z-set elements are represented as pairs (key, value).
+ * Fields can be null, which represents SQL NULL (Rust None).
+ */
+public final class Tuple implements Comparable<Tuple> {
+    private final Object[] fields;
+
+    public static final Tuple EMPTY = new Tuple();
+
+    public Tuple(@Nullable Object... fields) {
+        this.fields = fields;
+    }
+
+    public int size() {
+        return this.fields.length;
+    }
+
+    @Nullable
+    public Object get(int index) {
+        return this.fields[index];
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        Tuple other = (Tuple) o;
+        if (this.fields.length != other.fields.length)
+            return false;
+        for (int i = 0; i < this.fields.length; i++)
+            if (!Values.equal(this.fields[i], other.fields[i]))
+                return false;
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = 1;
+        for (Object field: this.fields)
+            result = 31 * result + Values.hash(field);
+        return result;
+    }
+
+    @Override
+    public int compareTo(Tuple other) {
+        int length = Math.min(this.fields.length, other.fields.length);
+        for (int i = 0; i < length; i++) {
+            int c = Values.compare(this.fields[i], other.fields[i]);
+            if (c != 0)
+                return c;
+        }
+        return Integer.compare(this.fields.length, other.fields.length);
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(this.fields);
+    }
+}
@@ -0,0 +1,309 @@
+/*
+ * Copyright 2022 VMware, Inc.
+ * SPDX-License-Identifier: MIT
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.dbsp.sqlCompiler.compiler.backend.interpreter;
+
+import org.apache.calcite.util.DateString;
+import org.apache.calcite.util.TimestampString;
+import org.dbsp.sqlCompiler.ir.type.DBSPType;
+import org.dbsp.sqlCompiler.ir.type.primitive.*;
+import org.dbsp.util.Unimplemented;
+
+import javax.annotation.Nullable;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+/**
+ * Helpers for manipulating the runtime values of the interpreter.
+ * Values are represented as follows:
+ * - SQL NULL is Java null
+ * - all integer types, dates (days since the epoch), timestamps and
+ *   intervals (milliseconds or months) are Long
+ * - FLOAT and DOUBLE are Double; FLOAT values are rounded to float precision
+ * - DECIMAL is BigDecimal
+ * - strings are String
+ * - booleans are Boolean
+ * - tuples are Tuple
+ * - vectors are java.util.List
+ */
+public final class Values {
+    private Values() {}
+
+    static final long MILLIS_PER_DAY = 86_400_000L;
+    static final DateTimeFormatter TIMESTAMP_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    /**
+     * Compare two values with the same semantics as the Rust runtime:
+     * None is smaller than any other value.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public static int compare(@Nullable Object left, @Nullable Object right) {
+        if (left == null)
+            return right == null ? 0 : -1;
+        if (right == null)
+            return 1;
+        if (left instanceof BigDecimal ||
+                (left instanceof Number && left.getClass() != right.getClass()))
+            return toDecimal(left).compareTo(toDecimal(right));
+        if (left instanceof List) {
+            List<Object> l = (List<Object>) left;
+            List<Object> r = (List<Object>) right;
+            int length = Math.min(l.size(), r.size());
+            for (int i = 0; i < length; i++) {
+                int c = compare(l.get(i), r.get(i));
+                if (c != 0)
+                    return c;
+            }
+            return Integer.compare(l.size(), r.size());
+        }
+        return ((Comparable) left).compareTo(right);
+    }
+
+    public static boolean equal(@Nullable Object left, @Nullable Object right) {
+        if (left == null || right == null)
+            return left == right;
+        if (left instanceof BigDecimal && right instanceof BigDecimal)
+            return ((BigDecimal) left).compareTo((BigDecimal) right) == 0;
+        return left.equals(right);
+    }
+
+    public static int hash(@Nullable Object value) {
+        if (value == null)
+            return 0;
+        if (value instanceof BigDecimal) {
+            BigDecimal dec = (BigDecimal) value;
+            if (dec.signum() == 0)
+                return 0;
+            return dec.stripTrailingZeros().hashCode();
+        }
+        return value.hashCode();
+    }
+
+    public static long toLong(Object value) {
+        if (value instanceof Long)
+            return (Long) value;
+        if (value instanceof Double)
+            return ((Double) value).longValue();
+        if (value instanceof BigDecimal)
+            return ((BigDecimal) value).longValue();
+        if (value instanceof Boolean)
+            return (Boolean) value ? 1 : 0;
+        throw new RuntimeException("Cannot convert " + value + " to an integer");
+    }
+
+    public static double toDouble(Object value) {
+        if (value instanceof Double)
+            return (Double) value;
+        if (value instanceof Long)
+            return ((Long) value).doubleValue();
+        if (value instanceof BigDecimal)
+            return ((BigDecimal) value).doubleValue();
+        throw new RuntimeException("Cannot convert " + value + " to a double");
+    }
+
+    public static BigDecimal toDecimal(Object value) {
+        if (value instanceof BigDecimal)
+            return (BigDecimal) value;
+        if (value instanceof Long)
+            return BigDecimal.valueOf((Long) value);
+        if (value instanceof Double)
+            return BigDecimal.valueOf((Double) value);
+        throw new RuntimeException("Cannot convert " + value + " to a decimal");
+    }
+
+    /**
+     * Check that an integer value fits in the specified type.
+     * This mimics the overflow checks in Rust debug builds.
+     */
+    public static long checkRange(long value, DBSPType type) {
+        DBSPTypeInteger it = type.as(DBSPTypeInteger.class);
+        if (it == null)
+            return value;
+        switch (it.getWidth()) {
+            case 16:
+                if (value < Short.MIN_VALUE || value > Short.MAX_VALUE)
+                    throw new ArithmeticException("Overflow for type " + type);
+                break;
+            case 32:
+                if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE)
+                    throw new ArithmeticException("Overflow for type " + type);
+                break;
+            default:
+                break;
+        }
+        return value;
+    }
+
+    /**
+     * Truncate an integer to the width of the specified type, like Rust 'as'.
+     */
+    static long truncate(long value, DBSPTypeInteger type) {
+        switch (type.getWidth()) {
+            case 16:
+                return (short) value;
+            case 32:
+                return type.signed ? (int) value : value & 0xFFFFFFFFL;
+            default:
+                return value;
+        }
+    }
+
+    /**
+     * Convert a double to the representation of the specified numeric type.
+     */
+    public static Object fromDouble(double value, DBSPType type) {
+        if (type.is(DBSPTypeFloat.class))
+            return (double) (float) value;
+        if (type.is(DBSPTypeDouble.class))
+            return value;
+        if (type.is(DBSPTypeDecimal.class))
+            return BigDecimal.valueOf(value);
+        if (type.is(DBSPTypeInteger.class))
+            return (long) value;
+        throw new Unimplemented(type);
+    }
+
+    /**
+     * Format a double like the Rust runtime does.
+     */
+    static String doubleToString(double value) {
+        if (Double.isNaN(value))
+            return "NaN";
+        if (Double.isInfinite(value))
+            return value > 0 ? "inf" : "-inf";
+        return BigDecimal.valueOf(value).stripTrailingZeros().toPlainString();
+    }
+
+    static String toString(Object value, DBSPType sourceType) {
+        if (value instanceof Double)
+            return doubleToString((Double) value);
+        if (value instanceof BigDecimal)
+            return ((BigDecimal) value).toPlainString();
+        if (sourceType.is(DBSPTypeDate.class))
+            return LocalDateTime.ofEpochSecond((Long) value * 86400, 0, ZoneOffset.UTC)
+                    .toLocalDate().toString();
+        if (sourceType.is(DBSPTypeTimestamp.class))
+            return LocalDateTime.ofInstant(Instant.ofEpochMilli((Long) value), ZoneOffset.UTC)
+                    .format(TIMESTAMP_FORMAT);
+        if (value instanceof String || value instanceof Long || value instanceof Boolean)
+            return value.toString();
+        throw new Unimplemented("Cast to string from " + sourceType, sourceType);
+    }
+
+    /**
+     * Cast a value from the source type to the destination type,
+     * following the semantics of the cast functions in the Rust runtime.
+     */
+    @Nullable
+    public static Object cast(@Nullable Object value, DBSPType sourceType, DBSPType destType) {
+        if (value == null) {
+            if (!destType.mayBeNull)
+                throw new RuntimeException("Cast of NULL to non-nullable type " + destType);
+            return null;
+        }
+        if (destType.is(DBSPTypeBool.class)) {
+            if (value instanceof Boolean)
+                return value;
+            if (value instanceof String)
+                return Boolean.parseBoolean(((String) value).trim());
+            return toDouble(value) != 0;
+        }
+        DBSPTypeInteger intType = destType.as(DBSPTypeInteger.class);
+        if (intType != null || destType.is(DBSPTypeISize.class) || destType.is(DBSPTypeUSize.class)) {
+            long result;
+            if (value instanceof String) {
+                try {
+                    result = Long.parseLong(((String) value).trim());
+                } catch (NumberFormatException ex) {
+                    result = 0;
+                }
+            } else if (value instanceof BigDecimal) {
+                result = ((BigDecimal) value).setScale(0, RoundingMode.DOWN).longValueExact();
+            } else {
+                result = toLong(value);
+            }
+            if (intType != null)
+                result = truncate(result, intType);
+            return result;
+        }
+        if (destType.is(DBSPTypeFloat.class) || destType.is(DBSPTypeDouble.class)) {
+            double result;
+            if (value instanceof String) {
+                try {
+                    result = Double.parseDouble(((String) value).trim());
+                } catch (NumberFormatException ex) {
+                    result = 0;
+                }
+            } else if (value instanceof Boolean) {
+                result = (Boolean) value ? 1 : 0;
+            } else {
+                result = toDouble(value);
+            }
+            return fromDouble(result, destType);
+        }
+        DBSPTypeDecimal dec = destType.as(DBSPTypeDecimal.class);
+        if (dec != null) {
+            BigDecimal result;
+            if (value instanceof String) {
+                try {
+                    result = new BigDecimal(((String) value).trim());
+                } catch (NumberFormatException ex) {
+                    result = BigDecimal.ZERO;
+                }
+            } else if (value instanceof Boolean) {
+                result = (Boolean) value ? BigDecimal.ONE : BigDecimal.ZERO;
+            } else {
+                result = toDecimal(value);
+            }
+            return result.setScale(dec.scale, RoundingMode.HALF_EVEN);
+        }
+        if (destType.is(DBSPTypeString.class) || destType.is(DBSPTypeStr.class))
+            return toString(value, sourceType);
+        if (destType.is(DBSPTypeDate.class)) {
+            if (value instanceof String)
+                return (long) new DateString(((String) value).trim()).getDaysSinceEpoch();
+            if (sourceType.is(DBSPTypeTimestamp.class))
+                return Math.floorDiv((Long) value, MILLIS_PER_DAY);
+            if (sourceType.is(DBSPTypeDate.class))
+                return value;
+        }
+        if (destType.is(DBSPTypeTimestamp.class)) {
+            if (value instanceof String)
+                return new TimestampString(((String) value).trim()).getMillisSinceEpoch();
+            if (sourceType.is(DBSPTypeDate.class))
+                return (Long) value * MILLIS_PER_DAY;
+            if (sourceType.is(DBSPTypeTimestamp.class))
+                return value;
+        }
+        if (destType.is(DBSPTypeMillisInterval.class) || destType.is(DBSPTypeMonthsInterval.class)) {
+            if (value instanceof Long)
+                return value;
+        }
+        throw new Unimplemented("Cast from " + sourceType + " to " + destType, destType);
+    }
+}
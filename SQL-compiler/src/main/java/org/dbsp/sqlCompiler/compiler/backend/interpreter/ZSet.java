@@ -0,0 +1,213 @@
+/*
+ * Copyright 2022 VMware, Inc.
+ * SPDX-License-Identifier: MIT
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.dbsp.sqlCompiler.compiler.backend.interpreter;
+
+import java.util.function.ObjLongConsumer;
+
+/**
+ * A Z-set: a map from elements to integer weights.
+ * Implemented as an open-addressing hash table with linear probing
+ * which stores the weights in a primitive array, to avoid boxing
+ * a Long for every element.  Elements whose weight becomes zero
+ * are not reported, and they are dropped when the table is resized.
+ */
+public class ZSet {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private Object[] keys;
+    private long[] weights;
+    /**
+     * Number of slots used, including slots holding zero weights.
+     */
+    private int used;
+    /**
+     * Number of elements with a non-zero weight.
+     */
+    private int size;
+
+    public ZSet(int capacity) {
+        int cap = INITIAL_CAPACITY;
+        while (cap < capacity * 2)
+            cap <<= 1;
+        this.keys = new Object[cap];
+        this.weights = new long[cap];
+        this.used = 0;
+        this.size = 0;
+    }
+
+    public ZSet() {
+        this(INITIAL_CAPACITY / 2);
+    }
+
+    private int slot(Object key) {
+        int mask = this.keys.length - 1;
+        int h = key.hashCode();
+        h ^= (h >>> 16);
+        int index = h & mask;
+        while (true) {
+            Object k = this.keys[index];
+            if (k == null || k.equals(key))
+                return index;
+            index = (index + 1) & mask;
+        }
+    }
+
+    private void resize() {
+        Object[] oldKeys = this.keys;
+        long[] oldWeights = this.weights;
+        int cap = this.keys.length;
+        if (this.size * 4 >= cap)
+            cap *= 2;
+        this.keys = new Object[cap];
+        this.weights = new long[cap];
+        this.used = 0;
+        this.size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != null && oldWeights[i] != 0)
+                this.add(oldKeys[i], oldWeights[i]);
+        }
+    }
+
+    /**
+     * Add the specified weight to an element.
+     */
+    public void add(Object key, long weight) {
+        if (weight == 0)
+            return;
+        int index = this.slot(key);
+        if (this.keys[index] == null) {
+            this.keys[index] = key;
+            this.weights[index] = weight;
+            this.used++;
+            this.size++;
+            if (this.used * 2 > this.keys.length)
+                this.resize();
+            return;
+        }
+        long old = this.weights[index];
+        long updated = Math.addExact(old, weight);
+        this.weights[index] = updated;
+        if (old == 0)
+            this.size++;
+        else if (updated == 0)
+            this.size--;
+    }
+
+    public void add(ZSet other) {
+        other.forEach(this::add);
+    }
+
+    /**
+     * Weight of the specified element; 0 if the element is not present.
+     */
+    public long weight(Object key) {
+        int index = this.slot(key);
+        if (this.keys[index] == null)
+            return 0;
+        return this.weights[index];
+    }
+
+    /**
+     * Number of elements with a non-zero weight.
+     */
+    public int size() {
+        return this.size;
+    }
+
+    public boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    /**
+     * Invoke the consumer for each element with a non-zero weight.
+     */
+    public void forEach(ObjLongConsumer<Object> consumer) {
+        for (int i = 0; i < this.keys.length; i++) {
+            if (this.keys[i] != null && this.weights[i] != 0)
+                consumer.accept(this.keys[i], this.weights[i]);
+        }
+    }
+
+    public ZSet copy() {
+        ZSet result = new ZSet(this.size);
+        result.add(this);
+        return result;
+    }
+
+    public ZSet negate() {
+        ZSet result = new ZSet(this.size);
+        this.forEach((k, w) -> result.add(k, -w));
+        return result;
+    }
+
+    public ZSet plus(ZSet other) {
+        ZSet result = this.copy();
+        result.add(other);
+        return result;
+    }
+
+    public ZSet minus(ZSet other) {
+        ZSet result = this.copy();
+        other.forEach((k, w) -> result.add(k, -w));
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        ZSet other = (ZSet) o;
+        if (this.size != other.size)
+            return false;
+        for (int i = 0; i < this.keys.length; i++) {
+            if (this.keys[i] != null && this.weights[i] != 0 &&
+                    other.weight(this.keys[i]) != this.weights[i])
+                return false;
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = 0;
+        for (int i = 0; i < this.keys.length; i++) {
+            if (this.keys[i] != null && this.weights[i] != 0)
+                result += this.keys[i].hashCode() ^ Long.hashCode(this.weights[i]);
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("{");
+        this.forEach((k, w) -> {
+            if (builder.length() > 1)
+                builder.append(", ");
+            builder.append(k).append(" => ").append(w);
+        });
+        builder.append("}");
+        return builder.toString();
+    }
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2023 VMware, Inc.
+ * Copyright 2022 VMware, Inc.
  * SPDX-License-Identifier: MIT
  *
  * Permission is hereby granted, free of charge, to any person obtaining a copy
@@ -21,14 +21,16 @@
  * SOFTWARE.
  */
 
-package org.dbsp.sqlCompiler.compiler.backend.jit.ir.operators;
+/**
+ * Package that doesn't allow null values as method parameters.
+ */
 
-import org.dbsp.sqlCompiler.compiler.backend.jit.ir.types.JITRowType;
+@ParametersAreNonnullByDefault
+@FieldsAreNonnullByDefault
+@MethodsAreNonnullByDefault
+package org.dbsp.sqlCompiler.compiler.backend.interpreter;
 
-import java.util.List;
+import org.dbsp.util.FieldsAreNonnullByDefault;
+import org.dbsp.util.MethodsAreNonnullByDefault;
 
-public class JITFlatMapOperator extends JITOperator {
-    public JITFlatMapOperator(long id, JITRowType type, List<JITOperatorReference> inputs) {
-        super(id, "FlatMap", "flat_map", type, inputs, null, null);
-    }
-}
+import javax.annotation.ParametersAreNonnullByDefault;
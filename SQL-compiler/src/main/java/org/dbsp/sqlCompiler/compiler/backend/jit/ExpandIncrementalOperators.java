@@ -0,0 +1,202 @@
+/*
+ * Copyright 2023 VMware, Inc.
+ * SPDX-License-Identifier: MIT
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package org.dbsp.sqlCompiler.compiler.backend.jit;
+
+import org.dbsp.sqlCompiler.circuit.operator.*;
+import org.dbsp.sqlCompiler.compiler.backend.visitors.CircuitCloneVisitor;
+import org.dbsp.sqlCompiler.ir.expression.*;
+import org.dbsp.sqlCompiler.ir.type.*;
+import org.dbsp.util.IModule;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The JIT has no incremental versions of the join, distinct and aggregate operators.
+ * This visitor expands each of them into a circuit made of non-incremental
+ * operators that only processes the changes of each step, i.e., the rows
+ * of the input deltas, and the rows of the integrals that match them.
+ */
+public class ExpandIncrementalOperators extends CircuitCloneVisitor implements IModule {
+    public ExpandIncrementalOperators() {
+        super(false);
+    }
+
+    <T extends DBSPOperator> T add(T operator) {
+        this.addOperator(operator);
+        return operator;
+    }
+
+    /**
+     * The delta of a join of the inputs a and b is
+     * da join I(b) + I(a) join db - da join db,
+     * where I(a) and I(b) are the integrals of the inputs, including this step.
+     */
+    @Override
+    public void postorder(DBSPIncrementalJoinOperator operator) {
+        DBSPOperator left = this.mapped(operator.inputs.get(0));
+        DBSPOperator right = this.mapped(operator.inputs.get(1));
+        Object node = operator.getNode();
+        DBSPOperator leftIntegral = this.add(new DBSPIntegralOperator(node, left));
+        DBSPOperator rightIntegral = this.add(new DBSPIntegralOperator(node, right));
+        DBSPOperator newLeft = this.add(new DBSPJoinOperator(node, operator.elementResultType,
+                operator.getFunction(), operator.isMultiset, left, rightIntegral));
+        DBSPOperator newRight = this.add(new DBSPJoinOperator(node, operator.elementResultType,
+                operator.getFunction(), operator.isMultiset, leftIntegral, right));
+        DBSPOperator both = this.add(new DBSPJoinOperator(node, operator.elementResultType,
+                operator.getFunction(), operator.isMultiset, left, right));
+        DBSPOperator sum = this.add(new DBSPSumOperator(node, newLeft, newRight));
+        this.map(operator, new DBSPSubtractOperator(node, sum, both));
+    }
+
+    /**
+     * A stream which contains each row that appears in 'delta' with weight 1,
+     * whatever the sign of its weight in 'delta'.
+     */
+    DBSPOperator changedRows(Object node, DBSPOperator delta) {
+        DBSPOperator inserted = this.add(new DBSPDistinctOperator(node, delta));
+        DBSPOperator negated = this.add(new DBSPNegateOperator(node, delta));
+        DBSPOperator deleted = this.add(new DBSPDistinctOperator(node, negated));
+        return this.add(new DBSPSumOperator(node, inserted, deleted));
+    }
+
+    /**
+     * Index a Z-set by the entire row.
+     */
+    DBSPOperator indexByRow(Object node, DBSPOperator input) {
+        DBSPType rowType = input.getOutputZSetElementType();
+        DBSPVariablePath t = rowType.ref().var("t");
+        DBSPExpression entireKey = new DBSPRawTupleExpression(
+                t.applyClone(), new DBSPRawTupleExpression()).closure(t.asParameter());
+        return this.add(new DBSPIndexOperator(node, entireKey, rowType,
+                DBSPTypeRawTuple.EMPTY_TUPLE_TYPE, input.isMultiset, input));
+    }
+
+    /**
+     * The rows of 'input' which also appear in 'rows'.
+     * @param input  Z-set indexed by the entire row.
+     * @param rows   Z-set indexed by the entire row with weights of 1.
+     */
+    DBSPOperator restrictRows(Object node, DBSPOperator input, DBSPOperator rows) {
+        DBSPTypeTuple rowType = input.outputType.to(DBSPTypeIndexedZSet.class).keyType.to(DBSPTypeTuple.class);
+        DBSPVariablePath k = rowType.ref().var("k");
+        DBSPVariablePath l = DBSPTypeRawTuple.EMPTY_TUPLE_TYPE.ref().var("l");
+        DBSPVariablePath r = DBSPTypeRawTuple.EMPTY_TUPLE_TYPE.ref().var("r");
+        DBSPClosureExpression keep = k.applyClone().closure(
+                k.asParameter(), l.asParameter(), r.asParameter());
+        return this.add(new DBSPJoinOperator(node, rowType, keep, input.isMultiset, input, rows));
+    }
+
+    /**
+     * Only the rows that change in a step can change the output of distinct;
+     * the delta is distinct(I(a)) - distinct(I(a) - da) restricted to these rows.
+     */
+    @Override
+    public void postorder(DBSPIncrementalDistinctOperator operator) {
+        DBSPOperator delta = this.mapped(operator.input());
+        Object node = operator.getNode();
+        DBSPOperator changed = this.indexByRow(node, this.changedRows(node, delta));
+        DBSPOperator integral = this.add(new DBSPIntegralOperator(node, delta));
+        DBSPOperator previous = this.add(new DBSPSubtractOperator(node, integral, delta));
+        DBSPOperator current = this.restrictRows(node, this.indexByRow(node, integral), changed);
+        DBSPOperator old = this.restrictRows(node, this.indexByRow(node, previous), changed);
+        DBSPOperator currentDistinct = this.add(new DBSPDistinctOperator(node, current));
+        DBSPOperator oldDistinct = this.add(new DBSPDistinctOperator(node, old));
+        this.map(operator, new DBSPSubtractOperator(node, currentDistinct, oldDistinct));
+    }
+
+    static List<DBSPExpression> fields(DBSPExpression expression) {
+        DBSPTypeTupleBase type = expression.getNonVoidType().toRef(DBSPTypeTupleBase.class);
+        List<DBSPExpression> result = new ArrayList<>();
+        for (int i = 0; i < type.size(); i++)
+            result.add(expression.field(i).applyClone());
+        return result;
+    }
+
+    /**
+     * A tuple expression with the same kind of type as 'type'.
+     */
+    static DBSPExpression makeTuple(DBSPType type, List<DBSPExpression> fields) {
+        if (type.is(DBSPTypeRawTuple.class))
+            return new DBSPRawTupleExpression(fields);
+        return new DBSPTupleExpression(fields, false);
+    }
+
+    /**
+     * The values of the indexed Z-set 'input' whose keys appear in 'keys'.
+     * @param keys  Indexed Z-set with a single value of weight 1 for each key.
+     */
+    DBSPOperator restrictKeys(Object node, DBSPOperator input, DBSPOperator keys) {
+        DBSPTypeIndexedZSet inputType = input.outputType.to(DBSPTypeIndexedZSet.class);
+        DBSPTypeIndexedZSet keysType = keys.outputType.to(DBSPTypeIndexedZSet.class);
+        DBSPTypeTupleBase keyType = inputType.keyType.to(DBSPTypeTupleBase.class);
+        DBSPTypeTupleBase valueType = inputType.elementType.to(DBSPTypeTupleBase.class);
+
+        // The JIT has no nested tuples, so the join produces flat rows,
+        // which are then indexed again.
+        DBSPVariablePath k = keyType.ref().var("k");
+        DBSPVariablePath v = valueType.ref().var("v");
+        DBSPVariablePath a = keysType.elementType.ref().var("a");
+        List<DBSPExpression> flat = fields(k);
+        flat.addAll(fields(v));
+        DBSPTupleExpression row = new DBSPTupleExpression(flat, false);
+        DBSPTypeTuple rowType = row.getNonVoidType().to(DBSPTypeTuple.class);
+        DBSPOperator join = this.add(new DBSPJoinOperator(node, rowType,
+                row.closure(k.asParameter(), v.asParameter(), a.asParameter()),
+                input.isMultiset, input, keys));
+
+        DBSPVariablePath t = rowType.ref().var("t");
+        List<DBSPExpression> rowFields = fields(t);
+        DBSPExpression key = makeTuple(keyType, rowFields.subList(0, keyType.size()));
+        DBSPExpression value = makeTuple(valueType, rowFields.subList(keyType.size(), rowFields.size()));
+        DBSPExpression index = new DBSPRawTupleExpression(key, value).closure(t.asParameter());
+        return this.add(new DBSPIndexOperator(node, index, keyType, valueType, join.isMultiset, join));
+    }
+
+    /**
+     * Only the groups that change in a step can change the output of the aggregate;
+     * the delta is agg(I(a)) - agg(I(a) - da) restricted to these groups.
+     */
+    @Override
+    public void postorder(DBSPIncrementalAggregateOperator operator) {
+        DBSPOperator delta = this.mapped(operator.input());
+        Object node = operator.getNode();
+        // The aggregate of the changed rows produces exactly one row with weight 1
+        // for each group that changes.  The delta itself may have negative weights,
+        // which some aggregates cannot process.
+        DBSPOperator changed = this.add(new DBSPAggregateOperator(node, operator.keyType,
+                operator.outputElementType, operator.function, operator.aggregate,
+                this.changedRows(node, delta)));
+        DBSPOperator integral = this.add(new DBSPIntegralOperator(node, delta));
+        DBSPOperator previous = this.add(new DBSPSubtractOperator(node, integral, delta));
+        DBSPOperator current = this.restrictKeys(node, integral, changed);
+        DBSPOperator old = this.restrictKeys(node, previous, changed);
+        DBSPOperator currentAggregate = this.add(new DBSPAggregateOperator(node, operator.keyType,
+                operator.outputElementType, operator.function, operator.aggregate, current));
+        DBSPOperator oldAggregate = this.add(new DBSPAggregateOperator(node, operator.keyType,
+                operator.outputElementType, operator.function, operator.aggregate, old));
+        this.map(operator, new DBSPSubtractOperator(node, currentAggregate, oldAggregate));
+    }
+}
@@ -0,0 +1,405 @@
+/*
+ * Copyright 2023 VMware, Inc.
+ * SPDX-License-Identifier: MIT
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package org.dbsp.sqlCompiler.compiler.backend.jit;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.BigIntegerNode;
+import com.fasterxml.jackson.databind.node.BooleanNode;
+import com.fasterxml.jackson.databind.node.DecimalNode;
+import com.fasterxml.jackson.databind.node.DoubleNode;
+import com.fasterxml.jackson.databind.node.FloatNode;
+import com.fasterxml.jackson.databind.node.IntNode;
+import com.fasterxml.jackson.databind.node.LongNode;
+import com.fasterxml.jackson.databind.node.NullNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.node.TextNode;
+import org.dbsp.sqlCompiler.compiler.backend.jit.ir.JITNode;
+import org.dbsp.sqlCompiler.compiler.backend.jit.ir.JITProgram;
+import org.dbsp.util.UnsupportedException;
+
+import java.io.BufferedOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact binary encoding of JIT programs.
+ * The encoding has the same structure as the JSON produced by JITProgram.asJson,
+ * so a reader can rebuild the JSON tree and reuse the existing deserialization,
+ * but it is much smaller and faster to parse:
+ * - all object keys and strings are stored once in a string table
+ *   and referred to by index; the most frequent strings get the smallest indexes
+ * - all integers are zigzag-encoded LEB128 varints
+ * - arrays and objects that appear several times, such as identical layouts,
+ *   instructions or functions, are stored once and referred to by index.
+ * The format is:
+ * - the bytes 'D' 'B' 'J' 'T', followed by the version as a varint
+ * - the string table: a varint count, then each string as a varint length
+ *   in bytes followed by its UTF-8 encoding
+ * - the root value.
+ * Each value starts with a tag byte:
+ * - NULL, FALSE, TRUE: no payload
+ * - INT: a zigzag varint
+ * - FLOAT, DOUBLE: 4 or 8 bytes of IEEE 754 little-endian
+ * - BIG_INTEGER: an integer that does not fit in 64 bits, as a varint length
+ *   followed by its big-endian two's complement bytes
+ * - DECIMAL: a zigzag varint scale followed by the unscaled value encoded as
+ *   for BIG_INTEGER; the value is unscaled * 10^-scale
+ * - STRING: varint index in the string table
+ * - ARRAY: varint element count, followed by the elements
+ * - OBJECT: varint field count, followed by (varint key index, value) pairs
+ * - DEFINE: followed by a value which is appended to the shared value table
+ * - REF: varint index in the shared value table.
+ * dataflow-jit has no reader for this format yet, so the compiler does not
+ * offer it as an output format.
+ */
+public class JITBinarySerializer {
+    static final byte[] MAGIC = { 'D', 'B', 'J', 'T' };
+    static final int VERSION = 1;
+
+    static final int NULL = 0;
+    static final int FALSE = 1;
+    static final int TRUE = 2;
+    static final int INT = 3;
+    static final int FLOAT = 4;
+    static final int DOUBLE = 5;
+    static final int STRING = 6;
+    static final int ARRAY = 7;
+    static final int OBJECT = 8;
+    static final int DEFINE = 9;
+    static final int REF = 10;
+    static final int BIG_INTEGER = 11;
+    static final int DECIMAL = 12;
+
+    /**
+     * Arrays and objects smaller than this are not worth sharing.
+     */
+    static final int MIN_SHARED_SIZE = 2;
+
+    final OutputStream stream;
+    /**
+     * Index of each string in the string table.
+     */
+    final Map<String, Integer> strings;
+    /**
+     * Number of occurrences of each array and object.
+     */
+    final Map<JsonNode, Integer> occurrences;
+    /**
+     * Index of each shared value that has already been written.
+     */
+    final Map<JsonNode, Integer> shared;
+
+    JITBinarySerializer(OutputStream stream) {
+        this.stream = stream;
+        this.strings = new HashMap<>();
+        this.occurrences = new HashMap<>();
+        this.shared = new HashMap<>();
+    }
+
+    /**
+     * Serialize a JIT program in the binary format.
+     */
+    public static void serialize(JITProgram program, OutputStream stream) throws IOException {
+        serialize(program.asJson(), stream);
+    }
+
+    /**
+     * Serialize a JSON tree in the binary format.
+     */
+    public static void serialize(JsonNode root, OutputStream stream) throws IOException {
+        BufferedOutputStream buffered = new BufferedOutputStream(stream);
+        JITBinarySerializer serializer = new JITBinarySerializer(buffered);
+        serializer.write(root);
+        buffered.flush();
+    }
+
+    /**
+     * Decode a value in the binary format into the equivalent JSON tree.
+     */
+    public static JsonNode deserialize(InputStream stream) throws IOException {
+        return new Reader(stream).read();
+    }
+
+    void collect(JsonNode node, Map<String, Integer> stringCount) {
+        if (node.isTextual()) {
+            stringCount.merge(node.asText(), 1, Integer::sum);
+        } else if (node.isContainerNode()) {
+            if (node.size() >= MIN_SHARED_SIZE)
+                this.occurrences.merge(node, 1, Integer::sum);
+            Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                stringCount.merge(field.getKey(), 1, Integer::sum);
+            }
+            for (JsonNode child: node)
+                this.collect(child, stringCount);
+        }
+    }
+
+    void write(JsonNode root) throws IOException {
+        Map<String, Integer> stringCount = new HashMap<>();
+        this.collect(root, stringCount);
+        List<String> table = new ArrayList<>(stringCount.keySet());
+        table.sort((l, r) -> {
+            int c = Integer.compare(stringCount.get(r), stringCount.get(l));
+            return c != 0 ? c : l.compareTo(r);
+        });
+
+        this.stream.write(MAGIC);
+        this.writeVarint(VERSION);
+        this.writeVarint(table.size());
+        for (String s: table) {
+            this.strings.put(s, this.strings.size());
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            this.writeVarint(bytes.length);
+            this.stream.write(bytes);
+        }
+        this.writeValue(root);
+    }
+
+    void writeVarint(long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            this.stream.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        this.stream.write((int) value);
+    }
+
+    void writeZigzag(long value) throws IOException {
+        this.writeVarint((value << 1) ^ (value >> 63));
+    }
+
+    void writeBigInteger(BigInteger value) throws IOException {
+        byte[] bytes = value.toByteArray();
+        this.writeVarint(bytes.length);
+        this.stream.write(bytes);
+    }
+
+    void writeLittleEndian(long value, int bytes) throws IOException {
+        for (int i = 0; i < bytes; i++) {
+            this.stream.write((int) (value & 0xFF));
+            value >>>= 8;
+        }
+    }
+
+    void writeValue(JsonNode node) throws IOException {
+        if (node.isContainerNode() && this.occurrences.getOrDefault(node, 0) > 1) {
+            Integer index = this.shared.get(node);
+            if (index != null) {
+                this.stream.write(REF);
+                this.writeVarint(index);
+                return;
+            }
+            this.stream.write(DEFINE);
+            // The index is assigned after the value is decoded.
+            this.writeContainer(node);
+            this.shared.put(node, this.shared.size());
+            return;
+        }
+        if (node.isContainerNode()) {
+            this.writeContainer(node);
+        } else if (node.isNull()) {
+            this.stream.write(NULL);
+        } else if (node.isBoolean()) {
+            this.stream.write(node.booleanValue() ? TRUE : FALSE);
+        } else if (node.isIntegralNumber() && node.canConvertToLong()) {
+            this.stream.write(INT);
+            this.writeZigzag(node.longValue());
+        } else if (node.isBigInteger()) {
+            this.stream.write(BIG_INTEGER);
+            this.writeBigInteger(node.bigIntegerValue());
+        } else if (node.isBigDecimal()) {
+            BigDecimal value = node.decimalValue();
+            this.stream.write(DECIMAL);
+            this.writeZigzag(value.scale());
+            this.writeBigInteger(value.unscaledValue());
+        } else if (node.isFloat()) {
+            this.stream.write(FLOAT);
+            this.writeLittleEndian(Float.floatToIntBits(node.floatValue()), 4);
+        } else if (node.isDouble()) {
+            this.stream.write(DOUBLE);
+            this.writeLittleEndian(Double.doubleToLongBits(node.doubleValue()), 8);
+        } else if (node.isTextual()) {
+            this.stream.write(STRING);
+            this.writeVarint(this.strings.get(node.asText()));
+        } else {
+            throw new UnsupportedException(node.getNodeType().toString(), node);
+        }
+    }
+
+    void writeContainer(JsonNode node) throws IOException {
+        if (node.isArray()) {
+            this.stream.write(ARRAY);
+            this.writeVarint(node.size());
+            for (JsonNode child: node)
+                this.writeValue(child);
+        } else {
+            this.stream.write(OBJECT);
+            this.writeVarint(node.size());
+            Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                this.writeVarint(this.strings.get(field.getKey()));
+                this.writeValue(field.getValue());
+            }
+        }
+    }
+
+    static class Reader {
+        final InputStream stream;
+        final List<String> strings;
+        final List<JsonNode> shared;
+
+        Reader(InputStream stream) {
+            this.stream = stream;
+            this.strings = new ArrayList<>();
+            this.shared = new ArrayList<>();
+        }
+
+        int readByte() throws IOException {
+            int b = this.stream.read();
+            if (b < 0)
+                throw new EOFException("Truncated JIT program");
+            return b;
+        }
+
+        long readVarint() throws IOException {
+            long result = 0;
+            for (int shift = 0; ; shift += 7) {
+                int b = this.readByte();
+                result |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0)
+                    return result;
+            }
+        }
+
+        int readIndex() throws IOException {
+            return Math.toIntExact(this.readVarint());
+        }
+
+        long readZigzag() throws IOException {
+            long encoded = this.readVarint();
+            return (encoded >>> 1) ^ -(encoded & 1);
+        }
+
+        BigInteger readBigInteger() throws IOException {
+            byte[] bytes = new byte[this.readIndex()];
+            for (int i = 0; i < bytes.length; i++)
+                bytes[i] = (byte) this.readByte();
+            return new BigInteger(bytes);
+        }
+
+        long readLittleEndian(int bytes) throws IOException {
+            long result = 0;
+            for (int i = 0; i < bytes; i++)
+                result |= (long) this.readByte() << (8 * i);
+            return result;
+        }
+
+        JsonNode read() throws IOException {
+            for (byte b: MAGIC) {
+                if (this.readByte() != b)
+                    throw new IOException("Not a binary JIT program");
+            }
+            long version = this.readVarint();
+            if (version != VERSION)
+                throw new IOException("Unsupported binary JIT program version " + version);
+            int count = this.readIndex();
+            for (int i = 0; i < count; i++) {
+                byte[] bytes = new byte[this.readIndex()];
+                for (int j = 0; j < bytes.length; j++)
+                    bytes[j] = (byte) this.readByte();
+                this.strings.add(new String(bytes, StandardCharsets.UTF_8));
+            }
+            return this.readValue();
+        }
+
+        JsonNode readValue() throws IOException {
+            int tag = this.readByte();
+            switch (tag) {
+                case NULL:
+                    return NullNode.getInstance();
+                case FALSE:
+                    return BooleanNode.FALSE;
+                case TRUE:
+                    return BooleanNode.TRUE;
+                case INT: {
+                    long value = this.readZigzag();
+                    if (value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE)
+                        return IntNode.valueOf((int) value);
+                    return LongNode.valueOf(value);
+                }
+                case BIG_INTEGER:
+                    return BigIntegerNode.valueOf(this.readBigInteger());
+                case DECIMAL: {
+                    int scale = Math.toIntExact(this.readZigzag());
+                    return DecimalNode.valueOf(new BigDecimal(this.readBigInteger(), scale));
+                }
+                case FLOAT:
+                    return FloatNode.valueOf(Float.intBitsToFloat((int) this.readLittleEndian(4)));
+                case DOUBLE:
+                    return DoubleNode.valueOf(Double.longBitsToDouble(this.readLittleEndian(8)));
+                case STRING:
+                    return TextNode.valueOf(this.strings.get(this.readIndex()));
+                case ARRAY: {
+                    ArrayNode result = JITNode.jsonFactory().createArrayNode();
+                    int size = this.readIndex();
+                    for (int i = 0; i < size; i++)
+                        result.add(this.readValue());
+                    return result;
+                }
+                case OBJECT: {
+                    ObjectNode result = JITNode.jsonFactory().createObjectNode();
+                    int size = this.readIndex();
+                    for (int i = 0; i < size; i++) {
+                        String key = this.strings.get(this.readIndex());
+                        result.set(key, this.readValue());
+                    }
+                    return result;
+                }
+                case DEFINE: {
+                    JsonNode value = this.readValue();
+                    this.shared.add(value);
+                    return value;
+                }
+                case REF:
+                    return this.shared.get(this.readIndex()).deepCopy();
+                default:
+                    throw new IOException("Unexpected tag " + tag + " in binary JIT program");
+            }
+        }
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright 2023 VMware, Inc.
+ * SPDX-License-Identifier: MIT
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.dbsp.sqlCompiler.compiler.backend.jit;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Checks the JSON representation of a JIT program against the shape
+ * of the nodes expected by the dataflow JIT compiler:
+ * each node has exactly one kind, all the fields required by its kind,
+ * its inputs are nodes of the program, and its layouts are layouts of the program.
+ */
+public class JITProgramValidator {
+    static final String[] STREAM = { "input", "layout" };
+    static final String[] FOLD = {
+            "input", "acc_layout", "step_layout", "output_layout", "init", "step_fn", "finish_fn" };
+
+    /**
+     * For each node kind the fields that it must have.
+     */
+    static final Map<String, String[]> REQUIRED_FIELDS = new HashMap<>();
+
+    static {
+        REQUIRED_FIELDS.put("Source", new String[] { "layout", "table" });
+        REQUIRED_FIELDS.put("Sink", new String[] { "input" });
+        REQUIRED_FIELDS.put("ConstantStream", new String[] { "layout", "value" });
+        REQUIRED_FIELDS.put("Filter", new String[] { "input", "filter_fn" });
+        REQUIRED_FIELDS.put("Map", new String[] { "input", "map_fn", "input_layout", "output_layout" });
+        REQUIRED_FIELDS.put("IndexWith", new String[] { "input", "index_fn", "key_layout", "value_layout" });
+        REQUIRED_FIELDS.put("JoinCore", new String[] {
+                "lhs", "rhs", "join_fn", "key_layout", "value_layout", "output_kind" });
+        REQUIRED_FIELDS.put("Fold", FOLD);
+        REQUIRED_FIELDS.put("PartitionedRollingFold", concat(FOLD, "partition_layout", "timestamp_layout", "range"));
+        REQUIRED_FIELDS.put("Sum", new String[] { "inputs", "layout" });
+        REQUIRED_FIELDS.put("Minus", new String[] { "lhs", "rhs", "layout" });
+        REQUIRED_FIELDS.put("Neg", STREAM);
+        REQUIRED_FIELDS.put("Distinct", STREAM);
+        REQUIRED_FIELDS.put("Integrate", STREAM);
+        REQUIRED_FIELDS.put("Differentiate", STREAM);
+    }
+
+    static String[] concat(String[] prefix, String... suffix) {
+        String[] result = new String[prefix.length + suffix.length];
+        System.arraycopy(prefix, 0, result, 0, prefix.length);
+        System.arraycopy(suffix, 0, result, prefix.length, suffix.length);
+        return result;
+    }
+
+    final JsonNode nodes;
+    final JsonNode layouts;
+
+    JITProgramValidator(JsonNode program) {
+        this.nodes = this.getField(program, "nodes", "program");
+        this.layouts = this.getField(program, "layouts", "program");
+    }
+
+    void error(String message) {
+        throw new RuntimeException("Invalid JIT program: " + message);
+    }
+
+    JsonNode getField(JsonNode node, String field, String context) {
+        JsonNode result = node.get(field);
+        if (result == null)
+            this.error(context + " has no field '" + field + "'");
+        return result;
+    }
+
+    void checkNodeId(JsonNode id, String context) {
+        if (!id.isIntegralNumber() || !this.nodes.has(id.asText()))
+            this.error(context + " refers to unknown node " + id);
+    }
+
+    void checkLayoutId(JsonNode id, String context) {
+        if (!id.isIntegralNumber() || !this.layouts.has(id.asText()))
+            this.error(context + " refers to unknown layout " + id);
+    }
+
+    /**
+     * A layout is either a layout id, or a stream layout: {"Set": id} or {"Map": [key, value]}.
+     */
+    void checkLayout(JsonNode layout, String context) {
+        if (layout.isIntegralNumber()) {
+            this.checkLayoutId(layout, context);
+        } else if (layout.size() == 1 && layout.has("Set")) {
+            this.checkLayoutId(layout.get("Set"), context);
+        } else if (layout.size() == 1 && layout.has("Map") && layout.get("Map").size() == 2) {
+            this.checkLayoutId(layout.get("Map").get(0), context);
+            this.checkLayoutId(layout.get("Map").get(1), context);
+        } else {
+            this.error(context + " has an invalid layout " + layout);
+        }
+    }
+
+    void checkBound(JsonNode range, String field, String context) {
+        JsonNode bound = this.getField(range, field, context);
+        if (bound.size() != 1 || !(bound.has("Before") || bound.has("After")))
+            this.error(context + " has an invalid bound " + bound);
+    }
+
+    void checkNode(String id, JsonNode node) {
+        if (!node.isObject() || node.size() != 1)
+            this.error("node " + id + " must have exactly one kind");
+        String kind = node.fieldNames().next();
+        String context = kind + " node " + id;
+        String[] required = REQUIRED_FIELDS.get(kind);
+        if (required == null)
+            this.error(context + " has an unknown kind");
+        JsonNode data = node.get(kind);
+        for (String field: required)
+            this.getField(data, field, context);
+
+        Iterator<Map.Entry<String, JsonNode>> fields = data.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            String name = field.getKey();
+            JsonNode value = field.getValue();
+            if (name.equals("input") || name.equals("lhs") || name.equals("rhs")) {
+                this.checkNodeId(value, context);
+            } else if (name.equals("inputs")) {
+                if (value.size() == 0)
+                    this.error(context + " has no inputs");
+                for (JsonNode input: value)
+                    this.checkNodeId(input, context);
+            } else if (name.equals("layout") || name.endsWith("_layout")) {
+                this.checkLayout(value, context);
+            } else if (name.equals("range")) {
+                this.checkBound(value, "lower", context);
+                this.checkBound(value, "upper", context);
+            }
+        }
+    }
+
+    void validate() {
+        Iterator<Map.Entry<String, JsonNode>> fields = this.nodes.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> node = fields.next();
+            this.checkNode(node.getKey(), node.getValue());
+        }
+    }
+
+    /**
+     * Throw if the JSON representation of a JIT program is malformed.
+     * @param program  Result of JITProgram.asJson().
+     */
+    public static void validate(JsonNode program) {
+        new JITProgramValidator(program).validate();
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2023 VMware, Inc.
+ * SPDX-License-Identifier: MIT
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package org.dbsp.sqlCompiler.compiler.backend.jit;
+
+import org.dbsp.sqlCompiler.compiler.backend.jit.ir.types.*;
+import org.dbsp.sqlCompiler.ir.type.DBSPType;
+import org.dbsp.sqlCompiler.ir.type.DBSPTypeTupleBase;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Decides the order in which the fields of a tuple are stored in a JIT row.
+ * Fields are sorted by decreasing alignment, so that the row needs no padding
+ * between columns; within the same alignment non-nullable fields come first,
+ * so the nullable columns, whose null flags the runtime stores as bits
+ * in a bitset, are contiguous.  The sort is stable, so fields with the same
+ * alignment and nullability keep their declaration order.
+ */
+public class RowLayoutPlanner {
+    private RowLayoutPlanner() {}
+
+    /**
+     * Alignment in bytes of a scalar value in a JIT row.
+     */
+    public static int alignment(JITScalarType type) {
+        if (type.is(JITBoolType.class) || type.is(JITUnitType.class))
+            return 1;
+        if (type.is(JITI16Type.class))
+            return 2;
+        if (type.is(JITI32Type.class) || type.is(JITF32Type.class) || type.is(JITDateType.class))
+            return 4;
+        // 64-bit values, timestamps, sizes and string pointers
+        return 8;
+    }
+
+    /**
+     * Compute the order of the fields of a tuple in a row.
+     * @param type     Tuple type.
+     * @param reorder  If false the fields are stored in declaration order.
+     * @return         For each row position the index of the tuple field stored there.
+     */
+    public static int[] plan(DBSPTypeTupleBase type, boolean reorder) {
+        List<Integer> order = new ArrayList<>();
+        for (int i = 0; i < type.size(); i++)
+            order.add(i);
+        if (reorder) {
+            Comparator<Integer> byAlignment = Comparator.comparingInt(
+                    i -> -alignment(JITScalarType.scalarType(type.getFieldType(i))));
+            order.sort(byAlignment.thenComparing(i -> type.getFieldType(i).mayBeNull));
+        }
+        int[] result = new int[order.size()];
+        for (int i = 0; i < result.length; i++)
+            result[i] = order.get(i);
+        return result;
+    }
+
+    /**
+     * A key which is the same for all tuple types that have the same layout.
+     */
+    static String structuralKey(DBSPTypeTupleBase type, boolean reorder) {
+        StringBuilder builder = new StringBuilder();
+        builder.append(reorder ? "R" : "D");
+        for (DBSPType field: type.tupFields) {
+            builder.append(field.mayBeNull ? "?" : "")
+                    .append(JITScalarType.scalarType(field))
+                    .append(",");
+        }
+        return builder.toString();
+    }
+}
@@ -141,14 +141,16 @@ public class SimpleClosureParameters
         }
         this.endVisit();
         if (result != closure)
-            Logger.INSTANCE.from(this, 2)
-                    .append("SimpleClosureParameters replaces")
-                    .newline()
-                    .append(closure.toString())
-                    .newline()
-                    .append("with")
-                    .newline()
-                    .append(result.toString());
+            if (Logger.INSTANCE.isEnabled(this, 2)) {
+                Logger.INSTANCE.from(this, 2)
+                        .append("SimpleClosureParameters replaces")
+                        .newline()
+                        .append(closure.toString())
+                        .newline()
+                        .append("with")
+                        .newline()
+                        .append(result.toString());
+            }
         return result;
     }
 
@@ -50,6 +50,7 @@ import org.dbsp.sqlCompiler.compiler.backend.jit.ir.types.JITBoolType;
 import org.dbsp.sqlCompiler.compiler.backend.jit.ir.types.JITI64Type;
 import org.dbsp.sqlCompiler.compiler.backend.jit.ir.types.JITRowType;
 import org.dbsp.sqlCompiler.compiler.backend.jit.ir.types.JITScalarType;
+import org.dbsp.sqlCompiler.compiler.backend.jit.ir.types.JITStringType;
 import org.dbsp.sqlCompiler.compiler.backend.jit.ir.types.JITType;
 import org.dbsp.sqlCompiler.ir.DBSPParameter;
 import org.dbsp.sqlCompiler.ir.InnerVisitor;
@@ -126,6 +127,8 @@ public class ToJitInnerVisitor extends InnerVisitor {
     final List<JITBlock> blocks;
     /**
      * Maps each expression to the values that it produces.
+     * Keyed by identity: literals and tuples compare by value,
+     * but each occurrence produces its own values.
      */
     final Map<DBSPExpression, JITInstructionPair> expressionToValues;
     /**
@@ -154,7 +157,7 @@ public class ToJitInnerVisitor extends InnerVisitor {
         super(true);
         this.blocks = blocks;
         this.typeCatalog = typeCatalog;
-        this.expressionToValues = new HashMap<>();
+        this.expressionToValues = new IdentityHashMap<>();
         this.declarations = new ArrayList<>();
         this.currentBlock = null;
         this.mapping = mapping;
@@ -327,64 +330,79 @@ public class ToJitInnerVisitor extends InnerVisitor {
         throw new Unimplemented(expression);
     }
 
+    /**
+     * Maps the names used by the sqllib runtime for the parts of a date
+     * to the names used by the JIT runtime.
+     */
+    static final Map<String, String> datePartNames = new HashMap<>();
+    /**
+     * Maps sqllib math functions to JIT runtime functions.
+     * The sqllib functions have the argument types in their name,
+     * but the JIT calls carry the argument types explicitly.
+     * Only functions that sqllib implements for integer or floating point
+     * arguments are listed; e.g., ln, log10 and round only exist for
+     * decimals, which the JIT does not support.
+     */
+    static final Map<String, String> mathFunctionNames = new HashMap<>();
+
+    static {
+        datePartNames.put("dow", "day_of_week");
+        datePartNames.put("doy", "day_of_year");
+        datePartNames.put("isodow", "iso_day_of_week");
+
+        mathFunctionNames.put("abs", "dbsp.math.abs");
+        mathFunctionNames.put("power", "dbsp.math.pow");
+    }
+
+    /**
+     * Find the JIT runtime function that implements a sqllib function.
+     * @param function  Name of the sqllib function, e.g., extract_Timestamp_secondN.
+     * @return The name of the JIT function, or null if there is no such function.
+     */
+    @Nullable
+    static String runtimeFunction(String function) {
+        // The sqllib functions that accept nullable arguments have an 'N'
+        // suffix appended to the type or keyword. The JIT functions are only
+        // called on non-null values, so we can strip the suffixes.
+        String[] parts = function.split("_");
+        for (int i = 1; i < parts.length; i++) {
+            if (parts[i].length() > 1 && parts[i].endsWith("N"))
+                parts[i] = parts[i].substring(0, parts[i].length() - 1);
+        }
+        String operation = parts[0];
+        switch (operation) {
+            case "extract":
+            case "floor":
+            case "ceil": {
+                // extract_Timestamp_second, floor_Date_week
+                if (parts.length != 3)
+                    return null;
+                String namespace;
+                if (parts[1].equals("Timestamp"))
+                    namespace = "dbsp.timestamp.";
+                else if (parts[1].equals("Date"))
+                    namespace = "dbsp.date.";
+                else
+                    return null;
+                String part = datePartNames.getOrDefault(parts[2], parts[2]);
+                if (operation.equals("extract"))
+                    return namespace + part;
+                return namespace + operation + "_" + part;
+            }
+            default:
+                // abs_i32, power_i32_d
+                for (int i = 1; i < parts.length; i++)
+                    if (parts[i].equals("decimal"))
+                        return null;
+                return mathFunctionNames.get(operation);
+        }
+    }
+
     @Override
     public boolean preorder(DBSPApplyExpression expression) {
         DBSPPathExpression path = expression.function.as(DBSPPathExpression.class);
         if (path != null) {
-            String jitFunction = null;
-            String function = path.path.toString();
-            switch (function) {
-                case "extract_Timestamp_second":
-                    jitFunction = "dbsp.timestamp.second";
-                    break;
-                case "extract_Timestamp_minute":
-                    jitFunction = "dbsp.timestamp.minute";
-                    break;
-                case "extract_Timestamp_hour":
-                    jitFunction = "dbsp.timestamp.hour";
-                    break;
-                case "extract_Timestamp_day":
-                    jitFunction = "dbsp.timestamp.day";
-                    break;
-                case "extract_Timestamp_dow":
-                    jitFunction = "dbsp.timestamp.day_of_week";
-                    break;
-                case "extract_Timestamp_doy":
-                    jitFunction = "dbsp.timestamp.day_of_year";
-                    break;
-                case "extract_Timestamp_isodow":
-                    jitFunction = "dbsp.timestamp.iso_day_of_week";
-                    break;
-                case "extract_Timestamp_week":
-                    jitFunction = "dbsp.timestamp.week";
-                    break;
-                case "extract_Timestamp_month":
-                    jitFunction = "dbsp.timestamp.month";
-                    break;
-                case "extract_Timestamp_year":
-                    jitFunction = "dbsp.timestamp.year";
-                    break;
-                case "extract_Timestamp_isoyear":
-                    jitFunction = "dbsp.timestamp.isoyear";
-                    break;
-                case "extract_Timestamp_quarter":
-                    jitFunction = "dbsp.timestamp.quarter";
-                    break;
-                case "extract_Timestamp_decade":
-                    jitFunction = "dbsp.timestamp.decade";
-                    break;
-                case "extract_Timestamp_century":
-                    jitFunction = "dbsp.timestamp.century";
-                    break;
-                case "extract_Timestamp_millennium":
-                    jitFunction = "dbsp.timestamp.millennium";
-                    break;
-                case "extract_Timestamp_epoch":
-                    jitFunction = "dbsp.timestamp.epoch";
-                    break;
-                default:
-                    break;
-            }
+            String jitFunction = runtimeFunction(path.path.toString());
             if (jitFunction != null) {
                 this.createFunctionCall(jitFunction, expression, expression.arguments);
                 return false;
@@ -420,6 +438,17 @@ public class ToJitInnerVisitor extends InnerVisitor {
 
     @Override
     public boolean preorder(DBSPCastExpression expression) {
+        JITScalarType sourceScalar = convertScalarType(expression.source);
+        JITScalarType destScalar = convertScalarType(expression);
+        boolean sourceIsString = sourceScalar.is(JITStringType.class);
+        boolean destIsString = destScalar.is(JITStringType.class);
+        if (sourceIsString != destIsString) {
+            // Conversions to and from strings are implemented by the runtime.
+            String function = sourceIsString ? "dbsp.str.parse" : "dbsp.str.write";
+            this.createFunctionCall(function, expression, expression.source);
+            return false;
+        }
+
         JITInstructionPair sourceId = this.accept(expression.source);
         long id = this.nextInstructionId();
         JITScalarType sourceType = convertScalarType(expression.source);
@@ -783,7 +812,7 @@ public class ToJitInnerVisitor extends InnerVisitor {
                 JITInstructionReference isNullRef = new JITInstructionReference();
                 if (needsNull(expression)) {
                     JITInstruction isNull = this.add(new JITIsNullInstruction(this.nextInstructionId(),
-                            param.getInstructionReference(), param.type, 0));
+                            param.getInstructionReference(), param.type, param.type.getColumn(0)));
                     isNullRef = isNull.getInstructionReference();
                 }
                 this.map(expression, new JITInstructionPair(value, isNullRef));
@@ -796,10 +825,10 @@ public class ToJitInnerVisitor extends InnerVisitor {
         JITRowType sourceType = this.typeCatalog.convertTupleType(expression.expression.getNonVoidType());
         JITInstruction load = this.add(new JITLoadInstruction(
                 this.nextInstructionId(), sourceId.value, sourceType,
-                expression.fieldNo, convertScalarType(expression)));
+                sourceType.getColumn(expression.fieldNo), convertScalarType(expression)));
         if (needsNull(expression)) {
             isNull = this.add(new JITIsNullInstruction(this.nextInstructionId(), sourceId.value,
-                sourceType, expression.fieldNo));
+                sourceType, sourceType.getColumn(expression.fieldNo)));
         }
         this.map(expression, new JITInstructionPair(load, isNull));
         return false;
@@ -822,10 +851,66 @@ public class ToJitInnerVisitor extends InnerVisitor {
 
     @Override
     public boolean preorder(DBSPIfExpression expression) {
-        // TODO
+        if (!ToJitVisitor.isScalarType(expression.getType()))
+            throw new Unimplemented(expression);
+        // cond ? positive : negative is compiled as
+        // branch cond, positiveBlock, negativeBlock
+        // positiveBlock: ...; jump next(positive)
+        // negativeBlock: ...; jump next(negative)
+        // next(value): ...
+        JITInstructionPair cond = this.accept(expression.condition);
+        JITInstructionReference condition = cond.value;
+        if (cond.hasNull()) {
+            // A NULL condition is false
+            JITInstructionPair False = this.constantBool(false);
+            condition = this.add(new JITMuxInstruction(this.nextInstructionId(),
+                    cond.isNull, False.value, cond.value)).getInstructionReference();
+        }
+        JITBlock positiveBlock = this.newBlock();
+        JITBlock negativeBlock = this.newBlock();
+        JITBlock next = this.newBlock();
+        JITBranchTerminator branch = new JITBranchTerminator(
+                condition, positiveBlock.getBlockReference(), negativeBlock.getBlockReference());
+        this.getCurrentBlock().terminate(branch);
+
+        boolean needsNull = needsNull(expression);
+        this.currentBlock = positiveBlock;
+        this.jumpWithValue(expression.positive, next, needsNull);
+        this.currentBlock = negativeBlock;
+        this.jumpWithValue(expression.negative, next, needsNull);
+
+        this.currentBlock = next;
+        JITInstructionReference value = this.nextId();
+        next.addParameter(value, convertScalarType(expression));
+        JITInstructionReference isNull = new JITInstructionReference();
+        if (needsNull) {
+            isNull = this.nextId();
+            next.addParameter(isNull, JITBoolType.INSTANCE);
+        }
+        this.map(expression, new JITInstructionPair(value, isNull));
         return false;
     }
 
+    /**
+     * Evaluate an expression in the current block and jump to the
+     * 'next' block passing the value of the expression as argument.
+     * @param expression  Expression to evaluate.
+     * @param next        Block that receives the value.
+     * @param needsNull   If true the 'next' block also receives the nullability.
+     */
+    void jumpWithValue(DBSPExpression expression, JITBlock next, boolean needsNull) {
+        JITInstructionPair values = this.accept(expression);
+        JITJumpTerminator jump = new JITJumpTerminator(next.getBlockReference());
+        jump.addArgument(values.value);
+        if (needsNull) {
+            JITInstructionReference isNull = values.isNull;
+            if (!values.hasNull())
+                isNull = this.constantBool(false).value;
+            jump.addArgument(isNull);
+        }
+        this.getCurrentBlock().terminate(jump);
+    }
+
     @Override
     public boolean preorder(DBSPRawTupleExpression expression) {
         // Each field is assigned to a different variable.
@@ -855,11 +940,11 @@ public class ToJitInnerVisitor extends InnerVisitor {
             // Generates 1 or 2 instructions for each field (depending on nullability)
             JITInstructionPair fieldId = this.accept(field);
             this.add(new JITStoreInstruction(this.nextInstructionId(),
-                    retValId.value, tupleTypeId, index, fieldId.value,
+                    retValId.value, tupleTypeId, tupleTypeId.getColumn(index), fieldId.value,
                     JITScalarType.scalarType(field.getNonVoidType())));
             if (fieldId.hasNull()) {
                 this.add(new JITSetNullInstruction(this.nextInstructionId(),
-                        retValId.value, tupleTypeId, index, fieldId.isNull));
+                        retValId.value, tupleTypeId, tupleTypeId.getColumn(index), fieldId.isNull));
             }
             index++;
         }
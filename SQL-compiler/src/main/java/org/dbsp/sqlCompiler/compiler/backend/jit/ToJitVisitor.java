@@ -32,19 +32,25 @@ import org.dbsp.sqlCompiler.compiler.backend.jit.ir.JITFunction;
 import org.dbsp.sqlCompiler.compiler.backend.jit.ir.JITParameterMapping;
 import org.dbsp.sqlCompiler.compiler.backend.jit.ir.JITProgram;
 import org.dbsp.sqlCompiler.compiler.backend.jit.ir.cfg.JITBlock;
+import org.dbsp.sqlCompiler.compiler.backend.jit.ir.instructions.JITLiteral;
 import org.dbsp.sqlCompiler.compiler.backend.jit.ir.instructions.JITTupleLiteral;
 import org.dbsp.sqlCompiler.compiler.backend.jit.ir.instructions.JITZSetLiteral;
 import org.dbsp.sqlCompiler.compiler.backend.jit.ir.operators.*;
+import org.dbsp.sqlCompiler.compiler.backend.jit.ir.optimize.JITFunctionOptimizer;
 import org.dbsp.sqlCompiler.compiler.backend.jit.ir.types.*;
 import org.dbsp.sqlCompiler.compiler.backend.optimize.BetaReduction;
 import org.dbsp.sqlCompiler.compiler.backend.optimize.Simplify;
 import org.dbsp.sqlCompiler.compiler.backend.visitors.PassesVisitor;
+import org.dbsp.sqlCompiler.compiler.frontend.ExpressionCompiler;
 import org.dbsp.sqlCompiler.compiler.frontend.TypeCompiler;
 import org.dbsp.sqlCompiler.ir.CircuitVisitor;
 import org.dbsp.sqlCompiler.ir.DBSPAggregate;
 import org.dbsp.sqlCompiler.ir.DBSPParameter;
 import org.dbsp.sqlCompiler.ir.expression.*;
 import org.dbsp.sqlCompiler.ir.expression.literal.*;
+import org.dbsp.sqlCompiler.ir.path.DBSPPathSegment;
+import org.dbsp.sqlCompiler.ir.pattern.DBSPIdentifierPattern;
+import org.dbsp.sqlCompiler.ir.path.DBSPSimplePathSegment;
 import org.dbsp.sqlCompiler.ir.statement.DBSPLetStatement;
 import org.dbsp.sqlCompiler.ir.statement.DBSPStatement;
 import org.dbsp.sqlCompiler.ir.type.*;
@@ -87,13 +93,37 @@ public class ToJitVisitor extends CircuitVisitor implements IModule {
         return type;
     }
 
+    /**
+     * Allocate an id for a JIT operator that has no corresponding circuit operator.
+     * The id comes from the compiler that produced the circuit, so it is distinct
+     * from the ids of all circuit operators.
+     */
+    long newOperatorId() {
+        return this.getCircuit().circuit.compiler.idScope.nextId();
+    }
+
     class OperatorConversion {
         final @Nullable JITFunction function;
         final List<JITOperatorReference> inputs;
+        /**
+         * Key type of the output for indexed Z-sets, null for Z-sets.
+         */
+        final @Nullable JITRowType keyType;
+        /**
+         * Element type of the output for Z-sets, value type for indexed Z-sets.
+         */
         final JITRowType type;
 
         public OperatorConversion(DBSPOperator operator) {
-            this.type = ToJitVisitor.this.getTypeCatalog().convertTupleType(operator.getOutputZSetElementType());
+            TypeCatalog catalog = ToJitVisitor.this.getTypeCatalog();
+            DBSPTypeIndexedZSet indexed = operator.outputType.as(DBSPTypeIndexedZSet.class);
+            if (indexed != null) {
+                this.keyType = catalog.convertTupleType(indexed.keyType);
+                this.type = catalog.convertTupleType(indexed.elementType);
+            } else {
+                this.keyType = null;
+                this.type = catalog.convertTupleType(operator.getOutputZSetElementType());
+            }
             if (operator.function != null) {
                 DBSPExpression func = ToJitVisitor.this.resolve(operator.function);
                 this.function = ToJitVisitor.this.convertFunction(func.to(DBSPClosureExpression.class));
@@ -107,11 +137,13 @@ public class ToJitVisitor extends CircuitVisitor implements IModule {
     }
 
     JITFunction convertFunction(DBSPClosureExpression function) {
-        Logger.INSTANCE.from(this, 4)
-                .append("Converting to JIT")
-                .newline()
-                .append(function.toString())
-                .newline();
+        if (Logger.INSTANCE.isEnabled(this, 4)) {
+            Logger.INSTANCE.from(this, 4)
+                    .append("Converting to JIT")
+                    .newline()
+                    .append(function.toString())
+                    .newline();
+        }
         DBSPType resultType = function.getResultType();
         JITParameterMapping mapping = new JITParameterMapping(this.getTypeCatalog());
 
@@ -124,9 +156,12 @@ public class ToJitVisitor extends CircuitVisitor implements IModule {
 
         List<JITBlock> blocks = ToJitInnerVisitor.convertClosure(mapping, function, this.getTypeCatalog());
         JITFunction result = new JITFunction(mapping.allParameters, blocks, returnType);
-        Logger.INSTANCE.from(this, 4)
-                .append(result.toAssembly())
-                .newline();
+        result = new JITFunctionOptimizer().optimize(result);
+        if (Logger.INSTANCE.isEnabled(this, 4)) {
+            Logger.INSTANCE.from(this, 4)
+                    .append(result.toAssembly())
+                    .newline();
+        }
         return result;
     }
 
@@ -170,6 +205,9 @@ public class ToJitVisitor extends CircuitVisitor implements IModule {
 
     @Override
     public boolean preorder(DBSPMapOperator operator) {
+        if (this.resolve(operator.getFunction()).is(DBSPSortExpression.class))
+            // The JIT has no vector types, so it cannot represent sorted outputs.
+            throw new Unimplemented("ORDER BY", operator);
         OperatorConversion conversion = new OperatorConversion(operator);
         JITRowType inputType = this.getTypeCatalog().convertTupleType(
                 operator.input().getOutputZSetElementType());
@@ -179,18 +217,110 @@ public class ToJitVisitor extends CircuitVisitor implements IModule {
         return false;
     }
 
+    /**
+     * Check whether an expression is a 'Some(e)' expression.
+     * @return 'e' if it is, null otherwise.
+     */
+    @Nullable
+    static DBSPExpression someValue(DBSPExpression expression) {
+        DBSPStructExpression struct = expression.as(DBSPStructExpression.class);
+        if (struct == null || struct.arguments.length != 1)
+            return null;
+        DBSPPathExpression path = struct.function.as(DBSPPathExpression.class);
+        if (path == null || !path.path.toString().equals("Some"))
+            return null;
+        return struct.arguments[0];
+    }
+
+    /**
+     * True if the expression is a 'None' literal.
+     */
+    static boolean isNone(DBSPExpression expression) {
+        DBSPLiteral literal = expression.as(DBSPLiteral.class);
+        return literal != null && literal.isNull;
+    }
+
+    /**
+     * True if the expression just returns (a copy of) the specified parameter.
+     */
+    static boolean isIdentity(DBSPExpression expression, DBSPParameter parameter) {
+        while (true) {
+            if (expression.is(DBSPCloneExpression.class))
+                expression = expression.to(DBSPCloneExpression.class).expression;
+            else if (expression.is(DBSPDerefExpression.class))
+                expression = expression.to(DBSPDerefExpression.class).expression;
+            else
+                break;
+        }
+        DBSPVariablePath var = expression.as(DBSPVariablePath.class);
+        return var != null && parameter.pattern.is(DBSPIdentifierPattern.class) &&
+                var.variable.equals(parameter.pattern.to(DBSPIdentifierPattern.class).identifier);
+    }
+
     @Override
     public boolean preorder(DBSPFlatMapOperator operator) {
-        OperatorConversion conversion = new OperatorConversion(operator);
-        JITOperator result = new JITFlatMapOperator(operator.id, conversion.type, conversion.inputs);
-        this.program.add(result);
+        // The JIT has no vector types, so we can only compile flat_map functions
+        // that return an Option: |x| if cond { None } else { Some(e) }.
+        // These are compiled as a filter followed by a map.
+        DBSPExpression function = this.resolve(operator.getFunction());
+        DBSPClosureExpression closure = function.as(DBSPClosureExpression.class);
+        if (closure == null || closure.parameters.length != 1)
+            throw new Unimplemented("flat_map producing multiple rows", operator);
+        DBSPExpression body = closure.body;
+        if (body.is(DBSPBlockExpression.class)) {
+            DBSPBlockExpression block = body.to(DBSPBlockExpression.class);
+            if (!block.contents.isEmpty() || block.lastExpression == null)
+                throw new Unimplemented(operator);
+            body = block.lastExpression;
+        }
+        DBSPIfExpression ifExpression = body.as(DBSPIfExpression.class);
+        if (ifExpression == null)
+            throw new Unimplemented("flat_map producing multiple rows", operator);
+        // The filter function must return a non-nullable Boolean.
+        DBSPExpression condition = ExpressionCompiler.wrapBoolIfNeeded(ifExpression.condition);
+        // Exactly one branch must be None, otherwise the function may produce
+        // a row for either value of the condition.
+        DBSPExpression value;
+        if (isNone(ifExpression.positive)) {
+            // if cond { None } else { Some(e) }
+            value = someValue(ifExpression.negative);
+            condition = new DBSPUnaryExpression(operator.getNode(), condition.getNonVoidType(), "!", condition);
+        } else if (isNone(ifExpression.negative)) {
+            // if cond { Some(e) } else { None }
+            value = someValue(ifExpression.positive);
+        } else {
+            value = null;
+        }
+        if (value == null)
+            throw new Unimplemented(operator);
+
+        DBSPParameter parameter = closure.parameters[0];
+        List<JITOperatorReference> inputs = Linq.map(operator.inputs, i -> new JITOperatorReference(i.id));
+        JITRowType inputType = this.getTypeCatalog().convertTupleType(
+                operator.input().getOutputZSetElementType());
+        JITRowType outputType = this.getTypeCatalog().convertTupleType(operator.getOutputZSetElementType());
+        // Closure bodies must be blocks, as produced by BlockClosures.
+        JITFunction filter = this.convertFunction(
+                new DBSPBlockExpression(Linq.list(), condition).closure(parameter));
+        if (isIdentity(value, parameter)) {
+            this.program.add(new JITFilterOperator(operator.id, outputType, inputs, filter));
+        } else {
+            // The filter needs a fresh operator id.
+            long filterId = this.newOperatorId();
+            this.program.add(new JITFilterOperator(filterId, inputType, inputs, filter));
+            JITFunction map = this.convertFunction(
+                    new DBSPBlockExpression(Linq.list(), value).closure(parameter));
+            this.program.add(new JITMapOperator(operator.id, outputType, inputType,
+                    Linq.list(new JITOperatorReference(filterId)), map));
+        }
         return false;
     }
 
     @Override
     public boolean preorder(DBSPSumOperator operator) {
         OperatorConversion conversion = new OperatorConversion(operator);
-        JITOperator result = new JITSumOperator(operator.id, conversion.type, conversion.inputs);
+        JITOperator result = new JITSumOperator(
+                operator.id, conversion.keyType, conversion.type, conversion.inputs);
         this.program.add(result);
         return false;
     }
@@ -198,7 +328,8 @@ public class ToJitVisitor extends CircuitVisitor implements IModule {
     @Override
     public boolean preorder(DBSPDistinctOperator operator) {
         OperatorConversion conversion = new OperatorConversion(operator);
-        JITOperator result = new JITDistinctOperator(operator.id, conversion.type, conversion.inputs);
+        JITOperator result = new JITDistinctOperator(
+                operator.id, conversion.keyType, conversion.type, conversion.inputs);
         this.program.add(result);
         return false;
     }
@@ -206,7 +337,8 @@ public class ToJitVisitor extends CircuitVisitor implements IModule {
     @Override
     public boolean preorder(DBSPSubtractOperator operator) {
         OperatorConversion conversion = new OperatorConversion(operator);
-        JITOperator result = new JITSubtractOperator(operator.id, conversion.type, conversion.inputs);
+        JITOperator result = new JITSubtractOperator(
+                operator.id, conversion.keyType, conversion.type, conversion.inputs);
         this.program.add(result);
         return false;
     }
@@ -214,7 +346,8 @@ public class ToJitVisitor extends CircuitVisitor implements IModule {
     @Override
     public boolean preorder(DBSPIntegralOperator operator) {
         OperatorConversion conversion = new OperatorConversion(operator);
-        JITOperator result = new JITIntegrateOperator(operator.id, conversion.type, conversion.inputs);
+        JITOperator result = new JITIntegrateOperator(
+                operator.id, conversion.keyType, conversion.type, conversion.inputs);
         this.program.add(result);
         return false;
     }
@@ -222,7 +355,8 @@ public class ToJitVisitor extends CircuitVisitor implements IModule {
     @Override
     public boolean preorder(DBSPDifferentialOperator operator) {
         OperatorConversion conversion = new OperatorConversion(operator);
-        JITOperator result = new JITDifferentiateOperator(operator.id, conversion.type, conversion.inputs);
+        JITOperator result = new JITDifferentiateOperator(
+                operator.id, conversion.keyType, conversion.type, conversion.inputs);
         this.program.add(result);
         return false;
     }
@@ -287,48 +421,111 @@ public class ToJitVisitor extends CircuitVisitor implements IModule {
         return newBlock.closure(newParams);
     }
 
+    /**
+     * The components of an aggregate converted to the JIT representation.
+     */
+    class AggregateConversion {
+        final JITTupleLiteral init;
+        final JITFunction stepFn;
+        final JITFunction finishFn;
+        final JITRowType accLayout;
+        final JITRowType stepLayout;
+        final List<JITOperatorReference> inputs;
+
+        AggregateConversion(DBSPAggregateOperatorBase operator) {
+            if (operator.function != null)
+                throw new RuntimeException("Didn't expect the Aggregate to have a function");
+
+            this.inputs = Linq.map(operator.inputs, i -> new JITOperatorReference(i.id));
+            DBSPAggregate aggregate = operator.getAggregate();
+            DBSPExpression initial = ToJitVisitor.this.resolve(aggregate.getZero());
+            DBSPTupleExpression elementValue = initial.to(DBSPTupleExpression.class);
+
+            DBSPClosureExpression closure = aggregate.getIncrement();
+            BetaReduction reducer = new BetaReduction();
+            IDBSPInnerNode reduced = reducer.apply(closure);
+            closure = Objects.requireNonNull(reduced).to(DBSPClosureExpression.class);
+            closure = ToJitVisitor.this.tupleEachParameter(closure);
+            this.stepFn = ToJitVisitor.this.convertFunction(closure);
+
+            closure = aggregate.getPostprocessing();
+            reduced = reducer.apply(closure);
+            closure = Objects.requireNonNull(reduced).to(DBSPClosureExpression.class);
+            closure = ToJitVisitor.this.tupleEachParameter(closure);
+            this.finishFn = ToJitVisitor.this.convertFunction(closure);
+
+            this.accLayout = ToJitVisitor.this.getTypeCatalog().convertTupleType(aggregate.defaultZeroType());
+            this.init = new JITTupleLiteral(elementValue, this.accLayout);
+            this.stepLayout = ToJitVisitor.this.getTypeCatalog().convertTupleType(
+                    Objects.requireNonNull(aggregate.getIncrement().getResultType()));
+        }
+    }
+
     @Override
     public boolean preorder(DBSPAggregateOperator operator) {
-        if (operator.function != null)
-            throw new RuntimeException("Didn't expect the Aggregate to have a function");
-
-        List<JITOperatorReference> inputs = Linq.map(
-                operator.inputs, i -> new JITOperatorReference(i.id));
+        AggregateConversion conversion = new AggregateConversion(operator);
         JITRowType outputType = this.getTypeCatalog().convertTupleType(operator.outputElementType);
-
-        DBSPAggregate aggregate = operator.getAggregate();
-        DBSPExpression initial = this.resolve(aggregate.getZero());
-        DBSPTupleExpression elementValue = initial.to(DBSPTupleExpression.class);
-        JITTupleLiteral init = new JITTupleLiteral(elementValue);
-
-        DBSPClosureExpression closure = aggregate.getIncrement();
-        BetaReduction reducer = new BetaReduction();
-        IDBSPInnerNode reduced = reducer.apply(closure);
-        closure = Objects.requireNonNull(reduced).to(DBSPClosureExpression.class);
-        closure = this.tupleEachParameter(closure);
-        JITFunction stepFn = this.convertFunction(closure);
-
-        closure = aggregate.getPostprocessing();
-        reduced = reducer.apply(closure);
-        closure = Objects.requireNonNull(reduced).to(DBSPClosureExpression.class);
-        closure = this.tupleEachParameter(closure);
-        JITFunction finishFn = this.convertFunction(closure);
-
-        JITRowType accLayout = this.getTypeCatalog().convertTupleType(aggregate.defaultZeroType());
-        JITRowType stepLayout = this.getTypeCatalog().convertTupleType(
-                Objects.requireNonNull(aggregate.getIncrement().getResultType()));
         JITOperator result = new JITAggregateOperator(
-                operator.id, accLayout, stepLayout, outputType,
-                inputs, init, stepFn, finishFn);
+                operator.id, conversion.accLayout, conversion.stepLayout, outputType,
+                conversion.inputs, conversion.init, conversion.stepFn, conversion.finishFn);
         this.program.add(result);
+        return false;
+    }
+
+    /**
+     * Decode a window bound, which has the shape RelOffset::Before(value)
+     * or RelOffset::After(value).
+     * @return True if the bound is "Before".
+     */
+    boolean isBefore(DBSPStructExpression bound) {
+        DBSPPathExpression path = bound.function.to(DBSPPathExpression.class);
+        DBSPPathSegment last = path.path.components[path.path.components.length - 1];
+        String direction = last.to(DBSPSimplePathSegment.class).identifier;
+        switch (direction) {
+            case "Before":
+                return true;
+            case "After":
+                return false;
+            default:
+                throw new Unimplemented(bound);
+        }
+    }
+
+    JITLiteral boundValue(DBSPStructExpression bound) {
+        DBSPExpression value = this.resolve(bound.arguments[0]);
+        DBSPLiteral literal = value.as(DBSPLiteral.class);
+        if (literal == null)
+            throw new Unimplemented("Window bound that is not a constant", bound);
+        return new JITLiteral(literal);
+    }
 
+    @Override
+    public boolean preorder(DBSPWindowAggregateOperator operator) {
+        AggregateConversion conversion = new AggregateConversion(operator);
+        // The window is RelRange::new(lower, upper)
+        DBSPStructExpression window = this.resolve(operator.window).to(DBSPStructExpression.class);
+        DBSPStructExpression lower = this.resolve(window.arguments[0]).to(DBSPStructExpression.class);
+        DBSPStructExpression upper = this.resolve(window.arguments[1]).to(DBSPStructExpression.class);
+
+        JITRowType partitionType = this.getTypeCatalog().convertTupleType(operator.partitionKeyType);
+        JITRowType timestampType = this.getTypeCatalog().convertTupleType(
+                new DBSPTypeTuple(operator.timestampType));
+        JITRowType outputType = this.getTypeCatalog().convertTupleType(operator.aggregateType);
+        JITOperator result = new JITWindowAggregateOperator(
+                operator.id, partitionType, timestampType,
+                conversion.accLayout, conversion.stepLayout, outputType,
+                conversion.inputs, conversion.init, conversion.stepFn, conversion.finishFn,
+                this.boundValue(lower), this.isBefore(lower),
+                this.boundValue(upper), this.isBefore(upper));
+        this.program.add(result);
         return false;
     }
 
     @Override
     public boolean preorder(DBSPNegateOperator operator) {
         OperatorConversion conversion = new OperatorConversion(operator);
-        JITOperator result = new JITNegOperator(operator.id, conversion.type, conversion.inputs);
+        JITOperator result = new JITNegOperator(
+                operator.id, conversion.keyType, conversion.type, conversion.inputs);
         this.program.add(result);
         return false;
     }
@@ -360,29 +557,40 @@ public class ToJitVisitor extends CircuitVisitor implements IModule {
 
     public static JITProgram circuitToJIT(DBSPCircuit circuit) {
         PassesVisitor rewriter = new PassesVisitor();
+        rewriter.add(new ExpandIncrementalOperators());
         rewriter.add(new BlockClosures());
         rewriter.add(new Simplify().circuitRewriter());
         circuit = rewriter.apply(circuit);
-        Logger.INSTANCE.from("ToJitVisitor", 2)
-                .append("Converting to JIT")
-                .newline()
-                .append(circuit.toString());
+        if (Logger.INSTANCE.isEnabled("ToJitVisitor", 2)) {
+            Logger.INSTANCE.from("ToJitVisitor", 2)
+                    .append("Converting to JIT")
+                    .newline()
+                    .append(circuit.toString());
+        }
         ToJitVisitor visitor = new ToJitVisitor();
+        // The layouts of the inputs and outputs are fixed
+        for (DBSPSourceOperator source: circuit.circuit.inputOperators)
+            visitor.getTypeCatalog().pin(source.getOutputZSetElementType());
+        for (DBSPSinkOperator sink: circuit.circuit.outputOperators)
+            visitor.getTypeCatalog().pin(sink.getOutputZSetElementType());
         visitor.apply(circuit);
         return visitor.program;
     }
 
     /**
      * Generate JSON for a circuit and validate it.
+     * The JSON is always checked by the JITProgramValidator.
      * @param circuit  Circuit to generate JSON for.
      * @param compile  If true invoke the DBSP JIT compiler on the generated JSON.
      */
     public static void validateJson(DBSPCircuit circuit, boolean compile) {
         try {
             JITProgram program = ToJitVisitor.circuitToJIT(circuit);
-            Logger.INSTANCE.from("ToJitVisitor", 2)
-                    .append(program.toAssembly())
-                    .newline();
+            if (Logger.INSTANCE.isEnabled("ToJitVisitor", 2)) {
+                Logger.INSTANCE.from("ToJitVisitor", 2)
+                        .append(program.toAssembly())
+                        .newline();
+            }
             String json = program.asJson().toPrettyString();
             Logger.INSTANCE.from("ToJitVisitor", 2)
                     .append(json);
@@ -390,6 +598,7 @@ public class ToJitVisitor extends CircuitVisitor implements IModule {
             JsonNode root = mapper.readTree(json);
             if (root == null)
                 throw new RuntimeException("No JSON produced from circuit");
+            JITProgramValidator.validate(root);
             File jsonFile = File.createTempFile("out", ".json", new File("."));
             jsonFile.deleteOnExit();
             PrintWriter writer = new PrintWriter(jsonFile);
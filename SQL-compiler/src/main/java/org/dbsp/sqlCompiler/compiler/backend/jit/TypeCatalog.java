@@ -34,33 +34,69 @@ import org.dbsp.sqlCompiler.ir.type.DBSPTypeRef;
 import org.dbsp.sqlCompiler.ir.type.DBSPTypeTupleBase;
 
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Maps each tuple type to an integer id.
+ * Tuple types that have the same fields share the same layout.
+ * The fields of a layout are reordered by the RowLayoutPlanner,
+ * unless the layout is pinned: pinned layouts describe data exchanged
+ * with the outside world, such as the contents of input tables and views,
+ * and they keep the declaration order of the fields.
  */
 public class TypeCatalog {
     public final Map<DBSPType, JITRowType> typeId;
+    /**
+     * Layouts indexed by the structure of the tuple types.
+     */
+    final Map<String, JITRowType> layouts;
+    final Set<DBSPType> pinned;
 
     public TypeCatalog() {
         this.typeId = new HashMap<>();
+        this.layouts = new LinkedHashMap<>();
+        this.pinned = new HashSet<>();
     }
 
-    public JITRowType convertTupleType(DBSPType type) {
+    static DBSPTypeTupleBase toTuple(DBSPType type) {
         if (type.is(DBSPTypeRef.class))
             type = type.to(DBSPTypeRef.class).type;
-        DBSPTypeTupleBase tuple = type.to(DBSPTypeTupleBase.class);
+        return type.to(DBSPTypeTupleBase.class);
+    }
+
+    /**
+     * Keep the fields of the layout for this tuple type in declaration order.
+     * Must be called before the type is converted.
+     */
+    public void pin(DBSPType type) {
+        DBSPTypeTupleBase tuple = toTuple(type);
+        if (this.typeId.containsKey(tuple) && !this.pinned.contains(tuple))
+            throw new RuntimeException("Type " + type + " already has a layout");
+        this.pinned.add(tuple);
+    }
+
+    public JITRowType convertTupleType(DBSPType type) {
+        DBSPTypeTupleBase tuple = toTuple(type);
         if (this.typeId.containsKey(tuple))
             return this.typeId.get(tuple);
-        long id = this.typeId.size() + 1;  // 0 is not a valid id
-        JITRowType result = new JITRowType(id, tuple);
+        boolean reorder = !this.pinned.contains(tuple);
+        String key = RowLayoutPlanner.structuralKey(tuple, reorder);
+        JITRowType result = this.layouts.get(key);
+        if (result == null) {
+            long id = this.layouts.size() + 1;  // 0 is not a valid id
+            result = new JITRowType(id, tuple, RowLayoutPlanner.plan(tuple, reorder));
+            this.layouts.put(key, result);
+        }
         this.typeId.put(tuple, result);
         return result;
     }
 
     public BaseJsonNode asJson() {
         ObjectNode result = JITNode.jsonFactory().createObjectNode();
-        for (JITRowType row: this.typeId.values()) {
+        for (JITRowType row: this.layouts.values()) {
             result.set(Long.toString(row.id), row.asJson());
         }
         return result;
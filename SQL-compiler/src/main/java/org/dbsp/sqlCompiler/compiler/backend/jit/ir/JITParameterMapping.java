@@ -76,20 +76,31 @@ public class JITParameterMapping {
      */
     public static List<DBSPTypeTuple> expandToTuples(DBSPType type) {
         List<DBSPTypeTuple> types = new ArrayList<>();
-        if (type.is(DBSPTypeRawTuple.class)) {
+        DBSPTypeRef ref = type.as(DBSPTypeRef.class);
+        if (ref != null)
+            type = ref.type;
+        if (type.is(DBSPTypeRawTuple.class) && !isRow(type.to(DBSPTypeRawTuple.class))) {
             for (DBSPType field : type.to(DBSPTypeRawTuple.class).tupFields) {
                 DBSPTypeTuple tuple = makeTupleType(field);
                 types.add(tuple);
             }
         } else {
-            DBSPTypeRef ref = type.as(DBSPTypeRef.class);
-            if (ref != null)
-                type = ref.type;
-            types.add(type.to(DBSPTypeTuple.class));
+            types.add(makeTupleType(type));
         }
         return types;
     }
 
+    /**
+     * True if the raw tuple has only scalar fields, e.g., a join key, or no fields;
+     * such a tuple is a single row, and is not expanded.
+     */
+    static boolean isRow(DBSPTypeRawTuple type) {
+        for (DBSPType field : type.tupFields)
+            if (!ToJitVisitor.isScalarType(field))
+                return false;
+        return true;
+    }
+
     static class Decomposition {
         /**
          * Each field of a DBSPParameter becomes a separate JITParameter.
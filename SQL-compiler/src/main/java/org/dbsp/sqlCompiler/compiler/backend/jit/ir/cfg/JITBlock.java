@@ -41,8 +41,8 @@ import java.util.List;
 import java.util.Objects;
 
 public class JITBlock extends JITNode implements IJITId {
-    final List<JITBlockParameter> parameters;
-    final List<JITInstruction> instructions;
+    public final List<JITBlockParameter> parameters;
+    public final List<JITInstruction> instructions;
     /**
      * Terminator should never be null, but it is set later.
      */
@@ -106,6 +106,18 @@ public class JITBlock extends JITNode implements IJITId {
         this.terminator = terminator;
     }
 
+    public JITBlockTerminator getTerminator() {
+        return Objects.requireNonNull(this.terminator);
+    }
+
+    /**
+     * Replace the terminator of a block that has already been terminated.
+     */
+    public void replaceTerminator(JITBlockTerminator terminator) {
+        this.getTerminator();
+        this.terminator = terminator;
+    }
+
     @Override
     public IIndentStream toString(IIndentStream builder) {
         builder.append("block ")
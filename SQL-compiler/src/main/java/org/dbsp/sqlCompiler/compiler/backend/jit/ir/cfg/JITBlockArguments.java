@@ -32,7 +32,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 public class JITBlockArguments extends JITNode {
-    final List<JITInstructionReference> arguments;
+    public final List<JITInstructionReference> arguments;
 
     public JITBlockArguments() {
         arguments = new ArrayList<>();
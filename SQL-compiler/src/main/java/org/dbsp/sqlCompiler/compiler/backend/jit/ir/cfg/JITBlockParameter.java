@@ -33,8 +33,8 @@ import org.dbsp.sqlCompiler.compiler.backend.jit.ir.types.JITScalarType;
 import org.dbsp.sqlCompiler.compiler.backend.jit.ir.types.JITType;
 
 public class JITBlockParameter extends JITNode {
-    final JITInstructionReference argument;
-    final JITType type;
+    public final JITInstructionReference argument;
+    public final JITType type;
 
     public JITBlockParameter(JITInstructionReference argument, JITType type) {
         this.argument = argument;
@@ -26,6 +26,9 @@ package org.dbsp.sqlCompiler.compiler.backend.jit.ir.cfg;
 import org.dbsp.sqlCompiler.compiler.backend.jit.ir.JITNode;
 import org.dbsp.sqlCompiler.compiler.backend.jit.ir.instructions.JITInstructionReference;
 
+import java.util.List;
+import java.util.function.Function;
+
 public abstract class JITBlockTerminator extends JITNode {
     // These are called 'parameters' in Rust, but they really are arguments.
     final JITBlockArguments arguments;
@@ -37,4 +40,20 @@ public abstract class JITBlockTerminator extends JITNode {
     public void addArgument(JITInstructionReference arg) {
         this.arguments.addArgument(arg);
     }
+
+    /**
+     * The values used by this terminator, including the block arguments.
+     */
+    public abstract List<JITInstructionReference> getOperands();
+
+    /**
+     * Create a terminator with the same targets, where each operand
+     * is replaced by the result of applying the substitution to it.
+     */
+    public abstract JITBlockTerminator replaceOperands(Function<JITInstructionReference, JITInstructionReference> substitution);
+
+    /**
+     * The blocks that this terminator may transfer control to.
+     */
+    public abstract List<JITBlockReference> getSuccessors();
 }
@@ -27,6 +27,11 @@ import com.fasterxml.jackson.databind.node.BaseJsonNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.dbsp.sqlCompiler.compiler.backend.jit.ir.instructions.JITInstructionReference;
 import org.dbsp.util.IIndentStream;
+import org.dbsp.util.Linq;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
 
 public class JITBranchTerminator extends JITBlockTerminator {
     public final JITBlockArguments falseArguments;
@@ -44,6 +49,43 @@ public class JITBranchTerminator extends JITBlockTerminator {
         this.falsy = falsy;
     }
 
+    public List<JITInstructionReference> getTrueArguments() {
+        return this.arguments.arguments;
+    }
+
+    public List<JITInstructionReference> getFalseArguments() {
+        return this.falseArguments.arguments;
+    }
+
+    public void addFalseArgument(JITInstructionReference arg) {
+        this.falseArguments.addArgument(arg);
+    }
+
+    @Override
+    public List<JITInstructionReference> getOperands() {
+        List<JITInstructionReference> result = new ArrayList<>();
+        result.add(this.condition);
+        result.addAll(this.getTrueArguments());
+        result.addAll(this.getFalseArguments());
+        return result;
+    }
+
+    @Override
+    public JITBlockTerminator replaceOperands(Function<JITInstructionReference, JITInstructionReference> substitution) {
+        JITBranchTerminator result = new JITBranchTerminator(
+                substitution.apply(this.condition), this.truthy, this.falsy);
+        for (JITInstructionReference arg: this.getTrueArguments())
+            result.addArgument(substitution.apply(arg));
+        for (JITInstructionReference arg: this.getFalseArguments())
+            result.addFalseArgument(substitution.apply(arg));
+        return result;
+    }
+
+    @Override
+    public List<JITBlockReference> getSuccessors() {
+        return Linq.list(this.truthy, this.falsy);
+    }
+
     @Override
     public BaseJsonNode asJson() {
         ObjectNode result = jsonFactory().createObjectNode();
@@ -25,7 +25,12 @@ package org.dbsp.sqlCompiler.compiler.backend.jit.ir.cfg;
 
 import com.fasterxml.jackson.databind.node.BaseJsonNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.dbsp.sqlCompiler.compiler.backend.jit.ir.instructions.JITInstructionReference;
 import org.dbsp.util.IIndentStream;
+import org.dbsp.util.Linq;
+
+import java.util.List;
+import java.util.function.Function;
 
 public class JITJumpTerminator extends JITBlockTerminator {
     public final JITBlockReference target;
@@ -35,6 +40,28 @@ public class JITJumpTerminator extends JITBlockTerminator {
         target.mustBeValid();
     }
 
+    public List<JITInstructionReference> getArguments() {
+        return this.arguments.arguments;
+    }
+
+    @Override
+    public List<JITInstructionReference> getOperands() {
+        return this.getArguments();
+    }
+
+    @Override
+    public JITBlockTerminator replaceOperands(Function<JITInstructionReference, JITInstructionReference> substitution) {
+        JITJumpTerminator result = new JITJumpTerminator(this.target);
+        for (JITInstructionReference arg: this.getArguments())
+            result.addArgument(substitution.apply(arg));
+        return result;
+    }
+
+    @Override
+    public List<JITBlockReference> getSuccessors() {
+        return Linq.list(this.target);
+    }
+
     @Override
     public BaseJsonNode asJson() {
         ObjectNode result = jsonFactory().createObjectNode();
@@ -27,6 +27,10 @@ import com.fasterxml.jackson.databind.node.BaseJsonNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.dbsp.sqlCompiler.compiler.backend.jit.ir.instructions.JITInstructionReference;
 import org.dbsp.util.IIndentStream;
+import org.dbsp.util.Linq;
+
+import java.util.List;
+import java.util.function.Function;
 
 public class JITReturnTerminator extends JITBlockTerminator {
     public final JITInstructionReference retVal;
@@ -35,6 +39,25 @@ public class JITReturnTerminator extends JITBlockTerminator {
         this.retVal = retVal;
     }
 
+    @Override
+    public List<JITInstructionReference> getOperands() {
+        if (this.retVal.isValid())
+            return Linq.list(this.retVal);
+        return Linq.list();
+    }
+
+    @Override
+    public JITBlockTerminator replaceOperands(Function<JITInstructionReference, JITInstructionReference> substitution) {
+        if (!this.retVal.isValid())
+            return this;
+        return new JITReturnTerminator(substitution.apply(this.retVal));
+    }
+
+    @Override
+    public List<JITBlockReference> getSuccessors() {
+        return Linq.list();
+    }
+
     @Override
     public BaseJsonNode asJson() {
         ObjectNode result = jsonFactory().createObjectNode();
@@ -28,6 +28,10 @@ import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.dbsp.sqlCompiler.compiler.backend.jit.ir.JITNode;
 import org.dbsp.sqlCompiler.compiler.backend.jit.ir.types.JITType;
 import org.dbsp.util.IIndentStream;
+import org.dbsp.util.Linq;
+
+import java.util.List;
+import java.util.function.Function;
 
 public class JITBinaryInstruction extends JITInstruction {
     public enum Operation {
@@ -103,4 +107,15 @@ public class JITBinaryInstruction extends JITInstruction {
                 .append(" ")
                 .append(this.right);
     }
+
+    @Override
+    public List<JITInstructionReference> getOperands() {
+        return Linq.list(this.left, this.right);
+    }
+
+    @Override
+    public JITInstruction replaceOperands(Function<JITInstructionReference, JITInstructionReference> substitution) {
+        return new JITBinaryInstruction(this.id, this.operation,
+                substitution.apply(this.left), substitution.apply(this.right), this.type);
+    }
 }
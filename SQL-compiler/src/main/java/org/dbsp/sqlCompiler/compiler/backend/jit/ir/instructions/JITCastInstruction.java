@@ -28,6 +28,10 @@ import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.dbsp.sqlCompiler.compiler.backend.jit.ir.JITNode;
 import org.dbsp.sqlCompiler.compiler.backend.jit.ir.types.JITType;
 import org.dbsp.util.IIndentStream;
+import org.dbsp.util.Linq;
+
+import java.util.List;
+import java.util.function.Function;
 
 public class JITCastInstruction extends JITInstruction {
     public final JITInstructionReference operand;
@@ -63,4 +67,15 @@ public class JITCastInstruction extends JITInstruction {
                 .append(" as ")
                 .append(this.destinationType);
     }
+
+    @Override
+    public List<JITInstructionReference> getOperands() {
+        return Linq.list(this.operand);
+    }
+
+    @Override
+    public JITInstruction replaceOperands(Function<JITInstructionReference, JITInstructionReference> substitution) {
+        return new JITCastInstruction(this.id, substitution.apply(this.operand),
+                this.sourceType, this.destinationType);
+    }
 }
@@ -28,6 +28,10 @@ import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.dbsp.sqlCompiler.compiler.backend.jit.ir.types.JITBoolType;
 import org.dbsp.sqlCompiler.compiler.backend.jit.ir.types.JITScalarType;
 import org.dbsp.util.IIndentStream;
+import org.dbsp.util.Linq;
+
+import java.util.List;
+import java.util.function.Function;
 
 /**
  * An instruction that returns a constant value.
@@ -70,4 +74,14 @@ public class JITConstantInstruction extends JITInstruction {
                 .append(" ")
                 .append(this.value);
     }
+
+    @Override
+    public List<JITInstructionReference> getOperands() {
+        return Linq.list();
+    }
+
+    @Override
+    public JITInstruction replaceOperands(Function<JITInstructionReference, JITInstructionReference> substitution) {
+        return this;
+    }
 }
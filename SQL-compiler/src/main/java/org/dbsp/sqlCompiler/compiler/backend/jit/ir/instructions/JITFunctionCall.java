@@ -32,6 +32,7 @@ import org.dbsp.util.IIndentStream;
 import org.dbsp.util.Linq;
 
 import java.util.List;
+import java.util.function.Function;
 
 public class JITFunctionCall extends JITInstruction {
     public final String functionName;
@@ -91,4 +92,20 @@ public class JITFunctionCall extends JITInstruction {
                 .joinI(", ", this.arguments)
                 .append(")");
     }
+
+    @Override
+    public List<JITInstructionReference> getOperands() {
+        return this.arguments;
+    }
+
+    @Override
+    public JITInstruction replaceOperands(Function<JITInstructionReference, JITInstructionReference> substitution) {
+        return new JITFunctionCall(this.id, this.functionName,
+                Linq.map(this.arguments, substitution), this.argumentTypes, this.returnType);
+    }
+
+    @Override
+    public boolean hasSideEffects() {
+        return true;
+    }
 }
@@ -33,6 +33,9 @@ import org.dbsp.util.IIndentStream;
 import org.dbsp.util.IndentStream;
 import org.dbsp.util.StringPrintStream;
 
+import java.util.List;
+import java.util.function.Function;
+
 public abstract class JITInstruction extends JITNode implements IJITId {
     public final long id;
     public final String name;
@@ -63,6 +66,26 @@ public abstract class JITInstruction extends JITNode implements IJITId {
 
     protected abstract BaseJsonNode instructionAsJson();
 
+    /**
+     * The values used by this instruction.
+     */
+    public abstract List<JITInstructionReference> getOperands();
+
+    /**
+     * Create an instruction with the same id, where each operand
+     * is replaced by the result of applying the substitution to it.
+     */
+    public abstract JITInstruction replaceOperands(
+            Function<JITInstructionReference, JITInstructionReference> substitution);
+
+    /**
+     * True if the instruction does more than computing its result;
+     * such instructions cannot be removed even if the result is unused.
+     */
+    public boolean hasSideEffects() {
+        return false;
+    }
+
     public JITInstructionReference getInstructionReference() {
         return new JITInstructionReference(this.id);
     }
@@ -26,6 +26,10 @@ package org.dbsp.sqlCompiler.compiler.backend.jit.ir.instructions;
 import com.fasterxml.jackson.databind.node.BaseJsonNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.dbsp.util.IIndentStream;
+import org.dbsp.util.Linq;
+
+import java.util.List;
+import java.util.function.Function;
 
 public class JITMuxInstruction extends JITInstruction {
     public final JITInstructionReference condition;
@@ -61,4 +65,15 @@ public class JITMuxInstruction extends JITInstruction {
                 .append(" : ")
                 .append(this.right);
     }
+
+    @Override
+    public List<JITInstructionReference> getOperands() {
+        return Linq.list(this.condition, this.left, this.right);
+    }
+
+    @Override
+    public JITInstruction replaceOperands(Function<JITInstructionReference, JITInstructionReference> substitution) {
+        return new JITMuxInstruction(this.id, substitution.apply(this.condition),
+                substitution.apply(this.left), substitution.apply(this.right));
+    }
 }
@@ -26,23 +26,29 @@ package org.dbsp.sqlCompiler.compiler.backend.jit.ir.instructions;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.BaseJsonNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
-import org.dbsp.sqlCompiler.ir.expression.DBSPExpression;
+import org.dbsp.sqlCompiler.compiler.backend.jit.ir.types.JITRowType;
 import org.dbsp.sqlCompiler.ir.expression.DBSPTupleExpression;
 import org.dbsp.sqlCompiler.ir.expression.literal.DBSPLiteral;
 import org.dbsp.util.IIndentStream;
+import org.dbsp.util.Linq;
 
-import java.util.ArrayList;
 import java.util.List;
 
 public class JITTupleLiteral extends JITValue {
     public final List<JITLiteral> fields;
 
-    public JITTupleLiteral(DBSPTupleExpression expression) {
-        this.fields = new ArrayList<>(expression.size());
-        for (DBSPExpression e: expression.fields) {
-            JITLiteral literal = new JITLiteral(e.to(DBSPLiteral.class));
-            this.fields.add(literal);
+    /**
+     * Create a literal for a row.
+     * @param expression  Tuple whose fields are all literals.
+     * @param type        Layout of the row; determines the order of the fields.
+     */
+    public JITTupleLiteral(DBSPTupleExpression expression, JITRowType type) {
+        JITLiteral[] columns = new JITLiteral[expression.size()];
+        for (int i = 0; i < expression.size(); i++) {
+            JITLiteral literal = new JITLiteral(expression.fields[i].to(DBSPLiteral.class));
+            columns[type.getColumn(i)] = literal;
         }
+        this.fields = Linq.list(columns);
     }
 
     @Override
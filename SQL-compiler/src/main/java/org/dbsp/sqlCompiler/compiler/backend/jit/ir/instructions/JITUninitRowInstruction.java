@@ -26,6 +26,10 @@ package org.dbsp.sqlCompiler.compiler.backend.jit.ir.instructions;
 import com.fasterxml.jackson.databind.node.BaseJsonNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.dbsp.sqlCompiler.compiler.backend.jit.ir.types.JITRowType;
+import org.dbsp.util.Linq;
+
+import java.util.List;
+import java.util.function.Function;
 
 public class JITUninitRowInstruction extends JITInstruction {
     public final JITRowType type;
@@ -41,4 +45,14 @@ public class JITUninitRowInstruction extends JITInstruction {
         result.put("layout", this.type.getId());
         return result;
     }
+
+    @Override
+    public List<JITInstructionReference> getOperands() {
+        return Linq.list();
+    }
+
+    @Override
+    public JITInstruction replaceOperands(Function<JITInstructionReference, JITInstructionReference> substitution) {
+        return this;
+    }
 }
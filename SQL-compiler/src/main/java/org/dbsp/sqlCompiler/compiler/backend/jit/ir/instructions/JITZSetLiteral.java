@@ -45,7 +45,7 @@ public class JITZSetLiteral extends JITValue {
         for (Map.Entry<DBSPExpression, Long> element : zset.data.entrySet()) {
             long weight = element.getValue();
             DBSPTupleExpression elementValue = element.getKey().to(DBSPTupleExpression.class);
-            JITTupleLiteral row = new JITTupleLiteral(elementValue);
+            JITTupleLiteral row = new JITTupleLiteral(elementValue, type);
             this.elements.put(row, weight);
         }
     }
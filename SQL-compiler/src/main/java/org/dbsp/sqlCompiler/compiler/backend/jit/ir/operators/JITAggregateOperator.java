@@ -38,12 +38,12 @@ public class JITAggregateOperator extends JITOperator {
     final JITRowType accLayout;
     final JITRowType stepLayout;
 
-    public JITAggregateOperator(long id,
-                                JITRowType accLayout,
-                                JITRowType stepLayout,
-                                JITRowType type, List<JITOperatorReference> inputs,
-                                JITTupleLiteral init, JITFunction stepFn, JITFunction finishFn) {
-        super(id, "Fold", "", type, inputs, null, null);
+    protected JITAggregateOperator(long id, String name,
+                                   JITRowType accLayout,
+                                   JITRowType stepLayout,
+                                   JITRowType type, List<JITOperatorReference> inputs,
+                                   JITTupleLiteral init, JITFunction stepFn, JITFunction finishFn) {
+        super(id, name, "", type, inputs, null, null);
         this.init = init;
         this.accLayout = accLayout;
         this.stepLayout = stepLayout;
@@ -51,15 +51,24 @@ public class JITAggregateOperator extends JITOperator {
         this.stepFn = stepFn;
     }
 
+    public JITAggregateOperator(long id,
+                                JITRowType accLayout,
+                                JITRowType stepLayout,
+                                JITRowType type, List<JITOperatorReference> inputs,
+                                JITTupleLiteral init, JITFunction stepFn, JITFunction finishFn) {
+        this(id, "Fold", accLayout, stepLayout, type, inputs, init, stepFn, finishFn);
+    }
+
     @Override
     public BaseJsonNode asJson() {
-        ObjectNode result = jsonFactory().createObjectNode();
+        BaseJsonNode node = super.asJson();
+        ObjectNode result = this.getInnerObject(node);
         result.put("acc_layout", this.accLayout.getId());
         result.put("step_layout", this.stepLayout.getId());
         result.put("output_layout", this.type.getId());
         result.set("finish_fn", this.finishFn.asJson());
         result.set("step_fn", this.stepFn.asJson());
         result.set("init", this.init.asJson());
-        return result;
+        return node;
     }
 }
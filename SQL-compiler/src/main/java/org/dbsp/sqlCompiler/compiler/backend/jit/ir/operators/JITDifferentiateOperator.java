@@ -25,10 +25,12 @@ package org.dbsp.sqlCompiler.compiler.backend.jit.ir.operators;
 
 import org.dbsp.sqlCompiler.compiler.backend.jit.ir.types.JITRowType;
 
+import javax.annotation.Nullable;
 import java.util.List;
 
-public class JITDifferentiateOperator extends JITOperator {
-    public JITDifferentiateOperator(long id, JITRowType type, List<JITOperatorReference> inputs) {
-        super(id, "Differentiate", "", type, inputs, null, null);
+public class JITDifferentiateOperator extends JITStreamOperator {
+    public JITDifferentiateOperator(long id, @Nullable JITRowType keyType, JITRowType type,
+                                    List<JITOperatorReference> inputs) {
+        super(id, "Differentiate", keyType, type, inputs);
     }
 }
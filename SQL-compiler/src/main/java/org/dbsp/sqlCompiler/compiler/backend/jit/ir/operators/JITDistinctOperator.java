@@ -26,10 +26,12 @@ package org.dbsp.sqlCompiler.compiler.backend.jit.ir.operators;
 import org.dbsp.sqlCompiler.compiler.backend.jit.ir.JITFunction;
 import org.dbsp.sqlCompiler.compiler.backend.jit.ir.types.JITRowType;
 
+import javax.annotation.Nullable;
 import java.util.List;
 
-public class JITDistinctOperator extends JITOperator {
-    public JITDistinctOperator(long id, JITRowType type, List<JITOperatorReference> inputs) {
-        super(id, "Distinct", "", type, inputs, null, null);
+public class JITDistinctOperator extends JITStreamOperator {
+    public JITDistinctOperator(long id, @Nullable JITRowType keyType, JITRowType type,
+                               List<JITOperatorReference> inputs) {
+        super(id, "Distinct", keyType, type, inputs);
     }
 }
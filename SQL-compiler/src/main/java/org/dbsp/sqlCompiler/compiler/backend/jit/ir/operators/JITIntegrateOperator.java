@@ -25,10 +25,12 @@ package org.dbsp.sqlCompiler.compiler.backend.jit.ir.operators;
 
 import org.dbsp.sqlCompiler.compiler.backend.jit.ir.types.JITRowType;
 
+import javax.annotation.Nullable;
 import java.util.List;
 
-public class JITIntegrateOperator extends JITOperator {
-    public JITIntegrateOperator(long id, JITRowType type, List<JITOperatorReference> inputs) {
-        super(id, "Integrate", "", type, inputs, null, null);
+public class JITIntegrateOperator extends JITStreamOperator {
+    public JITIntegrateOperator(long id, @Nullable JITRowType keyType, JITRowType type,
+                                List<JITOperatorReference> inputs) {
+        super(id, "Integrate", keyType, type, inputs);
     }
 }
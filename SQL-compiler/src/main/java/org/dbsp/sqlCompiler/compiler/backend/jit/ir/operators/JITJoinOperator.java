@@ -44,10 +44,11 @@ public class JITJoinOperator extends JITOperator {
 
     @Override
     public BaseJsonNode asJson() {
-        ObjectNode result = jsonFactory().createObjectNode();
+        BaseJsonNode node = super.asJson();
+        ObjectNode result = this.getInnerObject(node);
         result.put("value_layout", this.valueType.getId());
         result.put("key_layout", this.keyType.getId());
         result.put("output_kind", "Set");
-        return result;
+        return node;
     }
 }
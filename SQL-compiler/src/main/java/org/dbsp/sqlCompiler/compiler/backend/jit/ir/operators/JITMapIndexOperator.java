@@ -49,8 +49,9 @@ public class JITMapIndexOperator extends JITOperator {
     @Override
     public BaseJsonNode asJson() {
         ObjectNode result = (ObjectNode)super.asJson();
-        this.addIndexedZSetLayout(result, "output_layout", this.keyType, this.valueType);
-        this.addZSetLayout(result, "input_layout", this.inputType);
+        ObjectNode map = this.getInnerObject(result);
+        this.addIndexedZSetLayout(map, "output_layout", this.keyType, this.valueType);
+        this.addZSetLayout(map, "input_layout", this.inputType);
         return result;
     }
 }
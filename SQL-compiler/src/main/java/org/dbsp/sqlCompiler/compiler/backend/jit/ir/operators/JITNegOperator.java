@@ -23,22 +23,14 @@
 
 package org.dbsp.sqlCompiler.compiler.backend.jit.ir.operators;
 
-import com.fasterxml.jackson.databind.node.BaseJsonNode;
-import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.dbsp.sqlCompiler.compiler.backend.jit.ir.types.JITRowType;
 
+import javax.annotation.Nullable;
 import java.util.List;
 
-public class JITNegOperator extends JITOperator {
-    public JITNegOperator(long id, JITRowType type, List<JITOperatorReference> inputs) {
-        super(id, "Neg", "", type, inputs, null, null);
-    }
-
-    @Override
-    public BaseJsonNode asJson() {
-        ObjectNode result = (ObjectNode)super.asJson();
-        ObjectNode neg = this.getInnerObject(result);
-        this.addZSetLayout(neg, "layout", this.type);
-        return result;
+public class JITNegOperator extends JITStreamOperator {
+    public JITNegOperator(long id, @Nullable JITRowType keyType, JITRowType type,
+                          List<JITOperatorReference> inputs) {
+        super(id, "Neg", keyType, type, inputs);
     }
 }
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2023 VMware, Inc.
+ * SPDX-License-Identifier: MIT
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.dbsp.sqlCompiler.compiler.backend.jit.ir.operators;
+
+import com.fasterxml.jackson.databind.node.BaseJsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.dbsp.sqlCompiler.compiler.backend.jit.ir.types.JITRowType;
+
+import javax.annotation.Nullable;
+import java.util.List;
+
+/**
+ * An operator that works on both Z-sets and indexed Z-sets
+ * without changing the type of the data.  Its "layout" is
+ * a "Set" for Z-sets and a "Map" for indexed Z-sets.
+ */
+public abstract class JITStreamOperator extends JITOperator {
+    /**
+     * Key layout for indexed Z-sets, null for Z-sets.
+     * For indexed Z-sets 'type' is the value layout.
+     */
+    @Nullable
+    public final JITRowType keyType;
+
+    protected JITStreamOperator(long id, String name, @Nullable JITRowType keyType,
+                                JITRowType type, List<JITOperatorReference> inputs) {
+        super(id, name, "", type, inputs, null, null);
+        this.keyType = keyType;
+    }
+
+    void addStreamLayout(ObjectNode parent) {
+        if (this.keyType == null)
+            this.addZSetLayout(parent, "layout", this.type);
+        else
+            this.addIndexedZSetLayout(parent, "layout", this.keyType, this.type);
+    }
+
+    @Override
+    public BaseJsonNode asJson() {
+        BaseJsonNode result = super.asJson();
+        this.addStreamLayout(this.getInnerObject(result));
+        return result;
+    }
+}
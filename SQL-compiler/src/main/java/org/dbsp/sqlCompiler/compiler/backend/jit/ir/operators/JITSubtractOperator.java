@@ -25,10 +25,12 @@ package org.dbsp.sqlCompiler.compiler.backend.jit.ir.operators;
 
 import org.dbsp.sqlCompiler.compiler.backend.jit.ir.types.JITRowType;
 
+import javax.annotation.Nullable;
 import java.util.List;
 
-public class JITSubtractOperator extends JITOperator {
-    public JITSubtractOperator(long id, JITRowType type, List<JITOperatorReference> inputs) {
-        super(id, "Minus", "", type, inputs, null, null);
+public class JITSubtractOperator extends JITStreamOperator {
+    public JITSubtractOperator(long id, @Nullable JITRowType keyType, JITRowType type,
+                               List<JITOperatorReference> inputs) {
+        super(id, "Minus", keyType, type, inputs);
     }
 }
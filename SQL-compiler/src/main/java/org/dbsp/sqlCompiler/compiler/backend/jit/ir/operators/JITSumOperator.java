@@ -28,11 +28,13 @@ import com.fasterxml.jackson.databind.node.BaseJsonNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.dbsp.sqlCompiler.compiler.backend.jit.ir.types.JITRowType;
 
+import javax.annotation.Nullable;
 import java.util.List;
 
-public class JITSumOperator extends JITOperator {
-    public JITSumOperator(long id, JITRowType type, List<JITOperatorReference> inputs) {
-        super(id,"Sum", "", type, inputs, null, null);
+public class JITSumOperator extends JITStreamOperator {
+    public JITSumOperator(long id, @Nullable JITRowType keyType, JITRowType type,
+                          List<JITOperatorReference> inputs) {
+        super(id, "Sum", keyType, type, inputs);
     }
 
     @Override
@@ -42,6 +44,7 @@ public class JITSumOperator extends JITOperator {
         ArrayNode inputs = data.putArray("inputs");
         for (JITOperatorReference input: this.inputs)
             inputs.add(input.getId());
+        this.addStreamLayout(data);
         return result;
     }
 }
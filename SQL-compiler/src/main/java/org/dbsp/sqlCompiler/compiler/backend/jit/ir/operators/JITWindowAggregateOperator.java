@@ -0,0 +1,92 @@
+/*
+ * Copyright 2023 VMware, Inc.
+ * SPDX-License-Identifier: MIT
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package org.dbsp.sqlCompiler.compiler.backend.jit.ir.operators;
+
+import com.fasterxml.jackson.databind.node.BaseJsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.dbsp.sqlCompiler.compiler.backend.jit.ir.JITFunction;
+import org.dbsp.sqlCompiler.compiler.backend.jit.ir.instructions.JITLiteral;
+import org.dbsp.sqlCompiler.compiler.backend.jit.ir.instructions.JITTupleLiteral;
+import org.dbsp.sqlCompiler.compiler.backend.jit.ir.types.JITRowType;
+
+import java.util.List;
+
+/**
+ * Window aggregate: for each partition and each timestamp computes
+ * the aggregate of the values whose timestamps are within a window
+ * relative to the timestamp.  Like the corresponding DBSP operator
+ * (partitioned_rolling_aggregate) this operator is incremental.
+ * The output is indexed by (partition, timestamp).
+ */
+public class JITWindowAggregateOperator extends JITAggregateOperator {
+    public final JITRowType partitionLayout;
+    public final JITRowType timestampLayout;
+    /**
+     * Lower bound of the window, relative to the current timestamp.
+     */
+    public final JITLiteral lowerBound;
+    public final boolean lowerBoundBefore;
+    /**
+     * Upper bound of the window, relative to the current timestamp.
+     */
+    public final JITLiteral upperBound;
+    public final boolean upperBoundBefore;
+
+    public JITWindowAggregateOperator(long id,
+                                      JITRowType partitionLayout,
+                                      JITRowType timestampLayout,
+                                      JITRowType accLayout,
+                                      JITRowType stepLayout,
+                                      JITRowType type, List<JITOperatorReference> inputs,
+                                      JITTupleLiteral init, JITFunction stepFn, JITFunction finishFn,
+                                      JITLiteral lowerBound, boolean lowerBoundBefore,
+                                      JITLiteral upperBound, boolean upperBoundBefore) {
+        super(id, "PartitionedRollingFold", accLayout, stepLayout, type, inputs, init, stepFn, finishFn);
+        this.partitionLayout = partitionLayout;
+        this.timestampLayout = timestampLayout;
+        this.lowerBound = lowerBound;
+        this.lowerBoundBefore = lowerBoundBefore;
+        this.upperBound = upperBound;
+        this.upperBoundBefore = upperBoundBefore;
+    }
+
+    static ObjectNode bound(ObjectNode parent, String label, JITLiteral value, boolean before) {
+        ObjectNode result = parent.putObject(label);
+        result.set(before ? "Before" : "After", value.asJson());
+        return result;
+    }
+
+    @Override
+    public BaseJsonNode asJson() {
+        BaseJsonNode node = super.asJson();
+        ObjectNode result = this.getInnerObject(node);
+        result.put("partition_layout", this.partitionLayout.getId());
+        result.put("timestamp_layout", this.timestampLayout.getId());
+        ObjectNode range = result.putObject("range");
+        bound(range, "lower", this.lowerBound, this.lowerBoundBefore);
+        bound(range, "upper", this.upperBound, this.upperBoundBefore);
+        return node;
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2023 VMware, Inc.
+ * SPDX-License-Identifier: MIT
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package org.dbsp.sqlCompiler.compiler.backend.jit.ir.optimize;
+
+import org.dbsp.sqlCompiler.compiler.backend.jit.ir.JITFunction;
+import org.dbsp.sqlCompiler.compiler.backend.jit.ir.cfg.JITBlock;
+import org.dbsp.sqlCompiler.compiler.backend.jit.ir.cfg.JITBlockParameter;
+import org.dbsp.sqlCompiler.compiler.backend.jit.ir.cfg.JITJumpTerminator;
+import org.dbsp.sqlCompiler.compiler.backend.jit.ir.instructions.JITInstructionReference;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Removes unreachable blocks, and merges each block that is reached only
+ * through an unconditional jump into its predecessor.
+ * The parameters of a merged block are replaced with the jump arguments.
+ */
+public class BlockMerging extends JITFunctionPass {
+    @Override
+    public boolean apply(JITFunction function) {
+        ControlFlowGraph graph = new ControlFlowGraph(function);
+        boolean changed = function.blocks.removeIf(b -> !graph.isReachable(b));
+
+        Map<Long, JITInstructionReference> substitution = new HashMap<>();
+        // Process in reverse postorder, so chains of blocks collapse into the first one.
+        for (JITBlock block: graph.getReversePostorder()) {
+            if (!function.blocks.contains(block))
+                continue;
+            while (block.getTerminator().is(JITJumpTerminator.class)) {
+                JITJumpTerminator jump = block.getTerminator().to(JITJumpTerminator.class);
+                JITBlock target = graph.getBlock(jump.target);
+                if (target == block || target == graph.getEntry() ||
+                        graph.getPredecessors(target).size() != 1)
+                    break;
+                List<JITInstructionReference> arguments = jump.getArguments();
+                if (arguments.size() != target.parameters.size())
+                    throw new RuntimeException("Jump to " + target + " with " + arguments.size() +
+                            " arguments, but block has " + target.parameters.size() + " parameters");
+                for (int i = 0; i < arguments.size(); i++) {
+                    JITBlockParameter param = target.parameters.get(i);
+                    substitution.put(param.argument.getId(), arguments.get(i));
+                }
+                block.instructions.addAll(target.instructions);
+                block.replaceTerminator(target.getTerminator());
+                function.blocks.remove(target);
+                changed = true;
+            }
+        }
+        substitute(function, substitution);
+        return changed;
+    }
+}
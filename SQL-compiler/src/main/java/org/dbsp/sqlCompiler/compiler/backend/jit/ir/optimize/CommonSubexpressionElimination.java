@@ -0,0 +1,145 @@
+/*
+ * Copyright 2023 VMware, Inc.
+ * SPDX-License-Identifier: MIT
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package org.dbsp.sqlCompiler.compiler.backend.jit.ir.optimize;
+
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import org.dbsp.sqlCompiler.compiler.backend.jit.ir.JITFunction;
+import org.dbsp.sqlCompiler.compiler.backend.jit.ir.JITParameter;
+import org.dbsp.sqlCompiler.compiler.backend.jit.ir.cfg.JITBlock;
+import org.dbsp.sqlCompiler.compiler.backend.jit.ir.instructions.*;
+
+import javax.annotation.Nullable;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Replaces an instruction with an identical instruction that dominates it.
+ * Instructions are compared on their operation, attributes and operands.
+ * Loads and null checks of input rows that are never written
+ * are shared across blocks.  Loads and null checks of other rows
+ * are only shared within a block, up to the first instruction
+ * that may write to a row.
+ */
+public class CommonSubexpressionElimination extends JITFunctionPass {
+    final Map<Long, JITInstructionReference> substitution;
+    /**
+     * Input rows that are not modified by any instruction.
+     */
+    final Set<Long> readOnlyRows;
+
+    public CommonSubexpressionElimination() {
+        this.substitution = new HashMap<>();
+        this.readOnlyRows = new HashSet<>();
+    }
+
+    /**
+     * Row that is read by the instruction, if any.
+     */
+    @Nullable
+    static JITInstructionReference readRow(JITInstruction instruction) {
+        if (instruction.is(JITLoadInstruction.class))
+            return instruction.to(JITLoadInstruction.class).source;
+        if (instruction.is(JITIsNullInstruction.class))
+            return instruction.to(JITIsNullInstruction.class).target;
+        return null;
+    }
+
+    /**
+     * A key that is the same for instructions that always compute the same value,
+     * or null if the instruction should not be shared.
+     */
+    @Nullable
+    static String getKey(JITInstruction instruction) {
+        if (instruction.is(JITConstantInstruction.class) ||
+                instruction.is(JITBinaryInstruction.class) ||
+                instruction.is(JITUnaryInstruction.class) ||
+                instruction.is(JITCastInstruction.class) ||
+                instruction.is(JITMuxInstruction.class) ||
+                instruction.is(JITLoadInstruction.class) ||
+                instruction.is(JITIsNullInstruction.class)) {
+            // The JSON representation is [id, { name: { attributes } }]
+            ArrayNode json = (ArrayNode) instruction.asJson();
+            return json.get(1).toString();
+        }
+        return null;
+    }
+
+    void findReadOnlyRows(JITFunction function) {
+        this.readOnlyRows.clear();
+        for (JITParameter param: function.parameters)
+            if (param.isInput)
+                this.readOnlyRows.add(param.getId());
+        for (JITBlock block: function.blocks) {
+            for (JITInstruction instruction: block.instructions) {
+                if (instruction.hasSideEffects()) {
+                    // Stores and function calls may write to any row operand
+                    for (JITInstructionReference operand: instruction.getOperands())
+                        this.readOnlyRows.remove(operand.getId());
+                }
+            }
+        }
+    }
+
+    void process(ControlFlowGraph graph, JITBlock block, Map<String, JITInstructionReference> available) {
+        Function<JITInstructionReference, JITInstructionReference> replace = replacer(this.substitution);
+        Map<String, JITInstructionReference> local = new HashMap<>();
+        List<JITInstruction> instructions = block.instructions;
+        for (int i = 0; i < instructions.size(); i++) {
+            JITInstruction instruction = instructions.get(i).replaceOperands(replace);
+            instructions.set(i, instruction);
+            if (instruction.hasSideEffects()) {
+                local.clear();
+                continue;
+            }
+            String key = getKey(instruction);
+            if (key == null)
+                continue;
+            JITInstructionReference row = readRow(instruction);
+            Map<String, JITInstructionReference> table =
+                    row == null || this.readOnlyRows.contains(row.getId()) ? available : local;
+            JITInstructionReference previous = table.get(key);
+            if (previous != null)
+                this.substitution.put(instruction.id, previous);
+            else
+                table.put(key, instruction.getInstructionReference());
+        }
+        for (JITBlock child: graph.getDominatorTreeChildren(block))
+            this.process(graph, child, new HashMap<>(available));
+    }
+
+    @Override
+    public boolean apply(JITFunction function) {
+        this.substitution.clear();
+        this.findReadOnlyRows(function);
+        ControlFlowGraph graph = new ControlFlowGraph(function);
+        this.process(graph, graph.getEntry(), new HashMap<>());
+        substitute(function, this.substitution);
+        return !this.substitution.isEmpty();
+    }
+}
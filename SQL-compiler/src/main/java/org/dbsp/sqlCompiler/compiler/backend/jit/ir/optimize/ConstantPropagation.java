@@ -0,0 +1,316 @@
+/*
+ * Copyright 2023 VMware, Inc.
+ * SPDX-License-Identifier: MIT
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package org.dbsp.sqlCompiler.compiler.backend.jit.ir.optimize;
+
+import org.dbsp.sqlCompiler.compiler.backend.jit.ir.JITFunction;
+import org.dbsp.sqlCompiler.compiler.backend.jit.ir.cfg.JITBlock;
+import org.dbsp.sqlCompiler.compiler.backend.jit.ir.cfg.JITBlockTerminator;
+import org.dbsp.sqlCompiler.compiler.backend.jit.ir.cfg.JITBranchTerminator;
+import org.dbsp.sqlCompiler.compiler.backend.jit.ir.cfg.JITJumpTerminator;
+import org.dbsp.sqlCompiler.compiler.backend.jit.ir.instructions.*;
+import org.dbsp.sqlCompiler.compiler.backend.jit.ir.types.JITBoolType;
+import org.dbsp.sqlCompiler.compiler.backend.jit.ir.types.JITI32Type;
+import org.dbsp.sqlCompiler.compiler.backend.jit.ir.types.JITI64Type;
+import org.dbsp.sqlCompiler.ir.expression.literal.DBSPBoolLiteral;
+import org.dbsp.sqlCompiler.ir.expression.literal.DBSPI32Literal;
+import org.dbsp.sqlCompiler.ir.expression.literal.DBSPI64Literal;
+import org.dbsp.sqlCompiler.ir.expression.literal.DBSPLiteral;
+
+import javax.annotation.Nullable;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Folds operations whose operands are constants into constants,
+ * simplifies Boolean operations and selections with a constant operand,
+ * and replaces branches on constant conditions with jumps.
+ * Only Boolean and integer values are folded; floating point and string
+ * operations are left to the JIT compiler.
+ */
+public class ConstantPropagation extends JITFunctionPass {
+    /**
+     * Maps instruction ids to the value of the constant they compute.
+     */
+    final Map<Long, Object> constants;
+    /**
+     * Instructions whose result is replaced with another value.
+     */
+    final Map<Long, JITInstructionReference> substitution;
+
+    public ConstantPropagation() {
+        this.constants = new HashMap<>();
+        this.substitution = new HashMap<>();
+    }
+
+    /**
+     * The value produced by a constant instruction, or null
+     * if the value cannot be folded.
+     */
+    @Nullable
+    static Object getValue(JITConstantInstruction constant) {
+        if (!constant.valueOrNull)
+            return constant.value.isNull();
+        if (constant.value.isNull())
+            return null;
+        DBSPLiteral literal = constant.value.literal;
+        if (literal.is(DBSPBoolLiteral.class))
+            return literal.to(DBSPBoolLiteral.class).value;
+        if (literal.is(DBSPI32Literal.class))
+            return literal.to(DBSPI32Literal.class).value;
+        if (literal.is(DBSPI64Literal.class))
+            return literal.to(DBSPI64Literal.class).value;
+        return null;
+    }
+
+    static JITConstantInstruction makeConstant(long id, Object value) {
+        if (value instanceof Boolean)
+            return new JITConstantInstruction(id, JITBoolType.INSTANCE,
+                    new JITLiteral(new DBSPBoolLiteral((Boolean) value)), true);
+        if (value instanceof Integer)
+            return new JITConstantInstruction(id, JITI32Type.INSTANCE,
+                    new JITLiteral(new DBSPI32Literal((Integer) value)), true);
+        if (value instanceof Long)
+            return new JITConstantInstruction(id, JITI64Type.INSTANCE,
+                    new JITLiteral(new DBSPI64Literal((Long) value)), true);
+        throw new RuntimeException("Unexpected constant " + value);
+    }
+
+    @Nullable
+    Object getConstant(JITInstructionReference reference) {
+        if (!reference.isValid())
+            return null;
+        return this.constants.get(reference.getId());
+    }
+
+    @Nullable
+    static Object fold(JITBinaryInstruction.Operation operation, Object left, Object right) {
+        if (left instanceof Boolean && right instanceof Boolean) {
+            boolean l = (Boolean) left;
+            boolean r = (Boolean) right;
+            switch (operation) {
+                case AND:
+                    return l && r;
+                case OR:
+                    return l || r;
+                case XOR:
+                case NEQ:
+                    return l != r;
+                case EQ:
+                    return l == r;
+                default:
+                    return null;
+            }
+        }
+        boolean isInt = left instanceof Integer && right instanceof Integer;
+        boolean isLong = left instanceof Long && right instanceof Long;
+        if (!isInt && !isLong)
+            return null;
+        long l = ((Number) left).longValue();
+        long r = ((Number) right).longValue();
+        long result;
+        try {
+            switch (operation) {
+                case ADD:
+                    result = Math.addExact(l, r);
+                    break;
+                case SUB:
+                    result = Math.subtractExact(l, r);
+                    break;
+                case MUL:
+                    result = Math.multiplyExact(l, r);
+                    break;
+                case DIV:
+                    if (r == 0 || (l == Long.MIN_VALUE && r == -1))
+                        return null;
+                    result = l / r;
+                    break;
+                case MAX:
+                    result = Math.max(l, r);
+                    break;
+                case MIN:
+                    result = Math.min(l, r);
+                    break;
+                case EQ:
+                    return l == r;
+                case NEQ:
+                    return l != r;
+                case LT:
+                    return l < r;
+                case GT:
+                    return l > r;
+                case LTE:
+                    return l <= r;
+                case GTE:
+                    return l >= r;
+                default:
+                    return null;
+            }
+        } catch (ArithmeticException ex) {
+            // Leave overflows to the runtime
+            return null;
+        }
+        if (isInt) {
+            if (result < Integer.MIN_VALUE || result > Integer.MAX_VALUE)
+                return null;
+            return (int) result;
+        }
+        return result;
+    }
+
+    /**
+     * Try to simplify an instruction.
+     * @return The constant the instruction evaluates to, or null.
+     *         May also add the instruction to the substitution.
+     */
+    @Nullable
+    Object simplify(JITInstruction instruction) {
+        if (instruction.is(JITConstantInstruction.class))
+            return getValue(instruction.to(JITConstantInstruction.class));
+        if (instruction.is(JITBinaryInstruction.class)) {
+            JITBinaryInstruction binary = instruction.to(JITBinaryInstruction.class);
+            Object left = this.getConstant(binary.left);
+            Object right = this.getConstant(binary.right);
+            if (left != null && right != null)
+                return fold(binary.operation, left, right);
+            // x && true = x, x && false = false, x || true = true, x || false = x
+            JITInstructionReference other = left == null ? binary.left : binary.right;
+            Object constant = left == null ? right : left;
+            if (constant instanceof Boolean) {
+                boolean value = (Boolean) constant;
+                if (binary.operation == JITBinaryInstruction.Operation.AND) {
+                    if (!value)
+                        return false;
+                    this.substitution.put(binary.id, other);
+                } else if (binary.operation == JITBinaryInstruction.Operation.OR) {
+                    if (value)
+                        return true;
+                    this.substitution.put(binary.id, other);
+                }
+            }
+            return null;
+        }
+        if (instruction.is(JITUnaryInstruction.class)) {
+            JITUnaryInstruction unary = instruction.to(JITUnaryInstruction.class);
+            Object operand = this.getConstant(unary.operand);
+            if (operand == null)
+                return null;
+            switch (unary.operation) {
+                case NOT:
+                    if (operand instanceof Boolean)
+                        return !(Boolean) operand;
+                    break;
+                case NEG:
+                    if (operand instanceof Integer && (Integer) operand != Integer.MIN_VALUE)
+                        return -(Integer) operand;
+                    if (operand instanceof Long && (Long) operand != Long.MIN_VALUE)
+                        return -(Long) operand;
+                    break;
+            }
+            return null;
+        }
+        if (instruction.is(JITCastInstruction.class)) {
+            JITCastInstruction cast = instruction.to(JITCastInstruction.class);
+            if (cast.sourceType == cast.destinationType) {
+                this.substitution.put(cast.id, cast.operand);
+                return null;
+            }
+            Object operand = this.getConstant(cast.operand);
+            // Only widening integer casts are folded.
+            if (operand instanceof Integer && cast.destinationType.is(JITI64Type.class))
+                return ((Integer) operand).longValue();
+            return null;
+        }
+        if (instruction.is(JITMuxInstruction.class)) {
+            JITMuxInstruction mux = instruction.to(JITMuxInstruction.class);
+            Object condition = this.getConstant(mux.condition);
+            if (condition instanceof Boolean) {
+                this.substitution.put(mux.id, (Boolean) condition ? mux.left : mux.right);
+            } else if (mux.left.getId() == mux.right.getId()) {
+                this.substitution.put(mux.id, mux.left);
+            } else {
+                Object left = this.getConstant(mux.left);
+                Object right = this.getConstant(mux.right);
+                if (left != null && left.equals(right))
+                    return left;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public boolean apply(JITFunction function) {
+        this.constants.clear();
+        this.substitution.clear();
+        boolean changed = false;
+        for (JITBlock block: function.blocks) {
+            for (JITInstruction instruction: block.instructions) {
+                if (instruction.is(JITConstantInstruction.class)) {
+                    Object value = getValue(instruction.to(JITConstantInstruction.class));
+                    if (value != null)
+                        this.constants.put(instruction.id, value);
+                }
+            }
+        }
+
+        for (JITBlock block: function.blocks) {
+            List<JITInstruction> instructions = block.instructions;
+            for (int i = 0; i < instructions.size(); i++) {
+                JITInstruction instruction = instructions.get(i)
+                        .replaceOperands(replacer(this.substitution));
+                instructions.set(i, instruction);
+                Object value = this.simplify(instruction);
+                if (this.substitution.containsKey(instruction.id)) {
+                    changed = true;
+                    continue;
+                }
+                if (value == null)
+                    continue;
+                this.constants.put(instruction.id, value);
+                if (!instruction.is(JITConstantInstruction.class)) {
+                    instructions.set(i, makeConstant(instruction.id, value));
+                    changed = true;
+                }
+            }
+
+            JITBlockTerminator terminator = block.getTerminator().replaceOperands(replacer(this.substitution));
+            block.replaceTerminator(terminator);
+            if (terminator.is(JITBranchTerminator.class)) {
+                JITBranchTerminator branch = terminator.to(JITBranchTerminator.class);
+                Object condition = this.getConstant(branch.condition);
+                if (condition instanceof Boolean) {
+                    boolean taken = (Boolean) condition;
+                    JITJumpTerminator jump = new JITJumpTerminator(taken ? branch.truthy : branch.falsy);
+                    for (JITInstructionReference arg: taken ? branch.getTrueArguments() : branch.getFalseArguments())
+                        jump.addArgument(arg);
+                    block.replaceTerminator(jump);
+                    changed = true;
+                }
+            }
+        }
+        substitute(function, this.substitution);
+        return changed;
+    }
+}
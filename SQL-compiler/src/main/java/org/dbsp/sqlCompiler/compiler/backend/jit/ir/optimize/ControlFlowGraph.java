@@ -0,0 +1,204 @@
+/*
+ * Copyright 2023 VMware, Inc.
+ * SPDX-License-Identifier: MIT
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package org.dbsp.sqlCompiler.compiler.backend.jit.ir.optimize;
+
+import org.dbsp.sqlCompiler.compiler.backend.jit.ir.JITFunction;
+import org.dbsp.sqlCompiler.compiler.backend.jit.ir.cfg.JITBlock;
+import org.dbsp.sqlCompiler.compiler.backend.jit.ir.cfg.JITBlockReference;
+import org.dbsp.util.Utilities;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Predecessors, successors and dominators of the blocks of a JIT function.
+ * The first block of the function is the entry block.
+ */
+public class ControlFlowGraph {
+    final JITFunction function;
+    final Map<Long, JITBlock> blocks;
+    final Map<JITBlock, List<JITBlock>> successors;
+    final Map<JITBlock, List<JITBlock>> predecessors;
+    /**
+     * Blocks reachable from the entry in reverse postorder.
+     */
+    final List<JITBlock> reversePostorder;
+    /**
+     * Immediate dominator of each reachable block; the entry block has none.
+     */
+    final Map<JITBlock, JITBlock> immediateDominator;
+
+    public ControlFlowGraph(JITFunction function) {
+        this.function = function;
+        this.blocks = new HashMap<>();
+        this.successors = new HashMap<>();
+        this.predecessors = new HashMap<>();
+        this.reversePostorder = new ArrayList<>();
+        this.immediateDominator = new HashMap<>();
+
+        for (JITBlock block: function.blocks) {
+            Utilities.putNew(this.blocks, block.getId(), block);
+            this.predecessors.put(block, new ArrayList<>());
+        }
+        for (JITBlock block: function.blocks) {
+            List<JITBlock> succ = new ArrayList<>();
+            for (JITBlockReference ref: block.getTerminator().getSuccessors()) {
+                JITBlock target = this.getBlock(ref);
+                succ.add(target);
+                this.predecessors.get(target).add(block);
+            }
+            this.successors.put(block, succ);
+        }
+        this.computeReversePostorder();
+        this.computeDominators();
+    }
+
+    public JITBlock getEntry() {
+        return this.function.blocks.get(0);
+    }
+
+    public JITBlock getBlock(JITBlockReference reference) {
+        return Utilities.getExists(this.blocks, reference.getId());
+    }
+
+    public List<JITBlock> getPredecessors(JITBlock block) {
+        return Utilities.getExists(this.predecessors, block);
+    }
+
+    public List<JITBlock> getSuccessors(JITBlock block) {
+        return Utilities.getExists(this.successors, block);
+    }
+
+    public boolean isReachable(JITBlock block) {
+        return block == this.getEntry() || this.immediateDominator.containsKey(block);
+    }
+
+    /**
+     * The reachable blocks, each appearing after all its dominators.
+     */
+    public List<JITBlock> getReversePostorder() {
+        return this.reversePostorder;
+    }
+
+    @Nullable
+    public JITBlock getImmediateDominator(JITBlock block) {
+        return this.immediateDominator.get(block);
+    }
+
+    /**
+     * The blocks immediately dominated by the specified block.
+     */
+    public List<JITBlock> getDominatorTreeChildren(JITBlock block) {
+        List<JITBlock> result = new ArrayList<>();
+        for (JITBlock b: this.reversePostorder) {
+            if (this.immediateDominator.get(b) == block)
+                result.add(b);
+        }
+        return result;
+    }
+
+    void computeReversePostorder() {
+        // Iterative depth-first search; functions can have many blocks.
+        Set<JITBlock> visited = new HashSet<>();
+        List<JITBlock> postorder = new ArrayList<>();
+        List<JITBlock> stack = new ArrayList<>();
+        List<Integer> nextChild = new ArrayList<>();
+        stack.add(this.getEntry());
+        nextChild.add(0);
+        visited.add(this.getEntry());
+        while (!stack.isEmpty()) {
+            int top = stack.size() - 1;
+            JITBlock block = stack.get(top);
+            int child = nextChild.get(top);
+            List<JITBlock> succ = this.getSuccessors(block);
+            if (child < succ.size()) {
+                nextChild.set(top, child + 1);
+                JITBlock next = succ.get(child);
+                if (visited.add(next)) {
+                    stack.add(next);
+                    nextChild.add(0);
+                }
+            } else {
+                postorder.add(block);
+                Utilities.removeLast(stack);
+                Utilities.removeLast(nextChild);
+            }
+        }
+        for (int i = postorder.size() - 1; i >= 0; i--)
+            this.reversePostorder.add(postorder.get(i));
+    }
+
+    /**
+     * Iterative dominator computation from
+     * Cooper, Harvey and Kennedy, "A Simple, Fast Dominance Algorithm".
+     */
+    void computeDominators() {
+        Map<JITBlock, Integer> order = new HashMap<>();
+        for (int i = 0; i < this.reversePostorder.size(); i++)
+            order.put(this.reversePostorder.get(i), i);
+        JITBlock entry = this.getEntry();
+        Map<JITBlock, JITBlock> idom = new HashMap<>();
+        idom.put(entry, entry);
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (JITBlock block: this.reversePostorder) {
+                if (block == entry)
+                    continue;
+                JITBlock newIdom = null;
+                for (JITBlock pred: this.getPredecessors(block)) {
+                    if (!idom.containsKey(pred))
+                        continue;
+                    if (newIdom == null) {
+                        newIdom = pred;
+                    } else {
+                        JITBlock left = pred;
+                        JITBlock right = newIdom;
+                        while (left != right) {
+                            while (order.get(left) > order.get(right))
+                                left = idom.get(left);
+                            while (order.get(right) > order.get(left))
+                                right = idom.get(right);
+                        }
+                        newIdom = left;
+                    }
+                }
+                if (newIdom != null && idom.get(block) != newIdom) {
+                    idom.put(block, newIdom);
+                    changed = true;
+                }
+            }
+        }
+        for (Map.Entry<JITBlock, JITBlock> e: idom.entrySet()) {
+            if (e.getKey() != entry)
+                this.immediateDominator.put(e.getKey(), e.getValue());
+        }
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2023 VMware, Inc.
+ * SPDX-License-Identifier: MIT
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package org.dbsp.sqlCompiler.compiler.backend.jit.ir.optimize;
+
+import org.dbsp.sqlCompiler.compiler.backend.jit.ir.JITFunction;
+import org.dbsp.sqlCompiler.compiler.backend.jit.ir.cfg.JITBlock;
+import org.dbsp.sqlCompiler.compiler.backend.jit.ir.instructions.JITCopyInstruction;
+import org.dbsp.sqlCompiler.compiler.backend.jit.ir.instructions.JITInstruction;
+import org.dbsp.sqlCompiler.compiler.backend.jit.ir.instructions.JITInstructionReference;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Replaces the uses of scalar copies with the copied value.
+ * Copies of rows are kept, since they produce a new row.
+ * The copies themselves become dead and are removed by DeadCodeElimination.
+ */
+public class CopyPropagation extends JITFunctionPass {
+    @Override
+    public boolean apply(JITFunction function) {
+        Map<Long, JITInstructionReference> substitution = new HashMap<>();
+        for (JITBlock block: function.blocks) {
+            for (JITInstruction instruction: block.instructions) {
+                if (!instruction.is(JITCopyInstruction.class))
+                    continue;
+                JITCopyInstruction copy = instruction.to(JITCopyInstruction.class);
+                if (copy.type.isScalarType())
+                    substitution.put(copy.id, copy.operand);
+            }
+        }
+        if (substitution.isEmpty())
+            return false;
+        // Only report a change if some copy is actually used
+        boolean changed = false;
+        for (JITBlock block: function.blocks) {
+            for (JITInstruction instruction: block.instructions) {
+                for (JITInstructionReference operand: instruction.getOperands())
+                    if (operand.isValid() && substitution.containsKey(operand.getId()))
+                        changed = true;
+            }
+            for (JITInstructionReference operand: block.getTerminator().getOperands())
+                if (operand.isValid() && substitution.containsKey(operand.getId()))
+                    changed = true;
+        }
+        substitute(function, substitution);
+        return changed;
+    }
+}
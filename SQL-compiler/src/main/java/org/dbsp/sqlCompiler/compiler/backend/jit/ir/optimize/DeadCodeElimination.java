@@ -0,0 +1,158 @@
+/*
+ * Copyright 2023 VMware, Inc.
+ * SPDX-License-Identifier: MIT
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package org.dbsp.sqlCompiler.compiler.backend.jit.ir.optimize;
+
+import org.dbsp.sqlCompiler.compiler.backend.jit.ir.JITFunction;
+import org.dbsp.sqlCompiler.compiler.backend.jit.ir.cfg.JITBlock;
+import org.dbsp.sqlCompiler.compiler.backend.jit.ir.instructions.*;
+
+import javax.annotation.Nullable;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Removes instructions whose results are never used.
+ * In addition, removes stores and null flag updates that are
+ * overwritten later in the same block before the row is read,
+ * and rows that are only written, but never read.
+ */
+public class DeadCodeElimination extends JITFunctionPass {
+    /**
+     * Row written by a Store or SetNull instruction.
+     */
+    @Nullable
+    static JITInstructionReference writtenRow(JITInstruction instruction) {
+        if (instruction.is(JITStoreInstruction.class))
+            return instruction.to(JITStoreInstruction.class).target;
+        if (instruction.is(JITSetNullInstruction.class))
+            return instruction.to(JITSetNullInstruction.class).target;
+        return null;
+    }
+
+    /**
+     * Describes the row location written by a Store or SetNull instruction.
+     */
+    @Nullable
+    static String writtenLocation(JITInstruction instruction) {
+        if (instruction.is(JITStoreInstruction.class)) {
+            JITStoreInstruction store = instruction.to(JITStoreInstruction.class);
+            return store.target.getId() + "." + store.column;
+        }
+        if (instruction.is(JITSetNullInstruction.class)) {
+            JITSetNullInstruction setNull = instruction.to(JITSetNullInstruction.class);
+            return setNull.target.getId() + ".null." + setNull.column;
+        }
+        return null;
+    }
+
+    /**
+     * Remove the stores in a block that are overwritten before being read.
+     */
+    static boolean removeOverwrittenStores(JITBlock block) {
+        boolean changed = false;
+        // Locations that are written later in the block, before any read
+        Set<String> overwritten = new HashSet<>();
+        List<JITInstruction> instructions = block.instructions;
+        for (int i = instructions.size() - 1; i >= 0; i--) {
+            JITInstruction instruction = instructions.get(i);
+            String location = writtenLocation(instruction);
+            if (location != null) {
+                if (!overwritten.add(location)) {
+                    instructions.remove(i);
+                    changed = true;
+                }
+                continue;
+            }
+            if (instruction.hasSideEffects()) {
+                overwritten.clear();
+            } else if (!instruction.getOperands().isEmpty()) {
+                // Any other use of a row may read it
+                for (JITInstructionReference operand: instruction.getOperands()) {
+                    String prefix = operand.getId() + ".";
+                    overwritten.removeIf(l -> l.startsWith(prefix));
+                }
+            }
+        }
+        return changed;
+    }
+
+    static void countUse(Map<Long, Integer> uses, JITInstructionReference reference) {
+        if (reference.isValid())
+            uses.merge(reference.getId(), 1, Integer::sum);
+    }
+
+    @Override
+    public boolean apply(JITFunction function) {
+        boolean changed = false;
+        for (JITBlock block: function.blocks)
+            changed |= removeOverwrittenStores(block);
+
+        boolean removed = true;
+        while (removed) {
+            removed = false;
+            // Count all uses, and the uses of rows that are only written
+            Map<Long, Integer> uses = new HashMap<>();
+            Map<Long, Integer> writes = new HashMap<>();
+            for (JITBlock block: function.blocks) {
+                for (JITInstruction instruction: block.instructions) {
+                    for (JITInstructionReference operand: instruction.getOperands())
+                        countUse(uses, operand);
+                    JITInstructionReference row = writtenRow(instruction);
+                    if (row != null)
+                        countUse(writes, row);
+                }
+                for (JITInstructionReference operand: block.getTerminator().getOperands())
+                    countUse(uses, operand);
+            }
+
+            // Rows allocated in this function which are never read
+            Set<Long> deadRows = new HashSet<>();
+            for (JITBlock block: function.blocks) {
+                for (JITInstruction instruction: block.instructions) {
+                    if (instruction.is(JITUninitRowInstruction.class)) {
+                        long id = instruction.id;
+                        if (uses.getOrDefault(id, 0).equals(writes.getOrDefault(id, 0)))
+                            deadRows.add(id);
+                    }
+                }
+            }
+
+            for (JITBlock block: function.blocks) {
+                removed |= block.instructions.removeIf(instruction -> {
+                    JITInstructionReference row = writtenRow(instruction);
+                    if (row != null)
+                        return deadRows.contains(row.getId());
+                    return !instruction.hasSideEffects() &&
+                            !uses.containsKey(instruction.id);
+                });
+            }
+            changed |= removed;
+        }
+        return changed;
+    }
+}
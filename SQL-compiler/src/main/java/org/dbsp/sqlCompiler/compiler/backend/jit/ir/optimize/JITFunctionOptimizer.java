@@ -0,0 +1,80 @@
+/*
+ * Copyright 2023 VMware, Inc.
+ * SPDX-License-Identifier: MIT
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package org.dbsp.sqlCompiler.compiler.backend.jit.ir.optimize;
+
+import org.dbsp.sqlCompiler.compiler.backend.jit.ir.JITFunction;
+import org.dbsp.util.IModule;
+import org.dbsp.util.Linq;
+import org.dbsp.util.Logger;
+
+import java.util.List;
+
+/**
+ * Runs a pipeline of optimization passes over a JIT function
+ * until the function no longer changes.
+ */
+public class JITFunctionOptimizer implements IModule {
+    /**
+     * Bound on the number of times the pipeline is run.
+     */
+    static final int MAX_ITERATIONS = 10;
+
+    final List<JITFunctionPass> passes;
+
+    public JITFunctionOptimizer() {
+        this.passes = Linq.list(
+                new CopyPropagation(),
+                new ConstantPropagation(),
+                new CommonSubexpressionElimination(),
+                new DeadCodeElimination(),
+                new BlockMerging());
+    }
+
+    /**
+     * Optimize the function in place.
+     * @return The optimized function.
+     */
+    public JITFunction optimize(JITFunction function) {
+        if (function.blocks.isEmpty())
+            return function;
+        for (int i = 0; i < MAX_ITERATIONS; i++) {
+            boolean changed = false;
+            for (JITFunctionPass pass: this.passes) {
+                boolean passChanged = pass.apply(function);
+                if (passChanged && Logger.INSTANCE.isEnabled(this, 4))
+                    Logger.INSTANCE.from(this, 4)
+                            .append("After ")
+                            .append(pass.toString())
+                            .newline()
+                            .append(function.toAssembly())
+                            .newline();
+                changed |= passChanged;
+            }
+            if (!changed)
+                break;
+        }
+        return function;
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2023 VMware, Inc.
+ * SPDX-License-Identifier: MIT
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package org.dbsp.sqlCompiler.compiler.backend.jit.ir.optimize;
+
+import org.dbsp.sqlCompiler.compiler.backend.jit.ir.JITFunction;
+import org.dbsp.sqlCompiler.compiler.backend.jit.ir.cfg.JITBlock;
+import org.dbsp.sqlCompiler.compiler.backend.jit.ir.instructions.JITInstructionReference;
+import org.dbsp.util.IModule;
+
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * An optimization pass that rewrites a JIT function in place.
+ * The passes rely on the function being in SSA form: each instruction id
+ * is defined exactly once, and definitions dominate their uses.
+ */
+public abstract class JITFunctionPass implements IModule {
+    /**
+     * Optimize the function, modifying it in place.
+     * @return True if the function was changed.
+     */
+    public abstract boolean apply(JITFunction function);
+
+    /**
+     * Build a function that replaces a reference with the value it maps to
+     * in the substitution, following chains of replacements.
+     */
+    static Function<JITInstructionReference, JITInstructionReference> replacer(
+            Map<Long, JITInstructionReference> substitution) {
+        return reference -> {
+            JITInstructionReference result = reference;
+            while (result.isValid() && substitution.containsKey(result.getId()))
+                result = substitution.get(result.getId());
+            return result;
+        };
+    }
+
+    /**
+     * Replace all uses of the values in the keys of the substitution
+     * with the corresponding values.
+     */
+    static void substitute(JITFunction function, Map<Long, JITInstructionReference> substitution) {
+        if (substitution.isEmpty())
+            return;
+        Function<JITInstructionReference, JITInstructionReference> replace = replacer(substitution);
+        for (JITBlock block: function.blocks) {
+            block.instructions.replaceAll(i -> i.replaceOperands(replace));
+            block.replaceTerminator(block.getTerminator().replaceOperands(replace));
+        }
+    }
+
+    @Override
+    public String toString() {
+        return this.getClass().getSimpleName();
+    }
+}
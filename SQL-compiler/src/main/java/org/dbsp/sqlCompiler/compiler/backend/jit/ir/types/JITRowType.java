@@ -29,6 +29,7 @@ import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.dbsp.sqlCompiler.compiler.backend.jit.ir.IJITId;
 import org.dbsp.sqlCompiler.compiler.backend.jit.ir.JITNode;
 import org.dbsp.sqlCompiler.compiler.backend.jit.ir.JITReference;
+import org.dbsp.sqlCompiler.compiler.backend.jit.RowLayoutPlanner;
 import org.dbsp.sqlCompiler.ir.type.DBSPType;
 import org.dbsp.sqlCompiler.ir.type.DBSPTypeTupleBase;
 import org.dbsp.util.IIndentStream;
@@ -62,17 +63,44 @@ public class JITRowType extends JITType implements IJITId {
     }
 
     public final long id;
+    /**
+     * Fields in the order in which they are stored in the row.
+     */
     final List<NullableScalarType> fields;
+    /**
+     * For each field of the tuple type the column where it is stored.
+     */
+    final int[] columns;
 
     public JITRowType(long id, DBSPTypeTupleBase type) {
+        this(id, type, RowLayoutPlanner.plan(type, false));
+    }
+
+    /**
+     * Create a row type.
+     * @param id     Layout id.
+     * @param type   Tuple type described by this row.
+     * @param order  For each column the index of the tuple field stored in the column.
+     */
+    public JITRowType(long id, DBSPTypeTupleBase type, int[] order) {
         this.id = id;
         this.fields = new ArrayList<>();
-        for (DBSPType colType: type.tupFields) {
+        this.columns = new int[order.length];
+        for (int i = 0; i < order.length; i++) {
+            DBSPType colType = type.getFieldType(order[i]);
             JITScalarType scalarType = JITScalarType.scalarType(colType);
             this.fields.add(new NullableScalarType(colType.mayBeNull, scalarType));
+            this.columns[order[i]] = i;
         }
     }
 
+    /**
+     * The column of the row where the specified tuple field is stored.
+     */
+    public int getColumn(int field) {
+        return this.columns[field];
+    }
+
     public long getId() {
         return this.id;
     }
@@ -52,10 +52,12 @@ public class DeadCodeVisitor extends CircuitVisitor implements IModule {
     }
 
     public void keep(DBSPOperator operator) {
-        Logger.INSTANCE.from(this, 1)
-                .append(operator.toString())
-                .append(" reachable")
-                .newline();
+        if (Logger.INSTANCE.isEnabled(this, 1)) {
+            Logger.INSTANCE.from(this, 1)
+                    .append(operator.toString())
+                    .append(" reachable")
+                    .newline();
+        }
         this.toKeep.add(operator);
     }
 
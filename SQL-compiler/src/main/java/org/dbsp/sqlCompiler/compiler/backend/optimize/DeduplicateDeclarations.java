@@ -0,0 +1,165 @@
+/*
+ * Copyright 2023 VMware, Inc.
+ * SPDX-License-Identifier: MIT
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package org.dbsp.sqlCompiler.compiler.backend.optimize;
+
+import org.dbsp.sqlCompiler.circuit.DBSPPartialCircuit;
+import org.dbsp.sqlCompiler.circuit.IDBSPDeclaration;
+import org.dbsp.sqlCompiler.circuit.IDBSPNode;
+import org.dbsp.sqlCompiler.circuit.operator.DBSPOperator;
+import org.dbsp.sqlCompiler.compiler.backend.rust.ToRustInnerVisitor;
+import org.dbsp.sqlCompiler.compiler.backend.visitors.CircuitCloneVisitor;
+import org.dbsp.sqlCompiler.compiler.backend.visitors.InnerExpressionRewriteVisitor;
+import org.dbsp.sqlCompiler.ir.InnerVisitor;
+import org.dbsp.sqlCompiler.ir.expression.DBSPClosureExpression;
+import org.dbsp.sqlCompiler.ir.expression.DBSPExpression;
+import org.dbsp.sqlCompiler.ir.expression.DBSPVariablePath;
+import org.dbsp.sqlCompiler.ir.statement.DBSPLetStatement;
+import org.dbsp.util.Linq;
+import org.dbsp.util.Logger;
+
+import java.util.*;
+
+/**
+ * Removes declarations that are identical to an earlier declaration,
+ * and makes all references point to the earlier one.
+ * Two declarations are considered identical if they have the same
+ * type and their initializers generate the same Rust code.
+ * Only closures are deduplicated: the compiler often declares the same
+ * closure many times.  Since a declaration can be used multiple times only
+ * if its value can be copied, closures which refer to other declarations
+ * are only deduplicated if these are closures that can be copied as well.
+ */
+public class DeduplicateDeclarations extends CircuitCloneVisitor {
+    /**
+     * Replaces references to variables according to a renaming map.
+     */
+    static class RenameVariables extends InnerExpressionRewriteVisitor {
+        final Map<String, String> renamed = new HashMap<>();
+
+        @Override
+        public boolean preorder(DBSPVariablePath expression) {
+            String name = this.renamed.get(expression.variable);
+            if (name == null)
+                this.map(expression, expression);
+            else
+                this.map(expression, new DBSPVariablePath(name, expression.getNonVoidType()));
+            return false;
+        }
+    }
+
+    /**
+     * Collects the names of the variables used by an expression.
+     */
+    static class FindVariables extends InnerVisitor {
+        final Set<String> variables = new HashSet<>();
+
+        FindVariables() {
+            super(true);
+        }
+
+        @Override
+        public void postorder(DBSPVariablePath node) {
+            this.variables.add(node.variable);
+        }
+    }
+
+    final RenameVariables renamer;
+
+    public DeduplicateDeclarations() {
+        super(false);
+        this.renamer = new RenameVariables();
+    }
+
+    @Override
+    public void replace(DBSPOperator operator) {
+        if (operator.function == null) {
+            super.replace(operator);
+            return;
+        }
+        DBSPExpression function = this.renamer.apply(operator.function).to(DBSPExpression.class);
+        if (function == operator.function) {
+            super.replace(operator);
+            return;
+        }
+        List<DBSPOperator> sources = Linq.map(operator.inputs, this::mapped);
+        DBSPOperator result = operator.withFunction(function).withInputs(sources, false);
+        this.map(operator, result);
+    }
+
+    @Override
+    public boolean preorder(DBSPPartialCircuit circuit) {
+        this.renamer.renamed.clear();
+        // Maps the generated code of each declaration to its name.
+        Map<String, String> declared = new HashMap<>();
+        // Names of all declarations.
+        Set<String> declarations = new HashSet<>();
+        // Names of the closures which can be copied.
+        Set<String> copyable = new HashSet<>();
+        for (IDBSPNode node : circuit.getCode()) {
+            DBSPOperator op = node.as(DBSPOperator.class);
+            if (op != null) {
+                op.accept(this);
+                continue;
+            }
+            IDBSPDeclaration decl = node.to(IDBSPDeclaration.class);
+            declarations.add(decl.getName());
+            DBSPLetStatement let = node.as(DBSPLetStatement.class);
+            if (let == null || let.mutable || let.initializer == null ||
+                    !let.initializer.is(DBSPClosureExpression.class)) {
+                this.getResult().declare(decl);
+                continue;
+            }
+            // Earlier declarations may have been renamed
+            let = this.renamer.apply(let).to(DBSPLetStatement.class);
+            DBSPExpression initializer = Objects.requireNonNull(let.initializer);
+            FindVariables finder = new FindVariables();
+            initializer.accept(finder);
+            finder.variables.retainAll(declarations);
+            if (!copyable.containsAll(finder.variables)) {
+                this.getResult().declare(let);
+                continue;
+            }
+            copyable.add(let.variable);
+            String code = ToRustInnerVisitor.toRustString(let.type) + " = " +
+                    ToRustInnerVisitor.toRustString(initializer);
+            String previous = declared.get(code);
+            if (previous != null) {
+                if (Logger.INSTANCE.isEnabled(this, 1)) {
+                    Logger.INSTANCE.from(this, 1)
+                            .append("Replacing ")
+                            .append(let.variable)
+                            .append(" with ")
+                            .append(previous)
+                            .newline();
+                }
+                this.renamer.renamed.put(let.variable, previous);
+            } else {
+                declared.put(code, let.variable);
+                this.getResult().declare(let);
+            }
+        }
+        return false;
+    }
+}
@@ -47,7 +47,7 @@ public class RemoveOperatorsVisitor extends CircuitCloneVisitor {
     public boolean preorder(DBSPOperator node) {
         if (this.keep.contains(node)) {
             this.replace(node);
-        } else {
+        } else if (Logger.INSTANCE.isEnabled(this, 2)) {
             Logger.INSTANCE.from(this, 2)
                     .append("Removing ")
                     .append(node.toString())
@@ -61,7 +61,7 @@ public class RemoveOperatorsVisitor extends CircuitCloneVisitor {
         if (this.keep.contains(node)) {
             DBSPOperator input = this.mapped(node.input());
             this.map(node, input, false);
-        } else {
+        } else if (Logger.INSTANCE.isEnabled(this, 2)) {
             Logger.INSTANCE.from(this, 2)
                     .append("Removing ")
                     .append(node.toString())
@@ -73,9 +73,11 @@ public class RemoveOperatorsVisitor extends CircuitCloneVisitor {
     @Override
     public void startVisit(IDBSPOuterNode node) {
         super.startVisit(node);
-        Logger.INSTANCE.from(this, 2)
-                .append("Keeping ")
-                .append(this.keep.toString())
-                .newline();
+        if (Logger.INSTANCE.isEnabled(this, 2)) {
+            Logger.INSTANCE.from(this, 2)
+                    .append("Keeping ")
+                    .append(this.keep.toString())
+                    .newline();
+        }
     }
 }
@@ -4,6 +4,7 @@ import org.dbsp.sqlCompiler.circuit.DBSPCircuit;
 import org.dbsp.sqlCompiler.circuit.IDBSPInnerNode;
 import org.dbsp.sqlCompiler.circuit.IDBSPNode;
 import org.dbsp.sqlCompiler.compiler.backend.optimize.BetaReduction;
+import org.dbsp.sqlCompiler.compiler.backend.optimize.DeduplicateDeclarations;
 import org.dbsp.sqlCompiler.compiler.backend.optimize.Simplify;
 import org.dbsp.sqlCompiler.compiler.backend.visitors.CircuitFunctionRewriter;
 import org.dbsp.sqlCompiler.ir.CircuitVisitor;
@@ -16,9 +17,9 @@ import org.dbsp.util.IndentStream;
 import org.dbsp.util.Linq;
 import org.dbsp.util.Logger;
 
-import java.io.FileNotFoundException;
-import java.io.PrintStream;
-import java.io.UnsupportedEncodingException;
+import javax.annotation.Nullable;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.stream.IntStream;
 
@@ -30,6 +31,8 @@ public class RustFileWriter {
     final List<IDBSPNode> toWrite;
     final PrintStream outputStream;
     boolean emitHandles = false;
+    @Nullable
+    RustModules modules = null;
 
     static class StructuresUsed {
         final Set<Integer> tupleSizesUsed = new HashSet<>();
@@ -65,6 +68,7 @@ public class RustFileWriter {
     LowerCircuitVisitor lower = new LowerCircuitVisitor();
     BetaReduction reducer = new BetaReduction();
     CircuitFunctionRewriter circuitReducer = reducer.circuitRewriter();
+    DeduplicateDeclarations deduplicate = new DeduplicateDeclarations();
 
     /**
      * If this is called with 'true' the emitted Rust code will use handles
@@ -74,6 +78,16 @@ public class RustFileWriter {
         this.emitHandles = emit;
     }
 
+    /**
+     * If this is called the operators that compute each view are written
+     * to a separate module.  The output stream of this writer must be the file
+     * 'lib.rs' in the directory of the modules.  The modules can then be
+     * compiled in parallel, and only the modules that change are recompiled.
+     */
+    public void emitModules(RustModules modules) {
+        this.modules = modules;
+    }
+
     @SuppressWarnings("SpellCheckingInspection")
     static final String rustPreamble =
             "// Automatically-generated file\n" +
@@ -229,7 +243,12 @@ public class RustFileWriter {
     }
 
     public static String generatePreamble(StructuresUsed used) {
-        IndentStream stream = new IndentStream(new StringBuilder());
+        StringBuilder builder = new StringBuilder();
+        generatePreamble(used, new IndentStream(builder));
+        return builder.toString();
+    }
+
+    static void generatePreamble(StructuresUsed used, IndentStream stream) {
         stream.append(rustPreamble)
                 .newline();
         stream.append("type ")
@@ -239,7 +258,6 @@ public class RustFileWriter {
                 .append(";")
                 .newline();
         generateStructures(used, stream);
-        return stream.toString();
     }
 
     public void add(DBSPCircuit circuit) {
@@ -266,25 +284,40 @@ public class RustFileWriter {
                 outer = this.lower.apply(outer);
                 outer = this.circuitReducer.apply(outer);
                 outer = simplifier.apply(outer);
+                outer = this.deduplicate.apply(outer);
                 outer.accept(this.findInCircuit);
                 lowered.add(outer);
             }
         }
-        // Emit code
-        this.outputStream.println(generatePreamble(used));
-        for (IDBSPNode node: lowered) {
-            String str;
-            IDBSPInnerNode inner = node.as(IDBSPInnerNode.class);
-            if (inner != null) {
-                str = ToRustInnerVisitor.toRustString(inner);
-            } else {
-                DBSPCircuit outer = node.to(DBSPCircuit.class);
-                if (this.emitHandles)
-                    str = ToRustHandleVisitor.toRustString(outer, outer.name);
-                else
-                    str = ToRustVisitor.toRustString(outer);
+        // Emit code.  The code is streamed to the output, so that we
+        // never need to keep the whole program in memory.
+        Writer writer = new BufferedWriter(new OutputStreamWriter(this.outputStream, StandardCharsets.UTF_8));
+        generatePreamble(used, new IndentStream(writer));
+        try {
+            writer.append("\n");
+            for (IDBSPNode node: lowered) {
+                IndentStream stream = new IndentStream(writer);
+                IDBSPInnerNode inner = node.as(IDBSPInnerNode.class);
+                if (inner != null) {
+                    ToRustInnerVisitor.toRust(inner, stream);
+                } else {
+                    DBSPCircuit outer = node.to(DBSPCircuit.class);
+                    if (this.emitHandles)
+                        ToRustHandleVisitor.toRust(outer, outer.name, stream, this.modules);
+                    else
+                        ToRustVisitor.toRust(outer, stream, this.modules);
+                }
+                writer.append("\n");
+            }
+            if (this.modules != null) {
+                for (String module: this.modules.modules)
+                    writer.append("mod ")
+                            .append(module)
+                            .append(";\n");
             }
-            this.outputStream.println(str);
+            writer.flush();
+        } catch (IOException ex) {
+            throw new RuntimeException(ex);
         }
     }
 
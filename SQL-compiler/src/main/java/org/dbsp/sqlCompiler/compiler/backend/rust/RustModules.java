@@ -0,0 +1,78 @@
+/*
+ * Copyright 2023 VMware, Inc.
+ * SPDX-License-Identifier: MIT
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package org.dbsp.sqlCompiler.compiler.backend.rust;
+
+import org.dbsp.util.Utilities;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A set of Rust modules, each written to a separate file in a directory.
+ */
+public class RustModules {
+    final String directory;
+    /**
+     * Names of the modules created, in creation order.
+     */
+    public final List<String> modules;
+
+    public RustModules(String directory) {
+        this.directory = directory;
+        this.modules = new ArrayList<>();
+    }
+
+    /**
+     * Create a new module.
+     * @param name  Module name; the module is written to the file 'name.rs'.
+     * @return      A writer for the module contents, which must be closed by the caller.
+     *              The file is only written on close, and only if its contents have changed.
+     */
+    public Writer createModule(String name) {
+        if (this.modules.contains(name))
+            throw new RuntimeException("Duplicate module " + name);
+        this.modules.add(name);
+        String path = this.getFile(name).toString();
+        return new StringWriter() {
+            @Override
+            public void close() throws IOException {
+                super.close();
+                Utilities.writeFileIfChanged(path, this.toString());
+            }
+        };
+    }
+
+    /**
+     * The file holding the specified module.
+     */
+    public Path getFile(String name) {
+        return Paths.get(this.directory, name + ".rs");
+    }
+}
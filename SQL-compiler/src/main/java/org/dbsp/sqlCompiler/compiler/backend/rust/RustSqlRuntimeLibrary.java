@@ -55,7 +55,6 @@ public class RustSqlRuntimeLibrary {
     private final Set<String> handWritten = new HashSet<>();
 
     public static final RustSqlRuntimeLibrary INSTANCE =new RustSqlRuntimeLibrary();
-    final LinkedHashMap<String, IDBSPDeclaration> declarations = new LinkedHashMap<>();
 
     protected RustSqlRuntimeLibrary() {
         this.aggregateFunctions.add("count");
@@ -241,8 +240,12 @@ public class RustSqlRuntimeLibrary {
         throw new Unimplemented("Could not find `" + op + "` for type " + ltype);
     }
 
-    void generateProgram() {
-        this.declarations.clear();
+    /**
+     * Generate the declarations of the SQL runtime.
+     * The result is not stored in the (shared) library object.
+     */
+    LinkedHashMap<String, IDBSPDeclaration> generateProgram() {
+        LinkedHashMap<String, IDBSPDeclaration> declarations = new LinkedHashMap<>();
         DBSPType[] numericTypes = new DBSPType[] {
                 DBSPTypeInteger.SIGNED_16,
                 DBSPTypeInteger.SIGNED_32,
@@ -337,11 +340,12 @@ public class RustSqlRuntimeLibrary {
                         }
                         DBSPFunction func = new DBSPFunction(function.function, Arrays.asList(left, right), type, def);
                         func.addAnnotation("#[inline(always)]");
-                        Utilities.putNew(this.declarations, func.name, func);
+                        Utilities.putNew(declarations, func.name, func);
                     }
                 }
             }
         }
+        return declarations;
     }
 
     /**
@@ -349,18 +353,18 @@ public class RustSqlRuntimeLibrary {
      * @param filename   File to write the code to.
      */
     public void writeSqlLibrary(String filename) throws IOException {
-        this.generateProgram();
-        File file = new File(filename);
-        FileWriter writer = new FileWriter(file, false);
-        writer.append("// Automatically-generated file\n");
-        writer.append("#![allow(unused_parens)]\n");
-        writer.append("#![allow(non_snake_case)]\n");
-        writer.append("use dbsp::algebra::{F32, F64};\n");
-        writer.append("\n");
-        for (IDBSPDeclaration declaration: this.declarations.values()) {
-            writer.append(ToRustInnerVisitor.toRustString(declaration));
-            writer.append("\n\n");
+        LinkedHashMap<String, IDBSPDeclaration> declarations = this.generateProgram();
+        StringBuilder builder = new StringBuilder();
+        builder.append("// Automatically-generated file\n");
+        builder.append("#![allow(unused_parens)]\n");
+        builder.append("#![allow(non_snake_case)]\n");
+        builder.append("use dbsp::algebra::{F32, F64};\n");
+        builder.append("\n");
+        for (IDBSPDeclaration declaration: declarations.values()) {
+            builder.append(ToRustInnerVisitor.toRustString(declaration));
+            builder.append("\n\n");
         }
-        writer.close();
+        // Do not touch the file if nothing changed, to avoid recompiling the library.
+        Utilities.writeFileIfChanged(filename, builder.toString());
     }
 }
@@ -24,7 +24,6 @@
 package org.dbsp.sqlCompiler.compiler.backend.rust;
 
 import org.dbsp.sqlCompiler.circuit.DBSPPartialCircuit;
-import org.dbsp.sqlCompiler.circuit.IDBSPNode;
 import org.dbsp.sqlCompiler.circuit.DBSPCircuit;
 import org.dbsp.sqlCompiler.circuit.IDBSPOuterNode;
 import org.dbsp.sqlCompiler.circuit.operator.DBSPOperator;
@@ -34,6 +33,8 @@ import org.dbsp.sqlCompiler.ir.type.DBSPTypeZSet;
 import org.dbsp.util.IndentStream;
 import org.dbsp.util.Utilities;
 
+import javax.annotation.Nullable;
+
 /**
  * Generate Rust for a circuit, but with an API using handles.
  * Output generated has this structure:
@@ -54,9 +55,14 @@ public class ToRustHandleVisitor extends ToRustVisitor {
     int inputHandleIndex = 0;
     int outputHandleIndex = 0;
 
-    public ToRustHandleVisitor(IndentStream builder, String functionName) {
-        super(builder);
+    public ToRustHandleVisitor(IndentStream builder, String functionName, @Nullable RustModules modules) {
+        super(builder, modules);
         this.functionName = functionName;
+        this.circuitName = functionName;
+    }
+
+    public ToRustHandleVisitor(IndentStream builder, String functionName) {
+        this(builder, functionName, null);
     }
 
     @Override
@@ -106,8 +112,7 @@ public class ToRustHandleVisitor extends ToRustVisitor {
                 .append("let (circuit, handles) = Runtime::init_circuit(workers, |circuit| {")
                 .increase();
 
-        for (IDBSPNode node : circuit.getCode())
-            super.processNode(node);
+        this.generateCode(circuit);
         this.builder.append("(");
         for (int i = 0; i < this.outputHandleIndex; i++)
             this.builder.append("handle")
@@ -146,11 +151,26 @@ public class ToRustHandleVisitor extends ToRustVisitor {
         return false;
     }
 
+    /**
+     * Emit the Rust code for the circuit to the specified stream.
+     */
+    public static void toRust(IDBSPOuterNode node, String functionName, IndentStream stream) {
+        toRust(node, functionName, stream, null);
+    }
+
+    /**
+     * Emit the Rust code for the circuit to the specified stream.
+     * @param modules  If not null, emit the code for each view in a separate module.
+     */
+    public static void toRust(IDBSPOuterNode node, String functionName, IndentStream stream,
+                              @Nullable RustModules modules) {
+        ToRustVisitor visitor = new ToRustHandleVisitor(stream, functionName, modules);
+        node.accept(visitor);
+    }
+
     public static String toRustString(IDBSPOuterNode node, String functionName) {
         StringBuilder builder = new StringBuilder();
-        IndentStream stream = new IndentStream(builder);
-        ToRustVisitor visitor = new ToRustHandleVisitor(stream, functionName);
-        node.accept(visitor);
+        toRust(node, functionName, new IndentStream(builder));
         return builder.toString();
     }
 }
@@ -1070,11 +1070,17 @@ public class ToRustInnerVisitor extends InnerVisitor {
         return false;
     }
 
-    public static String toRustString(IDBSPInnerNode node) {
-        StringBuilder builder = new StringBuilder();
-        IndentStream stream = new IndentStream(builder);
+    /**
+     * Emit the Rust code for the node to the specified stream.
+     */
+    public static void toRust(IDBSPInnerNode node, IndentStream stream) {
         ToRustInnerVisitor visitor = new ToRustInnerVisitor(stream);
         node.accept(visitor);
+    }
+
+    public static String toRustString(IDBSPInnerNode node) {
+        StringBuilder builder = new StringBuilder();
+        toRust(node, new IndentStream(builder));
         return builder.toString();
     }
 }
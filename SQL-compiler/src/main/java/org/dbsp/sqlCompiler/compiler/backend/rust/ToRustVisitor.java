@@ -27,10 +27,14 @@ import org.dbsp.sqlCompiler.circuit.*;
 import org.dbsp.sqlCompiler.circuit.operator.*;
 import org.dbsp.sqlCompiler.ir.CircuitVisitor;
 import org.dbsp.sqlCompiler.ir.InnerVisitor;
+import org.dbsp.sqlCompiler.ir.expression.DBSPVariablePath;
 import org.dbsp.sqlCompiler.ir.type.*;
 import org.dbsp.util.*;
 
 import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.*;
 
 /**
  * This visitor generate a Rust implementation of the program.
@@ -38,11 +42,26 @@ import javax.annotation.Nullable;
 public class ToRustVisitor extends CircuitVisitor {
     protected final IndentStream builder;
     public final InnerVisitor innerVisitor;
+    /**
+     * If not null the operators that compute each view are
+     * emitted as a function in a separate module.
+     */
+    @Nullable
+    protected final RustModules modules;
+    /**
+     * Name of the function generated for the circuit.
+     */
+    protected String circuitName = "circuit";
 
-    public ToRustVisitor(IndentStream builder) {
+    public ToRustVisitor(IndentStream builder, @Nullable RustModules modules) {
         super(true);
         this.builder = builder;
         this.innerVisitor = new ToRustInnerVisitor(builder);
+        this.modules = modules;
+    }
+
+    public ToRustVisitor(IndentStream builder) {
+        this(builder, null);
     }
 
     //////////////// Operators
@@ -90,11 +109,194 @@ public class ToRustVisitor extends CircuitVisitor {
         this.builder.newline();
     }
 
+    /**
+     * Collects the names of the variables used by some IR nodes.
+     */
+    static class FindVariables extends InnerVisitor {
+        final Set<String> variables = new HashSet<>();
+
+        FindVariables() {
+            super(true);
+        }
+
+        @Override
+        public void postorder(DBSPVariablePath node) {
+            this.variables.add(node.variable);
+        }
+    }
+
+    /**
+     * Emit the code that creates the circuit operators.
+     */
+    void generateCode(DBSPPartialCircuit circuit) {
+        if (this.modules == null) {
+            for (IDBSPNode node : circuit.getCode())
+                this.processNode(node);
+            return;
+        }
+
+        // Assign each operator to the first view that uses it.
+        // Sources and sinks stay in the circuit function.
+        Map<DBSPOperator, DBSPSinkOperator> viewOf = new HashMap<>();
+        Map<DBSPSinkOperator, List<DBSPOperator>> viewOperators = new HashMap<>();
+        List<DBSPOperator> operators = new ArrayList<>();
+        for (IDBSPNode node : circuit.getCode()) {
+            DBSPOperator op = node.as(DBSPOperator.class);
+            if (op != null)
+                operators.add(op);
+        }
+        for (DBSPSinkOperator sink : circuit.outputOperators) {
+            List<DBSPOperator> toVisit = new ArrayList<>(sink.inputs);
+            while (!toVisit.isEmpty()) {
+                DBSPOperator op = toVisit.remove(toVisit.size() - 1);
+                if (op.is(DBSPSourceOperator.class) || op.is(DBSPSinkOperator.class) || viewOf.containsKey(op))
+                    continue;
+                viewOf.put(op, sink);
+                toVisit.addAll(op.inputs);
+            }
+        }
+        for (DBSPOperator op : operators) {
+            DBSPSinkOperator sink = viewOf.get(op);
+            if (sink != null)
+                viewOperators.computeIfAbsent(sink, k -> new ArrayList<>()).add(op);
+        }
+
+        for (DBSPOperator op : operators) {
+            if (op.is(DBSPSinkOperator.class)) {
+                DBSPSinkOperator sink = op.to(DBSPSinkOperator.class);
+                List<DBSPOperator> ops = viewOperators.get(sink);
+                if (ops != null)
+                    this.generateModule(circuit, sink, ops, operators, viewOf);
+                this.processNode(op);
+            } else if (op.is(DBSPSourceOperator.class)) {
+                this.processNode(op);
+            }
+        }
+    }
+
+    void generateStreamType(IndentStream stream, InnerVisitor visitor, DBSPOperator operator) {
+        stream.append("Stream<dbsp::RootCircuit, ");
+        operator.outputType.accept(visitor);
+        stream.append(">");
+    }
+
+    /**
+     * Emit the operators that compute a view as a function in a separate module,
+     * and a call to this function in the circuit.
+     * @param circuit    Circuit being compiled.
+     * @param sink       Sink operator for the view.
+     * @param ops        Operators emitted in the module, in program order.
+     * @param operators  All operators of the circuit.
+     * @param viewOf     For each operator which is not a source or a sink the
+     *                   view that it has been assigned to.
+     */
+    void generateModule(DBSPPartialCircuit circuit, DBSPSinkOperator sink, List<DBSPOperator> ops,
+                        List<DBSPOperator> operators, Map<DBSPOperator, DBSPSinkOperator> viewOf) {
+        Objects.requireNonNull(this.modules);
+        // Streams computed elsewhere and used by this view.
+        List<DBSPOperator> inputs = new ArrayList<>();
+        // Streams computed by this view and used elsewhere.
+        List<DBSPOperator> outputs = new ArrayList<>();
+        FindVariables finder = new FindVariables();
+        for (DBSPOperator op : ops) {
+            for (DBSPOperator input : op.inputs)
+                if (viewOf.get(input) != sink && !inputs.contains(input))
+                    inputs.add(input);
+            if (op.function != null)
+                op.function.accept(finder);
+            if (op.is(DBSPWindowAggregateOperator.class))
+                op.to(DBSPWindowAggregateOperator.class).window.accept(finder);
+        }
+        for (DBSPOperator op : operators) {
+            if (viewOf.get(op) == sink)
+                continue;
+            for (DBSPOperator input : op.inputs)
+                if (viewOf.get(input) == sink && !outputs.contains(input))
+                    outputs.add(input);
+        }
+        // The declarations used by this view, and the ones used by them.
+        List<IDBSPNode> declarations = new ArrayList<>();
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (IDBSPNode node : circuit.getCode()) {
+                IDBSPDeclaration decl = node.as(IDBSPDeclaration.class);
+                if (decl != null && !declarations.contains(node) && finder.variables.contains(decl.getName())) {
+                    declarations.add(node);
+                    decl.accept(finder);
+                    changed = true;
+                }
+            }
+        }
+
+        // Only constant operators add nodes to the circuit.
+        boolean usesCircuit = Linq.any(ops, op -> op.is(DBSPConstantOperator.class));
+        String name = this.circuitName + "_" + sink.getName();
+        try (Writer writer = this.modules.createModule(name)) {
+            IndentStream stream = new IndentStream(writer);
+            ToRustVisitor visitor = new ToRustVisitor(stream);
+            stream.append("// Operators computing view ")
+                    .append(sink.getName())
+                    .newline()
+                    .append("use super::*;")
+                    .newline()
+                    .newline()
+                    .append("pub fn view(");
+            boolean first = true;
+            if (usesCircuit) {
+                stream.append("circuit: &dbsp::RootCircuit");
+                first = false;
+            }
+            for (DBSPOperator input : inputs) {
+                if (!first)
+                    stream.append(", ");
+                first = false;
+                stream.append(input.getName())
+                        .append(": ");
+                this.generateStreamType(stream, visitor.innerVisitor, input);
+            }
+            stream.append(") -> (");
+            for (DBSPOperator output : outputs) {
+                this.generateStreamType(stream, visitor.innerVisitor, output);
+                stream.append(", ");
+            }
+            stream.append(") {")
+                    .increase();
+            for (IDBSPNode node : circuit.getCode())
+                if (declarations.contains(node))
+                    visitor.processNode(node);
+            for (DBSPOperator op : ops)
+                visitor.processNode(op);
+            stream.append("(")
+                    .intercalateS(", ", Linq.map(outputs, DBSPOperator::getName))
+                    .append(")")
+                    .newline()
+                    .decrease()
+                    .append("}")
+                    .newline();
+        } catch (IOException ex) {
+            throw new RuntimeException(ex);
+        }
+
+        this.builder.append("let (")
+                .intercalateS(", ", Linq.map(outputs, DBSPOperator::getName))
+                .append(") = ")
+                .append(name)
+                .append("::view(");
+        List<String> arguments = new ArrayList<>();
+        if (usesCircuit)
+            arguments.add("circuit");
+        for (DBSPOperator input : inputs)
+            arguments.add(input.getName() + ".clone()");
+        this.builder.joinS(", ", arguments)
+                .append(");")
+                .newline();
+    }
+
     public void generateBody(DBSPPartialCircuit circuit) {
         this.builder.append("let root = dbsp::RootCircuit::build(|circuit| {")
                 .increase();
-        for (IDBSPNode node : circuit.getCode())
-            this.processNode(node);
+        this.generateCode(circuit);
         this.builder.decrease()
                 .append("})")
                 .append(".unwrap();")
@@ -103,6 +305,7 @@ public class ToRustVisitor extends CircuitVisitor {
 
     @Override
     public boolean preorder(DBSPCircuit circuit) {
+        this.circuitName = circuit.name;
         this.builder.append("fn ")
                 .append(circuit.name);
         circuit.circuit.accept(this);
@@ -350,13 +553,30 @@ public class ToRustVisitor extends CircuitVisitor {
         return false;
     }
 
+    /**
+     * Emit the Rust code for the circuit to the specified stream.
+     */
+    public static void toRust(IDBSPOuterNode node, IndentStream stream) {
+        toRust(node, stream, null);
+    }
+
+    /**
+     * Emit the Rust code for the circuit to the specified stream.
+     * @param modules  If not null, emit the code for each view in a separate module.
+     */
+    public static void toRust(IDBSPOuterNode node, IndentStream stream, @Nullable RustModules modules) {
+        DBSPCircuit circuit = node.to(DBSPCircuit.class);
+        try (IdScope.Entered ignored = circuit.circuit.compiler.idScope.enter()) {
+            LowerCircuitVisitor lower = new LowerCircuitVisitor();
+            circuit = lower.apply(circuit);
+            ToRustVisitor visitor = new ToRustVisitor(stream, modules);
+            circuit.accept(visitor);
+        }
+    }
+
     public static String toRustString(IDBSPOuterNode node) {
         StringBuilder builder = new StringBuilder();
-        IndentStream stream = new IndentStream(builder);
-        LowerCircuitVisitor lower = new LowerCircuitVisitor();
-        node = lower.apply(node.to(DBSPCircuit.class));
-        ToRustVisitor visitor = new ToRustVisitor(stream);
-        node.accept(visitor);
+        toRust(node, new IndentStream(builder));
         return builder.toString();
     }
 }
@@ -30,6 +30,7 @@ import org.dbsp.sqlCompiler.circuit.IDBSPNode;
 import org.dbsp.sqlCompiler.circuit.operator.*;
 import org.dbsp.sqlCompiler.ir.CircuitVisitor;
 import org.dbsp.util.IModule;
+import org.dbsp.util.IdScope;
 import org.dbsp.util.Linq;
 import org.dbsp.util.Logger;
 import org.dbsp.util.Utilities;
@@ -68,13 +69,15 @@ public class CircuitCloneVisitor extends CircuitVisitor
     }
 
     protected void map(DBSPOperator old, DBSPOperator newOp, boolean add) {
-        Logger.INSTANCE.from(this, 1)
-                .append(this.toString())
-                .append(":")
-                .append(old.toString())
-                .append(" -> ")
-                .append(newOp.toString())
-                .newline();
+        if (Logger.INSTANCE.isEnabled(this, 1)) {
+            Logger.INSTANCE.from(this, 1)
+                    .append(this.toString())
+                    .append(":")
+                    .append(old.toString())
+                    .append(" -> ")
+                    .append(newOp.toString())
+                    .newline();
+        }
         Utilities.putNew(this.remap, old, newOp);
         if (add)
             this.addOperator(newOp);
@@ -85,11 +88,13 @@ public class CircuitCloneVisitor extends CircuitVisitor
     }
 
     protected void addOperator(DBSPOperator operator) {
-        Logger.INSTANCE.from(this, 1)
-                .append(this.toString())
-                .append(" adding ")
-                .append(operator.toString())
-                .newline();
+        if (Logger.INSTANCE.isEnabled(this, 1)) {
+            Logger.INSTANCE.from(this, 1)
+                    .append(this.toString())
+                    .append(" adding ")
+                    .append(operator.toString())
+                    .newline();
+        }
         this.getResult().addOperator(operator);
     }
 
@@ -113,18 +118,20 @@ public class CircuitCloneVisitor extends CircuitVisitor
             return;
         this.visited.add(operator);
         List<DBSPOperator> sources = Linq.map(operator.inputs, this::mapped);
-        Logger.INSTANCE.from(this, 1)
-                .append(this.toString())
-                .append(" replacing inputs of ")
-                .increase()
-                .append(operator.toString())
-                .append(":")
-                .join(", ", Linq.map(operator.inputs, DBSPOperator::toString))
-                .newline()
-                .append("with:")
-                .join(", ", Linq.map(sources, DBSPOperator::toString))
-                .newline()
-                .decrease();
+        if (Logger.INSTANCE.isEnabled(this, 1)) {
+            Logger.INSTANCE.from(this, 1)
+                    .append(this.toString())
+                    .append(" replacing inputs of ")
+                    .increase()
+                    .append(operator.toString())
+                    .append(":")
+                    .join(", ", Linq.map(operator.inputs, DBSPOperator::toString))
+                    .newline()
+                    .append("with:")
+                    .join(", ", Linq.map(sources, DBSPOperator::toString))
+                    .newline()
+                    .decrease();
+        }
         DBSPOperator result = operator.withInputs(sources, this.force);
         this.map(operator, result);
     }
@@ -237,13 +244,15 @@ public class CircuitCloneVisitor extends CircuitVisitor
 
     @Override
     public DBSPCircuit apply(DBSPCircuit circuit) {
-        this.startVisit(circuit);
-        this.result = new DBSPPartialCircuit(circuit.circuit.compiler);
-        circuit.accept(this);
-        this.endVisit();
-        DBSPPartialCircuit result = this.getResult();
-        if (circuit.circuit.sameCircuit(result))
-            return circuit;
-        return result.seal(circuit.name);
+        try (IdScope.Entered ignored = circuit.circuit.compiler.idScope.enter()) {
+            this.startVisit(circuit);
+            this.result = new DBSPPartialCircuit(circuit.circuit.compiler);
+            circuit.accept(this);
+            this.endVisit();
+            DBSPPartialCircuit result = this.getResult();
+            if (circuit.circuit.sameCircuit(result))
+                return circuit;
+            return result.seal(circuit.name);
+        }
     }
 }
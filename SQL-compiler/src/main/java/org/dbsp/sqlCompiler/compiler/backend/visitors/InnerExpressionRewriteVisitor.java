@@ -55,13 +55,15 @@ public abstract class InnerExpressionRewriteVisitor
      */
     protected void map(IDBSPInnerNode old, IDBSPInnerNode newOp) {
         if (old != newOp)
-            Logger.INSTANCE.from(this, 1)
-                    .append(this.toString())
-                    .append(":")
-                    .append(old.toString())
-                    .append(" -> ")
-                    .append(newOp.toString())
-                    .newline();
+            if (Logger.INSTANCE.isEnabled(this, 1)) {
+                Logger.INSTANCE.from(this, 1)
+                        .append(this.toString())
+                        .append(":")
+                        .append(old.toString())
+                        .append(" -> ")
+                        .append(newOp.toString())
+                        .newline();
+            }
         this.lastResult = newOp;
     }
 
@@ -149,10 +149,12 @@ public class CalciteToDBSPCompiler extends RelVisitor
     <T> boolean visitIfMatches(RelNode node, Class<T> clazz, Consumer<T> method) {
         T value = ICastable.as(node, clazz);
         if (value != null) {
-            Logger.INSTANCE.from(this, 4)
-                    .append("Processing ")
-                    .append(node.toString())
-                    .newline();
+            if (Logger.INSTANCE.isEnabled(this, 4)) {
+                Logger.INSTANCE.from(this, 4)
+                        .append("Processing ")
+                        .append(node.toString())
+                        .newline();
+            }
             method.accept(value);
             return true;
         }
@@ -1051,10 +1053,12 @@ public class CalciteToDBSPCompiler extends RelVisitor
     public void visit(
             RelNode node, int ordinal,
             @Nullable RelNode parent) {
-        Logger.INSTANCE.from(this, 3)
-                .append("Visiting ")
-                .append(node.toString())
-                .newline();
+        if (Logger.INSTANCE.isEnabled(this, 3)) {
+            Logger.INSTANCE.from(this, 3)
+                    .append("Visiting ")
+                    .append(node.toString())
+                    .newline();
+        }
         if (this.nodeOperator.containsKey(node))
             // We have already done this one.  This can happen because the
             // plan can be a DAG, not just a tree.
@@ -1089,9 +1093,11 @@ public class CalciteToDBSPCompiler extends RelVisitor
         if (statement.is(CreateViewStatement.class)) {
             CreateViewStatement view = statement.to(CreateViewStatement.class);
             RelNode rel = view.getRelNode();
-            Logger.INSTANCE.from(this, 2)
-                    .append(CalciteCompiler.getPlan(rel))
-                    .newline();
+            if (Logger.INSTANCE.isEnabled(this, 2)) {
+                Logger.INSTANCE.from(this, 2)
+                        .append(CalciteCompiler.getPlan(rel))
+                        .newline();
+            }
             this.go(rel);
             // TODO: connect the result of the query compilation with
             // the fields of rel; for now we assume that these are 1/1
@@ -1136,6 +1142,16 @@ public class CalciteToDBSPCompiler extends RelVisitor
             CreateTableStatement def = this.tableContents.getTableDefinition(modify.tableName);
             this.modifyTableTranslation = new ModifyTableTranslation(
                     modify, def, insert.getTargetColumnList(), this.compiler);
+            if (modify.rel == null) {
+                // Only literals: try to append them directly to the table
+                ColumnarTable rows = this.modifyTableTranslation.translateLiteralValues(modify.data);
+                if (rows != null) {
+                    this.tableContents.addToTable(modify.tableName, rows);
+                    this.modifyTableTranslation = null;
+                    return null;
+                }
+                this.calciteCompiler.translateInsert(modify);
+            }
             if (modify.rel instanceof LogicalTableScan) {
                 // Support for INSERT INTO table (SELECT * FROM otherTable)
                 LogicalTableScan scan = (LogicalTableScan) modify.rel;
@@ -0,0 +1,682 @@
+/*
+ * Copyright 2023 VMware, Inc.
+ * SPDX-License-Identifier: MIT
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package org.dbsp.sqlCompiler.compiler.frontend;
+
+import org.dbsp.sqlCompiler.ir.expression.DBSPExpression;
+import org.dbsp.sqlCompiler.ir.expression.DBSPTupleExpression;
+import org.dbsp.sqlCompiler.ir.expression.literal.*;
+import org.dbsp.sqlCompiler.ir.type.DBSPType;
+import org.dbsp.sqlCompiler.ir.type.DBSPTypeTuple;
+import org.dbsp.sqlCompiler.ir.type.DBSPTypeZSet;
+import org.dbsp.sqlCompiler.ir.type.primitive.DBSPTypeBool;
+import org.dbsp.sqlCompiler.ir.type.primitive.DBSPTypeDouble;
+import org.dbsp.sqlCompiler.ir.type.primitive.DBSPTypeFloat;
+import org.dbsp.sqlCompiler.ir.type.primitive.DBSPTypeInteger;
+import org.dbsp.sqlCompiler.ir.type.primitive.DBSPTypeString;
+
+import javax.annotation.Nullable;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Compact in-memory representation of the contents of a table.
+ * Tables populated by large INSERT scripts can have millions of rows;
+ * representing each row as a DBSPTupleExpression of literals costs
+ * hundreds of bytes per row.  Here each column is stored in an array of
+ * primitive values, with a bitmap of the null values, and a separate array
+ * holds the weight of each row.
+ * Columns whose type has no primitive representation store the literals.
+ * Rows are only appended; equal rows are merged by 'consolidate'.
+ * Rows are converted to IR literals one at a time, or all at once by
+ * 'toZSetLiteral', which should only be used for small tables.
+ */
+public class ColumnarTable {
+    public final DBSPTypeZSet zsetType;
+    public final DBSPTypeTuple rowType;
+    final Column[] columns;
+    long[] weights;
+    int rowCount;
+    /**
+     * True if the table may contain equal rows or rows with negative weights.
+     */
+    boolean mayNeedConsolidation;
+
+    static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * A column of the table.  Row 'rowCount' of each column is the row being built.
+     * Values that are not literals of the expected kind, e.g., casts,
+     * are kept as IR expressions in a separate sparse map.
+     * IR expressions other than literals only have identity equality,
+     * so these values are hashed and compared using their Rust representation.
+     */
+    abstract static class Column {
+        final DBSPType type;
+        final BitSet nulls;
+        @Nullable
+        Map<Integer, DBSPExpression> expressions;
+
+        Column(DBSPType type) {
+            this.type = type;
+            this.nulls = new BitSet();
+            this.expressions = null;
+        }
+
+        /**
+         * Make room for the specified number of rows.
+         */
+        abstract void grow(int capacity);
+
+        /**
+         * True if the value of this non-null literal can be stored in the column.
+         */
+        abstract boolean accepts(DBSPLiteral literal);
+
+        /**
+         * Store the value of a non-null literal accepted by the column in the specified row.
+         */
+        abstract void setValue(int row, DBSPLiteral literal);
+
+        /**
+         * Literal representing the non-null value in the specified row.
+         */
+        abstract DBSPExpression getValue(int row);
+
+        /**
+         * Hash code of the non-null value in the specified row.
+         */
+        abstract int hashValue(int row);
+
+        /**
+         * True if the non-null values in the two rows are equal.
+         */
+        abstract boolean sameValue(int left, int right);
+
+        /**
+         * Copy the value from row 'from' to row 'to'.
+         */
+        abstract void moveValue(int from, int to);
+
+        /**
+         * Discard all values from the specified row on.
+         */
+        abstract void truncateValues(int rows);
+
+        @Nullable
+        DBSPExpression getExpression(int row) {
+            if (this.expressions == null)
+                return null;
+            return this.expressions.get(row);
+        }
+
+        void clearExpression(int row) {
+            if (this.expressions != null)
+                this.expressions.remove(row);
+        }
+
+        void setNull(int row, boolean isNull) {
+            if (isNull && !this.type.mayBeNull)
+                throw new RuntimeException("Null value in non-nullable column of type " + this.type);
+            this.nulls.set(row, isNull);
+            this.clearExpression(row);
+        }
+
+        void set(int row, DBSPExpression value) {
+            DBSPLiteral literal = value.as(DBSPLiteral.class);
+            if (literal != null && literal.isNull) {
+                this.setNull(row, true);
+            } else if (literal != null && this.accepts(literal)) {
+                this.setNull(row, false);
+                this.setValue(row, literal);
+            } else {
+                this.setNull(row, false);
+                if (this.expressions == null)
+                    this.expressions = new HashMap<>();
+                this.expressions.put(row, value);
+            }
+        }
+
+        DBSPExpression get(int row) {
+            DBSPExpression expression = this.getExpression(row);
+            if (expression != null)
+                return expression;
+            if (this.nulls.get(row))
+                return DBSPLiteral.none(this.type);
+            return this.getValue(row);
+        }
+
+        int hash(int row) {
+            DBSPExpression expression = this.getExpression(row);
+            if (expression != null)
+                return expression.toString().hashCode();
+            if (this.nulls.get(row))
+                return 0;
+            return this.hashValue(row);
+        }
+
+        boolean same(int left, int right) {
+            if (this.expressions != null &&
+                    (this.expressions.containsKey(left) || this.expressions.containsKey(right)))
+                return this.get(left).toString().equals(this.get(right).toString());
+            boolean leftNull = this.nulls.get(left);
+            if (leftNull != this.nulls.get(right))
+                return false;
+            return leftNull || this.sameValue(left, right);
+        }
+
+        void move(int from, int to) {
+            this.nulls.set(to, this.nulls.get(from));
+            this.moveValue(from, to);
+            if (this.expressions != null) {
+                DBSPExpression expression = this.expressions.remove(from);
+                if (expression != null)
+                    this.expressions.put(to, expression);
+                else
+                    this.expressions.remove(to);
+            }
+        }
+
+        void truncate(int rows) {
+            this.nulls.clear(rows, Math.max(rows, this.nulls.length()));
+            this.truncateValues(rows);
+            if (this.expressions != null)
+                this.expressions.keySet().removeIf(row -> row >= rows);
+        }
+    }
+
+    /**
+     * Used for integer columns.
+     */
+    static class LongColumn extends Column {
+        long[] data;
+        final int width;
+
+        LongColumn(DBSPTypeInteger type) {
+            super(type);
+            this.width = type.getWidth();
+            this.data = new long[INITIAL_CAPACITY];
+        }
+
+        @Override
+        void grow(int capacity) {
+            this.data = Arrays.copyOf(this.data, capacity);
+        }
+
+        @Override
+        boolean accepts(DBSPLiteral literal) {
+            if (this.width == 64)
+                return literal.is(DBSPI64Literal.class);
+            return literal.is(DBSPI32Literal.class);
+        }
+
+        @Override
+        void setValue(int row, DBSPLiteral literal) {
+            if (this.width == 64)
+                this.data[row] = Objects.requireNonNull(literal.to(DBSPI64Literal.class).value);
+            else
+                this.data[row] = Objects.requireNonNull(literal.to(DBSPI32Literal.class).value);
+        }
+
+        @Override
+        DBSPExpression getValue(int row) {
+            if (this.width == 64)
+                return new DBSPI64Literal(this.data[row], this.type.mayBeNull);
+            return new DBSPI32Literal((int)this.data[row], this.type.mayBeNull);
+        }
+
+        @Override
+        int hashValue(int row) {
+            return Long.hashCode(this.data[row]);
+        }
+
+        @Override
+        boolean sameValue(int left, int right) {
+            return this.data[left] == this.data[right];
+        }
+
+        @Override
+        void moveValue(int from, int to) {
+            this.data[to] = this.data[from];
+        }
+
+        @Override
+        void truncateValues(int rows) {
+            Arrays.fill(this.data, rows, this.data.length, 0);
+        }
+    }
+
+    /**
+     * Used for FLOAT and DOUBLE columns.
+     */
+    static class DoubleColumn extends Column {
+        double[] data;
+        final boolean isFloat;
+
+        DoubleColumn(DBSPType type) {
+            super(type);
+            this.isFloat = type.is(DBSPTypeFloat.class);
+            this.data = new double[INITIAL_CAPACITY];
+        }
+
+        @Override
+        void grow(int capacity) {
+            this.data = Arrays.copyOf(this.data, capacity);
+        }
+
+        @Override
+        boolean accepts(DBSPLiteral literal) {
+            if (this.isFloat)
+                return literal.is(DBSPFloatLiteral.class);
+            return literal.is(DBSPDoubleLiteral.class);
+        }
+
+        @Override
+        void setValue(int row, DBSPLiteral literal) {
+            if (this.isFloat)
+                this.data[row] = Objects.requireNonNull(literal.to(DBSPFloatLiteral.class).value);
+            else
+                this.data[row] = Objects.requireNonNull(literal.to(DBSPDoubleLiteral.class).value);
+        }
+
+        @Override
+        DBSPExpression getValue(int row) {
+            if (this.isFloat)
+                return new DBSPFloatLiteral((float)this.data[row], this.type.mayBeNull);
+            return new DBSPDoubleLiteral(this.data[row], this.type.mayBeNull);
+        }
+
+        @Override
+        int hashValue(int row) {
+            return Double.hashCode(this.data[row]);
+        }
+
+        @Override
+        boolean sameValue(int left, int right) {
+            // Same semantics as Double.equals, used by the literals.
+            return Double.doubleToLongBits(this.data[left]) == Double.doubleToLongBits(this.data[right]);
+        }
+
+        @Override
+        void moveValue(int from, int to) {
+            this.data[to] = this.data[from];
+        }
+
+        @Override
+        void truncateValues(int rows) {
+            Arrays.fill(this.data, rows, this.data.length, 0);
+        }
+    }
+
+    /**
+     * Used for BOOLEAN columns.
+     */
+    static class BoolColumn extends Column {
+        final BitSet data;
+
+        BoolColumn(DBSPType type) {
+            super(type);
+            this.data = new BitSet();
+        }
+
+        @Override
+        void grow(int capacity) {}
+
+        @Override
+        boolean accepts(DBSPLiteral literal) {
+            return literal.is(DBSPBoolLiteral.class);
+        }
+
+        @Override
+        void setValue(int row, DBSPLiteral literal) {
+            this.data.set(row, Objects.requireNonNull(literal.to(DBSPBoolLiteral.class).value));
+        }
+
+        @Override
+        DBSPExpression getValue(int row) {
+            return new DBSPBoolLiteral(this.data.get(row), this.type.mayBeNull);
+        }
+
+        @Override
+        int hashValue(int row) {
+            return Boolean.hashCode(this.data.get(row));
+        }
+
+        @Override
+        boolean sameValue(int left, int right) {
+            return this.data.get(left) == this.data.get(right);
+        }
+
+        @Override
+        void moveValue(int from, int to) {
+            this.data.set(to, this.data.get(from));
+        }
+
+        @Override
+        void truncateValues(int rows) {
+            this.data.clear(rows, Math.max(rows, this.data.length()));
+        }
+    }
+
+    /**
+     * Used for columns whose values are objects: strings, or
+     * literals of types which have no primitive representation.
+     */
+    static class ObjectColumn extends Column {
+        Object[] data;
+        final boolean isString;
+
+        ObjectColumn(DBSPType type) {
+            super(type);
+            this.isString = type.is(DBSPTypeString.class);
+            this.data = new Object[INITIAL_CAPACITY];
+        }
+
+        @Override
+        void grow(int capacity) {
+            this.data = Arrays.copyOf(this.data, capacity);
+        }
+
+        @Override
+        boolean accepts(DBSPLiteral literal) {
+            return !this.isString || literal.is(DBSPStringLiteral.class);
+        }
+
+        @Override
+        void setValue(int row, DBSPLiteral literal) {
+            if (this.isString)
+                this.data[row] = Objects.requireNonNull(literal.to(DBSPStringLiteral.class).value);
+            else
+                this.data[row] = literal;
+        }
+
+        @Override
+        DBSPExpression getValue(int row) {
+            if (this.isString)
+                return new DBSPStringLiteral((String)this.data[row], this.type.mayBeNull);
+            return (DBSPLiteral)this.data[row];
+        }
+
+        @Override
+        int hashValue(int row) {
+            return this.data[row].hashCode();
+        }
+
+        @Override
+        boolean sameValue(int left, int right) {
+            return this.data[left].equals(this.data[right]);
+        }
+
+        @Override
+        void moveValue(int from, int to) {
+            this.data[to] = this.data[from];
+        }
+
+        @Override
+        void truncateValues(int rows) {
+            Arrays.fill(this.data, rows, this.data.length, null);
+        }
+    }
+
+    static Column createColumn(DBSPType type) {
+        DBSPTypeInteger intType = type.as(DBSPTypeInteger.class);
+        if (intType != null && intType.signed &&
+                (intType.getWidth() == 32 || intType.getWidth() == 64))
+            return new LongColumn(intType);
+        if (type.is(DBSPTypeDouble.class) || type.is(DBSPTypeFloat.class))
+            return new DoubleColumn(type);
+        if (type.is(DBSPTypeBool.class))
+            return new BoolColumn(type);
+        return new ObjectColumn(type);
+    }
+
+    public ColumnarTable(DBSPTypeZSet zsetType) {
+        this.zsetType = zsetType;
+        this.rowType = zsetType.elementType.to(DBSPTypeTuple.class);
+        this.columns = new Column[this.rowType.size()];
+        for (int i = 0; i < this.columns.length; i++)
+            this.columns[i] = createColumn(this.rowType.getFieldType(i));
+        this.weights = new long[INITIAL_CAPACITY];
+        this.rowCount = 0;
+        this.mayNeedConsolidation = false;
+    }
+
+    public ColumnarTable(DBSPZSetLiteral data) {
+        this(data.zsetType);
+        this.add(data);
+    }
+
+    /**
+     * Number of rows stored.  Before consolidation this may include
+     * multiple copies of the same row.
+     */
+    public int size() {
+        return this.rowCount;
+    }
+
+    public DBSPType getElementType() {
+        return this.zsetType.elementType;
+    }
+
+    void ensureCapacity() {
+        if (this.rowCount < this.weights.length)
+            return;
+        int capacity = this.weights.length * 2;
+        this.weights = Arrays.copyOf(this.weights, capacity);
+        for (Column column: this.columns)
+            column.grow(capacity);
+    }
+
+    /**
+     * Set the value of a column in the row being built.
+     * @param column  Column index.
+     * @param value   Value; an expression with the column type, usually a literal.
+     */
+    public void set(int column, DBSPExpression value) {
+        this.ensureCapacity();
+        this.columns[column].set(this.rowCount, value);
+    }
+
+    /**
+     * Set a NULL value in a column of the row being built.
+     */
+    public void setNull(int column) {
+        this.ensureCapacity();
+        this.columns[column].setNull(this.rowCount, true);
+    }
+
+    /**
+     * Set the value of an integer column of the row being built.
+     */
+    public void setLong(int column, long value) {
+        this.ensureCapacity();
+        LongColumn col = (LongColumn)this.columns[column];
+        col.setNull(this.rowCount, false);
+        col.data[this.rowCount] = value;
+    }
+
+    /**
+     * Set the value of a FLOAT or DOUBLE column of the row being built.
+     */
+    public void setDouble(int column, double value) {
+        this.ensureCapacity();
+        DoubleColumn col = (DoubleColumn)this.columns[column];
+        col.setNull(this.rowCount, false);
+        col.data[this.rowCount] = value;
+    }
+
+    /**
+     * Set the value of a string column of the row being built.
+     */
+    public void setString(int column, String value) {
+        this.ensureCapacity();
+        ObjectColumn col = (ObjectColumn)this.columns[column];
+        if (!col.isString)
+            throw new RuntimeException("Column " + column + " does not have a string type");
+        col.setNull(this.rowCount, false);
+        col.data[this.rowCount] = value;
+    }
+
+    /**
+     * Finish building the current row, after all its columns have been set.
+     */
+    public void endRow(long weight) {
+        this.ensureCapacity();
+        this.weights[this.rowCount] = weight;
+        this.rowCount++;
+        // Equal rows with positive weights are consolidated by the consumers.
+        if (weight < 0)
+            this.mayNeedConsolidation = true;
+    }
+
+    public void add(DBSPExpression row, long weight) {
+        DBSPTupleExpression tuple = row.to(DBSPTupleExpression.class);
+        if (!tuple.getNonVoidType().sameType(this.rowType))
+            throw new RuntimeException("Added row type " +
+                    tuple.getType() + " does not match table type " + this.rowType);
+        for (int i = 0; i < tuple.size(); i++)
+            this.set(i, tuple.get(i));
+        this.endRow(weight);
+    }
+
+    public void add(DBSPZSetLiteral data) {
+        if (!this.zsetType.sameType(data.zsetType))
+            throw new RuntimeException("Added zset type " + data.zsetType +
+                    " does not match table type " + this.zsetType);
+        for (Map.Entry<DBSPExpression, Long> entry: data.data.entrySet())
+            this.add(entry.getKey(), entry.getValue());
+    }
+
+    public void add(ColumnarTable other) {
+        for (int i = 0; i < other.rowCount; i++)
+            this.add(other.getRow(i), other.getWeight(i));
+    }
+
+    /**
+     * The row with the specified index, as an IR tuple of literals.
+     */
+    public DBSPTupleExpression getRow(int row) {
+        DBSPExpression[] fields = new DBSPExpression[this.columns.length];
+        for (int i = 0; i < this.columns.length; i++)
+            fields[i] = this.columns[i].get(row);
+        return new DBSPTupleExpression(fields);
+    }
+
+    public long getWeight(int row) {
+        return this.weights[row];
+    }
+
+    /**
+     * Identifies a row of this table in a hash map.
+     */
+    class RowKey {
+        final int row;
+        final int hash;
+
+        RowKey(int row) {
+            this.row = row;
+            int hash = 0;
+            for (Column column: ColumnarTable.this.columns)
+                hash = 31 * hash + column.hash(row);
+            this.hash = hash;
+        }
+
+        @Override
+        public int hashCode() {
+            return this.hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            RowKey that = (RowKey) o;
+            if (this.hash != that.hash)
+                return false;
+            for (Column column: ColumnarTable.this.columns)
+                if (!column.same(this.row, that.row))
+                    return false;
+            return true;
+        }
+    }
+
+    /**
+     * Merge equal rows, adding their weights, and remove the rows with zero weight.
+     * The remaining rows keep the order of their first occurrence.
+     */
+    public void consolidate() {
+        Map<RowKey, Integer> firstOccurrence = new HashMap<>();
+        for (int i = 0; i < this.rowCount; i++) {
+            Integer first = firstOccurrence.putIfAbsent(new RowKey(i), i);
+            if (first != null) {
+                this.weights[first] += this.weights[i];
+                this.weights[i] = 0;
+            }
+        }
+        int kept = 0;
+        for (int i = 0; i < this.rowCount; i++) {
+            if (this.weights[i] == 0)
+                continue;
+            if (kept != i) {
+                this.weights[kept] = this.weights[i];
+                for (Column column: this.columns)
+                    column.move(i, kept);
+            }
+            kept++;
+        }
+        for (Column column: this.columns)
+            column.truncate(kept);
+        this.rowCount = kept;
+        this.mayNeedConsolidation = false;
+    }
+
+    /**
+     * Consolidate the table if it may contain rows with negative weights.
+     * After this call all the weights are positive, but the same row may
+     * still appear multiple times.
+     */
+    public void consolidateIfNeeded() {
+        if (this.mayNeedConsolidation)
+            this.consolidate();
+    }
+
+    /**
+     * Convert the contents of the table to a ZSet literal.
+     * This allocates IR nodes for all rows, so it should only be used for small tables.
+     */
+    public DBSPZSetLiteral toZSetLiteral() {
+        DBSPZSetLiteral result = DBSPZSetLiteral.emptyWithType(this.zsetType);
+        for (int i = 0; i < this.rowCount; i++)
+            result.add(this.getRow(i), this.weights[i]);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return this.zsetType + " with " + this.rowCount + " rows";
+    }
+}
@@ -287,10 +287,12 @@ public class ExpressionCompiler extends RexVisitorImpl<DBSPExpression> implement
 
     @Override
     public DBSPExpression visitCall(RexCall call) {
-        Logger.INSTANCE.from(this, 2)
-                .append(call.toString())
-                .append(" ")
-                .append(call.getType().toString());
+        if (Logger.INSTANCE.isEnabled(this, 2)) {
+            Logger.INSTANCE.from(this, 2)
+                    .append(call.toString())
+                    .append(" ")
+                    .append(call.getType().toString());
+        }
         if (call.op.kind == SqlKind.SEARCH) {
             // TODO: ideally the optimizer should do this before handing the expression to us.
             // Then we can get rid of the rexBuilder field too.
@@ -554,10 +556,12 @@ public class ExpressionCompiler extends RexVisitorImpl<DBSPExpression> implement
     }
 
     DBSPExpression compile(RexNode expression) {
-        Logger.INSTANCE.from(this, 3)
-                .append("Compiling ")
-                .append(expression.toString())
-                .newline();
+        if (Logger.INSTANCE.isEnabled(this, 3)) {
+            Logger.INSTANCE.from(this, 3)
+                    .append("Compiling ")
+                    .append(expression.toString())
+                    .newline();
+        }
         DBSPExpression result = expression.accept(this);
         if (result == null)
             throw new Unimplemented(expression);
@@ -188,10 +188,12 @@ public class JoinConditionAnalyzer extends RexVisitorImpl<Void> implements IModu
     }
 
     JoinConditionAnalyzer.ConditionDecomposition analyze(RexNode expression) {
-        Logger.INSTANCE.from(this, 1)
-                .append("Analyzing ")
-                .append(expression.toString())
-                .newline();
+        if (Logger.INSTANCE.isEnabled(this, 1)) {
+            Logger.INSTANCE.from(this, 1)
+                    .append("Analyzing ")
+                    .append(expression.toString())
+                    .newline();
+        }
         expression.accept(this);
         return this.result;
     }
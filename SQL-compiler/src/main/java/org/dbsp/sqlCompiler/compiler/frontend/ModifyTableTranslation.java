@@ -23,25 +23,29 @@
 
 package org.dbsp.sqlCompiler.compiler.frontend;
 
-import org.apache.calcite.sql.SqlIdentifier;
-import org.apache.calcite.sql.SqlNode;
-import org.apache.calcite.sql.SqlNodeList;
+import org.apache.calcite.sql.*;
+import org.apache.calcite.sql.type.SqlTypeName;
+import org.apache.calcite.util.DateString;
+import org.apache.calcite.util.TimestampString;
 import org.dbsp.sqlCompiler.compiler.ICompilerComponent;
 import org.dbsp.sqlCompiler.compiler.backend.DBSPCompiler;
 import org.dbsp.sqlCompiler.compiler.frontend.statements.CreateTableStatement;
 import org.dbsp.sqlCompiler.compiler.frontend.statements.TableModifyStatement;
 import org.dbsp.sqlCompiler.ir.expression.DBSPExpression;
 import org.dbsp.sqlCompiler.ir.expression.DBSPTupleExpression;
-import org.dbsp.sqlCompiler.ir.expression.literal.DBSPZSetLiteral;
+import org.dbsp.sqlCompiler.ir.expression.literal.*;
 import org.dbsp.sqlCompiler.ir.type.DBSPType;
 import org.dbsp.sqlCompiler.ir.type.DBSPTypeTuple;
 import org.dbsp.sqlCompiler.ir.type.DBSPTypeZSet;
+import org.dbsp.sqlCompiler.ir.type.primitive.*;
 import org.dbsp.util.TranslationException;
 import org.dbsp.util.Unimplemented;
 import org.dbsp.util.Utilities;
 
 import javax.annotation.Nullable;
+import java.math.BigDecimal;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 
@@ -64,6 +68,10 @@ class ModifyTableTranslation implements ICompilerComponent {
     private HashMap<Integer, Integer> columnPermutation;
     @Nullable
     DBSPTypeTuple resultType;
+    /**
+     * Type of the modified table.
+     */
+    final DBSPTypeZSet tableType;
     final TableModifyStatement statement;
     final DBSPCompiler compiler;
 
@@ -75,6 +83,7 @@ class ModifyTableTranslation implements ICompilerComponent {
         this.compiler = compiler;
         this.columnPermutation = null;
         this.statement = statement;
+        this.tableType = tableDefinition.getTableType(this.compiler.getTypeCompiler()).to(DBSPTypeZSet.class);
         DBSPTypeTuple sourceType = tableDefinition.getRowType(this.compiler.getTypeCompiler());
         if (columnList != null) {
             // The column list specifies an order for the columns that are assigned,
@@ -141,6 +150,100 @@ class ModifyTableTranslation implements ICompilerComponent {
         this.valuesTranslation = this.permuteColumns(literal);
     }
 
+    /**
+     * Convert a literal to a literal of the specified type, if this can be done
+     * without changing the value.
+     * @param node  A SqlLiteral, possibly negated.
+     * @param type  Type of the destination column.
+     * @return      null if the conversion requires a cast that is not trivial.
+     */
+    @Nullable
+    static DBSPLiteral convertLiteral(SqlNode node, DBSPType type) {
+        boolean negate = false;
+        if (node.getKind() == SqlKind.MINUS_PREFIX) {
+            negate = true;
+            node = ((SqlCall) node).operand(0);
+        }
+        SqlLiteral literal = (SqlLiteral) node;
+        if (SqlUtil.isNullLiteral(literal, false)) {
+            if (!type.mayBeNull)
+                return null;
+            return DBSPLiteral.none(type);
+        }
+        boolean mayBeNull = type.mayBeNull;
+        if (literal instanceof SqlNumericLiteral) {
+            BigDecimal value = Objects.requireNonNull(literal.getValueAs(BigDecimal.class));
+            if (negate)
+                value = value.negate();
+            DBSPTypeInteger intType = type.as(DBSPTypeInteger.class);
+            if (intType != null) {
+                if (!intType.signed || value.signum() != 0 && value.stripTrailingZeros().scale() > 0)
+                    return null;
+                try {
+                    switch (intType.getWidth()) {
+                        case 32:
+                            return new DBSPI32Literal(value.intValueExact(), mayBeNull);
+                        case 64:
+                            return new DBSPI64Literal(value.longValueExact(), mayBeNull);
+                        default:
+                            return null;
+                    }
+                } catch (ArithmeticException ex) {
+                    // Out of range
+                    return null;
+                }
+            } else if (type.is(DBSPTypeDouble.class)) {
+                return new DBSPDoubleLiteral(value.doubleValue(), mayBeNull);
+            } else if (type.is(DBSPTypeFloat.class)) {
+                return new DBSPFloatLiteral(value.floatValue(), mayBeNull);
+            }
+            return null;
+        }
+        if (negate)
+            return null;
+        if (literal instanceof SqlCharStringLiteral && type.is(DBSPTypeString.class))
+            return new DBSPStringLiteral(literal.getValueAs(String.class), mayBeNull);
+        if (literal.getTypeName() == SqlTypeName.BOOLEAN && type.is(DBSPTypeBool.class))
+            return new DBSPBoolLiteral(literal.getValueAs(Boolean.class), mayBeNull);
+        if (literal instanceof SqlDateLiteral && type.is(DBSPTypeDate.class))
+            return new DBSPDateLiteral(literal, type, literal.getValueAs(DateString.class));
+        if (literal instanceof SqlTimestampLiteral && type.is(DBSPTypeTimestamp.class))
+            return new DBSPTimestampLiteral(literal, type, literal.getValueAs(TimestampString.class));
+        return null;
+    }
+
+    /**
+     * Translate the rows of a VALUES expression that contains only literals
+     * directly, without using the Calcite planner.  This is much faster
+     * for scripts with many INSERT statements.
+     * @param values  VALUES expression; CalciteCompiler.isLiteralValues must be true.
+     * @return        The rows to insert, with the columns in table order, or null
+     *                if some values require casts or the column list is incomplete;
+     *                in this case the statement must be compiled by Calcite.
+     */
+    @Nullable
+    public ColumnarTable translateLiteralValues(SqlNode values) {
+        DBSPTypeTuple rowType = this.tableType.elementType.to(DBSPTypeTuple.class);
+        if (this.columnPermutation != null && this.columnPermutation.size() != rowType.size())
+            return null;
+        DBSPTypeTuple sourceType = this.getResultType();
+        ColumnarTable result = new ColumnarTable(this.tableType);
+        for (SqlNode row: ((SqlCall) values).getOperandList()) {
+            List<SqlNode> fields = ((SqlCall) row).getOperandList();
+            if (fields.size() != sourceType.size())
+                return null;
+            for (int i = 0; i < fields.size(); i++) {
+                DBSPLiteral literal = convertLiteral(fields.get(i), sourceType.getFieldType(i));
+                if (literal == null)
+                    return null;
+                int column = this.columnPermutation == null ? i : this.columnPermutation.get(i);
+                result.set(column, literal);
+            }
+            result.endRow(1);
+        }
+        return result;
+    }
+
     @Override
     public DBSPCompiler getCompiler() {
         return this.compiler;
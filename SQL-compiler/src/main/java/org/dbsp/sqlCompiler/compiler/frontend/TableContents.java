@@ -29,6 +29,7 @@ import org.dbsp.sqlCompiler.compiler.frontend.statements.CreateTableStatement;
 import org.dbsp.sqlCompiler.compiler.frontend.statements.DropTableStatement;
 import org.dbsp.sqlCompiler.compiler.frontend.statements.FrontEndStatement;
 import org.dbsp.sqlCompiler.ir.expression.literal.DBSPZSetLiteral;
+import org.dbsp.sqlCompiler.ir.type.DBSPTypeZSet;
 import org.dbsp.util.UnsupportedException;
 import org.dbsp.util.Utilities;
 
@@ -54,7 +55,7 @@ public class TableContents implements ICompilerComponent {
      * Keep track of the contents of each table.
      */
     @Nullable
-    final Map<String, DBSPZSetLiteral> tableContents;
+    final Map<String, ColumnarTable> tableContents;
     final DBSPCompiler compiler;
 
     public TableContents(DBSPCompiler compiler, boolean trackTableContents) {
@@ -65,7 +66,19 @@ public class TableContents implements ICompilerComponent {
             this.tableContents = null;
     }
 
+    /**
+     * The contents of the specified table as a ZSet literal.
+     * This creates IR nodes for all the rows; use 'getTableData'
+     * for tables that may be large.
+     */
     public DBSPZSetLiteral getTableContents(String tableName) {
+        return this.getTableData(tableName).toZSetLiteral();
+    }
+
+    /**
+     * The contents of the specified table in a compact representation.
+     */
+    public ColumnarTable getTableData(String tableName) {
         if (this.tableContents == null)
             throw new UnsupportedException("Not keeping track of table contents");
         return Utilities.getExists(this.tableContents, tableName);
@@ -78,7 +91,8 @@ public class TableContents implements ICompilerComponent {
             this.tablesCreated.add(create.tableName);
             if (this.tableContents != null)
                 Utilities.putNew(this.tableContents, create.tableName,
-                        DBSPZSetLiteral.emptyWithType(create.getTableType(this.compiler.getTypeCompiler())));
+                        new ColumnarTable(create.getTableType(this.compiler.getTypeCompiler())
+                                .to(DBSPTypeZSet.class)));
         } else if (statement.is(DropTableStatement.class)) {
             DropTableStatement drop = statement.to(DropTableStatement.class);
             this.tableCreation.remove(drop.tableName);
@@ -98,6 +112,12 @@ public class TableContents implements ICompilerComponent {
         this.tableContents.get(tableName).add(value);
     }
 
+    public void addToTable(String tableName, ColumnarTable rows) {
+        if (this.tableContents == null)
+            throw new UnsupportedException("Not keeping track of table contents");
+        this.tableContents.get(tableName).add(rows);
+    }
+
     public int getTableIndex(String tableName) {
         for (int i = 0; i < this.tablesCreated.size(); i++)
             if (this.tablesCreated.get(i).equals(tableName))
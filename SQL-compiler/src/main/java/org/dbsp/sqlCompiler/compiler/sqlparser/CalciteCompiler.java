@@ -54,6 +54,7 @@ import org.apache.calcite.sql.parser.SqlParser;
 import org.apache.calcite.sql.parser.SqlParserPos;
 import org.apache.calcite.sql.parser.ddl.SqlDdlParserImpl;
 import org.apache.calcite.sql.type.*;
+import org.apache.calcite.sql.util.SqlBasicVisitor;
 import org.apache.calcite.sql.util.SqlOperatorTables;
 import org.apache.calcite.sql.util.SqlShuttle;
 import org.apache.calcite.sql.validate.SqlConformance;
@@ -99,6 +100,10 @@ public class CalciteCompiler implements IModule {
     public final RelDataTypeFactory typeFactory;
     private final SqlToRelConverter.Config converterConfig;
     private final RewriteDivision astRewriter;
+    private final CalciteSchema rootSchema;
+    private final CalciteConnectionConfig connectionConfig;
+    private final SqlOperatorTable operatorTable;
+    private final SqlValidator.Config validatorConfig;
 
     /**
      * This class rewrites instances of the division operator in the SQL AST
@@ -189,8 +194,8 @@ public class CalciteCompiler implements IModule {
         connConfigProp.put(CalciteConnectionProperty.UNQUOTED_CASING.camelName(), Casing.UNCHANGED.toString());
         connConfigProp.put(CalciteConnectionProperty.QUOTED_CASING.camelName(), Casing.UNCHANGED.toString());
         connConfigProp.put(CalciteConnectionProperty.CONFORMANCE.camelName(), SqlConformanceEnum.BABEL.toString());
-        CalciteConnectionConfig connectionConfig = new CalciteConnectionConfigImpl(connConfigProp);
-        SqlConformance conformance = connectionConfig.conformance();
+        this.connectionConfig = new CalciteConnectionConfigImpl(connConfigProp);
+        SqlConformance conformance = this.connectionConfig.conformance();
         this.parserConfig = SqlParser.config()
                 .withLex(options.ioOptions.lexicalRules)
                 // Add support for DDL language
@@ -200,8 +205,8 @@ public class CalciteCompiler implements IModule {
                 .withConformance(conformance);
         this.typeFactory = new SqlTypeFactoryImpl(TYPE_SYSTEM);
         this.catalog = new Catalog("schema");
-        CalciteSchema rootSchema = CalciteSchema.createRootSchema(false, false);
-        rootSchema.add(catalog.schemaName, this.catalog);
+        this.rootSchema = CalciteSchema.createRootSchema(false, false);
+        this.rootSchema.add(catalog.schemaName, this.catalog);
         // Register new types
         rootSchema.add("INT2", factory -> factory.createSqlType(SqlTypeName.SMALLINT));
         rootSchema.add("INT8", factory -> factory.createSqlType(SqlTypeName.BIGINT));
@@ -215,11 +220,8 @@ public class CalciteCompiler implements IModule {
         rootSchema.add("BOOL", factory -> factory.createSqlType(SqlTypeName.BOOLEAN));
         // TODO: not entirely correct
         rootSchema.add("UINT64", factory -> factory.createSqlType(SqlTypeName.BIGINT));
-        Prepare.CatalogReader catalogReader = new CalciteCatalogReader(
-                rootSchema, Collections.singletonList(catalog.schemaName), this.typeFactory, connectionConfig);
-
         SqlFunction division = new SqlDivideFunction();
-        SqlOperatorTable operatorTable = SqlOperatorTables.chain(
+        this.operatorTable = SqlOperatorTables.chain(
                 // Libraries of user-defined functions supported.
                 SqlLibraryOperatorTableFactory.INSTANCE.getOperatorTable(
                         // Standard SQL functions
@@ -232,31 +234,48 @@ public class CalciteCompiler implements IModule {
                 SqlOperatorTables.of(division)
         );
 
-        SqlValidator.Config validatorConfig = SqlValidator.Config.DEFAULT
+        this.validatorConfig = SqlValidator.Config.DEFAULT
                 .withLenientOperatorLookup(connectionConfig.lenientOperatorLookup())
                 .withTypeCoercionEnabled(true)
                 .withDefaultNullCollation(connectionConfig.defaultNullCollation())
                 .withIdentifierExpansion(true);
+        this.converterConfig = SqlToRelConverter.config()
+                .withExpand(true);
+
+        Prepare.CatalogReader catalogReader = this.createCatalogReader();
+        this.validator = this.createValidator(catalogReader);
+        this.converter = this.createConverter(this.validator, catalogReader);
+        this.cluster = this.converter.getCluster();
+    }
 
-        this.validator = SqlValidatorUtil.newValidator(
-                operatorTable,
+    // The following Calcite objects are not thread-safe, so each thread
+    // that compiles views needs its own.
+
+    Prepare.CatalogReader createCatalogReader() {
+        return new CalciteCatalogReader(
+                this.rootSchema, Collections.singletonList(catalog.schemaName), this.typeFactory, this.connectionConfig);
+    }
+
+    SqlValidator createValidator(Prepare.CatalogReader catalogReader) {
+        return SqlValidatorUtil.newValidator(
+                this.operatorTable,
                 catalogReader,
                 this.typeFactory,
-                validatorConfig
+                this.validatorConfig
         );
+    }
 
+    SqlToRelConverter createConverter(SqlValidator validator, Prepare.CatalogReader catalogReader) {
         // This planner does not do anything.
         // We use a series of planner stages later to perform the real optimizations.
         RelOptPlanner planner = new HepPlanner(new HepProgramBuilder().build());
         planner.setExecutor(RexUtil.EXECUTOR);
-        this.cluster = RelOptCluster.create(planner, new RexBuilder(this.typeFactory));
-        this.converterConfig = SqlToRelConverter.config()
-                .withExpand(true);
-        this.converter = new SqlToRelConverter(
+        RelOptCluster cluster = RelOptCluster.create(planner, new RexBuilder(this.typeFactory));
+        return new SqlToRelConverter(
                 (type, query, schema, path) -> null,
-                this.validator,
+                validator,
                 catalogReader,
-                this.cluster,
+                cluster,
                 StandardConvertletTable.INSTANCE,
                 this.converterConfig
         );
@@ -428,45 +447,53 @@ public class CalciteCompiler implements IModule {
 
     RelNode optimize(RelNode rel) {
         // Without the following some optimization rules do nothing.
-        Logger.INSTANCE.from(this, 2)
-                .append("Before optimizer")
-                .increase()
-                .append(getPlan(rel))
-                .decrease()
-                .newline();
+        if (Logger.INSTANCE.isEnabled(this, 2)) {
+            Logger.INSTANCE.from(this, 2)
+                    .append("Before optimizer")
+                    .increase()
+                    .append(getPlan(rel))
+                    .decrease()
+                    .newline();
+        }
 
         RelBuilder relBuilder = this.converterConfig.getRelBuilderFactory().create(
-                cluster, null);
+                rel.getCluster(), null);
         // This converts correlated sub-queries into standard joins.
         rel = RelDecorrelator.decorrelateQuery(rel, relBuilder);
-        Logger.INSTANCE.from(this, 2)
-                .append("After decorrelator")
-                .increase()
-                .append(getPlan(rel))
-                .decrease()
-                .newline();
+        if (Logger.INSTANCE.isEnabled(this, 2)) {
+            Logger.INSTANCE.from(this, 2)
+                    .append("After decorrelator")
+                    .increase()
+                    .append(getPlan(rel))
+                    .decrease()
+                    .newline();
+        }
 
         int stage = 0;
         for (HepProgram program: this.getOptimizationStages(rel)) {
             HepPlanner planner = new HepPlanner(program);
             planner.setRoot(rel);
             rel = planner.findBestExp();
-            Logger.INSTANCE.from(this, 3)
-                    .append("After optimizer stage ")
-                    .append(stage)
+            if (Logger.INSTANCE.isEnabled(this, 3)) {
+                Logger.INSTANCE.from(this, 3)
+                        .append("After optimizer stage ")
+                        .append(stage)
+                        .increase()
+                        .append(getPlan(rel))
+                        .decrease()
+                        .newline();
+            }
+            stage++;
+        }
+
+        if (Logger.INSTANCE.isEnabled(this, 2)) {
+            Logger.INSTANCE.from(this, 2)
+                    .append("After optimizer ")
                     .increase()
                     .append(getPlan(rel))
                     .decrease()
                     .newline();
-            stage++;
         }
-
-        Logger.INSTANCE.from(this, 2)
-                .append("After optimizer ")
-                .increase()
-                .append(getPlan(rel))
-                .decrease()
-                .newline();
         return rel;
     }
 
@@ -506,6 +533,127 @@ public class CalciteCompiler implements IModule {
         return columns;
     }
 
+    /**
+     * Compile a view definition.  The view is not added to the catalog;
+     * this only reads the catalog, so several views can be compiled
+     * concurrently, each with its own converter.
+     * @param sqlStatement SQL statement as a string to compile.
+     * @param node         Compiled version of the CREATE VIEW statement.
+     * @param comment      Additional information about the compiled statement.
+     * @param converter    Converter to use; created by createConverter.
+     */
+    CreateViewStatement compileView(String sqlStatement, SqlNode node,
+                                    @Nullable String comment, SqlToRelConverter converter) {
+        SqlCreateView cv = (SqlCreateView) node;
+        SqlNode query = cv.query;
+        if (Logger.INSTANCE.isEnabled(this, 2)) {
+            Logger.INSTANCE.from(this, 2)
+                    .append(query.toString())
+                    .newline();
+        }
+        query = query.accept(this.astRewriter);
+        if (Logger.INSTANCE.isEnabled(this, 2)) {
+            Logger.INSTANCE.from(this, 2)
+                    .append(Objects.requireNonNull(query).toString())
+                    .newline();
+        }
+        RelRoot relRoot = converter.convertQuery(query, true, true);
+        List<RelDataTypeField> columns = this.getColumnTypes(relRoot);
+        RelNode optimized = this.optimize(relRoot.rel);
+        relRoot = relRoot.withRel(optimized);
+        return new CreateViewStatement(node, sqlStatement,
+                Catalog.identifierToString(cv.name), comment,
+                columns, cv.query, relRoot);
+    }
+
+    /**
+     * Compile a view definition on the current thread, using a new converter.
+     * The view must be added to the catalog using registerView.
+     * @param node   CREATE VIEW statement.
+     */
+    public CreateViewStatement compileViewConcurrently(SqlNode node) {
+        Prepare.CatalogReader catalogReader = this.createCatalogReader();
+        SqlToRelConverter converter = this.createConverter(this.createValidator(catalogReader), catalogReader);
+        return this.compileView(node.toString(), node, null, converter);
+    }
+
+    /**
+     * Check whether a statement mentions any of the specified names.
+     * This is conservative: every component of every identifier is compared,
+     * ignoring case.
+     * @param node   Statement to scan.
+     * @param names  Lowercase names.
+     */
+    public static boolean mentions(SqlNode node, Set<String> names) {
+        class IdentifierFinder extends SqlBasicVisitor<Void> {
+            boolean found = false;
+
+            @Override
+            public Void visit(SqlIdentifier id) {
+                for (String name: id.names)
+                    if (names.contains(name.toLowerCase(Locale.ROOT)))
+                        this.found = true;
+                return null;
+            }
+        }
+
+        if (names.isEmpty())
+            return false;
+        IdentifierFinder finder = new IdentifierFinder();
+        node.accept(finder);
+        return finder.found;
+    }
+
+    /**
+     * Add a compiled view to the catalog.
+     * @param view     View to add.
+     * @param outputs  If not null, add here a JSON description of the view.
+     */
+    public void registerView(CreateViewStatement view, @Nullable ArrayNode outputs) {
+        // From Calcite's point of view we treat this view just as another table.
+        this.catalog.addTable(view.tableName, view.getEmulatedTable());
+        if (outputs != null)
+            outputs.add(view.getDefinedObjectSchema());
+    }
+
+    /**
+     * True if the node is a literal, possibly negated.
+     */
+    public static boolean isLiteral(SqlNode node) {
+        if (node instanceof SqlLiteral)
+            return true;
+        if (node.getKind() == SqlKind.MINUS_PREFIX) {
+            SqlCall call = (SqlCall) node;
+            return call.operandCount() == 1 && call.operand(0) instanceof SqlNumericLiteral;
+        }
+        return false;
+    }
+
+    /**
+     * True if the node is a VALUES expression whose rows contain only literals.
+     */
+    public static boolean isLiteralValues(SqlNode node) {
+        if (node.getKind() != SqlKind.VALUES)
+            return false;
+        for (SqlNode row: ((SqlCall) node).getOperandList()) {
+            if (row.getKind() != SqlKind.ROW)
+                return false;
+            for (SqlNode value: ((SqlCall) row).getOperandList())
+                if (!isLiteral(value))
+                    return false;
+        }
+        return true;
+    }
+
+    /**
+     * Convert the data inserted by an INSERT statement to a RelNode.
+     */
+    public void translateInsert(TableModifyStatement stat) {
+        RelRoot values = this.converter.convertQuery(stat.data, true, true);
+        values = values.withRel(this.optimize(values.rel));
+        stat.setTranslation(values.rel);
+    }
+
     /**
      * Compile a SQL statement.  Return a description.
      * @param node         Compiled version of the SQL statement.
@@ -535,9 +683,11 @@ public class CalciteCompiler implements IModule {
                 } else {
                     if (ct.query == null)
                         throw new UnsupportedException(node);
-                    Logger.INSTANCE.from(this, 1)
-                            .append(ct.query.toString())
-                            .newline();
+                    if (Logger.INSTANCE.isEnabled(this, 1)) {
+                        Logger.INSTANCE.from(this, 1)
+                                .append(ct.query.toString())
+                                .newline();
+                    }
                     RelRoot relRoot = this.converter.convertQuery(ct.query, true, true);
                     cols = this.getColumnTypes(relRoot);
                 }
@@ -549,27 +699,8 @@ public class CalciteCompiler implements IModule {
             }
 
             if (node.getKind().equals(SqlKind.CREATE_VIEW)) {
-                SqlCreateView cv = (SqlCreateView) node;
-                SqlNode query = cv.query;
-                Logger.INSTANCE.from(this, 2)
-                        .append(query.toString())
-                        .newline();
-                query = query.accept(this.astRewriter);
-                Logger.INSTANCE.from(this, 2)
-                        .append(Objects.requireNonNull(query).toString())
-                        .newline();
-                RelRoot relRoot = this.converter.convertQuery(query, true, true);
-                List<RelDataTypeField> columns = this.getColumnTypes(relRoot);
-                RelNode optimized = this.optimize(relRoot.rel);
-                relRoot = relRoot.withRel(optimized);
-                String viewName = Catalog.identifierToString(cv.name);
-                CreateViewStatement view = new CreateViewStatement(node, sqlStatement,
-                        Catalog.identifierToString(cv.name), comment,
-                        columns, cv.query, relRoot);
-                // From Calcite's point of view we treat this view just as another table.
-                this.catalog.addTable(viewName, view.getEmulatedTable());
-                if (outputs != null)
-                    outputs.add(view.getDefinedObjectSchema());
+                CreateViewStatement view = this.compileView(sqlStatement, node, comment, this.converter);
+                this.registerView(view, outputs);
                 return view;
             }
         }
@@ -582,9 +713,10 @@ public class CalciteCompiler implements IModule {
                     throw new Unimplemented(table);
                 SqlIdentifier id = (SqlIdentifier) table;
                 TableModifyStatement stat = new TableModifyStatement(node, sqlStatement, id.toString(), insert.getSource(), comment);
-                RelRoot values = this.converter.convertQuery(stat.data, true, true);
-                values = values.withRel(this.optimize(values.rel));
-                stat.setTranslation(values.rel);
+                // Lists of literals are translated directly by the midend,
+                // which calls 'translateInsert' if it cannot handle them.
+                if (!isLiteralValues(stat.data))
+                    this.translateInsert(stat);
                 return stat;
             }
         }
@@ -30,6 +30,7 @@ import org.dbsp.sqlCompiler.circuit.operator.*;
 import org.dbsp.sqlCompiler.circuit.DBSPPartialCircuit;
 import org.dbsp.sqlCompiler.ir.expression.DBSPExpression;
 import org.dbsp.util.IdGen;
+import org.dbsp.util.IdScope;
 
 import javax.annotation.Nullable;
 import java.util.Objects;
@@ -70,13 +71,16 @@ public abstract class CircuitVisitor extends IdGen implements Function<DBSPCircu
 
     /**
      * Returns by default the input circuit unmodified.
+     * Nodes created during the visit get ids from the circuit's compiler.
      */
     @Override
     public DBSPCircuit apply(DBSPCircuit node) {
-        this.startVisit(node);
-        node.accept(this);
-        this.endVisit();
-        return node;
+        try (IdScope.Entered ignored = node.circuit.compiler.idScope.enter()) {
+            this.startVisit(node);
+            node.accept(this);
+            this.endVisit();
+            return node;
+        }
     }
 
     /************************* PREORDER *****************************/
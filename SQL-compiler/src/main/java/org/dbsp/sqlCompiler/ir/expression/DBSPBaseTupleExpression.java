@@ -26,9 +26,19 @@ package org.dbsp.sqlCompiler.ir.expression;
 import org.dbsp.sqlCompiler.ir.type.DBSPType;
 
 import javax.annotation.Nullable;
+import java.util.Arrays;
 
+/**
+ * Tuples compare structurally: two tuples are equal if they have the
+ * same class and type and their fields are equal.
+ * Since literals compare by value, tuples of literals compare by value.
+ */
 public abstract class DBSPBaseTupleExpression extends DBSPExpression {
     public final DBSPExpression[] fields;
+    /**
+     * Cached hash code; 0 if not yet computed.
+     */
+    private int hash;
 
     public int size() { return this.fields.length; }
 
@@ -40,4 +50,25 @@ public abstract class DBSPBaseTupleExpression extends DBSPExpression {
     public DBSPExpression get(int index) {
         return this.fields[index];
     }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        DBSPBaseTupleExpression that = (DBSPBaseTupleExpression) o;
+        if (this.hashCode() != that.hashCode())
+            return false;
+        return Arrays.equals(this.fields, that.fields) &&
+                this.getNonVoidType().sameType(that.getNonVoidType());
+    }
+
+    @Override
+    public int hashCode() {
+        int result = this.hash;
+        if (result == 0) {
+            result = 31 * this.getNonVoidType().hashCode() + Arrays.hashCode(this.fields);
+            this.hash = result;
+        }
+        return result;
+    }
 }
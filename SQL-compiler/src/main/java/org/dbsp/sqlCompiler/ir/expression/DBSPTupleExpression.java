@@ -35,14 +35,10 @@ import java.util.ArrayList;
 import java.util.List;
 
 public class DBSPTupleExpression extends DBSPBaseTupleExpression {
-    public final DBSPExpression[] fields;
-
-    public int size() { return this.fields.length; }
-
     public DBSPTupleExpression(@Nullable Object object, boolean mayBeNull, DBSPExpression... expressions) {
         super(object,
-                new DBSPTypeTuple(null, mayBeNull, Linq.map(expressions, DBSPExpression::getType, DBSPType.class)));
-        this.fields = expressions;
+                new DBSPTypeTuple(null, mayBeNull, Linq.map(expressions, DBSPExpression::getType, DBSPType.class)),
+                expressions);
     }
 
     public DBSPTupleExpression(DBSPExpression... expressions) {
@@ -92,10 +88,6 @@ public class DBSPTupleExpression extends DBSPBaseTupleExpression {
         return new DBSPTupleExpression(Utilities.arraySlice(this.fields, start, endExclusive));
     }
 
-    public DBSPExpression get(int index) {
-        return this.fields[index];
-    }
-
     @Override
     public void accept(InnerVisitor visitor) {
         if (!visitor.preorder(this)) return;
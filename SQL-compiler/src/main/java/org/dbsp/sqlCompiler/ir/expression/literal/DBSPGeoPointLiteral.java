@@ -28,6 +28,7 @@ import org.dbsp.sqlCompiler.ir.expression.DBSPExpression;
 import org.dbsp.sqlCompiler.ir.type.primitive.DBSPTypeGeoPoint;
 
 import javax.annotation.Nullable;
+import java.util.Objects;
 
 public class DBSPGeoPointLiteral extends DBSPLiteral {
     public final DBSPExpression left;
@@ -44,4 +45,17 @@ public class DBSPGeoPointLiteral extends DBSPLiteral {
         if (!visitor.preorder(this)) return;
         visitor.postorder(this);
     }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!super.equals(o))
+            return false;
+        DBSPGeoPointLiteral that = (DBSPGeoPointLiteral) o;
+        return this.left.equals(that.left) && this.right.equals(that.right);
+    }
+
+    @Override
+    protected int computeHashCode() {
+        return Objects.hash(super.computeHashCode(), this.left, this.right);
+    }
 }
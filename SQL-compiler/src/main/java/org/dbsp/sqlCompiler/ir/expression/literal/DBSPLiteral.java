@@ -29,15 +29,22 @@ import org.dbsp.sqlCompiler.ir.type.DBSPType;
 import org.dbsp.sqlCompiler.ir.type.DBSPTypeAny;
 
 import javax.annotation.Nullable;
+import java.util.Objects;
 
 /**
  * This is not just a base class, it also can be used to represent NULL
  * literals of any type.  Maybe that's a bad idea.
+ * Unlike other expressions, literals compare by value:
+ * two literals are equal if they have the same class, type, and value.
  */
 public class DBSPLiteral extends DBSPExpression {
     public final boolean isNull;
     @Nullable
     public final Object value;
+    /**
+     * Cached hash code; 0 if not yet computed.
+     */
+    private int hash;
 
     protected DBSPLiteral(@Nullable Object node, DBSPType type, @Nullable Object value) {
         super(node, type);
@@ -74,18 +81,33 @@ public class DBSPLiteral extends DBSPExpression {
         visitor.postorder(this);
     }
 
-    /*
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         DBSPLiteral that = (DBSPLiteral) o;
-        return isNull == that.isNull && Objects.equals(value, that.value);
+        if (this.hashCode() != that.hashCode())
+            return false;
+        return this.isNull == that.isNull &&
+                Objects.equals(this.value, that.value) &&
+                this.getNonVoidType().sameType(that.getNonVoidType());
+    }
+
+    /**
+     * Hash code of the literal, used by 'hashCode'.
+     * Must be consistent with 'equals'.
+     */
+    protected int computeHashCode() {
+        return Objects.hash(this.isNull, this.value, this.getNonVoidType());
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(isNull, value);
+        int result = this.hash;
+        if (result == 0) {
+            result = this.computeHashCode();
+            this.hash = result;
+        }
+        return result;
     }
-     */
 }
@@ -31,6 +31,7 @@ import org.dbsp.sqlCompiler.ir.type.DBSPTypeVec;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 
 /**
  * Represents a (constant) vector described by its elements.
@@ -88,4 +89,17 @@ public class DBSPVecLiteral extends DBSPLiteral implements IDBSPContainer {
         visitor.postorder(this);
     }
 
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        DBSPVecLiteral that = (DBSPVecLiteral) o;
+        return this.vecType.sameType(that.vecType) && this.data.equals(that.data);
+    }
+
+    @Override
+    public int hashCode() {
+        // Not cached, since vectors can still be modified using 'add'.
+        return Objects.hash(this.vecType, this.data);
+    }
 }
@@ -32,10 +32,13 @@ import org.dbsp.sqlCompiler.ir.type.DBSPTypeZSet;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Objects;
 
 /**
  * Represents a (constant) ZSet described by its elements.
  * A ZSet is a map from tuples to integer weights.
+ * Elements are compared by value, so adding an element that
+ * is equal to an existing one only updates its weight.
  * In general weights should not be zero.
  * TODO: check for weight overflow?
  */
@@ -172,4 +175,18 @@ public class DBSPZSetLiteral extends DBSPLiteral implements IDBSPContainer {
         result.add(sub.negate());
         return result;
     }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        DBSPZSetLiteral that = (DBSPZSetLiteral) o;
+        return this.zsetType.sameType(that.zsetType) && this.data.equals(that.data);
+    }
+
+    @Override
+    public int hashCode() {
+        // Not cached, since zsets can still be modified using 'add'.
+        return Objects.hash(this.zsetType, this.data);
+    }
 }
@@ -39,6 +39,11 @@ public abstract class DBSPType extends DBSPNode implements IDBSPInnerNode {
      * True if this type may include null values.
      */
     public final boolean mayBeNull;
+    /**
+     * Cached structural hash code; 0 if not yet computed.
+     * Types are immutable, so the hash never changes once computed.
+     */
+    private int hash;
 
     protected DBSPType(@Nullable Object node, boolean mayBeNull) {
         super(node);
@@ -60,6 +65,8 @@ public abstract class DBSPType extends DBSPNode implements IDBSPInnerNode {
     }
 
     public static boolean sameType(@Nullable DBSPType left, @Nullable DBSPType right) {
+        if (left == right)
+            return true;
         if (left == null)
             return right == null;
         if (right == null)
@@ -69,10 +76,26 @@ public abstract class DBSPType extends DBSPNode implements IDBSPInnerNode {
 
     /**
      * This is like 'equals', but it always takes a DBSPType.
+     * Types with different hash codes are rejected without
+     * inspecting their structure.
      */
-    public boolean sameType(@Nullable DBSPType other) {
+    public final boolean sameType(@Nullable DBSPType other) {
+        if (this == other)
+            return true;
         if (other == null)
             return false;
+        if (this.hashCode() != other.hashCode())
+            return false;
+        return this.sameStructure(other);
+    }
+
+    /**
+     * Structural comparison of two types, called by 'sameType'.
+     * Subclasses that override this method must also override
+     * 'computeHashCode' such that types with the same structure
+     * have the same hash code.
+     */
+    protected boolean sameStructure(DBSPType other) {
         return this.mayBeNull == other.mayBeNull;
     }
 
@@ -94,7 +117,20 @@ public abstract class DBSPType extends DBSPNode implements IDBSPInnerNode {
     }
 
     @Override
-    public int hashCode() {
+    public final int hashCode() {
+        int result = this.hash;
+        if (result == 0) {
+            result = this.computeHashCode();
+            this.hash = result;
+        }
+        return result;
+    }
+
+    /**
+     * Compute a hash code that is consistent with 'sameStructure'.
+     * The result is cached by 'hashCode'.
+     */
+    protected int computeHashCode() {
         return Objects.hashCode(this.mayBeNull);
     }
 
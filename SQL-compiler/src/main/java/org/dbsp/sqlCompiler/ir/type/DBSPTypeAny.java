@@ -25,7 +25,6 @@ package org.dbsp.sqlCompiler.ir.type;
 
 import org.dbsp.sqlCompiler.ir.InnerVisitor;
 
-import javax.annotation.Nullable;
 import java.util.Objects;
 
 /**
@@ -44,7 +43,7 @@ public class DBSPTypeAny extends DBSPType {
     }
 
     @Override
-    public int hashCode() {
+    protected int computeHashCode() {
         return Objects.hash(this.mayBeNull, 1);
     }
 
@@ -55,10 +54,9 @@ public class DBSPTypeAny extends DBSPType {
     }
 
     @Override
-    public boolean sameType(@Nullable DBSPType other) {
-        if (!super.sameType(other))
+    protected boolean sameStructure(DBSPType other) {
+        if (!super.sameStructure(other))
             return false;
-        assert other != null;
         return other.is(DBSPTypeAny.class);
     }
 }
@@ -56,17 +56,16 @@ public class DBSPTypeFunction extends DBSPType {
     }
 
     @Override
-    public int hashCode() {
-        int result = Objects.hash(super.hashCode(), resultType);
+    protected int computeHashCode() {
+        int result = Objects.hash(super.computeHashCode(), resultType);
         result = 31 * result + Arrays.hashCode(argumentTypes);
         return result;
     }
 
     @Override
-    public boolean sameType(@Nullable DBSPType type) {
-        if (!super.sameType(type))
+    protected boolean sameStructure(DBSPType type) {
+        if (!super.sameStructure(type))
             return false;
-        assert type != null;
         if (!type.is(DBSPTypeFunction.class))
             return false;
         DBSPTypeFunction other = type.to(DBSPTypeFunction.class);
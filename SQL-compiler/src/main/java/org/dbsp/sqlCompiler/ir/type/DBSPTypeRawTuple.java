@@ -69,15 +69,14 @@ public class DBSPTypeRawTuple extends DBSPTypeTupleBase {
     }
 
     @Override
-    public int hashCode() {
+    protected int computeHashCode() {
         return Arrays.hashCode(tupFields);
     }
 
     @Override
-    public boolean sameType(@Nullable DBSPType type) {
-        if (!super.sameType(type))
+    protected boolean sameStructure(DBSPType type) {
+        if (!super.sameStructure(type))
             return false;
-        assert type != null;
         if (!type.is(DBSPTypeRawTuple.class))
             return false;
         DBSPTypeRawTuple other = type.to(DBSPTypeRawTuple.class);
@@ -25,7 +25,6 @@ package org.dbsp.sqlCompiler.ir.type;
 
 import org.dbsp.sqlCompiler.ir.InnerVisitor;
 
-import javax.annotation.Nullable;
 import java.util.Objects;
 
 /**
@@ -53,14 +52,15 @@ public class DBSPTypeRef extends DBSPType {
     }
 
     @Override
-    public int hashCode() {
-        return Objects.hash(super.hashCode(), type.hashCode(), mutable);
+    protected int computeHashCode() {
+        // 'mutable' is ignored by sameStructure, so it cannot contribute to the hash.
+        return Objects.hash(super.computeHashCode(), type.hashCode());
     }
 
-    public boolean sameType(@Nullable DBSPType other) {
-        if (!super.sameType(other))
+    @Override
+    protected boolean sameStructure(DBSPType other) {
+        if (!super.sameStructure(other))
             return false;
-        assert other != null;
         DBSPTypeRef oRef = other.as(DBSPTypeRef.class);
         if (oRef == null)
             return false;
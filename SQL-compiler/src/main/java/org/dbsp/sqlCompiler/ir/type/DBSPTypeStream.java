@@ -25,7 +25,6 @@ package org.dbsp.sqlCompiler.ir.type;
 
 import org.dbsp.sqlCompiler.ir.InnerVisitor;
 
-import javax.annotation.Nullable;
 import java.util.Objects;
 
 /**
@@ -52,15 +51,14 @@ public class DBSPTypeStream extends DBSPType {
     }
 
     @Override
-    public int hashCode() {
-        return Objects.hash(super.hashCode(), this.elementType.hashCode());
+    protected int computeHashCode() {
+        return Objects.hash(super.computeHashCode(), this.elementType.hashCode());
     }
 
     @Override
-    public boolean sameType(@Nullable DBSPType other) {
-        if (!super.sameType(other))
+    protected boolean sameStructure(DBSPType other) {
+        if (!super.sameStructure(other))
             return false;
-        assert other != null;
         DBSPTypeStream oRef = other.as(DBSPTypeStream.class);
         if (oRef == null)
             return false;
@@ -107,10 +107,9 @@ public class DBSPTypeStruct extends DBSPType {
     public List<Field> getFields() { return this.args; }
 
     @Override
-    public boolean sameType(@Nullable DBSPType type) {
-        if (!super.sameType(type))
+    protected boolean sameStructure(DBSPType type) {
+        if (!super.sameStructure(type))
             return false;
-        assert type != null;
         if (!type.is(DBSPTypeStruct.class))
             return false;
         DBSPTypeStruct other = type.to(DBSPTypeStruct.class);
@@ -125,8 +124,8 @@ public class DBSPTypeStruct extends DBSPType {
     }
 
     @Override
-    public int hashCode() {
-        return Objects.hash(super.hashCode(), this.name, this.fields.hashCode());
+    protected int computeHashCode() {
+        return Objects.hash(super.computeHashCode(), this.name, this.fields.hashCode());
     }
 
     public DBSPType getFieldType(String col) {
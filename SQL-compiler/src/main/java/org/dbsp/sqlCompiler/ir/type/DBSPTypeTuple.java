@@ -73,15 +73,14 @@ public class DBSPTypeTuple extends DBSPTypeTupleBase {
     }
 
     @Override
-    public int hashCode() {
+    protected int computeHashCode() {
         return Arrays.hashCode(tupFields);
     }
 
     @Override
-    public boolean sameType(@Nullable DBSPType type) {
-        if (!super.sameType(type))
+    protected boolean sameStructure(DBSPType type) {
+        if (!super.sameStructure(type))
             return false;
-        assert type != null;
         if (!type.is(DBSPTypeTuple.class))
             return false;
         DBSPTypeTuple other = type.to(DBSPTypeTuple.class);
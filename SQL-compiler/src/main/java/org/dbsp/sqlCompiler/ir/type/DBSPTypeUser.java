@@ -58,10 +58,9 @@ public class DBSPTypeUser extends DBSPType {
     }
 
     @Override
-    public boolean sameType(@Nullable DBSPType type) {
-        if (!super.sameType(type))
+    protected boolean sameStructure(DBSPType type) {
+        if (!super.sameStructure(type))
             return false;
-        assert type != null;
         if (!type.is(DBSPTypeUser.class))
             return false;
         DBSPTypeUser other = type.to(DBSPTypeUser.class);
@@ -71,8 +70,8 @@ public class DBSPTypeUser extends DBSPType {
     }
 
     @Override
-    public int hashCode() {
-        int result = Objects.hash(super.hashCode(), name);
+    protected int computeHashCode() {
+        int result = Objects.hash(super.computeHashCode(), name);
         result = Objects.hash(result, Arrays.hashCode(typeArgs));
         return result;
     }
@@ -40,7 +40,7 @@ public class DBSPTypeBool extends DBSPTypeBaseType {
     }
 
     @Override
-    public int hashCode() {
+    protected int computeHashCode() {
         return Objects.hash(this.mayBeNull, 2);
     }
 
@@ -49,10 +49,9 @@ public class DBSPTypeBool extends DBSPTypeBaseType {
         return "b";
     }
 
-    public boolean sameType(@Nullable DBSPType type) {
-        if (!super.sameType(type))
+    protected boolean sameStructure(DBSPType type) {
+        if (!super.sameStructure(type))
             return false;
-        assert type != null;
         return type.is(DBSPTypeBool.class);
     }
 
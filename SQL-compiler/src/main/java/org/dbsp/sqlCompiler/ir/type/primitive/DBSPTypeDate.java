@@ -81,15 +81,14 @@ public class DBSPTypeDate extends DBSPTypeBaseType implements IsNumericType, IsD
     }
 
     @Override
-    public boolean sameType(@Nullable DBSPType other) {
-        if (!super.sameType(other))
+    protected boolean sameStructure(DBSPType other) {
+        if (!super.sameStructure(other))
             return false;
-        assert other != null;
         return other.is(DBSPTypeDate.class);
     }
 
     @Override
-    public int hashCode() {
+    protected int computeHashCode() {
         return Objects.hash(this.mayBeNull, 3);
     }
 
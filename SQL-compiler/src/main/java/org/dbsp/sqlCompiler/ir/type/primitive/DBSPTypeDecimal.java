@@ -100,15 +100,14 @@ public class DBSPTypeDecimal extends DBSPTypeBaseType
     }
 
     @Override
-    public int hashCode() {
-        return Objects.hash(super.hashCode(), this.precision, this.scale);
+    protected int computeHashCode() {
+        return Objects.hash(super.computeHashCode(), this.precision, this.scale);
     }
 
     @Override
-    public boolean sameType(@Nullable DBSPType type) {
-        if (!super.sameType(type))
+    protected boolean sameStructure(DBSPType type) {
+        if (!super.sameStructure(type))
             return false;
-        assert type != null;
         if (!type.is(DBSPTypeDecimal.class))
             return false;
         DBSPTypeDecimal other = type.to(DBSPTypeDecimal.class);
@@ -51,15 +51,14 @@ public class DBSPTypeDouble extends DBSPTypeFP implements IsNumericType {
     public static final DBSPTypeDouble NULLABLE_INSTANCE = new DBSPTypeDouble(null,true);
 
     @Override
-    public boolean sameType(@Nullable DBSPType type) {
-        if (!super.sameType(type))
+    protected boolean sameStructure(DBSPType type) {
+        if (!super.sameStructure(type))
             return false;
-        assert type != null;
         return type.is(DBSPTypeDouble.class);
     }
 
     @Override
-    public int hashCode() {
+    protected int computeHashCode() {
         return Objects.hash(this.mayBeNull, 4);
     }
 
@@ -51,15 +51,14 @@ public class DBSPTypeFloat extends DBSPTypeFP implements IsNumericType {
     public static final DBSPTypeFloat NULLABLE_INSTANCE = new DBSPTypeFloat(null,true);
 
     @Override
-    public boolean sameType(@Nullable DBSPType type) {
-        if (!super.sameType(type))
+    protected boolean sameStructure(DBSPType type) {
+        if (!super.sameStructure(type))
             return false;
-        assert type != null;
         return type.is(DBSPTypeFloat.class);
     }
 
     @Override
-    public int hashCode() {
+    protected int computeHashCode() {
         return Objects.hash(this.mayBeNull, 5);
     }
 
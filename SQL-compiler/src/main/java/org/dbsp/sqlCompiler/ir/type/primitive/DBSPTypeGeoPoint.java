@@ -51,15 +51,14 @@ public class DBSPTypeGeoPoint extends DBSPTypeGeo {
     }
 
     @Override
-    public int hashCode() {
+    protected int computeHashCode() {
         return Objects.hash(this.mayBeNull, 6);
     }
 
     @Override
-    public boolean sameType(@Nullable DBSPType type) {
-        if (!super.sameType(type))
+    protected boolean sameStructure(DBSPType type) {
+        if (!super.sameStructure(type))
             return false;
-        assert type != null;
         return type.is(DBSPTypeGeoPoint.class);
     }
 
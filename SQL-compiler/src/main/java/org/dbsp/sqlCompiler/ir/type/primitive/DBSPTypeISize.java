@@ -53,7 +53,7 @@ public class DBSPTypeISize extends DBSPTypeBaseType
     }
 
     @Override
-    public int hashCode() {
+    protected int computeHashCode() {
         return Objects.hash(this.mayBeNull, 7);
     }
 
@@ -63,10 +63,9 @@ public class DBSPTypeISize extends DBSPTypeBaseType
     }
 
     @Override
-    public boolean sameType(@Nullable DBSPType type) {
-        if (!super.sameType(type))
+    protected boolean sameStructure(DBSPType type) {
+        if (!super.sameStructure(type))
             return false;
-        assert type != null;
         return type.is(DBSPTypeISize.class);
     }
 
@@ -55,7 +55,7 @@ public class DBSPTypeInteger extends DBSPTypeBaseType
     }
 
     @Override
-    public int hashCode() {
+    protected int computeHashCode() {
         return Objects.hash(this.width, this.signed);
     }
 
@@ -127,10 +127,9 @@ public class DBSPTypeInteger extends DBSPTypeBaseType
     }
 
     @Override
-    public boolean sameType(@Nullable DBSPType type) {
-        if (!super.sameType(type))
+    protected boolean sameStructure(DBSPType type) {
+        if (!super.sameStructure(type))
             return false;
-        assert type != null;
         if (!type.is(DBSPTypeInteger.class))
             return false;
         DBSPTypeInteger other = type.to(DBSPTypeInteger.class);
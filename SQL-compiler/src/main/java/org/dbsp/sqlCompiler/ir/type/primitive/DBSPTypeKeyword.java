@@ -27,7 +27,6 @@ import org.dbsp.sqlCompiler.ir.InnerVisitor;
 import org.dbsp.sqlCompiler.ir.type.DBSPType;
 import org.dbsp.util.UnsupportedException;
 
-import javax.annotation.Nullable;
 import java.util.Objects;
 
 /**
@@ -58,15 +57,14 @@ public class DBSPTypeKeyword extends DBSPTypeBaseType {
     }
 
     @Override
-    public int hashCode() {
+    protected int computeHashCode() {
         return Objects.hash(this.mayBeNull, 7);
     }
 
     @Override
-    public boolean sameType(@Nullable DBSPType other) {
-        if (!super.sameType(other))
+    protected boolean sameStructure(DBSPType other) {
+        if (!super.sameStructure(other))
             return false;
-        assert other != null;
         return other.is(DBSPTypeKeyword.class);
     }
 }
@@ -61,7 +61,7 @@ public class DBSPTypeMillisInterval extends DBSPTypeBaseType implements IsNumeri
     }
 
     @Override
-    public int hashCode() {
+    protected int computeHashCode() {
         return Objects.hash(this.mayBeNull, 8);
     }
 
@@ -96,10 +96,9 @@ public class DBSPTypeMillisInterval extends DBSPTypeBaseType implements IsNumeri
     }
 
     @Override
-    public boolean sameType(@Nullable DBSPType other) {
-        if (!super.sameType(other))
+    protected boolean sameStructure(DBSPType other) {
+        if (!super.sameStructure(other))
             return false;
-        assert other != null;
         return other.is(DBSPTypeMillisInterval.class);
     }
 }
@@ -59,7 +59,7 @@ public class DBSPTypeMonthsInterval extends DBSPTypeBaseType implements IsNumeri
     }
 
     @Override
-    public int hashCode() {
+    protected int computeHashCode() {
         return Objects.hash(this.mayBeNull, 9);
     }
 
@@ -94,10 +94,9 @@ public class DBSPTypeMonthsInterval extends DBSPTypeBaseType implements IsNumeri
     }
 
     @Override
-    public boolean sameType(@Nullable DBSPType other) {
-        if (!super.sameType(other))
+    protected boolean sameStructure(DBSPType other) {
+        if (!super.sameStructure(other))
             return false;
-        assert other != null;
         return other.is(DBSPTypeMonthsInterval.class);
     }
 }
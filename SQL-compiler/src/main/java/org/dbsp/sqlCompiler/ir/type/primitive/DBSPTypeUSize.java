@@ -58,10 +58,9 @@ public class DBSPTypeUSize extends DBSPTypeBaseType
     }
 
     @Override
-    public boolean sameType(@Nullable DBSPType type) {
-        if (!super.sameType(type))
+    protected boolean sameStructure(DBSPType type) {
+        if (!super.sameStructure(type))
             return false;
-        assert type != null;
         return type.is(DBSPTypeUSize.class);
     }
 
@@ -86,7 +85,7 @@ public class DBSPTypeUSize extends DBSPTypeBaseType
     }
 
     @Override
-    public int hashCode() {
+    protected int computeHashCode() {
         return Objects.hash(this.mayBeNull, 15);
     }
 
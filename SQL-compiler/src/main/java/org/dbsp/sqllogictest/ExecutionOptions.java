@@ -28,6 +28,7 @@ import com.beust.jcommander.JCommander;
 import com.beust.jcommander.Parameter;
 import com.beust.jcommander.ParameterException;
 import org.apache.calcite.config.Lex;
+import org.dbsp.sqlCompiler.compiler.CompilationCache;
 import org.dbsp.sqlCompiler.compiler.CompilerOptions;
 import org.dbsp.sqllogictest.executors.*;
 import org.dbsp.util.UnsupportedException;
@@ -49,6 +50,7 @@ public class ExecutionOptions {
             this.legalExecutors.add("hybrid");
             this.legalExecutors.add("none");
             this.legalExecutors.add("calcite");
+            this.legalExecutors.add("interpreter");
         }
 
         @Override
@@ -81,6 +83,27 @@ public class ExecutionOptions {
     @Parameter(names = "-b", description = "Load a list of buggy commands to skip from this file")
     @Nullable
     String bugsFile = null;
+    @Parameter(names = "-csv", description = "Use CSV instead of binary files for large test inputs")
+    boolean csvInputs = false;
+    @Parameter(names = "-sqlite", description = "Use a SQLite database instead of binary files for large test inputs")
+    boolean sqliteInputs = false;
+    @Parameter(names = "-dbPage", description = "Read the SQLite test inputs with paginated queries of this many rows (0 = a single query)")
+    int dbPageSize = 0;
+    @Parameter(names = "-dbWorkers", description = "Number of threads that read each paginated SQLite input")
+    int dbWorkers = 4;
+    @Parameter(names = "-retry", description = "Clean the generated Rust crate and compile again when compilation fails")
+    boolean retryCompilation = false;
+    @Parameter(names = "-w", description = "Number of test files to execute in parallel")
+    int workers = 1;
+    @Parameter(names = "-bs", description = "Number of queries compiled together in a Rust batch (0 = adjust adaptively)")
+    int batchSize = 0;
+    @Parameter(names = "-bt", description = "Desired duration in seconds of a Rust batch when adjusting the batch size")
+    double batchSeconds = 60;
+    @Parameter(names = "-ib", description = "In incremental testing feed large inputs in batches of this many rows (0 = no batching)")
+    int inputBatchSize = 0;
+    @Parameter(names = "-cache", description = "Directory used to cache the Rust code generated for each batch")
+    @Nullable
+    String cacheDirectory = null;
     // @Parameter(names = "-j", description = "Validate JSON JIT IR representation while compiling")
     // TODO: reenable this when the JIT compiler works properly
     boolean validateJson = false;
@@ -112,8 +135,13 @@ public class ExecutionOptions {
         this.commander.setProgramName("slt");
     }
 
-    String jdbcConnectionString() {
-        return "jdbc:hsqldb:mem:db";
+    /**
+     * Connection string for the in-memory database used by a worker.
+     * Workers running concurrently must not share a database.
+     * @param worker  Index of the worker.
+     */
+    String jdbcConnectionString(int worker) {
+        return "jdbc:hsqldb:mem:db" + worker;
     }
 
     public void usage() {
@@ -121,17 +149,53 @@ public class ExecutionOptions {
     }
 
     String connectionString() {
-        return "csv";
+        if (this.csvInputs)
+            return "csv";
+        return this.sqliteInputs ? "sqlite" : "binary";
     }
 
-    JDBCExecutor jdbcExecutor(HashSet<String> sltBugs) {
-        JDBCExecutor jdbc =  new JDBCExecutor(this.jdbcConnectionString());
+    JDBCExecutor jdbcExecutor(HashSet<String> sltBugs, int worker) {
+        JDBCExecutor jdbc =  new JDBCExecutor(this.jdbcConnectionString(worker));
         jdbc.avoid(sltBugs);
         jdbc.setValidateStatus(this.validateStatus);
         return jdbc;
     }
 
-    SqlSLTTestExecutor getExecutor() throws IOException, SQLException {
+    void setDbPagination(DBSPExecutor executor) {
+        // SQLite tables have an integer 'rowid' column which is used as the key.
+        if (this.dbPageSize > 0)
+            executor.setDbPagination("rowid", this.dbPageSize, this.dbWorkers);
+    }
+
+    /**
+     * Check the consistency of the options.
+     * @return  An error message, or null if the options are valid.
+     */
+    @Nullable
+    public String validate() {
+        if (this.csvInputs && this.sqliteInputs)
+            return "At most one of -csv and -sqlite can be specified";
+        if (this.dbPageSize > 0 && !this.sqliteInputs)
+            return "-dbPage requires -sqlite";
+        if (this.dbWorkers <= 0)
+            return "-dbWorkers must be positive";
+        return null;
+    }
+
+    @Nullable
+    CompilationCache getCache() {
+        if (this.cacheDirectory == null)
+            return null;
+        CompilerOptions options = new CompilerOptions();
+        options.ioOptions.cacheDirectory = this.cacheDirectory;
+        return new CompilationCache(options.ioOptions);
+    }
+
+    /**
+     * Create the executor that runs the tests.
+     * @param worker  Index of the worker that will use the executor.
+     */
+    SqlSLTTestExecutor getExecutor(int worker) throws IOException, SQLException {
         HashSet<String> sltBugs = new HashSet<>();
         if (this.bugsFile != null) {
             sltBugs = this.readBugsFile(this.bugsFile);
@@ -148,24 +212,36 @@ public class ExecutionOptions {
                 DBSPExecutor dExec = new DBSPExecutor(!this.doNotExecute, this.validateJson, options, connectionString());
                 dExec.avoid(sltBugs);
                 dExec.setValidateStatus(this.validateStatus);
+                dExec.setInputBatchSize(this.inputBatchSize);
+                dExec.setCache(this.getCache());
+                this.setDbPagination(dExec);
                 return dExec;
             case "JDBC": {
-                return this.jdbcExecutor(sltBugs);
+                return this.jdbcExecutor(sltBugs, worker);
+            }
+            case "interpreter": {
+                InterpreterExecutor result = new InterpreterExecutor(options);
+                result.avoid(sltBugs);
+                result.setValidateStatus(this.validateStatus);
+                return result;
             }
             case "calcite": {
-                JDBCExecutor jdbc = this.jdbcExecutor(sltBugs);
+                JDBCExecutor jdbc = this.jdbcExecutor(sltBugs, worker);
                 CalciteExecutor result = new CalciteExecutor(jdbc);
                 result.avoid(sltBugs);
                 result.setValidateStatus(this.validateStatus);
                 return result;
             }
             case "hybrid": {
-                JDBCExecutor jdbc = this.jdbcExecutor(sltBugs);
+                JDBCExecutor jdbc = this.jdbcExecutor(sltBugs, worker);
                 DBSP_JDBC_Executor result = new DBSP_JDBC_Executor(
                         jdbc, !this.doNotExecute, this.validateJson,
                         options, connectionString());
                 result.avoid(sltBugs);
                 result.setValidateStatus(this.validateStatus);
+                result.setInputBatchSize(this.inputBatchSize);
+                result.setCache(this.getCache());
+                this.setDbPagination(result);
                 return result;
             }
             default:
@@ -189,9 +265,15 @@ public class ExecutionOptions {
                 ", install=" + this.install +
                 ", directories=" + this.directories +
                 ", incremental=" + this.incremental +
+                ", inputBatchSize=" + this.inputBatchSize +
+                ", inputs=" + this.connectionString() +
+                ", dbPageSize=" + this.dbPageSize +
                 ", execute=" + !this.doNotExecute +
                 ", executor=" + this.executor +
                 ", stopAtFirstError=" + this.stopAtFirstError +
+                ", workers=" + this.workers +
+                ", batchSize=" + this.batchSize +
+                ", batchSeconds=" + this.batchSeconds +
                 '}';
     }
 }
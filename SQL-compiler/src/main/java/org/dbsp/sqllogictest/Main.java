@@ -42,6 +42,7 @@ import java.security.NoSuchAlgorithmException;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.*;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 
@@ -52,9 +53,14 @@ public class Main {
     static final String SLT_GIT = "https://github.com/gregrahn/sqllogictest/archive/refs/heads/master.zip";
 
     static class TestLoader extends SimpleFileVisitor<Path> {
+        // Limits for the number of queries compiled together when the batch size is adaptive.
+        static final int INITIAL_BATCH_SIZE = 5;
+        static final int MAX_BATCH_SIZE = 500;
         int errors = 0;
         final TestStatistics statistics;
         public final ExecutionOptions options;
+        // Test files found while walking the directories, in order.
+        final List<Path> files;
         /**
          * This policy accepts all SLT queries and statements written in the Postgres SQL language.
          */
@@ -75,49 +81,110 @@ public class Main {
         TestLoader(ExecutionOptions options) {
             this.statistics = new TestStatistics(options.stopAtFirstError);
             this.options = options;
+            this.files = new ArrayList<>();
         }
 
-        @SuppressWarnings("ConstantConditions")
         @Override
         public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+            String extension = Utilities.getFileExtension(file.toString());
+            if (attrs.isRegularFile() && extension != null && extension.equals("test"))
+                this.files.add(file);
+            return FileVisitResult.CONTINUE;
+        }
+
+        /**
+         * Execute the tests in a file.
+         * @param file           File with tests.
+         * @param worker         Index of the worker executing the file.
+         * @param rustDirectory  Directory where the Rust code is compiled by the DBSP executors.
+         * @return               The test statistics, or null if the file could not be parsed.
+         */
+        @SuppressWarnings("ConstantConditions")
+        @Nullable
+        TestStatistics runFile(Path file, int worker, String rustDirectory) {
             SqlSLTTestExecutor executor = null;
             try {
-                executor = this.options.getExecutor();
+                executor = this.options.getExecutor(worker);
             } catch (IOException | SQLException e) {
                 throw new RuntimeException(e);
             }
-            String extension = Utilities.getFileExtension(file.toString());
-            int batchSize = 500;
             int skipPerFile = 0;
-            String name = file.getFileName().toString();
-            if (name.startsWith("select"))
-                batchSize = Math.min(batchSize, 20);
-            if (name.startsWith("select5"))
-                batchSize = Math.min(batchSize, 5);
-            if (executor.is(DBSPExecutor.class))
-                executor.to(DBSPExecutor.class).setBatchSize(batchSize, skipPerFile);
-            if (attrs.isRegularFile() && extension != null && extension.equals("test")) {
-                // validates the test
-                SLTTestFile test = null;
-                try {
-                    System.out.println(file);
-                    test = new SLTTestFile(file.toString());
-                    test.parse(new PostgresPolicy());
-                } catch (Exception ex) {
-                    System.err.println(ex.toString());
-                    this.errors++;
+            if (executor.is(DBSPExecutor.class)) {
+                DBSPExecutor dbsp = executor.to(DBSPExecutor.class);
+                if (this.options.batchSize > 0) {
+                    dbsp.setBatchSize(this.options.batchSize, skipPerFile);
+                } else {
+                    // Start small: some files have very expensive queries.
+                    dbsp.setBatchSize(INITIAL_BATCH_SIZE, skipPerFile);
+                    dbsp.setBatchSizeTuner(new BatchSizeTuner(
+                            INITIAL_BATCH_SIZE, 1, MAX_BATCH_SIZE, this.options.batchSeconds));
                 }
-                if (test != null) {
+                dbsp.setRustDirectory(rustDirectory);
+            }
+            // validates the test
+            SLTTestFile test;
+            try {
+                System.out.println(file);
+                test = new SLTTestFile(file.toString());
+                test.parse(new PostgresPolicy());
+            } catch (Exception ex) {
+                System.err.println(ex);
+                return null;
+            }
+            try {
+                return executor.execute(test, options);
+            } catch (SqlParseException | IOException | SQLException | NoSuchAlgorithmException |
+                     InterruptedException ex) {
+                throw new RuntimeException(ex);
+            }
+        }
+
+        void addResult(@Nullable TestStatistics stats) {
+            if (stats == null)
+                this.errors++;
+            else
+                this.statistics.add(stats);
+        }
+
+        /**
+         * Execute all the test files found.
+         */
+        void run() throws IOException, InterruptedException {
+            if (this.options.workers <= 1) {
+                for (Path file: this.files)
+                    this.addResult(this.runFile(file, 0, DBSPExecutor.defaultRustDirectory));
+                return;
+            }
+
+            // Each worker compiles the Rust code in its own crate.
+            String crate = new File(DBSPExecutor.defaultRustDirectory).getParent();
+            List<String> rustDirectories = new ArrayList<>();
+            BlockingQueue<Integer> idleWorkers = new LinkedBlockingQueue<>();
+            for (int i = 0; i < this.options.workers; i++) {
+                rustDirectories.add(Utilities.createRustCrateCopy(crate, "temp_worker" + i));
+                idleWorkers.add(i);
+            }
+            ExecutorService pool = Executors.newFixedThreadPool(this.options.workers);
+            List<Future<TestStatistics>> results = new ArrayList<>();
+            for (Path file: this.files) {
+                results.add(pool.submit(() -> {
+                    int worker = idleWorkers.take();
                     try {
-                        TestStatistics stats = executor.execute(test, options);
-                        this.statistics.add(stats);
-                    } catch (SqlParseException | IOException | SQLException | NoSuchAlgorithmException |
-                             InterruptedException ex) {
-                        throw new RuntimeException(ex);
+                        return this.runFile(file, worker, rustDirectories.get(worker));
+                    } finally {
+                        idleWorkers.add(worker);
                     }
-                }
+                }));
+            }
+            pool.shutdown();
+            // Merge the results in the order of the files, so the output is deterministic.
+            try {
+                for (Future<TestStatistics> result: results)
+                    this.addResult(result.get());
+            } catch (ExecutionException ex) {
+                pool.shutdownNow();
+                throw new RuntimeException(ex.getCause());
             }
-            return FileVisitResult.CONTINUE;
         }
     }
 
@@ -183,7 +250,7 @@ public class Main {
     }
 
     @SuppressWarnings("SpellCheckingInspection")
-    public static void main(String[] argv) throws IOException {
+    public static void main(String[] argv) throws IOException, InterruptedException {
         RustSqlRuntimeLibrary.INSTANCE.writeSqlLibrary( "../lib/genlib/src/lib.rs");
         List<String> files = Linq.list(
                 "/index/random/1000/slt_good_0.test"
@@ -242,6 +309,10 @@ public class Main {
         }
         if (options.help)
             abort(options, null);
+        String invalid = options.validate();
+        if (invalid != null)
+            abort(options, invalid);
+        Utilities.setRetryFailedCompilation(options.retryCompilation);
         if (options.sltDirectory == null)
             abort(options, "Please specify the directory with the SqlLogicTest suite using the -d flag");
 
@@ -263,6 +334,7 @@ public class Main {
             Path path = Paths.get(options.sltDirectory + "/test/" + file);
             Files.walkFileTree(path, loader);
         }
+        loader.run();
         System.out.println("Files that could not be not parsed: " + loader.errors);
         System.out.println(loader.statistics);
     }
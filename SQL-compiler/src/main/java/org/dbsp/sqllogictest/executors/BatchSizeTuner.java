@@ -0,0 +1,98 @@
+/*
+ * Copyright 2022 VMware, Inc.
+ * SPDX-License-Identifier: MIT
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.dbsp.sqllogictest.executors;
+
+/**
+ * Chooses the number of queries compiled together in a Rust batch.
+ * Each batch pays a fixed cost (invoking cargo, linking, starting the test binary)
+ * and a cost proportional to the number of queries.  Larger batches amortize the
+ * fixed cost, but a failing batch loses more work, and very large generated files
+ * compile slowly.  The tuner measures the cost per query and aims for batches that
+ * take about the same specified amount of time.
+ */
+public class BatchSizeTuner {
+    // Weight of the last measurement in the running estimate.
+    static final double SMOOTHING = 0.5;
+
+    final int minimum;
+    final int maximum;
+    final double targetSeconds;
+    int batchSize;
+    // Running estimate of the time it takes to process a query; negative if unknown.
+    double secondsPerQuery;
+
+    /**
+     * Create a batch size tuner.
+     * @param initial        Size of the first batch.
+     * @param minimum        Smallest batch size to use.
+     * @param maximum        Largest batch size to use.
+     * @param targetSeconds  Desired duration of a batch.
+     */
+    public BatchSizeTuner(int initial, int minimum, int maximum, double targetSeconds) {
+        if (minimum <= 0 || minimum > maximum || targetSeconds <= 0)
+            throw new RuntimeException("Illegal batch size limits " + minimum + ".." + maximum +
+                    " or target time " + targetSeconds);
+        this.minimum = minimum;
+        this.maximum = maximum;
+        this.targetSeconds = targetSeconds;
+        this.batchSize = this.clamp(initial);
+        this.secondsPerQuery = -1;
+    }
+
+    int clamp(long size) {
+        return (int)Math.max(this.minimum, Math.min(this.maximum, size));
+    }
+
+    public int getBatchSize() {
+        return this.batchSize;
+    }
+
+    /**
+     * Record the time taken by a batch and recompute the batch size.
+     * @param queries  Number of queries in the batch.
+     * @param seconds  Time taken to compile and run the batch.
+     */
+    public void record(int queries, double seconds) {
+        if (queries <= 0)
+            return;
+        double perQuery = seconds / queries;
+        if (this.secondsPerQuery < 0)
+            this.secondsPerQuery = perQuery;
+        else
+            this.secondsPerQuery = SMOOTHING * perQuery + (1 - SMOOTHING) * this.secondsPerQuery;
+        long desired = Math.round(this.targetSeconds / Math.max(this.secondsPerQuery, 1e-6));
+        // The measured cost per query includes the amortized fixed cost, which
+        // shrinks as the batch grows, so grow gradually to re-measure on the way.
+        desired = Math.min(desired, 2L * this.batchSize);
+        this.batchSize = this.clamp(desired);
+    }
+
+    @Override
+    public String toString() {
+        return "BatchSizeTuner{" +
+                "batchSize=" + this.batchSize +
+                ", secondsPerQuery=" + this.secondsPerQuery +
+                '}';
+    }
+}
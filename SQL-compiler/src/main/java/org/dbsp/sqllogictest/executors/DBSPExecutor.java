@@ -25,10 +25,12 @@ package org.dbsp.sqllogictest.executors;
 
 import org.apache.calcite.sql.parser.SqlParseException;
 import org.dbsp.sqlCompiler.circuit.DBSPCircuit;
+import org.dbsp.sqlCompiler.compiler.CompilationCache;
 import org.dbsp.sqlCompiler.compiler.CompilerOptions;
 import org.dbsp.sqlCompiler.compiler.backend.*;
 import org.dbsp.sqlCompiler.compiler.backend.jit.ToJitVisitor;
 import org.dbsp.sqlCompiler.compiler.backend.rust.RustFileWriter;
+import org.dbsp.sqlCompiler.compiler.frontend.ColumnarTable;
 import org.dbsp.sqlCompiler.compiler.frontend.TableContents;
 import org.dbsp.sqlCompiler.compiler.frontend.TypeCompiler;
 import org.dbsp.sqlCompiler.ir.DBSPFunction;
@@ -47,7 +49,9 @@ import org.dbsp.util.*;
 import javax.annotation.Nullable;
 import java.io.*;
 import java.math.BigDecimal;
-import java.sql.SQLException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.sql.*;
 import java.util.*;
 
 /**
@@ -69,25 +73,95 @@ public class DBSPExecutor extends SqlSLTTestExecutor {
         }
     }
 
-    static final String rustDirectory = "../temp/src/";
+    public static final String defaultRustDirectory = "../temp/src/";
+    // Directory where the Rust test code is generated; it must be part of a Rust crate.
+    private String rustDirectory;
     static final String testFileName = "test";
     private final boolean execute;
     private final boolean validateJson;
     private int batchSize;  // Number of queries to execute together
     private int skip;       // Number of queries to skip in each test file.
+    // If set, adjusts the batch size based on the measured time of each batch.
+    @Nullable
+    private BatchSizeTuner tuner;
+    // If positive, large inputs of incremental circuits are read from files
+    // in batches of this many rows, and each batch is fed in a separate step.
+    private int inputBatchSize;
+    // For each input table read in batches the expression which produces the batches.
+    // Computed by createInputFunction.
+    @Nullable
+    private DBSPExpression[] batchedInputs;
+    // If non-null, tables are read from the database using keyset pagination on this integer column.
+    @Nullable
+    private String dbKeyColumn;
+    private int dbPageSize;  // Number of rows fetched by each query when paginating
+    private int dbWorkers;   // Number of threads scanning each table in parallel when paginating
+    // If set, the files generated for each batch are cached here.
+    @Nullable
+    private CompilationCache cache;
     public final CompilerOptions options;
 
-    private final String connectionString; // either csv or a valid sqlx connection string
+    private final String connectionString; // either csv, binary, sqlite, or a valid sqlx connection string
     final SqlTestPrepareInput inputPreparation;
     final SqlTestPrepareTables tablePreparation;
     final SqlTestPrepareViews viewPreparation;
-    private final List<SqlTestQuery> queriesToRun;
+    final List<SqlTestQuery> queriesToRun;
+
+    /**
+     * Set the directory where Rust code is written and compiled.
+     * Executors running concurrently must use different directories.
+     */
+    public void setRustDirectory(String rustDirectory) {
+        this.rustDirectory = rustDirectory;
+    }
 
     public void setBatchSize(int batchSize, int skip) {
         this.batchSize = batchSize;
         this.skip = skip;
     }
 
+    /**
+     * Let the tuner choose the size of each batch from the time taken by the previous ones.
+     * @param tuner  Tuner to use; null to keep a fixed batch size.
+     */
+    public void setBatchSizeTuner(@Nullable BatchSizeTuner tuner) {
+        this.tuner = tuner;
+        if (tuner != null)
+            this.batchSize = tuner.getBatchSize();
+    }
+
+    /**
+     * Feed large inputs to incremental circuits in batches of the specified size.
+     * @param inputBatchSize  Number of rows in each batch; 0 disables batching.
+     */
+    public void setInputBatchSize(int inputBatchSize) {
+        this.inputBatchSize = inputBatchSize;
+    }
+
+    /**
+     * Read the input tables from the database with paginated queries running in parallel.
+     * @param keyColumn  Integer column used for keyset pagination, e.g., "rowid" for SQLite.
+     * @param pageSize   Number of rows fetched by each query.
+     * @param workers    Number of threads that read each table.
+     */
+    public void setDbPagination(String keyColumn, int pageSize, int workers) {
+        if (pageSize <= 0 || workers <= 0)
+            throw new RuntimeException("Page size and number of workers must be positive");
+        this.dbKeyColumn = keyColumn;
+        this.dbPageSize = pageSize;
+        this.dbWorkers = workers;
+    }
+
+    /**
+     * Cache the Rust files generated for each batch of queries.
+     * A batch whose tables, inputs, views and queries were already compiled
+     * reuses the previously generated files without invoking the compiler.
+     * @param cache  Cache to use; null to always compile.
+     */
+    public void setCache(@Nullable CompilationCache cache) {
+        this.cache = cache;
+    }
+
     /**
      * Create an executor that executes SqlLogicTest queries directly compiling to
      * Rust and using the DBSP library.
@@ -103,6 +177,12 @@ public class DBSPExecutor extends SqlSLTTestExecutor {
         this.tablePreparation = new SqlTestPrepareTables();
         this.viewPreparation = new SqlTestPrepareViews();
         this.batchSize = 10;
+        this.tuner = null;
+        this.rustDirectory = defaultRustDirectory;
+        this.inputBatchSize = 0;
+        this.batchedInputs = null;
+        this.dbKeyColumn = null;
+        this.cache = null;
         this.options = options;
         this.queriesToRun = new ArrayList<>();
         this.connectionString = connectionString;
@@ -110,12 +190,16 @@ public class DBSPExecutor extends SqlSLTTestExecutor {
 
     public static class TableValue {
         public final String tableName;
-        public final DBSPZSetLiteral contents;
+        public final ColumnarTable contents;
 
-        public TableValue(String tableName, DBSPZSetLiteral contents) {
+        public TableValue(String tableName, ColumnarTable contents) {
             this.tableName = tableName;
             this.contents = contents;
         }
+
+        public TableValue(String tableName, DBSPZSetLiteral contents) {
+            this(tableName, new ColumnarTable(contents));
+        }
     }
 
     public TableValue[] getInputSets(DBSPCompiler compiler) throws SQLException {
@@ -125,37 +209,66 @@ public class DBSPExecutor extends SqlSLTTestExecutor {
         TableValue[] tableValues = new TableValue[tables.tablesCreated.size()];
         for (int i = 0; i < tableValues.length; i++) {
             String table = tables.tablesCreated.get(i);
-            tableValues[i] = new TableValue(table, tables.getTableContents(table));
+            tableValues[i] = new TableValue(table, tables.getTableData(table));
         }
         return tableValues;
     }
 
-    DBSPFunction createInputFunction(TableValue[] tables) throws IOException {
+    /**
+     * Generates a call which reads a file in batches.
+     * @param reader     Name of the Rust function that reads the file.
+     * @param fileName   File to read.
+     * @param contents   Data in the file.
+     * @param sized      If true the reader receives the batch size; otherwise
+     *                   the batches are delimited in the file itself.
+     */
+    DBSPExpression readBatches(String reader, String fileName, ColumnarTable contents, boolean sized) {
+        DBSPExpression function = new DBSPQualifyTypeExpression(
+                DBSPTypeAny.INSTANCE.var(reader),
+                contents.getElementType(),
+                contents.zsetType.weightType);
+        if (!sized)
+            return function.call(new DBSPStrLiteral(fileName));
+        return function.call(new DBSPStrLiteral(fileName), new DBSPUSizeLiteral(this.inputBatchSize));
+    }
+
+    /**
+     * Generate a function returning the contents of the input tables.
+     * Large inputs are written to files and read back at runtime.
+     */
+    public DBSPFunction createInputFunction(TableValue[] tables) throws IOException, SQLException {
         DBSPExpression[] fields = new DBSPExpression[tables.length];
+        // Non-incremental circuits need to receive all inputs in a single step.
+        boolean batched = this.inputBatchSize > 0 && this.options.optimizerOptions.incrementalize;
+        this.batchedInputs = new DBSPExpression[tables.length];
         int totalSize = 0;
         Set<String> seen = new HashSet<>();
         for (int i = 0; i < tables.length; i++) {
             totalSize += tables[i].contents.size();
-            fields[i] = tables[i].contents;
             if (seen.contains(tables[i].tableName))
                 throw new RuntimeException("Table " + tables[i].tableName + " already in input");
             seen.add(tables[i].tableName);
         }
 
-        if (totalSize > 10) {
-            if (connectionString.equals("csv")) {
-                // If the data is large write, it to a set of CSV files and read it at runtime.
-                for (int i = 0; i < tables.length; i++) {
-                    String fileName = (rustDirectory + tables[i].tableName) + ".csv";
-                    ToCsvVisitor.toCsv(fileName, tables[i].contents);
-                    fields[i] = new DBSPApplyExpression("read_csv",
-                            tables[i].contents.getNonVoidType(),
-                            new DBSPStrLiteral(fileName));
-                }
-            } else {
-                // read from DB
-                for (int i = 0; i < tables.length; i++) {
-                    fields[i] = generateReadDbCall(tables[i]);
+        if (totalSize <= 10) {
+            // Small inputs are compiled into the program as literals.
+            for (int i = 0; i < tables.length; i++)
+                fields[i] = tables[i].contents.toZSetLiteral();
+        } else {
+            boolean files = connectionString.equals("csv") ||
+                    connectionString.equals("binary") ||
+                    connectionString.equals("sqlite");
+            File database = new File(this.rustDirectory + testFileName + "_inputs.db");
+            for (int i = 0; i < tables.length; i++) {
+                if (connectionString.equals("sqlite") && sqliteSupports(tables[i].contents)) {
+                    // The Rust runtime reads the tables from a SQLite database file.
+                    writeSqlite(database.getPath(), tables[i]);
+                    fields[i] = this.generateReadDbCall("sqlite://" + database.getAbsolutePath(), tables[i]);
+                } else if (files) {
+                    fields[i] = this.readFromFile(i, tables[i], batched);
+                } else {
+                    // read from DB
+                    fields[i] = this.generateReadDbCall(connectionString, tables[i]);
                 }
             }
         }
@@ -164,27 +277,175 @@ public class DBSPExecutor extends SqlSLTTestExecutor {
                 result.getType(), result);
     }
 
-    private DBSPExpression generateReadDbCall(TableValue tableValue) {
-        // Generates a read_table(<conn>, <table_name>, <mapper from |AnyRow| -> Tuple type>) invocation
+    /**
+     * Write a table to a file and generate the code that reads it at runtime.
+     * @param index    Index of the table in the input.
+     * @param table    Table to write.
+     * @param batched  If true the table is read in batches, which are fed in separate steps.
+     * @return         The expression producing the table contents in the first step.
+     */
+    DBSPExpression readFromFile(int index, TableValue table, boolean batched) throws IOException {
+        // Binary files are much faster to load than CSV files,
+        // but cannot represent all column types.
+        boolean binary = !connectionString.equals("csv") &&
+                ToBinaryVisitor.isSupported(table.contents.getElementType());
+        String fileName = this.rustDirectory + table.tableName;
+        String reader;
+        if (binary) {
+            fileName += ".bin";
+            if (batched)
+                ToBinaryVisitor.toBinaryBatches(fileName, table.contents, this.inputBatchSize);
+            else
+                ToBinaryVisitor.toBinary(fileName, table.contents);
+            reader = "read_binary";
+        } else {
+            // If the data is large write, it to a set of CSV files and read it at runtime.
+            fileName += ".csv";
+            ToCsvVisitor.toCsv(fileName, table.contents);
+            reader = "read_csv";
+        }
+        if (batched) {
+            Objects.requireNonNull(this.batchedInputs)[index] =
+                    this.readBatches(reader + "_batches", fileName, table.contents, !binary);
+            return DBSPZSetLiteral.emptyWithType(table.contents.zsetType);
+        }
+        return new DBSPApplyExpression(reader, table.contents.zsetType, new DBSPStrLiteral(fileName));
+    }
+
+    /**
+     * True if a table can be stored in a SQLite database and read back by the Rust runtime.
+     */
+    static boolean sqliteSupports(ColumnarTable contents) {
+        DBSPTypeTuple tuple = contents.getElementType().as(DBSPTypeTuple.class);
+        if (tuple == null)
+            return false;
+        for (DBSPType field : tuple.tupFields) {
+            DBSPTypeInteger integer = field.as(DBSPTypeInteger.class);
+            if (integer != null) {
+                if (!integer.signed || (integer.getWidth() != 32 && integer.getWidth() != 64))
+                    return false;
+            } else if (!field.is(DBSPTypeBool.class) && !field.is(DBSPTypeString.class)) {
+                return false;
+            }
+        }
+        contents.consolidateIfNeeded();
+        // A database table cannot represent negative weights
+        for (int i = 0; i < contents.size(); i++)
+            if (contents.getWeight(i) < 0)
+                return false;
+        return true;
+    }
+
+    @Nullable
+    static Object sqliteValue(DBSPExpression cell) {
+        DBSPLiteral literal = cell.to(DBSPLiteral.class);
+        if (literal.isNull)
+            return null;
+        if (literal.is(DBSPI32Literal.class))
+            return literal.to(DBSPI32Literal.class).value;
+        if (literal.is(DBSPI64Literal.class))
+            return literal.to(DBSPI64Literal.class).value;
+        if (literal.is(DBSPBoolLiteral.class))
+            return literal.to(DBSPBoolLiteral.class).value;
+        if (literal.is(DBSPStringLiteral.class))
+            return literal.to(DBSPStringLiteral.class).value;
+        throw new UnsupportedException(literal);
+    }
+
+    /**
+     * Write the contents of a table to a SQLite database, replacing any
+     * table with the same name.
+     * @param fileName  Database file.
+     * @param table     Table to write.
+     */
+    static void writeSqlite(String fileName, TableValue table) throws SQLException {
+        DBSPTypeTuple tuple = table.contents.getElementType().to(DBSPTypeTuple.class);
+        StringBuilder columns = new StringBuilder();
+        StringBuilder values = new StringBuilder();
+        for (int i = 0; i < tuple.tupFields.length; i++) {
+            DBSPType field = tuple.tupFields[i];
+            if (i > 0) {
+                columns.append(", ");
+                values.append(", ");
+            }
+            columns.append("c").append(i).append(" ");
+            if (field.is(DBSPTypeBool.class))
+                columns.append("BOOLEAN");
+            else if (field.is(DBSPTypeString.class))
+                columns.append("TEXT");
+            else
+                columns.append("INTEGER");
+            values.append("?");
+        }
+        try (Connection connection = DriverManager.getConnection("jdbc:sqlite:" + fileName)) {
+            connection.setAutoCommit(false);
+            try (Statement statement = connection.createStatement()) {
+                statement.executeUpdate("DROP TABLE IF EXISTS " + table.tableName);
+                statement.executeUpdate("CREATE TABLE " + table.tableName + "(" + columns + ")");
+            }
+            try (PreparedStatement insert = connection.prepareStatement(
+                    "INSERT INTO " + table.tableName + " VALUES(" + values + ")")) {
+                for (int i = 0; i < table.contents.size(); i++) {
+                    DBSPTupleExpression row = table.contents.getRow(i);
+                    for (int j = 0; j < row.fields.length; j++)
+                        insert.setObject(j + 1, sqliteValue(row.fields[j]));
+                    for (long w = 0; w < table.contents.getWeight(i); w++)
+                        insert.addBatch();
+                }
+                insert.executeBatch();
+            }
+            connection.commit();
+        }
+    }
+
+    private DBSPExpression generateReadDbCall(String connectionString, TableValue tableValue) {
+        // Generates a read_db(<conn>, <table_name>, <mapper from |AnyRow| -> Tuple type>) invocation
+        // or a read_db_paged(<conn>, <table_name>, <key>, <page_size>, <workers>, <mapper>) invocation
         DBSPTypeUser sqliteRowType = new DBSPTypeUser(null, "AnyRow", false);
         DBSPVariablePath rowVariable = new DBSPVariablePath("row", sqliteRowType);
         DBSPTypeTuple tupleType = tableValue.contents.zsetType.elementType.to(DBSPTypeTuple.class);
         final List<DBSPExpression> rowGets = new ArrayList<>(tupleType.tupFields.length);
         for (int i = 0; i <  tupleType.tupFields.length; i++) {
+            // The types of the columns are known statically, so we skip the
+            // per-cell type compatibility check performed by 'get'.
+            DBSPExpression getter = new DBSPQualifyTypeExpression(
+                    DBSPTypeAny.INSTANCE.var("try_get_unchecked"),
+                    tupleType.tupFields[i], DBSPTypeUSize.INSTANCE);
             DBSPApplyMethodExpression rowGet =
-                    new DBSPApplyMethodExpression("get",
-                            tupleType.tupFields[i],
+                    new DBSPApplyMethodExpression(getter, DBSPTypeAny.INSTANCE,
                             rowVariable, new DBSPUSizeLiteral(i));
-            rowGets.add(rowGet);
+            rowGets.add(new DBSPApplyMethodExpression("unwrap", tupleType.tupFields[i], rowGet));
         }
         DBSPTupleExpression tuple = new DBSPTupleExpression(rowGets, false);
         DBSPClosureExpression mapClosure = new DBSPClosureExpression(null, tuple,
                 rowVariable.asRefParameter());
+        if (this.dbKeyColumn != null)
+            return new DBSPApplyExpression("read_db_paged", tableValue.contents.zsetType,
+                    new DBSPStrLiteral(connectionString), new DBSPStrLiteral(tableValue.tableName),
+                    new DBSPStrLiteral(this.dbKeyColumn), new DBSPUSizeLiteral(this.dbPageSize),
+                    new DBSPUSizeLiteral(this.dbWorkers), mapClosure);
         return new DBSPApplyExpression("read_db", tableValue.contents.zsetType,
                 new DBSPStrLiteral(connectionString), new DBSPStrLiteral(tableValue.tableName),
                 mapClosure);
     }
 
+    /**
+     * Creates a tuple with the specified value in position 'index'
+     * and empty zsets in all other positions.
+     */
+    static DBSPExpression injectInput(DBSPTypeRawTuple inputType, int index, DBSPExpression value) {
+        DBSPExpression[] fields = new DBSPExpression[inputType.tupFields.length];
+        for (int j = 0; j < inputType.tupFields.length; j++) {
+            DBSPType fieldType = inputType.tupFields[j];
+            if (index == j) {
+                fields[j] = value;
+            } else {
+                fields[j] = new DBSPApplyExpression("zset!", fieldType);
+            }
+        }
+        return new DBSPRawTupleExpression(fields);
+    }
+
     /**
      * Example generated code for the function body:
      *     let mut vec = Vec::new();
@@ -193,6 +454,9 @@ public class DBSPExecutor extends SqlSLTTestExecutor {
      *     vec.push((zset!(), zset!(), data.2, zset!()));
      *     vec.push((zset!(), zset!(), zset!(), data.3));
      *     vec
+     * If some inputs are read in batches the function returns an iterator instead:
+     *     Box::new(vec.into_iter()
+     *         .chain(read_csv_batches::<T, Weight>("t.csv", 1000).map(move |b| (zset!(), b, zset!(), zset!()))))
      */
     DBSPFunction createStreamInputFunction(
             DBSPFunction inputGeneratingFunction) {
@@ -202,8 +466,16 @@ public class DBSPExecutor extends SqlSLTTestExecutor {
         DBSPLetStatement input = new DBSPLetStatement("data", inputGeneratingFunction.call());
         List<DBSPStatement> statements = new ArrayList<>();
         statements.add(input);
-        DBSPLetStatement let = new DBSPLetStatement(vec.variable,
-                DBSPTypeAny.INSTANCE.path(new DBSPPath("Vec", "new")).call(), true);
+        boolean batched = this.batchedInputs != null &&
+                Linq.any(this.batchedInputs, Objects::nonNull);
+        DBSPLetStatement let;
+        if (batched)
+            // The type of the vector cannot be inferred from the iterator chain
+            let = new DBSPLetStatement(vec.variable,
+                    new DBSPApplyExpression("Vec::new", returnType), true);
+        else
+            let = new DBSPLetStatement(vec.variable,
+                    DBSPTypeAny.INSTANCE.path(new DBSPPath("Vec", "new")).call(), true);
         statements.add(let);
         if (this.options.optimizerOptions.incrementalize) {
             for (int i = 0; i < inputType.tupFields.length; i++) {
@@ -212,16 +484,7 @@ public class DBSPExecutor extends SqlSLTTestExecutor {
                         DBSPTypeAny.INSTANCE, field.borrow());
 
                 DBSPVariablePath e = DBSPTypeAny.INSTANCE.var("e");
-                DBSPExpression[] fields = new DBSPExpression[inputType.tupFields.length];
-                for (int j = 0; j < inputType.tupFields.length; j++) {
-                    DBSPType fieldType = inputType.tupFields[j];
-                    if (i == j) {
-                        fields[j] = e.applyClone();
-                    } else {
-                        fields[j] = new DBSPApplyExpression("zset!", fieldType);
-                    }
-                }
-                DBSPExpression projected = new DBSPRawTupleExpression(fields);
+                DBSPExpression projected = injectInput(inputType, i, e.applyClone());
                 DBSPExpression lambda = projected.closure(e.asParameter());
                 DBSPExpression iter = new DBSPApplyMethodExpression(
                         "iter", DBSPTypeAny.INSTANCE, elems);
@@ -246,11 +509,111 @@ public class DBSPExecutor extends SqlSLTTestExecutor {
             DBSPStatement statement = new DBSPExpressionStatement(expr);
             statements.add(statement);
         }
-        DBSPBlockExpression block = new DBSPBlockExpression(statements, vec);
-        return new DBSPFunction("stream_input", Linq.list(), returnType, block);
+        if (!batched) {
+            DBSPBlockExpression block = new DBSPBlockExpression(statements, vec);
+            return new DBSPFunction("stream_input", Linq.list(), returnType, block);
+        }
+
+        // Batches are read lazily, after all the other inputs have been consumed.
+        DBSPExpression stream = new DBSPApplyMethodExpression("into_iter", DBSPTypeAny.INSTANCE, vec);
+        for (int i = 0; i < inputType.tupFields.length; i++) {
+            DBSPExpression batches = Objects.requireNonNull(this.batchedInputs)[i];
+            if (batches == null)
+                continue;
+            DBSPVariablePath b = DBSPTypeAny.INSTANCE.var("b");
+            DBSPExpression lambda = injectInput(inputType, i, b).closure(b.asParameter());
+            DBSPExpression map = new DBSPApplyMethodExpression(
+                    "map", DBSPTypeAny.INSTANCE, batches, lambda);
+            stream = new DBSPApplyMethodExpression("chain", DBSPTypeAny.INSTANCE, stream, map);
+        }
+        DBSPType streamType = new DBSPTypeUser(null, "InputStream", false, inputType);
+        DBSPExpression result = new DBSPApplyExpression("Box::new", streamType, stream);
+        DBSPBlockExpression block = new DBSPBlockExpression(statements, result);
+        return new DBSPFunction("stream_input", Linq.list(), streamType, block);
+    }
+
+    /**
+     * Let the tuner (if any) adjust the batch size based on the duration of the last batch.
+     * @param queries  Number of queries in the batch.
+     * @param start    Start time of the batch, as produced by System.nanoTime().
+     */
+    void tuneBatchSize(int queries, long start) {
+        if (this.tuner != null) {
+            this.tuner.record(queries, (System.nanoTime() - start) / 1e9);
+            this.batchSize = this.tuner.getBatchSize();
+            Logger.INSTANCE.from(this, 1)
+                    .append("Batch size is now ")
+                    .append(this.batchSize)
+                    .newline();
+        }
+    }
+
+    /**
+     * Add to the key the statements that determine the contents of the input tables.
+     */
+    void addInputsToKey(CompilationCache.KeyBuilder key) {
+        for (SqlStatement statement : this.inputPreparation.statements)
+            key.add(statement.statement);
+    }
+
+    /**
+     * Compute the cache key of the current batch of queries.
+     */
+    String getBatchKey() {
+        CompilationCache.KeyBuilder key = new CompilationCache.KeyBuilder()
+                .add(this.options)
+                .add(this.rustDirectory)
+                .add(this.connectionString)
+                .add(this.inputBatchSize)
+                .add(this.dbKeyColumn)
+                .add(this.dbPageSize)
+                .add(this.dbWorkers);
+        key.add("tables");
+        for (SqlStatement statement : this.tablePreparation.statements)
+            key.add(statement.statement);
+        key.add("inputs");
+        this.addInputsToKey(key);
+        key.add("views");
+        for (SqlStatement statement : this.viewPreparation.definitions())
+            key.add(statement.statement);
+        key.add("queries");
+        for (SqlTestQuery query : this.queriesToRun) {
+            SqlTestQueryOutputDescription description = query.outputDescription;
+            key.add(query.query)
+                    .add(query.name)
+                    .add(description.valueCount)
+                    .add(description.columnTypes)
+                    .add(description.hash)
+                    .add(description.order)
+                    .add(description.queryResults);
+        }
+        return key.build();
+    }
+
+    /**
+     * Try to write the files of the current batch from the cache.
+     * @return  True on a cache hit.
+     */
+    boolean writeCachedBatch(String key) throws IOException {
+        Map<String, byte[]> files = Objects.requireNonNull(this.cache).lookup(key);
+        if (files == null)
+            return false;
+        for (Map.Entry<String, byte[]> file : files.entrySet())
+            Utilities.writeFileIfChanged(this.rustDirectory + "/" + file.getKey(), file.getValue());
+        return true;
     }
 
     void runBatch(TestStatistics result) throws IOException, InterruptedException, SQLException {
+        long start = System.nanoTime();
+        int queryNo = this.queriesToRun.size();
+        String key = "";
+        if (this.cache != null) {
+            key = this.getBatchKey();
+            if (this.writeCachedBatch(key)) {
+                this.executeBatch(result, queryNo, start);
+                return;
+            }
+        }
         DBSPCompiler compiler = new DBSPCompiler(this.options);
         final List<ProgramAndTester> codeGenerated = new ArrayList<>();
         // Create input tables
@@ -263,7 +626,7 @@ public class DBSPExecutor extends SqlSLTTestExecutor {
         DBSPFunction streamInputFunction = this.createStreamInputFunction(inputFunction);
 
         // Generate a function and a tester for each query.
-        int queryNo = 0;
+        queryNo = 0;
         for (SqlTestQuery testQuery : this.queriesToRun) {
             try {
                 ProgramAndTester pc = this.generateTestCase(
@@ -279,23 +642,47 @@ public class DBSPExecutor extends SqlSLTTestExecutor {
         // Write the code to Rust files on the filesystem.
         String fileGenerated = this.writeCodeToFile(
                 Linq.list(inputFunction, streamInputFunction), codeGenerated);
-        Utilities.writeRustLib(rustDirectory + "/lib.rs", Linq.list(fileGenerated));
+        Utilities.writeRustLib(this.rustDirectory + "/lib.rs", Linq.list(fileGenerated));
+        if (this.cache != null) {
+            Map<String, byte[]> files = new HashMap<>();
+            files.put("lib.rs", Files.readAllBytes(Paths.get(this.rustDirectory, "lib.rs")));
+            for (File file : this.generatedFiles())
+                files.put(file.getName(), Files.readAllBytes(file.toPath()));
+            this.cache.store(key, files);
+        }
+        this.executeBatch(result, queryNo, start);
+    }
+
+    /**
+     * Compile and run the Rust code generated for a batch of queries.
+     * @param queryNo  Number of queries in the batch.
+     * @param start    Start time of the batch, as produced by System.nanoTime().
+     */
+    void executeBatch(TestStatistics result, int queryNo, long start)
+            throws IOException, InterruptedException {
         this.startTest();
         if (this.execute) {
-            Utilities.compileAndTestRust(rustDirectory, true);
+            Utilities.compileAndTestRust(this.rustDirectory, true);
         }
         this.queriesToRun.clear();
         this.reportTime(queryNo);
         this.cleanupFilesystem();
+        this.tuneBatchSize(queryNo, start);
         if (this.execute)
             result.passed += queryNo;  // This is not entirely correct, but I am not parsing the rust output
         else
             result.ignored += queryNo;
     }
 
-    ProgramAndTester generateTestCase(
+    /**
+     * Compile a test query and the views it depends on into an optimized circuit.
+     * @param compiler         Compiler which has already processed the table definitions.
+     * @param viewPreparation  Views that the query may use.
+     * @param testQuery        Query to compile.
+     * @param suffix           Used to generate a unique name for the circuit.
+     */
+    DBSPCircuit compileQuery(
             DBSPCompiler compiler,
-            DBSPFunction inputGeneratingFunction,
             SqlTestPrepareViews viewPreparation,
             SqlTestQuery testQuery, int suffix) {
         String origQuery = testQuery.query;
@@ -318,7 +705,15 @@ public class DBSPExecutor extends SqlSLTTestExecutor {
         compiler.compileStatement(dbspQuery, testQuery.name);
         compiler.throwIfErrorsOccurred();
         compiler.optimize();
-        DBSPCircuit dbsp = compiler.getFinalCircuit("gen" + suffix);
+        return compiler.getFinalCircuit("gen" + suffix);
+    }
+
+    ProgramAndTester generateTestCase(
+            DBSPCompiler compiler,
+            DBSPFunction inputGeneratingFunction,
+            SqlTestPrepareViews viewPreparation,
+            SqlTestQuery testQuery, int suffix) {
+        DBSPCircuit dbsp = this.compileQuery(compiler, viewPreparation, testQuery, suffix);
         //ToDotVisitor.toDot("circuit.jpg", true, dbsp);
         DBSPZSetLiteral expectedOutput = null;
         if (testQuery.outputDescription.queryResults != null) {
@@ -390,13 +785,20 @@ public class DBSPExecutor extends SqlSLTTestExecutor {
         return new ProgramAndTester(dbsp, func);
     }
 
-    void cleanupFilesystem() {
-        File directory = new File(rustDirectory);
-        FilenameFilter filter = (dir, name) -> name.startsWith(testFileName) || name.endsWith("csv");
+    /**
+     * The files generated in the Rust directory for the current batch.
+     */
+    File[] generatedFiles() {
+        File directory = new File(this.rustDirectory);
+        FilenameFilter filter = (dir, name) -> name.startsWith(testFileName) || name.endsWith("csv") || name.endsWith("bin");
         File[] files = directory.listFiles(filter);
         if (files == null)
-            return;
-        for (File file: files) {
+            return new File[0];
+        return files;
+    }
+
+    void cleanupFilesystem() {
+        for (File file: this.generatedFiles()) {
             boolean deleted = file.delete();
             if (!deleted)
                 throw new RuntimeException("Cannot delete file " + file);
@@ -472,7 +874,7 @@ public class DBSPExecutor extends SqlSLTTestExecutor {
                 }
             }
         }
-        if (remainingInBatch != this.batchSize)
+        if (!this.queriesToRun.isEmpty())
             this.runBatch(result);
         // Make sure there are no left-overs if this executor
         // is invoked to process a new file.
@@ -645,7 +1047,7 @@ public class DBSPExecutor extends SqlSLTTestExecutor {
             List<ProgramAndTester> functions
     ) throws FileNotFoundException, UnsupportedEncodingException {
         String genFileName = testFileName + ".rs";
-        String testFilePath = rustDirectory + "/" + genFileName;
+        String testFilePath = this.rustDirectory + "/" + genFileName;
         PrintStream stream = new PrintStream(testFilePath, "UTF-8");
         RustFileWriter rust = new RustFileWriter(stream);
 
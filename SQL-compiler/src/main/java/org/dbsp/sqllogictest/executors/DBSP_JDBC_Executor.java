@@ -24,13 +24,13 @@
 package org.dbsp.sqllogictest.executors;
 
 import org.apache.calcite.sql.parser.SqlParseException;
+import org.dbsp.sqlCompiler.compiler.CompilationCache;
 import org.dbsp.sqlCompiler.compiler.CompilerOptions;
 import org.dbsp.sqlCompiler.compiler.backend.DBSPCompiler;
-import org.dbsp.sqlCompiler.ir.expression.DBSPExpression;
-import org.dbsp.sqlCompiler.ir.expression.DBSPTupleExpression;
-import org.dbsp.sqlCompiler.ir.expression.literal.*;
+import org.dbsp.sqlCompiler.compiler.frontend.ColumnarTable;
 import org.dbsp.sqlCompiler.ir.type.DBSPType;
 import org.dbsp.sqlCompiler.ir.type.DBSPTypeTuple;
+import org.dbsp.sqlCompiler.ir.type.DBSPTypeZSet;
 import org.dbsp.sqlCompiler.ir.type.primitive.DBSPTypeDouble;
 import org.dbsp.sqlCompiler.ir.type.primitive.DBSPTypeInteger;
 import org.dbsp.sqlCompiler.ir.type.primitive.DBSPTypeString;
@@ -55,6 +55,8 @@ import java.util.regex.Pattern;
 public class DBSP_JDBC_Executor extends DBSPExecutor {
     private final JDBCExecutor statementExecutor;
     private final List<String> tablesCreated;
+    // Statements executed by the database since the last reset; they determine the table contents.
+    private final List<String> statementsExecuted;
 
     /**
      * @param validateJson If true validate the JSON for the produced IRs.
@@ -68,10 +70,10 @@ public class DBSP_JDBC_Executor extends DBSPExecutor {
         super(execute, validateJson, options, connectionString);
         this.statementExecutor = executor;
         this.tablesCreated = new ArrayList<>();
+        this.statementsExecuted = new ArrayList<>();
     }
 
-    public DBSPZSetLiteral getTableContents(String table) throws SQLException {
-        List<DBSPExpression> rows = new ArrayList<>();
+    public ColumnarTable getTableContents(String table) throws SQLException {
         assert this.statementExecutor.connection != null;
         try (Statement stmt1 = this.statementExecutor.connection.createStatement()) {
             ResultSet rs = stmt1.executeQuery("SELECT * FROM " + table);
@@ -103,39 +105,34 @@ public class DBSP_JDBC_Executor extends DBSPExecutor {
                         throw new RuntimeException("Unexpected column type " + columnType);
                 }
             }
+            ColumnarTable result = new ColumnarTable(new DBSPTypeZSet(new DBSPTypeTuple(colTypes)));
             while (rs.next()) {
-                DBSPExpression[] cols = new DBSPExpression[colTypes.length];
                 for (int i = 0; i < colTypes.length; i++) {
-                    DBSPExpression exp;
                     DBSPType type = colTypes[i];
                     if (type.is(DBSPTypeInteger.class)) {
                         int value = rs.getInt(i + 1);
                         if (rs.wasNull())
-                            exp = DBSPLiteral.none(DBSPTypeInteger.SIGNED_32.setMayBeNull(true));
+                            result.setNull(i);
                         else
-                            exp = new DBSPI32Literal(value, type.mayBeNull);
+                            result.setLong(i, value);
                     } else if (type.is(DBSPTypeDouble.class)) {
                         double value = rs.getDouble(i + 1);
                         if (rs.wasNull())
-                            exp = DBSPLiteral.none(DBSPTypeDouble.NULLABLE_INSTANCE);
+                            result.setNull(i);
                         else
-                            exp = new DBSPDoubleLiteral(value, type.mayBeNull);
+                            result.setDouble(i, value);
                     } else {
                         String s = rs.getString(i + 1);
                         if (s == null)
-                            exp = DBSPLiteral.none(DBSPTypeString.NULLABLE_INSTANCE);
+                            result.setNull(i);
                         else
-                            exp = new DBSPStringLiteral(s, type.mayBeNull);
+                            result.setString(i, s);
                     }
-                    cols[i] = exp;
                 }
-                DBSPTupleExpression row = new DBSPTupleExpression(cols);
-                rows.add(row);
+                result.endRow(1);
             }
             rs.close();
-            if (rows.size() == 0)
-                return DBSPZSetLiteral.emptyWithElementType(new DBSPTypeTuple(colTypes));
-            return new DBSPZSetLiteral(rows.toArray(new DBSPExpression[0]));
+            return result;
         }
     }
 
@@ -144,8 +141,8 @@ public class DBSP_JDBC_Executor extends DBSPExecutor {
         TableValue[] result = new TableValue[this.tablesCreated.size()];
         int i = 0;
         for (String table: this.tablesCreated) {
-            DBSPZSetLiteral lit = this.getTableContents(table);
-            result[i++] = new TableValue(table, lit);
+            ColumnarTable contents = this.getTableContents(table);
+            result[i++] = new TableValue(table, contents);
         }
         return result;
     }
@@ -227,6 +224,7 @@ public class DBSP_JDBC_Executor extends DBSPExecutor {
 
     public boolean statement(SqlStatement statement) throws SQLException {
         this.statementExecutor.statement(statement);
+        this.statementsExecuted.add(statement.statement);
         String command = statement.statement.toLowerCase();
         Logger.INSTANCE.from(this, 1)
                 .append("Executing ")
@@ -250,9 +248,16 @@ public class DBSP_JDBC_Executor extends DBSPExecutor {
         return true;
     }
 
+    @Override
+    void addInputsToKey(CompilationCache.KeyBuilder key) {
+        for (String statement : this.statementsExecuted)
+            key.add(statement);
+    }
+
     @Override
     void reset() {
         this.tablesCreated.clear();
+        this.statementsExecuted.clear();
         super.reset();
     }
 
@@ -0,0 +1,212 @@
+/*
+ * Copyright 2022 VMware, Inc.
+ * SPDX-License-Identifier: MIT
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.dbsp.sqllogictest.executors;
+
+import org.dbsp.sqlCompiler.circuit.DBSPCircuit;
+import org.dbsp.sqlCompiler.circuit.operator.DBSPOperator;
+import org.dbsp.sqlCompiler.compiler.CompilerOptions;
+import org.dbsp.sqlCompiler.compiler.backend.DBSPCompiler;
+import org.dbsp.sqlCompiler.compiler.backend.interpreter.CircuitInterpreter;
+import org.dbsp.sqlCompiler.compiler.backend.interpreter.Tuple;
+import org.dbsp.sqlCompiler.compiler.backend.interpreter.Values;
+import org.dbsp.sqlCompiler.compiler.backend.interpreter.ZSet;
+import org.dbsp.sqlCompiler.ir.type.DBSPType;
+import org.dbsp.sqlCompiler.ir.type.DBSPTypeTuple;
+import org.dbsp.sqlCompiler.ir.type.DBSPTypeVec;
+import org.dbsp.sqlCompiler.ir.type.DBSPTypeZSet;
+import org.dbsp.sqllogictest.SqlTestQuery;
+import org.dbsp.sqllogictest.SqlTestQueryOutputDescription;
+import org.dbsp.util.Logger;
+import org.dbsp.util.TestStatistics;
+import org.dbsp.util.Unimplemented;
+
+import javax.annotation.Nullable;
+import java.math.BigDecimal;
+import java.security.NoSuchAlgorithmException;
+import java.sql.SQLException;
+import java.util.*;
+
+/**
+ * Executes SqlLogicTest queries by compiling them to DBSP circuits
+ * and running the circuits in the JVM with the CircuitInterpreter.
+ * This does not need a Rust toolchain, and it is much faster than
+ * the DBSPExecutor for small inputs, which makes it useful for
+ * quickly checking the compiler.  Queries that use constructs not
+ * supported by the interpreter are counted as ignored.
+ */
+public class InterpreterExecutor extends DBSPExecutor {
+    public InterpreterExecutor(CompilerOptions options) {
+        super(true, false, options, "none");
+    }
+
+    /**
+     * Format a value according to the SqlLogicTest rules, like the
+     * Rust function format_slt.
+     * @param value       Value to format.
+     * @param type        Type of the value in the circuit.
+     * @param columnType  Column type from the test: one of 'I', 'R', or 'T'.
+     */
+    static String formatSlt(@Nullable Object value, DBSPType type, char columnType) {
+        if (value == null)
+            return "NULL";
+        if (value instanceof Double) {
+            double d = (Double) value;
+            if (columnType == 'I')
+                return Integer.toString((int) d);
+            return String.format("%.3f", d);
+        }
+        if (value instanceof BigDecimal)
+            return ((BigDecimal) value).toPlainString();
+        if (value instanceof String) {
+            String s = (String) value;
+            if (columnType == 'I') {
+                try {
+                    return Integer.toString(Integer.parseInt(s.trim()));
+                } catch (NumberFormatException ex) {
+                    return "0";
+                }
+            }
+            if (s.isEmpty())
+                return "(empty)";
+            StringBuilder result = new StringBuilder();
+            for (int i = 0; i < s.length(); i++) {
+                char c = s.charAt(i);
+                if (c < ' ' || c > '~')
+                    c = '@';
+                result.append(c);
+            }
+            return result.toString();
+        }
+        if (value instanceof Long || value instanceof Boolean)
+            return value.toString();
+        throw new Unimplemented("Formatting value of type " + type, type);
+    }
+
+    static JDBCExecutor.Row toRow(Tuple tuple, DBSPTypeTuple type, String columnTypes) {
+        if (tuple.size() != columnTypes.length())
+            throw new RuntimeException("Expected " + columnTypes.length() +
+                    " columns, but query produces " + tuple.size());
+        JDBCExecutor.Row row = new JDBCExecutor.Row();
+        for (int i = 0; i < tuple.size(); i++)
+            row.add(formatSlt(tuple.get(i), type.getFieldType(i), columnTypes.charAt(i)));
+        return row;
+    }
+
+    /**
+     * Convert the output of a query to rows of strings.
+     */
+    static JDBCExecutor.Rows toRows(ZSet output, DBSPType outputType, String columnTypes) {
+        DBSPType elementType = outputType.to(DBSPTypeZSet.class).elementType;
+        boolean isVector = elementType.is(DBSPTypeVec.class);
+        if (isVector)
+            elementType = elementType.to(DBSPTypeVec.class).getElementType();
+        DBSPTypeTuple tupleType = elementType.to(DBSPTypeTuple.class);
+        JDBCExecutor.Rows rows = new JDBCExecutor.Rows();
+        output.forEach((element, weight) -> {
+            if (weight < 0)
+                throw new RuntimeException("Output contains element with negative weight " + element);
+            for (long i = 0; i < weight; i++) {
+                if (isVector) {
+                    @SuppressWarnings("unchecked")
+                    List<Object> vector = (List<Object>) element;
+                    for (Object e: vector)
+                        rows.add(toRow((Tuple) e, tupleType, columnTypes));
+                } else {
+                    rows.add(toRow((Tuple) element, tupleType, columnTypes));
+                }
+            }
+        });
+        return rows;
+    }
+
+    /**
+     * Run a query and validate its output.
+     * @return True if the query could be executed, false if it uses
+     *         features that the interpreter does not support.
+     */
+    boolean runQuery(SqlTestQuery testQuery, DBSPCircuit circuit,
+                     Map<String, ZSet> inputs, TestStatistics result) throws NoSuchAlgorithmException {
+        SqlTestQueryOutputDescription description = testQuery.outputDescription;
+        List<ZSet> circuitInputs = new ArrayList<>();
+        for (DBSPOperator source: circuit.circuit.inputOperators) {
+            ZSet input = inputs.get(source.outputName);
+            if (input == null)
+                throw new RuntimeException("No contents for table " + source.outputName);
+            circuitInputs.add(input);
+        }
+        if (circuit.getOutputCount() != 1)
+            throw new RuntimeException(
+                    "Didn't expect a query to have " + circuit.getOutputCount() + " outputs");
+        JDBCExecutor.Rows rows;
+        try {
+            CircuitInterpreter interpreter = new CircuitInterpreter(circuit);
+            ZSet output = interpreter.step(circuitInputs).get(0);
+            rows = toRows(output, circuit.getOutputType(0), description.columnTypes);
+        } catch (Unimplemented ex) {
+            Logger.INSTANCE.from(this, 1)
+                    .append("Cannot interpret ")
+                    .append(testQuery.query)
+                    .append(": ")
+                    .append(ex.getMessage())
+                    .newline();
+            return false;
+        } catch (RuntimeException ex) {
+            result.addFailure(new TestStatistics.FailedTestDescription(
+                    testQuery, "Exception during execution: " + ex));
+            return true;
+        }
+        JDBCExecutor.validate(testQuery, rows, description, result);
+        return true;
+    }
+
+    @Override
+    void runBatch(TestStatistics result) throws SQLException {
+        long start = System.nanoTime();
+        DBSPCompiler compiler = new DBSPCompiler(this.options);
+        this.createTables(compiler);
+        compiler.throwIfErrorsOccurred();
+        TableValue[] inputSets = this.getInputSets(compiler);
+        Map<String, ZSet> inputs = new HashMap<>();
+        for (TableValue table: inputSets)
+            inputs.put(table.tableName, CircuitInterpreter.toZSet(table.contents));
+
+        this.startTest();
+        int queryNo = 0;
+        for (SqlTestQuery testQuery : this.queriesToRun) {
+            DBSPCircuit circuit = this.compileQuery(compiler, this.viewPreparation, testQuery, queryNo);
+            boolean executed;
+            try {
+                executed = this.runQuery(testQuery, circuit, inputs, result);
+            } catch (NoSuchAlgorithmException ex) {
+                throw new RuntimeException(ex);
+            }
+            if (!executed)
+                result.ignored++;
+            queryNo++;
+        }
+        this.queriesToRun.clear();
+        this.reportTime(queryNo);
+        this.tuneBatchSize(queryNo, start);
+    }
+}
@@ -210,6 +210,17 @@ public class JDBCExecutor extends SqlSLTTestExecutor implements IModule {
             Row row = this.getValue(rs, description.columnTypes);
             rows.add(row);
         }
+        validate(query, rows, description, statistics);
+    }
+
+    /**
+     * Compare the rows produced by a query with the expected output.
+     * Sorts the rows as required by the output description.
+     */
+    static void validate(SqlTestQuery query, Rows rows,
+                         SqlTestQueryOutputDescription description,
+                         TestStatistics statistics) throws NoSuchAlgorithmException {
+        assert description.columnTypes != null;
         if (description.valueCount != rows.size() * description.columnTypes.length()) {
             statistics.addFailure(new TestStatistics.FailedTestDescription(
                     query, "Expected " + description.valueCount + " rows, got " +
@@ -217,7 +228,7 @@ public class JDBCExecutor extends SqlSLTTestExecutor implements IModule {
             return;
         }
         rows.sort(description.order);
-        Logger.INSTANCE.from(this, 3)
+        Logger.INSTANCE.from("JDBCExecutor", 3)
                 .append("Result is ")
                 .newline()
                 .append(rows.toString())
@@ -61,18 +61,23 @@ public class SqlTestExecutor implements ICastable, IModule {
         this.validateStatus = validate;
     }
 
+    // Executors may run concurrently in separate threads, but the totals are shared.
     protected void reportTime(int tests) {
         long end = System.nanoTime();
-        totalTests += tests;
-        System.out.println(df.format(tests) + " tests took " +
-                df.format(seconds(end, this.lastTestStartTime)) + "s, "
-                + df.format(totalTests) + " took " +
-                df.format(seconds(end, startTime)) + "s");
+        synchronized (SqlTestExecutor.class) {
+            totalTests += tests;
+            System.out.println(df.format(tests) + " tests took " +
+                    df.format(seconds(end, this.lastTestStartTime)) + "s, "
+                    + df.format(totalTests) + " took " +
+                    df.format(seconds(end, startTime)) + "s");
+        }
     }
 
     protected void startTest() {
         this.lastTestStartTime = System.nanoTime();
-        if (startTime == -1)
-            startTime = lastTestStartTime;
+        synchronized (SqlTestExecutor.class) {
+            if (startTime == -1)
+                startTime = lastTestStartTime;
+        }
     }
 }
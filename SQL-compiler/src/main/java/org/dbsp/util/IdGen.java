@@ -29,10 +29,9 @@ package org.dbsp.util;
  * Base class for objects that have unique Ids.
  */
 public class IdGen {
-    static long idGen = 0;
     public final long id;
 
     public IdGen() {
-        this.id = idGen++;
+        this.id = IdScope.current().nextId();
     }
 }
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2023 VMware, Inc.
+ * SPDX-License-Identifier: MIT
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package org.dbsp.util;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters used to generate node ids and fresh names.
+ * Each compiler owns a scope, so that independent compilations produce
+ * the same ids and names and can run concurrently on different threads.
+ * IdGen and NameGen draw from the scope that is current on the calling thread;
+ * code that runs outside any compiler uses the global scope.
+ */
+public class IdScope {
+    /**
+     * First id allocated by the global scope.  Compiler scopes start at 0,
+     * so nodes created outside a compiler never share ids with the nodes
+     * of a circuit.
+     */
+    public static final long GLOBAL_FIRST_ID = 1L << 48;
+    /**
+     * Scope used when no other scope has been entered.
+     */
+    public static final IdScope GLOBAL = new IdScope(GLOBAL_FIRST_ID);
+    static final ThreadLocal<IdScope> current = ThreadLocal.withInitial(() -> GLOBAL);
+
+    final AtomicLong nextId;
+    final ConcurrentHashMap<String, Integer> nextName = new ConcurrentHashMap<>();
+
+    IdScope(long firstId) {
+        this.nextId = new AtomicLong(firstId);
+    }
+
+    public IdScope() {
+        this(0);
+    }
+
+    /**
+     * Handle returned by 'enter'; closing it restores the previous scope.
+     */
+    public static class Entered implements AutoCloseable {
+        final IdScope previous;
+
+        Entered(IdScope previous) {
+            this.previous = previous;
+        }
+
+        @Override
+        public void close() {
+            current.set(this.previous);
+        }
+    }
+
+    /**
+     * The scope currently used by the calling thread.
+     */
+    public static IdScope current() {
+        return current.get();
+    }
+
+    /**
+     * Make this scope current for the calling thread.
+     * Scopes nest; use in a try-with-resources statement.
+     */
+    public Entered enter() {
+        Entered result = new Entered(current.get());
+        current.set(this);
+        return result;
+    }
+
+    /**
+     * Allocate a fresh node id.
+     */
+    public long nextId() {
+        long result = this.nextId.getAndIncrement();
+        if (this != GLOBAL && result >= GLOBAL_FIRST_ID)
+            throw new RuntimeException("Compiler scope ran out of node ids");
+        return result;
+    }
+
+    int getNext(String prefix) {
+        return this.nextName.getOrDefault(prefix, 0);
+    }
+
+    int nextName(String prefix) {
+        // merge is atomic for a ConcurrentHashMap
+        return this.nextName.merge(prefix, 1, Integer::sum) - 1;
+    }
+}
@@ -23,8 +23,8 @@
 
 package org.dbsp.util;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Logging class which can output nicely indented strings.
@@ -32,9 +32,10 @@ import java.util.Map;
  * to output nicely indented hierarchical visualizations.
  */
 public class Logger implements IDebuggable {
-    private final Map<String, Integer> debugLevel = new HashMap<>();
+    private final Map<String, Integer> debugLevel = new ConcurrentHashMap<>();
     private final IndentStream debugStream;
-    private final IndentStream noStream;
+    // IndentStreams keep the indentation state, so each thread needs its own.
+    private final ThreadLocal<IndentStream> noStream;
 
     /**
      * There is only one instance of the logger for the whole program.
@@ -43,7 +44,7 @@ public class Logger implements IDebuggable {
 
     private Logger() {
         this.debugStream = new IndentStream(System.err);
-        this.noStream = new IndentStream(new Appendable() {
+        this.noStream = ThreadLocal.withInitial(() -> new IndentStream(new Appendable() {
             // Ignore everything.
             @Override
             public Appendable append(CharSequence csq) {
@@ -59,18 +60,21 @@ public class Logger implements IDebuggable {
             public Appendable append(char c) {
                 return this;
             }
-        });
+        }));
     }
 
     public IndentStream from(String module, int level) {
-        int debugLevel = this.getDebugLevel(module);
-        if (debugLevel >= level)
+        if (this.isEnabled(module, level))
             return this.debugStream;
-        return this.noStream;
+        return this.noStream.get();
     }
 
     /**
      * Get the logging stream.
+     * When logging is disabled the stream discards its input, but the
+     * arguments of 'append' are still computed.  Messages that are
+     * expensive to build (e.g., that print IR nodes or plans)
+     * should be guarded by 'isEnabled'.
      * @param module  Module which does the logging.
      * @param level   Level of message that is being logged.
      * @return        A stream where the message can be appended.
@@ -79,6 +83,20 @@ public class Logger implements IDebuggable {
         return this.from(module.getModule(), level);
     }
 
+    /**
+     * True if messages of the specified level are logged for a module.
+     */
+    public boolean isEnabled(String module, int level) {
+        return this.getDebugLevel(module) >= level;
+    }
+
+    /**
+     * True if messages of the specified level are logged for a module.
+     */
+    public boolean isEnabled(IModule module, int level) {
+        return this.isEnabled(module.getModule(), level);
+    }
+
     /**
      * Debug level is controlled per module and can be changed dynamically.
      * @param module  Module name.
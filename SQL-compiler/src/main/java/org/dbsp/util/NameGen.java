@@ -25,17 +25,12 @@
 
 package org.dbsp.util;
 
-import java.util.HashMap;
-import java.util.Map;
-
 /**
  * Used to generate new names during a program execution.
  */
 public class NameGen {
     private final String prefix;
 
-    static final Map<String, Integer> nextId = new HashMap<>();
-
     @SuppressWarnings("unused")
     public NameGen() {
         this.prefix = "id";
@@ -49,17 +44,14 @@ public class NameGen {
      */
     public NameGen(String prefix) {
         this.prefix = prefix;
-        if (!nextId.containsKey(this.prefix))
-            nextId.put(this.prefix, 0);
     }
 
     public int getNext() {
-        return nextId.get(this.prefix);
+        return IdScope.current().getNext(this.prefix);
     }
 
     public String nextName() {
-        int id = this.getNext();
-        nextId.put(this.prefix, id+1);
+        int id = IdScope.current().nextName(this.prefix);
         return this.prefix + id;
     }
 }
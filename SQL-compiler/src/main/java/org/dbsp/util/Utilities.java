@@ -49,6 +49,8 @@ package org.dbsp.util;/*
 
 import javax.annotation.Nullable;
 import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.*;
@@ -61,13 +63,51 @@ public class Utilities {
      * @param file     File to write to.
      * @param modules  List of modules to include.
      */
-    public static void writeRustLib(String file, List<String> modules) throws FileNotFoundException {
-        PrintWriter writer = new PrintWriter(file);
-        writer.println("// automatically-generated file");
+    public static void writeRustLib(String file, List<String> modules) throws IOException {
+        StringBuilder builder = new StringBuilder();
+        builder.append("// automatically-generated file\n");
         for (String module: modules) {
-            writer.println("mod " + module + ";");
+            builder.append("mod ").append(module).append(";\n");
         }
-        writer.close();
+        writeFileIfChanged(file, builder.toString());
+    }
+
+    /**
+     * Write a file only if its contents differ from the specified ones.
+     * Leaving unchanged files untouched preserves their timestamps,
+     * so cargo does not rebuild the crates that contain them.
+     * @param file      File to write.
+     * @param contents  Desired file contents.
+     * @return          True if the file was written.
+     */
+    public static boolean writeFileIfChanged(String file, String contents) throws IOException {
+        return writeFileIfChanged(file, contents.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Write a file only if its contents differ from the specified bytes.
+     * @param file   File to write.
+     * @param bytes  Desired file contents.
+     * @return       True if the file was written.
+     */
+    public static boolean writeFileIfChanged(String file, byte[] bytes) throws IOException {
+        File f = new File(file);
+        if (f.exists() && Arrays.equals(Files.readAllBytes(f.toPath()), bytes))
+            return false;
+        Files.write(f.toPath(), bytes);
+        return true;
+    }
+
+    /**
+     * Read the entire contents of a stream.
+     */
+    public static byte[] readAllBytes(InputStream stream) throws IOException {
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = stream.read(buffer)) >= 0)
+            result.write(buffer, 0, read);
+        return result.toByteArray();
     }
 
     /**
@@ -177,7 +217,58 @@ public class Utilities {
             throw new RuntimeException("Process failed with exit code " + exitCode);
     }
 
-    static final boolean retry = false;
+    /**
+     * Create a crate with the same Cargo.toml file as an existing Rust crate,
+     * and with an empty src directory.  The new crate is a sibling of the
+     * original one, so relative paths to dependencies remain valid.
+     * @param crateDirectory  Directory of the crate to copy.
+     * @param name            Name of the new crate; also the name of its directory.
+     * @return                The src directory of the new crate.
+     */
+    public static String createRustCrateCopy(String crateDirectory, String name) throws IOException {
+        File source = new File(crateDirectory, "Cargo.toml");
+        String manifest = new String(Files.readAllBytes(source.toPath()), StandardCharsets.UTF_8);
+        manifest = manifest.replaceFirst("(?m)^name = \".*\"$", "name = \"" + name + "\"");
+        File parent = new File(crateDirectory).getCanonicalFile().getParentFile();
+        File src = new File(new File(parent, name), "src");
+        if (!src.isDirectory() && !src.mkdirs())
+            throw new IOException("Could not create directory " + src);
+        Files.write(new File(src.getParentFile(), "Cargo.toml").toPath(),
+                manifest.getBytes(StandardCharsets.UTF_8));
+        return src.getPath() + "/";
+    }
+
+    /**
+     * Find the name of the Rust crate which contains a directory.
+     * @param directory  A directory that is part of a Rust crate.
+     */
+    public static String getRustCrateName(String directory) throws IOException {
+        File dir = new File(directory).getCanonicalFile();
+        while (dir != null) {
+            File manifest = new File(dir, "Cargo.toml");
+            if (manifest.exists()) {
+                for (String line: Files.readAllLines(manifest.toPath(), StandardCharsets.UTF_8)) {
+                    if (line.startsWith("name = \""))
+                        return line.substring(line.indexOf('"') + 1, line.lastIndexOf('"'));
+                }
+                throw new RuntimeException("Could not find crate name in " + manifest);
+            }
+            dir = dir.getParentFile();
+        }
+        throw new RuntimeException("Directory " + directory + " is not part of a Rust crate");
+    }
+
+    // If true a failed compilation is retried once after cleaning the generated crate.
+    static boolean retry = false;
+
+    /**
+     * Sometimes the Rust compiler crashes; when enabled, compileAndTestRust
+     * cleans the crate with the generated code and compiles it again once.
+     */
+    public static void setRetryFailedCompilation(boolean retry) {
+        Utilities.retry = retry;
+    }
+
     public static void compileAndTestRust(String directory, boolean quiet)
             throws IOException, InterruptedException {
         try {
@@ -188,8 +279,9 @@ public class Utilities {
         } catch (RuntimeException ex) {
             if (!retry)
                 throw ex;
-            // Sometimes the rust compiler crashes; retry.
-            runProcess(directory, "cargo", "clean");
+            // Only clean the crate with the generated code; the dependencies
+            // are not affected, and rebuilding them takes most of the time.
+            runProcess(directory, "cargo", "clean", "-p", getRustCrateName(directory));
             if (quiet)
                 runProcess(directory, "cargo", "test", "-q");
             else
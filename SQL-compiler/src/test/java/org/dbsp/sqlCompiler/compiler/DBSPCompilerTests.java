@@ -26,13 +26,62 @@
 package org.dbsp.sqlCompiler.compiler;
 
 import org.dbsp.sqlCompiler.circuit.DBSPCircuit;
+import org.dbsp.sqlCompiler.circuit.DBSPPartialCircuit;
+import org.dbsp.sqlCompiler.circuit.IDBSPDeclaration;
+import org.dbsp.sqlCompiler.circuit.IDBSPNode;
+import org.dbsp.sqlCompiler.circuit.operator.DBSPFlatMapOperator;
+import org.dbsp.sqlCompiler.circuit.operator.DBSPIncrementalAggregateOperator;
+import org.dbsp.sqlCompiler.circuit.operator.DBSPIndexOperator;
+import org.dbsp.sqlCompiler.circuit.operator.DBSPMapIndexOperator;
+import org.dbsp.sqlCompiler.circuit.operator.DBSPOperator;
+import org.dbsp.sqlCompiler.circuit.operator.DBSPSinkOperator;
+import org.dbsp.sqlCompiler.circuit.operator.DBSPSourceOperator;
+import org.dbsp.sqlCompiler.circuit.operator.DBSPWindowAggregateOperator;
 import org.dbsp.sqlCompiler.compiler.backend.DBSPCompiler;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.dbsp.sqlCompiler.compiler.backend.jit.JITProgramValidator;
 import org.dbsp.sqlCompiler.compiler.backend.jit.ToJitVisitor;
+import org.dbsp.sqlCompiler.compiler.backend.rust.ToRustVisitor;
+import org.dbsp.sqlCompiler.compiler.backend.jit.TypeCatalog;
+import org.dbsp.sqlCompiler.compiler.backend.jit.ir.JITFunction;
+import org.dbsp.sqlCompiler.compiler.backend.jit.ir.JITParameter;
+import org.dbsp.sqlCompiler.compiler.backend.jit.ir.JITProgram;
+import org.dbsp.sqlCompiler.compiler.backend.jit.ir.cfg.JITBlock;
+import org.dbsp.sqlCompiler.compiler.backend.jit.ir.cfg.JITJumpTerminator;
+import org.dbsp.sqlCompiler.compiler.backend.jit.ir.cfg.JITReturnTerminator;
+import org.dbsp.sqlCompiler.compiler.backend.jit.ir.instructions.*;
+import org.dbsp.sqlCompiler.compiler.backend.jit.ir.operators.JITOperatorReference;
+import org.dbsp.sqlCompiler.compiler.backend.jit.ir.optimize.JITFunctionOptimizer;
+import org.dbsp.sqlCompiler.compiler.backend.jit.ir.types.JITI32Type;
+import org.dbsp.sqlCompiler.compiler.backend.jit.ir.types.JITRowType;
 import org.dbsp.sqlCompiler.compiler.frontend.TableContents;
-import org.dbsp.sqlCompiler.ir.expression.literal.DBSPZSetLiteral;
+import org.dbsp.sqlCompiler.compiler.frontend.TypeCompiler;
+import org.dbsp.sqlCompiler.ir.expression.*;
+import org.dbsp.sqlCompiler.ir.expression.literal.*;
+import org.dbsp.sqlCompiler.ir.type.DBSPType;
+import org.dbsp.sqlCompiler.ir.type.DBSPTypeRawTuple;
+import org.dbsp.sqlCompiler.ir.type.DBSPTypeTuple;
+import org.dbsp.sqlCompiler.ir.type.primitive.DBSPTypeBool;
+import org.dbsp.sqlCompiler.ir.type.primitive.DBSPTypeInteger;
+import org.dbsp.util.IdGen;
+import org.dbsp.util.IdScope;
+import org.dbsp.util.Linq;
+import org.dbsp.util.Unimplemented;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
 /**
  * Tests that invoke the CalciteToDBSPCompiler.
  */
@@ -88,6 +137,397 @@ public class DBSPCompilerTests {
         ToJitVisitor.validateJson(circuit, false);
     }
 
+    /**
+     * Find the nodes of a JIT program with the specified kind.
+     * @return A map from node id to node contents.
+     */
+    static Map<String, JsonNode> findNodes(JsonNode program, String kind) {
+        Map<String, JsonNode> result = new HashMap<>();
+        for (Iterator<Map.Entry<String, JsonNode>> it = program.get("nodes").fields(); it.hasNext(); ) {
+            Map.Entry<String, JsonNode> node = it.next();
+            if (node.getValue().has(kind))
+                result.put(node.getKey(), node.getValue().get(kind));
+        }
+        return result;
+    }
+
+    /**
+     * Check that the incremental operators are lowered to non-incremental
+     * operators 'op' that process the changes, and not the integrals
+     * followed by a Differentiate.  The integrals of indexed inputs have
+     * the layouts of both the keys and the values of the inputs.
+     */
+    static void checkIncrementalLowering(JITProgram program, String op) {
+        JsonNode json = program.asJson();
+        Assert.assertFalse(findNodes(json, op).isEmpty());
+        Assert.assertTrue(findNodes(json, "Differentiate").isEmpty());
+        Map<String, JsonNode> integrals = findNodes(json, "Integrate");
+        Assert.assertFalse(integrals.isEmpty());
+        for (JsonNode integral: integrals.values()) {
+            JsonNode input = json.get("nodes").get(integral.get("input").asText());
+            JsonNode index = input.get("IndexWith");
+            if (index == null)
+                continue;
+            JsonNode layout = integral.get("layout").get("Map");
+            Assert.assertEquals(index.get("key_layout"), layout.get(0));
+            Assert.assertEquals(index.get("value_layout"), layout.get(1));
+        }
+        JITProgramValidator.validate(json);
+    }
+
+    @Test
+    public void incrementalJitTest() {
+        CompilerOptions options = new CompilerOptions();
+        options.optimizerOptions.incrementalize = true;
+        DBSPCompiler compiler = new DBSPCompiler(options);
+        compiler.compileStatement(ddl);
+        compiler.compileStatement("CREATE VIEW V AS SELECT DISTINCT T.COL1 FROM T");
+        compiler.optimize();
+        DBSPCircuit circuit = compiler.getFinalCircuit("circuit");
+        checkIncrementalLowering(ToJitVisitor.circuitToJIT(circuit), "Distinct");
+        ToJitVisitor.validateJson(circuit, true);
+    }
+
+    DBSPCircuit compileIncremental(String query) {
+        CompilerOptions options = new CompilerOptions();
+        options.optimizerOptions.incrementalize = true;
+        DBSPCompiler compiler = new DBSPCompiler(options);
+        compiler.compileStatement(ddl);
+        compiler.compileStatement(query);
+        compiler.optimize();
+        return compiler.getFinalCircuit("circuit");
+    }
+
+    static <T extends DBSPOperator> T findOperator(DBSPCircuit circuit, Class<T> clazz) {
+        for (IDBSPNode node: circuit.circuit.getCode())
+            if (clazz.isInstance(node))
+                return clazz.cast(node);
+        throw new RuntimeException("No " + clazz.getSimpleName() + " in circuit");
+    }
+
+    static void addWithInputs(DBSPPartialCircuit partial, DBSPOperator operator, Set<DBSPOperator> added) {
+        if (!added.add(operator))
+            return;
+        for (DBSPOperator input: operator.inputs)
+            addWithInputs(partial, input, added);
+        partial.addOperator(operator);
+    }
+
+    /**
+     * A circuit with 'last' and the operators that it depends on, and no outputs.
+     * The circuit has the declarations of 'circuit'.
+     * The JIT cannot compile yet the projections of indexed Z-sets that
+     * follow the aggregates in the circuits produced for SQL queries.
+     */
+    static DBSPCircuit circuitEndingAt(DBSPCircuit circuit, DBSPOperator last) {
+        DBSPPartialCircuit partial = new DBSPPartialCircuit(circuit.circuit.compiler);
+        for (IDBSPDeclaration declaration: circuit.circuit.declarations.values())
+            partial.declare(declaration);
+        addWithInputs(partial, last, new HashSet<>());
+        return new DBSPCircuit(partial, "circuit");
+    }
+
+    @Test
+    public void incrementalJoinJitTest() {
+        DBSPCircuit circuit = this.compileIncremental(
+                "CREATE VIEW V AS SELECT T1.COL1, T2.COL2 FROM T AS T1 JOIN T AS T2 ON T1.COL1 = T2.COL1");
+        JITProgram program = ToJitVisitor.circuitToJIT(circuit);
+        checkIncrementalLowering(program, "JoinCore");
+        // One join for each term of the delta
+        Assert.assertEquals(3, findNodes(program.asJson(), "JoinCore").size());
+        ToJitVisitor.validateJson(circuit, false);
+    }
+
+    @Test
+    public void incrementalAggregateJitTest() {
+        DBSPCircuit circuit = this.compileIncremental(
+                "CREATE VIEW V AS SELECT COL1, SUM(COL2) FROM T GROUP BY COL1");
+        circuit = circuitEndingAt(circuit, findOperator(circuit, DBSPIncrementalAggregateOperator.class));
+        JITProgram program = ToJitVisitor.circuitToJIT(circuit);
+        checkIncrementalLowering(program, "Fold");
+        ToJitVisitor.validateJson(circuit, false);
+    }
+
+    @Test
+    public void windowJitTest() {
+        DBSPCircuit circuit = this.compileIncremental(
+                "CREATE VIEW V AS SELECT COUNT(*) OVER " +
+                        "(ORDER BY T.COL1 RANGE BETWEEN 2 PRECEDING AND 1 PRECEDING) FROM T");
+        DBSPWindowAggregateOperator window = findOperator(circuit, DBSPWindowAggregateOperator.class);
+        // The window is applied to rows indexed by (timestamp, row), which the
+        // JIT cannot represent, since it has no nested tuples.  Use an input
+        // that is indexed by the partition key instead.
+        DBSPMapIndexOperator mapIndex = window.input().to(DBSPMapIndexOperator.class);
+        DBSPOperator rows = mapIndex.input();
+        DBSPWindowAggregateOperator flat;
+        try (IdScope.Entered ignored = circuit.circuit.compiler.idScope.enter()) {
+            DBSPTypeTuple rowType = rows.getOutputZSetElementType();
+            DBSPVariablePath t = rowType.ref().var("t");
+            DBSPExpression function = new DBSPRawTupleExpression(
+                    new DBSPRawTupleExpression(), t.applyClone()).closure(t.asParameter());
+            DBSPIndexOperator index = new DBSPIndexOperator(null, function,
+                    window.partitionKeyType, rowType, rows.isMultiset, rows);
+            flat = new DBSPWindowAggregateOperator(window.getNode(),
+                    window.function, window.aggregate, window.window,
+                    window.partitionKeyType, window.timestampType, window.aggregateType, index);
+        }
+        DBSPCircuit result = circuitEndingAt(circuit, flat);
+        JsonNode json = ToJitVisitor.circuitToJIT(result).asJson();
+        Map<String, JsonNode> folds = findNodes(json, "PartitionedRollingFold");
+        Assert.assertEquals(1, folds.size());
+        JsonNode fold = folds.values().iterator().next();
+        Assert.assertTrue(fold.get("range").get("lower").has("Before"));
+        Assert.assertTrue(fold.get("range").get("upper").has("Before"));
+        JITProgramValidator.validate(json);
+        ToJitVisitor.validateJson(result, false);
+    }
+
+    @Test
+    public void jitValidatorTest() {
+        DBSPCircuit circuit = this.compileIncremental(
+                "CREATE VIEW V AS SELECT T1.COL1, T2.COL2 FROM T AS T1 JOIN T AS T2 ON T1.COL1 = T2.COL1");
+        ObjectNode json = (ObjectNode)ToJitVisitor.circuitToJIT(circuit).asJson();
+        JITProgramValidator.validate(json);
+        for (JsonNode join: findNodes(json, "JoinCore").values()) {
+            ((ObjectNode)join).remove("key_layout");
+            break;
+        }
+        Assert.assertThrows(RuntimeException.class, () -> JITProgramValidator.validate(json));
+    }
+
+    @Test
+    public void jitOptimizerTest() {
+        TypeCatalog catalog = new TypeCatalog();
+        JITRowType type = catalog.convertTupleType(new DBSPTypeTuple(DBSPTypeInteger.SIGNED_32));
+        JITParameter input = new JITParameter(1, true, type);
+        JITBlock first = new JITBlock(1);
+        JITBlock second = new JITBlock(2);
+        first.add(new JITConstantInstruction(2, JITI32Type.INSTANCE, new JITLiteral(new DBSPI32Literal(1)), true));
+        first.add(new JITConstantInstruction(3, JITI32Type.INSTANCE, new JITLiteral(new DBSPI32Literal(2)), true));
+        first.add(new JITBinaryInstruction(4, JITBinaryInstruction.Operation.ADD,
+                new JITInstructionReference(2), new JITInstructionReference(3), JITI32Type.INSTANCE));
+        first.add(new JITLoadInstruction(5, input.getInstructionReference(), type, 0, JITI32Type.INSTANCE));
+        first.add(new JITLoadInstruction(6, input.getInstructionReference(), type, 0, JITI32Type.INSTANCE));
+        first.add(new JITBinaryInstruction(7, JITBinaryInstruction.Operation.ADD,
+                new JITInstructionReference(5), new JITInstructionReference(6), JITI32Type.INSTANCE));
+        first.add(new JITCopyInstruction(8, new JITInstructionReference(7), JITI32Type.INSTANCE));
+        first.add(new JITUninitRowInstruction(9, type));
+        first.add(new JITStoreInstruction(10, new JITInstructionReference(9), type, 0,
+                new JITInstructionReference(8), JITI32Type.INSTANCE));
+        first.terminate(new JITJumpTerminator(second.getBlockReference()));
+        second.add(new JITBinaryInstruction(11, JITBinaryInstruction.Operation.MUL,
+                new JITInstructionReference(8), new JITInstructionReference(4), JITI32Type.INSTANCE));
+        second.terminate(new JITReturnTerminator(new JITInstructionReference(11)));
+        JITFunction function = new JITFunction(Linq.list(input), Linq.list(first, second), JITI32Type.INSTANCE);
+
+        new JITFunctionOptimizer().optimize(function);
+        // The blocks are merged; the constant is folded; one load, the copy
+        // and the row that is never read are removed.
+        Assert.assertEquals(1, function.blocks.size());
+        List<JITInstruction> instructions = function.blocks.get(0).instructions;
+        Assert.assertEquals(4, instructions.size());
+        JITInstruction folded = instructions.get(0);
+        Assert.assertTrue(folded.is(JITConstantInstruction.class));
+        Assert.assertEquals(Integer.valueOf(3),
+                folded.to(JITConstantInstruction.class).value.literal.to(DBSPI32Literal.class).value);
+        JITBinaryInstruction add = instructions.get(2).to(JITBinaryInstruction.class);
+        Assert.assertEquals(5, add.left.getId());
+        Assert.assertEquals(5, add.right.getId());
+        JITBinaryInstruction mul = instructions.get(3).to(JITBinaryInstruction.class);
+        Assert.assertEquals(7, mul.left.getId());
+        Assert.assertEquals(4, mul.right.getId());
+    }
+
+    @Test
+    public void rowLayoutTest() {
+        TypeCatalog catalog = new TypeCatalog();
+        DBSPType[] fields = new DBSPType[] {
+                DBSPTypeBool.INSTANCE,
+                DBSPTypeInteger.SIGNED_32.setMayBeNull(true),
+                DBSPTypeInteger.SIGNED_64,
+                DBSPTypeInteger.SIGNED_32 };
+        DBSPTypeTuple tuple = new DBSPTypeTuple(fields);
+        JITRowType row = catalog.convertTupleType(tuple);
+        // Sorted by alignment; non-nullable first
+        Assert.assertEquals("[I64, I32, ?I32, Bool]", row.toString());
+        Assert.assertEquals(3, row.getColumn(0));
+        Assert.assertEquals(2, row.getColumn(1));
+        Assert.assertEquals(0, row.getColumn(2));
+        Assert.assertEquals(1, row.getColumn(3));
+        // Tuples with the same fields share the layout
+        Assert.assertSame(row, catalog.convertTupleType(new DBSPTypeRawTuple(fields)));
+
+        TypeCatalog pinned = new TypeCatalog();
+        pinned.pin(tuple);
+        row = pinned.convertTupleType(tuple);
+        Assert.assertEquals("[Bool, ?I32, I64, I32]", row.toString());
+        Assert.assertEquals(0, row.getColumn(0));
+    }
+
+    @Test
+    public void runtimeFunctionJitTest() {
+        DBSPCompiler compiler = new DBSPCompiler(options);
+        compiler.compileStatement(ddl);
+        compiler.compileStatement("CREATE TABLE S (COL1 INT, TS TIMESTAMP)");
+        compiler.compileStatement("CREATE VIEW V AS SELECT CAST(T.COL1 AS VARCHAR), ABS(T.COL2), " +
+                "CASE WHEN T.COL3 THEN T.COL1 ELSE 0 END FROM T");
+        compiler.compileStatement("CREATE VIEW W AS SELECT EXTRACT(YEAR FROM TS), POWER(COL1, 2) FROM S");
+        DBSPCircuit circuit = compiler.getFinalCircuit("circuit");
+        String json = ToJitVisitor.circuitToJIT(circuit).asJson().toString();
+        Assert.assertTrue(json.contains("dbsp.str.write"));
+        Assert.assertTrue(json.contains("dbsp.math.abs"));
+        Assert.assertTrue(json.contains("dbsp.timestamp.year"));
+        Assert.assertTrue(json.contains("dbsp.math.pow"));
+        ToJitVisitor.validateJson(circuit, false);
+    }
+
+    @Test
+    public void decimalFunctionJitTest() {
+        // sqllib implements ROUND only for decimals, which the JIT does not support.
+        DBSPCompiler compiler = new DBSPCompiler(options);
+        compiler.compileStatement(ddl);
+        compiler.compileStatement("CREATE VIEW V AS SELECT ROUND(T.COL2, 2) FROM T");
+        DBSPCircuit circuit = compiler.getFinalCircuit("circuit");
+        Assert.assertThrows(Unimplemented.class, () -> ToJitVisitor.circuitToJIT(circuit));
+    }
+
+    /**
+     * A circuit with a flat_map whose function is |r| if r.0.is_null() { positive } else { negative }.
+     * r has type Tuple2<Option<i32>, i32>.
+     * @param positive  Produces the value of the positive branch given r.
+     * @param negative  Produces the value of the negative branch given r.
+     */
+    static DBSPCircuit flatMapCircuit(Function<DBSPVariablePath, DBSPExpression> positive,
+                                      Function<DBSPVariablePath, DBSPExpression> negative) {
+        DBSPCompiler compiler = new DBSPCompiler(options);
+        // Build the nodes with ids from the compiler which will process them
+        try (IdScope.Entered ignored = compiler.idScope.enter()) {
+            DBSPPartialCircuit partial = new DBSPPartialCircuit(compiler);
+            DBSPTypeTuple inputType = new DBSPTypeTuple(
+                    DBSPTypeInteger.SIGNED_32.setMayBeNull(true), DBSPTypeInteger.SIGNED_32);
+            DBSPTypeTuple outputType = new DBSPTypeTuple(DBSPTypeInteger.SIGNED_32);
+            DBSPSourceOperator source = new DBSPSourceOperator(
+                    null, TypeCompiler.makeZSet(inputType), null, "T");
+            partial.addOperator(source);
+            DBSPVariablePath r = inputType.ref().var("r");
+            DBSPExpression body = new DBSPIfExpression(null, new DBSPFieldExpression(null, r, 0).is_null(),
+                    positive.apply(r), negative.apply(r));
+            DBSPFlatMapOperator flatMap = new DBSPFlatMapOperator(null, body.closure(r.asParameter()),
+                    TypeCompiler.makeZSet(outputType), source);
+            partial.addOperator(flatMap);
+            partial.addOperator(new DBSPSinkOperator(null, "V", "", null, flatMap));
+            return new DBSPCircuit(partial, "circuit");
+        }
+    }
+
+    static DBSPExpression someField(DBSPVariablePath r, int field) {
+        return new DBSPTupleExpression(new DBSPFieldExpression(null, r, field)).some();
+    }
+
+    @Test
+    public void flatMapJitTest() {
+        // flat_map(|r| if r.0.is_null() { None } else { Some(Tuple1::new(r.1)) })
+        DBSPCircuit circuit = flatMapCircuit(
+                r -> DBSPLiteral.none(someField(r, 1).getNonVoidType()), r -> someField(r, 1));
+        JsonNode json = ToJitVisitor.circuitToJIT(circuit).asJson();
+        // The flat_map is compiled as a filter followed by a map
+        JsonNode map = null;
+        String filterId = null;
+        for (Iterator<Map.Entry<String, JsonNode>> it = json.get("nodes").fields(); it.hasNext(); ) {
+            Map.Entry<String, JsonNode> node = it.next();
+            if (node.getValue().has("Map"))
+                map = node.getValue().get("Map");
+            if (node.getValue().has("Filter"))
+                filterId = node.getKey();
+        }
+        Assert.assertNotNull(map);
+        Assert.assertNotNull(filterId);
+        Assert.assertEquals(filterId, map.get("input").asText());
+        // The filter id is distinct from the ids of the source, map and sink
+        Assert.assertEquals(4, json.get("nodes").size());
+        ToJitVisitor.validateJson(circuit, false);
+    }
+
+    @Test
+    public void flatMapTwoValuesJitTest() {
+        // flat_map(|r| if r.0.is_null() { Some(Tuple1::new(r.1)) } else { Some(Tuple1::new(r.1)) })
+        // produces a row for both values of the condition, so it is not a filter.
+        DBSPCircuit circuit = flatMapCircuit(r -> someField(r, 1), r -> someField(r, 1));
+        Assert.assertThrows(Unimplemented.class, () -> ToJitVisitor.circuitToJIT(circuit));
+    }
+
+    String compileToString() {
+        DBSPCompiler compiler = new DBSPCompiler(options);
+        compiler.compileStatement(ddl);
+        compiler.compileStatement("CREATE VIEW V AS SELECT COL1 + 1, COL4 FROM T WHERE COL2 > 0");
+        compiler.optimize();
+        DBSPCircuit circuit = compiler.getFinalCircuit("circuit");
+        // Calcite numbers its relational nodes globally; these appear in comments.
+        String text = circuit.toString().replaceAll("#\\d+", "#");
+        return text + ToJitVisitor.circuitToJIT(circuit).asJson().toString();
+    }
+
+    @Test
+    public void independentCompilersTest() throws Exception {
+        // Each compiler generates its own ids and names, so compiling
+        // the same program produces the same result, even concurrently.
+        String expected = this.compileToString();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<String> first = executor.submit(this::compileToString);
+            Future<String> second = executor.submit(this::compileToString);
+            Assert.assertEquals(expected, first.get());
+            Assert.assertEquals(expected, second.get());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    static String compileViews(boolean parallel) {
+        CompilerOptions options = new CompilerOptions();
+        options.optimizerOptions.parallelViews = parallel;
+        DBSPCompiler compiler = new DBSPCompiler(options);
+        StringBuilder program = new StringBuilder();
+        program.append("CREATE TABLE T(COL1 INT NOT NULL, COL2 DOUBLE, COL3 VARCHAR);\n")
+                .append("CREATE TABLE S(COL1 INT NOT NULL, COL4 BIGINT);\n");
+        for (int i = 0; i < 20; i++) {
+            program.append("CREATE VIEW V").append(i).append(" AS SELECT T.COL1 + ").append(i)
+                    .append(", SUM(COL4), MAX(COL2) FROM T JOIN S ON T.COL1 = S.COL1 WHERE COL2 > ").append(i)
+                    .append(" GROUP BY T.COL1;\n");
+            // A view which depends on the previous one
+            program.append("CREATE VIEW W").append(i).append(" AS SELECT COUNT(*) FROM V").append(i).append(";\n");
+        }
+        program.append("CREATE TABLE R(COL1 INT);\n")
+                .append("CREATE VIEW X AS SELECT * FROM R WHERE COL1 IN (SELECT COL1 FROM T);\n");
+        compiler.compileStatements(program.toString());
+        compiler.throwIfErrorsOccurred();
+        DBSPCircuit circuit = compiler.getFinalCircuit("circuit");
+        Assert.assertEquals(41, circuit.getOutputCount());
+        // Calcite numbers its relational nodes globally; these appear in comments.
+        return ToRustVisitor.toRustString(circuit).replaceAll("#\\d+", "#");
+    }
+
+    @Test
+    public void parallelViewsTest() {
+        // The first compilation also initializes static types, which consumes ids.
+        compileViews(false);
+        String serial = compileViews(false);
+        String parallel = compileViews(true);
+        Assert.assertEquals(serial, parallel);
+    }
+
+    @Test
+    public void idScopeTest() {
+        DBSPCompiler compiler = new DBSPCompiler(options);
+        long inside;
+        try (IdScope.Entered ignored = compiler.idScope.enter()) {
+            inside = new IdGen().id;
+        }
+        long outside = new IdGen().id;
+        Assert.assertTrue(inside < IdScope.GLOBAL_FIRST_ID);
+        Assert.assertTrue(outside >= IdScope.GLOBAL_FIRST_ID);
+    }
+
     @Test
     public void DDLAndInsertTest() {
         DBSPCompiler compiler = new DBSPCompiler(options);
@@ -99,4 +539,25 @@ public class DBSPCompilerTests {
         Assert.assertNotNull(t);
         Assert.assertEquals(1, t.size());
     }
+
+    @Test
+    public void literalInsertTest() {
+        DBSPCompiler compiler = new DBSPCompiler(options);
+        compiler.compileStatement(ddl);
+        // Translated directly, without Calcite
+        compiler.compileStatement("INSERT INTO T (COL4, COL3, COL2, COL1) VALUES('Hi', true, -1, -2), ('x', false, 2.5, 3)");
+        // Requires a cast, compiled by Calcite
+        compiler.compileStatement("INSERT INTO T VALUES(1.5, 0.0, true, 'Hi')");
+        Assert.assertFalse(compiler.hasErrors());
+        DBSPZSetLiteral t = compiler.getTableContents().getTableContents("T");
+        Assert.assertEquals(3, t.size());
+        DBSPExpression row = new DBSPTupleExpression(
+                new DBSPI32Literal(-2), new DBSPDoubleLiteral(-1.0),
+                DBSPBoolLiteral.TRUE, new DBSPStringLiteral("Hi"));
+        Assert.assertEquals(Long.valueOf(1), t.data.get(row));
+        row = new DBSPTupleExpression(
+                new DBSPI32Literal(3), new DBSPDoubleLiteral(2.5),
+                DBSPBoolLiteral.FALSE, new DBSPStringLiteral("x"));
+        Assert.assertEquals(Long.valueOf(1), t.data.get(row));
+    }
 }
@@ -0,0 +1,199 @@
+/*
+ * Copyright 2022 VMware, Inc.
+ * SPDX-License-Identifier: MIT
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.dbsp.sqlCompiler.compiler;
+
+import org.dbsp.sqlCompiler.circuit.DBSPCircuit;
+import org.dbsp.sqlCompiler.compiler.backend.DBSPCompiler;
+import org.dbsp.sqlCompiler.compiler.backend.interpreter.CircuitInterpreter;
+import org.dbsp.sqlCompiler.compiler.backend.interpreter.ZSet;
+import org.dbsp.sqlCompiler.compiler.backend.jit.ExpandIncrementalOperators;
+import org.dbsp.sqlCompiler.compiler.backend.optimize.IncrementalizeVisitor;
+import org.dbsp.sqlCompiler.compiler.backend.optimize.OptimizeIncrementalVisitor;
+import org.dbsp.sqlCompiler.ir.expression.DBSPExpression;
+import org.dbsp.sqlCompiler.ir.expression.DBSPTupleExpression;
+import org.dbsp.sqlCompiler.ir.expression.literal.*;
+import org.dbsp.sqlCompiler.ir.type.primitive.DBSPTypeInteger;
+import org.dbsp.util.Linq;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+
+/**
+ * Tests that run circuits using the Java interpreter.
+ */
+public class InterpreterTests extends BaseSQLTests {
+    DBSPCircuit compile(String query) {
+        DBSPCompiler compiler = this.compileQuery("CREATE VIEW V AS " + query);
+        compiler.throwIfErrorsOccurred();
+        compiler.optimize();
+        return getCircuit(compiler);
+    }
+
+    void testQuery(String query, DBSPZSetLiteral expectedOutput) {
+        ZSet input = CircuitInterpreter.toZSet(this.createInput());
+        ZSet expected = CircuitInterpreter.toZSet(expectedOutput);
+
+        DBSPCircuit circuit = this.compile(query);
+        CircuitInterpreter interpreter = new CircuitInterpreter(circuit);
+        List<ZSet> output = interpreter.step(input);
+        Assert.assertEquals(expected, output.get(0));
+
+        // The incremental version of the circuit produces the same output
+        // for the first change, and no change afterwards.
+        DBSPCircuit incremental = new IncrementalizeVisitor().apply(circuit);
+        // The incremental operators, and their expansion for the JIT, compute the same changes.
+        DBSPCircuit optimized = new OptimizeIncrementalVisitor().apply(incremental);
+        DBSPCircuit expanded = new ExpandIncrementalOperators().apply(optimized);
+        ZSet emptyOutput = new CircuitInterpreter(circuit).step(new ZSet()).get(0);
+        for (DBSPCircuit c: Linq.list(incremental, optimized, expanded)) {
+            interpreter = new CircuitInterpreter(c);
+            output = interpreter.step(input);
+            Assert.assertEquals(expected, output.get(0));
+            output = interpreter.step(new ZSet());
+            Assert.assertTrue(output.get(0).isEmpty());
+            // Deleting the input produces the output of the empty input
+            output = interpreter.step(input.negate());
+            Assert.assertEquals(emptyOutput.minus(expected), output.get(0));
+        }
+    }
+
+    /**
+     * Check that the expansion of the incremental operators for the JIT
+     * produces the same changes as the incremental operators when
+     * the rows are inserted and deleted one at a time.
+     */
+    void testExpansion(String query) {
+        DBSPCircuit circuit = this.compile(query);
+        DBSPCircuit incremental = new OptimizeIncrementalVisitor().apply(
+                new IncrementalizeVisitor().apply(circuit));
+        DBSPCircuit expanded = new ExpandIncrementalOperators().apply(incremental);
+        CircuitInterpreter reference = new CircuitInterpreter(incremental);
+        CircuitInterpreter interpreter = new CircuitInterpreter(expanded);
+        ZSet first = CircuitInterpreter.toZSet(z0);
+        ZSet second = CircuitInterpreter.toZSet(z1);
+        for (ZSet change: Linq.list(first, second, first, first.negate(), second.negate(), first.negate())) {
+            ZSet expected = reference.step(change).get(0);
+            Assert.assertEquals(expected, interpreter.step(change).get(0));
+        }
+    }
+
+    @Test
+    public void expansionTest() {
+        this.testExpansion("SELECT DISTINCT T.COL3 FROM T");
+        this.testExpansion("SELECT T1.COL3, T2.COL3 FROM T AS T1 JOIN T AS T2 ON T1.COL1 = T2.COL1");
+        this.testExpansion("SELECT COL1, SUM(col2) FROM T GROUP BY COL1, COL3");
+    }
+
+    @Test
+    public void projectTest() {
+        String query = "SELECT T.COL3 FROM T";
+        this.testQuery(query,
+                new DBSPZSetLiteral(
+                        new DBSPTupleExpression(DBSPBoolLiteral.TRUE),
+                        new DBSPTupleExpression(DBSPBoolLiteral.FALSE)));
+    }
+
+    @Test
+    public void whereTest() {
+        String query = "SELECT * FROM T WHERE COL3";
+        this.testQuery(query, new DBSPZSetLiteral(e0));
+    }
+
+    @Test
+    public void nullableBooleanTest() {
+        String query = "SELECT T.COL5 > 10 AND T.COL3 FROM T";
+        this.testQuery(query, new DBSPZSetLiteral(
+                new DBSPTupleExpression(DBSPBoolLiteral.NONE),
+                new DBSPTupleExpression(DBSPBoolLiteral.NULLABLE_FALSE)));
+    }
+
+    @Test
+    public void divTest() {
+        String query = "SELECT T.COL1 / T.COL5 FROM T";
+        this.testQuery(query, new DBSPZSetLiteral(
+                new DBSPTupleExpression(DBSPLiteral.none(
+                        DBSPTypeInteger.SIGNED_32.setMayBeNull(true))),
+                new DBSPTupleExpression(new DBSPI32Literal(10, true))));
+    }
+
+    @Test
+    public void joinTest() {
+        String query = "SELECT T1.COL3, T2.COL3 FROM T AS T1 JOIN T AS T2 ON T1.COL1 = T2.COL1";
+        this.testQuery(query, new DBSPZSetLiteral(
+                new DBSPTupleExpression(DBSPBoolLiteral.FALSE, DBSPBoolLiteral.FALSE),
+                new DBSPTupleExpression(DBSPBoolLiteral.FALSE, DBSPBoolLiteral.TRUE),
+                new DBSPTupleExpression(DBSPBoolLiteral.TRUE,  DBSPBoolLiteral.FALSE),
+                new DBSPTupleExpression(DBSPBoolLiteral.TRUE,  DBSPBoolLiteral.TRUE)));
+    }
+
+    @Test
+    public void leftOuterJoinTest() {
+        String query = "SELECT T1.COL3, T2.COL3 FROM T AS T1 LEFT JOIN T AS T2 ON T1.COL1 = T2.COL5";
+        this.testQuery(query, new DBSPZSetLiteral(
+                new DBSPTupleExpression(DBSPBoolLiteral.FALSE, DBSPBoolLiteral.NONE),
+                new DBSPTupleExpression(DBSPBoolLiteral.TRUE, DBSPBoolLiteral.NONE)));
+    }
+
+    @Test
+    public void unionTest() {
+        String query = "(SELECT * FROM T) UNION (SELECT * FROM T)";
+        this.testQuery(query, this.createInput());
+    }
+
+    @Test
+    public void groupBySumTest() {
+        String query = "SELECT COL1, SUM(col2) FROM T GROUP BY COL1, COL3";
+        this.testQuery(query, new DBSPZSetLiteral(
+                new DBSPTupleExpression(new DBSPI32Literal(10), new DBSPDoubleLiteral(1)),
+                new DBSPTupleExpression(new DBSPI32Literal(10), new DBSPDoubleLiteral(12))));
+    }
+
+    @Test
+    public void groupByCountTest() {
+        String query = "SELECT COL1, COUNT(col2) FROM T GROUP BY COL1, COL3";
+        DBSPExpression row =  new DBSPTupleExpression(new DBSPI32Literal(10), new DBSPI64Literal(1));
+        this.testQuery(query, new DBSPZSetLiteral(row, row));
+    }
+
+    @Test
+    public void aggregateDistinctTest() {
+        String query = "SELECT SUM(DISTINCT T.COL1), SUM(T.COL2) FROM T";
+        this.testQuery(query, new DBSPZSetLiteral(
+                new DBSPTupleExpression(
+                        new DBSPI32Literal(10, true), new DBSPDoubleLiteral(13.0, true))));
+    }
+
+    @Test
+    public void orderbyDescendingTest() {
+        String query = "SELECT * FROM T ORDER BY T.COL2 DESC";
+        this.testQuery(query, new DBSPZSetLiteral(new DBSPVecLiteral(e0, e1)));
+    }
+
+    @Test
+    public void orderby2Test() {
+        String query = "SELECT * FROM T ORDER BY T.COL2, T.COL1";
+        this.testQuery(query, new DBSPZSetLiteral(new DBSPVecLiteral(e1, e0)));
+    }
+}
@@ -34,11 +34,21 @@ import org.apache.calcite.tools.FrameworkConfig;
 import org.apache.calcite.tools.Frameworks;
 import org.apache.calcite.tools.RelBuilder;
 import org.apache.calcite.tools.RelRunner;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.dbsp.sqlCompiler.compiler.backend.jit.JITBinarySerializer;
+import org.dbsp.sqlCompiler.compiler.backend.jit.ToJitVisitor;
+import org.dbsp.sqlCompiler.compiler.backend.jit.ir.JITNode;
+import org.dbsp.sqlCompiler.compiler.backend.jit.ir.JITProgram;
+import org.dbsp.sqlCompiler.compiler.backend.optimize.DeduplicateDeclarations;
 import org.dbsp.sqlCompiler.compiler.backend.rust.RustFileWriter;
 import org.dbsp.sqlCompiler.compiler.errors.CompilerMessages;
+import org.dbsp.sqlCompiler.compiler.frontend.ColumnarTable;
 import org.dbsp.sqlCompiler.CompilerMain;
+import org.dbsp.sqlCompiler.CompilerServer;
 import org.dbsp.sqlCompiler.circuit.DBSPCircuit;
 import org.dbsp.sqlCompiler.compiler.backend.DBSPCompiler;
+import org.dbsp.sqlCompiler.compiler.backend.ToBinaryVisitor;
 import org.dbsp.sqlCompiler.compiler.backend.ToCsvVisitor;
 import org.dbsp.sqlCompiler.compiler.backend.rust.ToRustVisitor;
 import org.dbsp.sqlCompiler.compiler.frontend.CollectIdentifiers;
@@ -48,10 +58,20 @@ import org.dbsp.sqlCompiler.ir.expression.literal.*;
 import org.dbsp.sqlCompiler.ir.statement.DBSPExpressionStatement;
 import org.dbsp.sqlCompiler.ir.statement.DBSPLetStatement;
 import org.dbsp.sqlCompiler.ir.statement.DBSPStatement;
+import org.dbsp.sqlCompiler.ir.type.DBSPType;
+import org.dbsp.sqlCompiler.ir.type.DBSPTypeTuple;
 import org.dbsp.sqlCompiler.ir.type.DBSPTypeUser;
+import org.dbsp.sqlCompiler.ir.type.DBSPTypeZSet;
+import org.dbsp.sqlCompiler.ir.type.primitive.DBSPTypeDate;
+import org.dbsp.sqlCompiler.ir.type.primitive.DBSPTypeDecimal;
 import org.dbsp.sqlCompiler.ir.type.primitive.DBSPTypeInteger;
+import org.dbsp.sqlCompiler.ir.type.primitive.DBSPTypeMillisInterval;
+import org.dbsp.sqlCompiler.ir.type.primitive.DBSPTypeString;
+import org.dbsp.sqllogictest.executors.BatchSizeTuner;
+import org.dbsp.sqllogictest.executors.DBSPExecutor;
 import org.dbsp.util.FreshName;
 import org.dbsp.util.IModule;
+import org.dbsp.util.Linq;
 import org.dbsp.util.Logger;
 import org.dbsp.util.StringPrintStream;
 import org.dbsp.util.Utilities;
@@ -61,11 +81,18 @@ import org.junit.Test;
 import javax.imageio.ImageIO;
 import javax.sql.DataSource;
 import java.io.*;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 
@@ -114,16 +141,53 @@ public class OtherTests extends BaseSQLTests implements IModule {
         this.testQuery(query);
     }
 
+    @Test
+    public void typeHashTest() {
+        DBSPTypeTuple left = new DBSPTypeTuple(
+                DBSPTypeInteger.SIGNED_32, DBSPTypeString.NULLABLE_INSTANCE.ref());
+        DBSPTypeTuple right = new DBSPTypeTuple(
+                new DBSPTypeInteger(null, 32, true, false), DBSPTypeString.NULLABLE_INSTANCE.ref(true));
+        Assert.assertTrue(left.sameType(right));
+        Assert.assertEquals(left.hashCode(), right.hashCode());
+        Map<DBSPType, Integer> map = new HashMap<>();
+        map.put(left, 1);
+        Assert.assertEquals(1, (int) map.get(right));
+
+        DBSPTypeTuple nullable = new DBSPTypeTuple(
+                DBSPTypeInteger.NULLABLE_SIGNED_32, DBSPTypeString.NULLABLE_INSTANCE.ref());
+        Assert.assertFalse(left.sameType(nullable));
+        Assert.assertFalse(map.containsKey(nullable));
+    }
+
+    @Test
+    public void zsetLiteralEqualityTest() {
+        DBSPZSetLiteral zset = new DBSPZSetLiteral(
+                new DBSPTupleExpression(new DBSPI32Literal(1), new DBSPStringLiteral("a")),
+                new DBSPTupleExpression(new DBSPI32Literal(2), new DBSPStringLiteral("a")),
+                new DBSPTupleExpression(new DBSPI32Literal(1), new DBSPStringLiteral("a")));
+        Assert.assertEquals(2, zset.size());
+        Assert.assertEquals(2L, (long) zset.data.get(
+                new DBSPTupleExpression(new DBSPI32Literal(1), new DBSPStringLiteral("a"))));
+        Assert.assertNotEquals(new DBSPI32Literal(1), new DBSPI32Literal(1, true));
+        Assert.assertNotEquals(new DBSPI32Literal(1), new DBSPI64Literal(1));
+        DBSPZSetLiteral negated = zset.negate();
+        zset.add(negated);
+        Assert.assertEquals(0, zset.size());
+    }
+
     @Test
     public void loggerTest() {
         StringBuilder builder = new StringBuilder();
         Appendable save = Logger.INSTANCE.setDebugStream(builder);
         Logger.INSTANCE.setDebugLevel(this.getModule(), 1);
         Assert.assertEquals("OtherTests", this.getModule());
+        Assert.assertTrue(Logger.INSTANCE.isEnabled(this, 1));
+        Assert.assertFalse(Logger.INSTANCE.isEnabled(this, 2));
         Logger.INSTANCE.from(this, 1)
                 .append("Logging one statement")
                 .newline();
         Logger.INSTANCE.setDebugLevel(this.getModule(), 0);
+        Assert.assertFalse(Logger.INSTANCE.isEnabled(this, 1));
         Logger.INSTANCE.from(this, 1)
                 .append("This one is not logged")
                 .newline();
@@ -192,6 +256,47 @@ public class OtherTests extends BaseSQLTests implements IModule {
                 String.join("\n", lines));
     }
 
+    @Test
+    public void columnarTableTest() throws IOException {
+        DBSPZSetLiteral s = new DBSPZSetLiteral(BaseSQLTests.e0, BaseSQLTests.e1);
+        ColumnarTable table = new ColumnarTable(s.zsetType);
+        table.add(BaseSQLTests.e0, 2);
+        table.add(BaseSQLTests.e1, 1);
+        table.add(BaseSQLTests.e0, -1);
+        Assert.assertEquals(3, table.size());
+        Assert.assertEquals(s, table.toZSetLiteral());
+        table.consolidate();
+        Assert.assertEquals(2, table.size());
+        Assert.assertEquals(BaseSQLTests.e0, table.getRow(0));
+        Assert.assertEquals(s, table.toZSetLiteral());
+
+        String fileName = BaseSQLTests.rustDirectory + "/" + "test.csv";
+        File file = ToCsvVisitor.toCsv(fileName, table);
+        List<String> lines = Files.readAllLines(file.toPath());
+        Assert.assertEquals(Linq.list(
+                "10,12.0,true,\"Hi\",,,",
+                "10,1.0,false,\"Hi\",1,0.0,"), lines);
+        Assert.assertTrue(file.delete());
+    }
+
+    @Test
+    public void columnarTableCastTest() {
+        // Values which are not literals are stored as expressions;
+        // deleting a row must cancel an insertion of an equal row.
+        DBSPTypeTuple type = new DBSPTypeTuple(DBSPTypeInteger.SIGNED_32, DBSPTypeInteger.SIGNED_16);
+        ColumnarTable table = new ColumnarTable(new DBSPTypeZSet(type));
+        table.add(new DBSPTupleExpression(new DBSPI32Literal(1),
+                new DBSPI32Literal(2).cast(DBSPTypeInteger.SIGNED_16)), 1);
+        table.add(new DBSPTupleExpression(new DBSPI32Literal(3),
+                new DBSPI32Literal(4).cast(DBSPTypeInteger.SIGNED_16)), 1);
+        table.add(new DBSPTupleExpression(new DBSPI32Literal(1),
+                new DBSPI32Literal(2).cast(DBSPTypeInteger.SIGNED_16)), -1);
+        table.consolidate();
+        Assert.assertEquals(1, table.size());
+        Assert.assertEquals(1, table.getWeight(0));
+        Assert.assertEquals("3i32", table.getRow(0).get(0).toString());
+    }
+
     @Test
     public void rustCsvTest() throws IOException, InterruptedException {
         DBSPZSetLiteral data = new DBSPZSetLiteral(BaseSQLTests.e0, BaseSQLTests.e1);
@@ -218,6 +323,182 @@ public class OtherTests extends BaseSQLTests implements IModule {
         Assert.assertTrue(success);
     }
 
+    @Test
+    public void toBinaryTest() {
+        DBSPZSetLiteral s = new DBSPZSetLiteral(
+                new DBSPTupleExpression(new DBSPI32Literal(1, true), new DBSPStringLiteral("Hi")));
+        s.add(s.negate());
+        s.add(new DBSPTupleExpression(DBSPLiteral.none(DBSPTypeInteger.NULLABLE_SIGNED_32),
+                new DBSPStringLiteral("Hi")), -2);
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        ToBinaryVisitor visitor = new ToBinaryVisitor(stream);
+        visitor.traverse(s);
+        Assert.assertEquals(
+                // row count
+                "0100000000000000" +
+                // None::<i32>, "Hi"
+                "00" + "0200000000000000" + "4869" +
+                // weight
+                "feffffffffffffff",
+                Utilities.toHex(stream.toByteArray()));
+    }
+
+    @Test
+    public void toBinaryBatchesTest() throws IOException {
+        DBSPZSetLiteral s = new DBSPZSetLiteral(
+                new DBSPTupleExpression(new DBSPI32Literal(1)));
+        ColumnarTable table = new ColumnarTable(s.zsetType);
+        for (int i = 1; i <= 3; i++)
+            table.add(new DBSPTupleExpression(new DBSPI32Literal(i)), 1);
+        String fileName = BaseSQLTests.rustDirectory + "/" + "test.bin";
+        File file = ToBinaryVisitor.toBinaryBatches(fileName, table, 2);
+        String batch0 = "0200000000000000" +
+                "01000000" + "0100000000000000" +
+                "02000000" + "0100000000000000";
+        String batch1 = "0100000000000000" +
+                "03000000" + "0100000000000000";
+        Assert.assertEquals(
+                // each batch is prefixed by its size
+                "2000000000000000" + batch0 +
+                "1400000000000000" + batch1,
+                Utilities.toHex(Files.readAllBytes(file.toPath())));
+        Assert.assertTrue(file.delete());
+    }
+
+    @Test
+    public void toBinaryDecimalTest() {
+        DBSPTypeDecimal decimal = new DBSPTypeDecimal(null, 10, 2, false);
+        DBSPZSetLiteral s = new DBSPZSetLiteral(
+                new DBSPTupleExpression(new DBSPDecimalLiteral(null, decimal, new BigDecimal("-1.50"))));
+        Assert.assertTrue(ToBinaryVisitor.isSupported(s.getElementType()));
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        ToBinaryVisitor visitor = new ToBinaryVisitor(stream);
+        visitor.traverse(s);
+        Assert.assertEquals(
+                // row count
+                "0100000000000000" +
+                // "-1.50"
+                "0500000000000000" + "2d312e3530" +
+                // weight
+                "0100000000000000",
+                Utilities.toHex(stream.toByteArray()));
+        // Types which cannot be written in binary
+        DBSPType unsupported = new DBSPTypeTuple(DBSPTypeInteger.SIGNED_32, DBSPTypeMillisInterval.INSTANCE);
+        Assert.assertFalse(ToBinaryVisitor.isSupported(unsupported));
+    }
+
+    @Test
+    public void batchSizeTunerTest() {
+        BatchSizeTuner tuner = new BatchSizeTuner(5, 1, 100, 10);
+        // Cheap queries: grow, but at most twice the size each time.
+        tuner.record(5, 1);
+        Assert.assertEquals(10, tuner.getBatchSize());
+        tuner.record(10, 1);
+        Assert.assertEquals(20, tuner.getBatchSize());
+        // Expensive queries: shrink.
+        tuner.record(20, 100);
+        Assert.assertEquals(4, tuner.getBatchSize());
+        for (int i = 0; i < 10; i++)
+            tuner.record(tuner.getBatchSize(), tuner.getBatchSize() * 20);
+        Assert.assertEquals(1, tuner.getBatchSize());
+    }
+
+    @Test
+    public void rustBinaryTest() throws IOException, InterruptedException {
+        DBSPZSetLiteral data = new DBSPZSetLiteral(BaseSQLTests.e0, BaseSQLTests.e1);
+        data.add(BaseSQLTests.e0, -2);
+        String fileName = BaseSQLTests.rustDirectory + "/" + "test.bin";
+        File file = ToBinaryVisitor.toBinary(fileName, data);
+        List<DBSPStatement> list = new ArrayList<>();
+        DBSPLetStatement src = new DBSPLetStatement("src",
+                new DBSPApplyExpression("read_binary", data.getNonVoidType(),
+                        new DBSPStrLiteral(fileName)));
+        list.add(src);
+        list.add(new DBSPExpressionStatement(new DBSPApplyExpression(
+                "assert_eq!", null, src.getVarReference(),
+                data)));
+        DBSPExpression body = new DBSPBlockExpression(list, null);
+        DBSPFunction tester = new DBSPFunction("test", new ArrayList<>(), null, body)
+                .addAnnotation("#[test]");
+
+        RustFileWriter writer = new RustFileWriter(BaseSQLTests.testFilePath);
+        writer.add(tester);
+        writer.writeAndClose();
+        Utilities.compileAndTestRust(BaseSQLTests.rustDirectory, false);
+        boolean success = file.delete();
+        Assert.assertTrue(success);
+    }
+
+    @Test
+    public void rustBinaryDecimalTest() throws IOException, InterruptedException {
+        DBSPTypeDecimal decimal = new DBSPTypeDecimal(null, 10, 2, true);
+        DBSPZSetLiteral data = new DBSPZSetLiteral(
+                new DBSPTupleExpression(new DBSPI32Literal(1),
+                        new DBSPDecimalLiteral(null, decimal, new BigDecimal("-1.50"))),
+                new DBSPTupleExpression(new DBSPI32Literal(2),
+                        DBSPLiteral.none(decimal)));
+        this.rustBinaryRoundTrip(data);
+    }
+
+    @Test
+    public void toBinaryDateTest() {
+        DBSPZSetLiteral s = new DBSPZSetLiteral(
+                new DBSPTupleExpression(new DBSPDateLiteral("2023-02-28"),
+                        DBSPLiteral.none(DBSPTypeDate.NULLABLE_INSTANCE)));
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        ToBinaryVisitor visitor = new ToBinaryVisitor(stream);
+        visitor.traverse(s);
+        Assert.assertEquals(
+                // row count
+                "0100000000000000" +
+                // "2023-02-28"
+                "0a00000000000000" + "323032332d30322d3238" +
+                // None
+                "00" +
+                // weight
+                "0100000000000000",
+                Utilities.toHex(stream.toByteArray()));
+    }
+
+    @Test
+    public void rustBinaryDateTest() throws IOException, InterruptedException {
+        DBSPZSetLiteral data = new DBSPZSetLiteral(
+                new DBSPTupleExpression(new DBSPI32Literal(1),
+                        new DBSPDateLiteral("2023-02-28"),
+                        new DBSPDateLiteral("1969-12-31", true)),
+                new DBSPTupleExpression(new DBSPI32Literal(2),
+                        new DBSPDateLiteral("1970-01-01"),
+                        DBSPLiteral.none(DBSPTypeDate.NULLABLE_INSTANCE)));
+        Assert.assertTrue(ToBinaryVisitor.isSupported(data.getElementType()));
+        this.rustBinaryRoundTrip(data);
+    }
+
+    /**
+     * Write 'data' to a binary file and check that the Rust reader reads it back unchanged.
+     */
+    void rustBinaryRoundTrip(DBSPZSetLiteral data) throws IOException, InterruptedException {
+        String fileName = BaseSQLTests.rustDirectory + "/" + "test.bin";
+        File file = ToBinaryVisitor.toBinary(fileName, data);
+        List<DBSPStatement> list = new ArrayList<>();
+        DBSPLetStatement src = new DBSPLetStatement("src",
+                new DBSPApplyExpression("read_binary", data.getNonVoidType(),
+                        new DBSPStrLiteral(fileName)));
+        list.add(src);
+        list.add(new DBSPExpressionStatement(new DBSPApplyExpression(
+                "assert_eq!", null, src.getVarReference(),
+                data)));
+        DBSPExpression body = new DBSPBlockExpression(list, null);
+        DBSPFunction tester = new DBSPFunction("test", new ArrayList<>(), null, body)
+                .addAnnotation("#[test]");
+
+        RustFileWriter writer = new RustFileWriter(BaseSQLTests.testFilePath);
+        writer.add(tester);
+        writer.writeAndClose();
+        Utilities.compileAndTestRust(BaseSQLTests.rustDirectory, false);
+        boolean success = file.delete();
+        Assert.assertTrue(success);
+    }
+
     @SuppressWarnings("SqlDialectInspection")
     @Test
     public void rustSqlTest() throws IOException, InterruptedException, SQLException {
@@ -270,6 +551,42 @@ public class OtherTests extends BaseSQLTests implements IModule {
         Assert.assertTrue(success);
     }
 
+    @SuppressWarnings("SqlDialectInspection")
+    @Test
+    public void rustSqlPagedTest() throws IOException, InterruptedException, SQLException {
+        DBSPZSetLiteral data = DBSPZSetLiteral.emptyWithElementType(
+                new DBSPTupleExpression(new DBSPI32Literal(0), new DBSPStringLiteral("")).getNonVoidType());
+        for (int i = 0; i < 100; i++)
+            data.add(new DBSPTupleExpression(new DBSPI32Literal(i), new DBSPStringLiteral("row" + i)));
+
+        // The executor writes the table to a SQLite database and generates a
+        // read_db_paged(<conn>, <table_name>, <key>, <page_size>, <workers>, <mapper>) invocation
+        DBSPExecutor executor = new DBSPExecutor(false, false, getOptions(), "sqlite");
+        executor.setRustDirectory(BaseSQLTests.rustDirectory + "/");
+        executor.setDbPagination("rowid", 7, 3);
+        DBSPFunction input = executor.createInputFunction(
+                new DBSPExecutor.TableValue[] { new DBSPExecutor.TableValue("t1", data) });
+
+        List<DBSPStatement> list = new ArrayList<>();
+        DBSPLetStatement src = new DBSPLetStatement("src",
+                input.call().field(0));
+        list.add(src);
+        list.add(new DBSPExpressionStatement(new DBSPApplyExpression(
+                "assert_eq!", null, src.getVarReference(),
+                data)));
+        DBSPExpression body = new DBSPBlockExpression(list, null);
+        DBSPFunction tester = new DBSPFunction("test", new ArrayList<>(), null, body)
+                .addAnnotation("#[test]");
+
+        RustFileWriter writer = new RustFileWriter(BaseSQLTests.testFilePath);
+        writer.add(input);
+        writer.add(tester);
+        writer.writeAndClose();
+        Utilities.compileAndTestRust(BaseSQLTests.rustDirectory, false);
+        boolean success = new File(BaseSQLTests.rustDirectory + "/test_inputs.db").delete();
+        Assert.assertTrue(success);
+    }
+
     @Test
     public void rustCsvTest2() throws IOException, InterruptedException {
         DBSPZSetLiteral data = new DBSPZSetLiteral(
@@ -324,6 +641,130 @@ public class OtherTests extends BaseSQLTests implements IModule {
         Assert.assertTrue(success);
     }
     
+    @Test
+    public void testRustModules() throws IOException, InterruptedException {
+        String[] statements = new String[]{
+                "CREATE TABLE T (\n" +
+                        "COL1 INT NOT NULL" +
+                        ", COL2 DOUBLE NOT NULL" +
+                        ")",
+                "CREATE VIEW V AS SELECT COL1 FROM T WHERE COL1 > 5",
+                "CREATE VIEW W AS SELECT COL2 FROM T",
+                "CREATE VIEW C AS SELECT 1"
+        };
+        File file = this.createInputScript(statements);
+        CompilerMessages message = CompilerMain.execute(
+                "-modules", "-o", BaseSQLTests.rustDirectory, file.getPath());
+        Assert.assertEquals(message.exitCode, 0);
+        Path directory = Paths.get(BaseSQLTests.rustDirectory);
+        String code = String.join("\n", Files.readAllLines(directory.resolve("lib.rs")));
+        Assert.assertTrue(code.contains("mod circuit_V;"));
+        Assert.assertTrue(code.contains("circuit_W::view(T.clone())"));
+        // Only views with constants add nodes to the circuit
+        Assert.assertTrue(code.contains("circuit_C::view(circuit)"));
+        Utilities.compileAndTestRust(BaseSQLTests.rustDirectory, false);
+        for (String module: new String[] { "circuit_V", "circuit_W", "circuit_C" }) {
+            File rs = directory.resolve(module + ".rs").toFile();
+            Assert.assertTrue(rs.delete());
+        }
+        Assert.assertTrue(file.delete());
+    }
+
+    @Test
+    public void testCompilationCache() throws IOException {
+        String[] statements = new String[]{
+                "CREATE TABLE T (\n" +
+                        "COL1 INT NOT NULL" +
+                        ", COL2 DOUBLE NOT NULL" +
+                        ")",
+                "CREATE VIEW V AS SELECT COL1 FROM T WHERE COL1 > 5"
+        };
+        File file = this.createInputScript(statements);
+        Path cache = Files.createTempDirectory(Paths.get("."), "cache");
+        File output = new File(BaseSQLTests.testFilePath);
+        CompilerMessages message = CompilerMain.execute(
+                "-cache", cache.toString(), "-o", output.getPath(), file.getPath());
+        Assert.assertEquals(message.exitCode, 0);
+        File[] entries = cache.toFile().listFiles();
+        Assert.assertNotNull(entries);
+        Assert.assertEquals(1, entries.length);
+        byte[] code = Files.readAllBytes(output.toPath());
+        long modified = output.lastModified();
+
+        // A hit produces the same output without rewriting the file
+        message = CompilerMain.execute(
+                "-cache", cache.toString(), "-o", output.getPath(), file.getPath());
+        Assert.assertEquals(message.exitCode, 0);
+        Assert.assertArrayEquals(code, Files.readAllBytes(output.toPath()));
+        Assert.assertEquals(modified, output.lastModified());
+
+        // A miss which produces the same output does not rewrite the file either.
+        // The Rust output contains Calcite node numbers, which differ between compilations.
+        message = CompilerMain.execute(
+                "-cache", cache.toString(), "-j", "-o", output.getPath(), file.getPath());
+        Assert.assertEquals(message.exitCode, 0);
+        code = Files.readAllBytes(output.toPath());
+        new CompilationCache(cache.toString(), 0, 1000).evict();
+        Assert.assertTrue(output.setLastModified(modified - 10000));
+        modified = output.lastModified();
+        message = CompilerMain.execute(
+                "-cache", cache.toString(), "-j", "-o", output.getPath(), file.getPath());
+        Assert.assertEquals(message.exitCode, 0);
+        Assert.assertArrayEquals(code, Files.readAllBytes(output.toPath()));
+        Assert.assertEquals(modified, output.lastModified());
+
+        // The schema is cached with the modules
+        Path directory = Files.createTempDirectory(Paths.get("."), "out");
+        File schema = File.createTempFile("out", ".json", new File("."));
+        String[] args = new String[] { "-cache", cache.toString(), "-modules", "-js", schema.getPath(),
+                "-o", directory.toString(), file.getPath() };
+        message = CompilerMain.execute(args);
+        Assert.assertEquals(message.exitCode, 0);
+        byte[] json = Files.readAllBytes(schema.toPath());
+        Assert.assertTrue(schema.delete());
+        message = CompilerMain.execute(args);
+        Assert.assertEquals(message.exitCode, 0);
+        Assert.assertArrayEquals(json, Files.readAllBytes(schema.toPath()));
+        Assert.assertFalse(directory.resolve("schema.json").toFile().exists());
+        File[] files = directory.toFile().listFiles();
+        Assert.assertNotNull(files);
+        for (File f: files)
+            Assert.assertTrue(f.delete());
+        Assert.assertTrue(directory.toFile().delete());
+        Assert.assertTrue(schema.delete());
+
+        // Different options produce a different entry
+        message = CompilerMain.execute(
+                "-cache", cache.toString(), "-i", "-o", output.getPath(), file.getPath());
+        Assert.assertEquals(message.exitCode, 0);
+        entries = cache.toFile().listFiles();
+        Assert.assertNotNull(entries);
+        Assert.assertEquals(3, entries.length);
+
+        // A cache of size 0 evicts everything
+        new CompilationCache(cache.toString(), 0, 1000).evict();
+        entries = cache.toFile().listFiles();
+        Assert.assertNotNull(entries);
+        Assert.assertEquals(0, entries.length);
+        Assert.assertTrue(cache.toFile().delete());
+        Assert.assertTrue(file.delete());
+    }
+
+    @Test
+    public void deduplicateTest() {
+        DBSPCompiler compiler = this.compileDef();
+        compiler.compileStatement("CREATE VIEW V AS SELECT COL1 FROM T WHERE COL1 > 5");
+        compiler.compileStatement("CREATE VIEW W AS SELECT COL1 FROM T WHERE COL1 > 5");
+        DBSPCircuit circuit = getCircuit(compiler);
+        DeduplicateDeclarations dedup = new DeduplicateDeclarations();
+        DBSPCircuit result = dedup.apply(circuit);
+        String before = ToRustVisitor.toRustString(circuit);
+        String rust = ToRustVisitor.toRustString(result);
+        Assert.assertTrue(before.contains("let cond1"));
+        Assert.assertTrue(rust.contains("let cond0"));
+        Assert.assertFalse(rust.contains("let cond1"));
+    }
+
     @Test
     public void testSchema() throws IOException {
         String[] statements = new String[]{
@@ -372,6 +813,95 @@ public class OtherTests extends BaseSQLTests implements IModule {
         Assert.assertTrue(success);
     }
 
+    @Test
+    public void testCompilerServer() throws IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        ObjectNode good = mapper.createObjectNode();
+        good.put("id", 1);
+        good.putArray("args").add("-j");
+        good.put("sql", "CREATE TABLE T(COL1 INT NOT NULL);\n" +
+                "CREATE VIEW V AS SELECT COL1 FROM T WHERE COL1 > 5");
+        ObjectNode bad = mapper.createObjectNode();
+        bad.put("id", 2);
+        bad.put("sql", "CREATE VIEW V AS SELECT * FROM S");
+        String requests = good + "\n" + bad + "\n" + "not json\n";
+
+        CompilerServer server = new CompilerServer(2);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        server.serve(new ByteArrayInputStream(requests.getBytes()), output);
+        server.shutdown();
+        String[] lines = output.toString().split("\n");
+        Assert.assertEquals(3, lines.length);
+        Map<String, JsonNode> responses = new HashMap<>();
+        for (String line: lines) {
+            JsonNode response = mapper.readTree(line);
+            responses.put(response.get("id").asText(), response);
+        }
+        JsonNode response = responses.get("1");
+        Assert.assertEquals(0, response.get("exitCode").asInt());
+        Assert.assertTrue(mapper.readTree(response.get("output").asText()).has("nodes"));
+        response = responses.get("2");
+        Assert.assertEquals(1, response.get("exitCode").asInt());
+        Assert.assertEquals(1, response.get("messages").size());
+        response = responses.get("null");
+        Assert.assertEquals("Invalid request",
+                response.get("messages").get(0).get("errorType").asText());
+
+        // Options that name files are rejected
+        server = new CompilerServer(1);
+        String[][] rejected = { { "-o", "x.rs" }, { "-js", "schema.json" }, { "-cache", "cache" },
+                { "-jpg" }, { "-modules" }, { "x.sql" } };
+        for (String[] args: rejected) {
+            ObjectNode request = good.deepCopy();
+            ArrayNode array = request.putArray("args");
+            for (String arg: args)
+                array.add(arg);
+            response = server.compile(request);
+            Assert.assertEquals(1, response.get("exitCode").asInt());
+            Assert.assertEquals("Invalid arguments",
+                    response.get("messages").get(0).get("errorType").asText());
+        }
+        ObjectNode noSql = mapper.createObjectNode();
+        noSql.putArray("args").add("x.sql");
+        response = server.compile(noSql);
+        Assert.assertEquals("Invalid request",
+                response.get("messages").get(0).get("errorType").asText());
+        server.shutdown();
+    }
+
+    @Test
+    public void testJitBinary() throws IOException {
+        DBSPCompiler compiler = new DBSPCompiler(new CompilerOptions());
+        compiler.compileStatement("CREATE TABLE T (\n" +
+                "COL1 INT NOT NULL" +
+                ", COL2 DOUBLE NOT NULL" +
+                ")");
+        compiler.compileStatement("CREATE VIEW V AS SELECT COL1 FROM T WHERE COL1 > 5");
+        compiler.optimize();
+        JITProgram program = ToJitVisitor.circuitToJIT(compiler.getFinalCircuit("circuit"));
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        JITBinarySerializer.serialize(program, bytes);
+        String json = program.asJson().toPrettyString();
+        Assert.assertTrue(bytes.size() < json.length());
+        JsonNode decoded = JITBinarySerializer.deserialize(new ByteArrayInputStream(bytes.toByteArray()));
+        ObjectMapper mapper = new ObjectMapper();
+        Assert.assertEquals(mapper.readTree(json), mapper.readTree(decoded.toString()));
+    }
+
+    @Test
+    public void testJitBinaryNumbers() throws IOException {
+        ArrayNode numbers = JITNode.jsonFactory().createArrayNode();
+        numbers.add(Long.MIN_VALUE);
+        numbers.add(new BigInteger("123456789012345678901234567890"));
+        numbers.add(new BigInteger("-123456789012345678901234567890"));
+        numbers.add(new BigDecimal("-1234567890.0987654321"));
+        numbers.add(new BigDecimal("1E+10"));
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        JITBinarySerializer.serialize(numbers, bytes);
+        JsonNode decoded = JITBinarySerializer.deserialize(new ByteArrayInputStream(bytes.toByteArray()));
+        Assert.assertEquals(numbers, decoded);
+    }
+
     @Test
     public void testCompilerToJpeg() throws IOException {
         String[] statements = new String[]{
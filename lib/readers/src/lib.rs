@@ -6,7 +6,8 @@
 
 use std::{
     fs::File,
-    io::BufReader,
+    io::{BufReader, ErrorKind, Read},
+    marker::PhantomData,
     path::Path,
 };
 use async_std::task;
@@ -24,6 +25,7 @@ use serde::{
     Deserialize,
 };
 use csv::{
+    DeserializeRecordsIntoIter,
     Reader,
     ReaderBuilder,
 };
@@ -48,30 +50,151 @@ use sqlx::{
     sqlite::SqliteRow
 };
 
-pub fn read_csv<T, Weight>(source_file_path: &str) -> OrdZSet<T, Weight>
-where
-    T: DBData + for<'de> serde::Deserialize<'de>,
-    Weight: DBWeight + HasOne,
-{
+/// A stream of inputs, each of which is fed to a circuit in a separate step.
+pub type InputStream<T> = Box<dyn Iterator<Item = T>>;
+
+fn open_file(source_file_path: &str) -> BufReader<File> {
     let path = Path::new(source_file_path);
-    let file = BufReader::new(File::open(&path).unwrap_or_else(|error| {
+    BufReader::new(File::open(&path).unwrap_or_else(|error| {
         panic!(
             "failed to open file '{}': {}",
             source_file_path,
             error,
         )
-    }));
+    }))
+}
 
-    let mut csv_reader = csv::ReaderBuilder::new()
+fn csv_reader(source_file_path: &str) -> Reader<BufReader<File>> {
+    csv::ReaderBuilder::new()
         .delimiter(b',')
         .has_headers(false)
-        .from_reader(file);
+        .from_reader(open_file(source_file_path))
+}
+
+pub fn read_csv<T, Weight>(source_file_path: &str) -> OrdZSet<T, Weight>
+where
+    T: DBData + for<'de> serde::Deserialize<'de>,
+    Weight: DBWeight + HasOne,
+{
+    let mut csv_reader = csv_reader(source_file_path);
     let vec = csv_reader.deserialize()
         .map(|x| (x.unwrap(), Weight::one()))
         .collect();
     OrdZSet::<T, Weight>::from_keys((), vec)
 }
 
+/// Iterator over a CSV file which produces Z-sets of at most `batch_size` rows.
+/// Only one batch is in memory at any time.
+pub struct CsvBatchReader<T, Weight> {
+    records: DeserializeRecordsIntoIter<BufReader<File>, T>,
+    batch_size: usize,
+    phantom: PhantomData<Weight>,
+}
+
+impl<T, Weight> Iterator for CsvBatchReader<T, Weight>
+where
+    T: DBData + for<'de> serde::Deserialize<'de>,
+    Weight: DBWeight + HasOne,
+{
+    type Item = OrdZSet<T, Weight>;
+
+    fn next(&mut self) -> Option<Self::Item> {
+        let vec: Vec<(T, Weight)> = self.records.by_ref()
+            .take(self.batch_size)
+            .map(|x| (x.unwrap(), Weight::one()))
+            .collect();
+        if vec.is_empty() {
+            None
+        } else {
+            Some(OrdZSet::<T, Weight>::from_keys((), vec))
+        }
+    }
+}
+
+pub fn read_csv_batches<T, Weight>(source_file_path: &str, batch_size: usize) -> CsvBatchReader<T, Weight>
+where
+    T: DBData + for<'de> serde::Deserialize<'de>,
+    Weight: DBWeight + HasOne,
+{
+    assert!(batch_size > 0, "batch size must be positive");
+    CsvBatchReader {
+        records: csv_reader(source_file_path).into_deserialize(),
+        batch_size,
+        phantom: PhantomData,
+    }
+}
+
+/// Read a file produced by the ToBinaryVisitor of the SQL compiler.
+/// The file contains a `Vec<(T, i64)>` serialized using `bincode`.
+/// The whole file is read with a single system call and deserialized from memory;
+/// unlike CSV files this format can also encode negative weights.
+pub fn read_binary<T, Weight>(source_file_path: &str) -> OrdZSet<T, Weight>
+where
+    T: DBData + for<'de> serde::Deserialize<'de>,
+    Weight: DBWeight + for<'de> serde::Deserialize<'de>,
+{
+    let bytes = std::fs::read(source_file_path).unwrap_or_else(|error| {
+        panic!(
+            "failed to read file '{}': {}",
+            source_file_path,
+            error,
+        )
+    });
+    let vec: Vec<(T, Weight)> = bincode::deserialize(&bytes).unwrap_or_else(|error| {
+        panic!(
+            "failed to deserialize file '{}': {}",
+            source_file_path,
+            error,
+        )
+    });
+    OrdZSet::<T, Weight>::from_keys((), vec)
+}
+
+/// Iterator over a file produced by the ToBinaryVisitor in batches, which
+/// produces one Z-set for each batch in the file.  Each batch is a
+/// `Vec<(T, i64)>` serialized using `bincode`, prefixed by its size in bytes
+/// as a little-endian u64.  A batch is read into a buffer and deserialized
+/// from memory, like `read_binary` does, so deserializers can borrow strings
+/// from the input.  Only one batch is in memory at any time.
+pub struct BinaryBatchReader<T, Weight> {
+    reader: BufReader<File>,
+    buffer: Vec<u8>,
+    phantom: PhantomData<(T, Weight)>,
+}
+
+impl<T, Weight> Iterator for BinaryBatchReader<T, Weight>
+where
+    T: DBData + for<'de> serde::Deserialize<'de>,
+    Weight: DBWeight + for<'de> serde::Deserialize<'de>,
+{
+    type Item = OrdZSet<T, Weight>;
+
+    fn next(&mut self) -> Option<Self::Item> {
+        let mut size = [0u8; 8];
+        match self.reader.read_exact(&mut size) {
+            Ok(()) => {},
+            Err(error) if error.kind() == ErrorKind::UnexpectedEof => return None,
+            Err(error) => panic!("failed to read batch size: {}", error),
+        }
+        self.buffer.resize(u64::from_le_bytes(size) as usize, 0);
+        self.reader.read_exact(&mut self.buffer).unwrap();
+        let vec: Vec<(T, Weight)> = bincode::deserialize(&self.buffer).unwrap();
+        Some(OrdZSet::<T, Weight>::from_keys((), vec))
+    }
+}
+
+pub fn read_binary_batches<T, Weight>(source_file_path: &str) -> BinaryBatchReader<T, Weight>
+where
+    T: DBData + for<'de> serde::Deserialize<'de>,
+    Weight: DBWeight + for<'de> serde::Deserialize<'de>,
+{
+    BinaryBatchReader {
+        reader: open_file(source_file_path),
+        buffer: Vec::new(),
+        phantom: PhantomData,
+    }
+}
+
 pub fn read_db<T, Weight>(conn_str: &str, table_name: &str, mapper: impl Fn(&AnyRow) -> T) -> OrdZSet<T, Weight>
 where
     T: DBData + for<'de> serde::Deserialize<'de>,
@@ -87,11 +210,105 @@ where
     OrdZSet::from_keys((), vec)
 }
 
+/// Read a table from a database using keyset pagination on an integer key column
+/// (e.g., `rowid` in SQLite).  The range of keys is split into `workers`
+/// contiguous ranges which are scanned in parallel, each by a separate thread
+/// with its own connection.  Each query fetches at most `page_size` rows.
+pub fn read_db_paged<T, Weight>(
+    conn_str: &str,
+    table_name: &str,
+    key_column: &str,
+    page_size: usize,
+    workers: usize,
+    mapper: impl Fn(&AnyRow) -> T + Sync) -> OrdZSet<T, Weight>
+where
+    T: DBData + Send,
+    Weight: DBWeight + HasOne + Send,
+{
+    assert!(page_size > 0, "page size must be positive");
+    assert!(workers > 0, "number of workers must be positive");
+    let (min, max): (Option<i64>, Option<i64>) = task::block_on(async move {
+        let mut conn = AnyConnection::connect(conn_str).await.unwrap();
+        let query = format!("SELECT MIN({key_column}), MAX({key_column}) FROM {table_name}");
+        let row = sqlx::query(query.as_str()).fetch_one(&mut conn).await.unwrap();
+        (row.get(0), row.get(1))
+    });
+    let (min, max) = match (min, max) {
+        (Some(min), Some(max)) => (min, max),
+        // Empty table
+        _ => return OrdZSet::from_keys((), Vec::new()),
+    };
+
+    // Split [min, max] into at most 'workers' ranges of similar size.
+    let span = (max as i128) - (min as i128) + 1;
+    let step = (span + workers as i128 - 1) / workers as i128;
+    let mut ranges = Vec::with_capacity(workers);
+    let mut low = min as i128;
+    while low <= max as i128 {
+        let high = (low + step - 1).min(max as i128);
+        ranges.push((low as i64, high as i64));
+        low = high + 1;
+    }
+
+    let mapper = &mapper;
+    let vec: Vec<(T, Weight)> = std::thread::scope(|scope| {
+        let handles: Vec<_> = ranges.into_iter()
+            .map(|(low, high)| scope.spawn(move || {
+                read_db_range(conn_str, table_name, key_column, page_size, low, high, mapper)
+            }))
+            .collect();
+        handles.into_iter()
+            .flat_map(|handle| handle.join().unwrap())
+            .collect()
+    });
+    OrdZSet::from_keys((), vec)
+}
+
+/// Read the rows of a table whose key is in the range [low, high],
+/// `page_size` rows at a time.
+fn read_db_range<T, Weight>(
+    conn_str: &str,
+    table_name: &str,
+    key_column: &str,
+    page_size: usize,
+    low: i64,
+    high: i64,
+    mapper: &(impl Fn(&AnyRow) -> T + Sync)) -> Vec<(T, Weight)>
+where
+    Weight: HasOne,
+{
+    task::block_on(async move {
+        let mut conn = AnyConnection::connect(conn_str).await.unwrap();
+        let mut result = Vec::new();
+        // The key is appended as the last column, so the mapper can
+        // still use the column indexes of the table.
+        let mut condition = format!("{key_column} >= {low}");
+        loop {
+            let query = format!(
+                "SELECT *, {key_column} FROM {table_name} WHERE {condition} AND {key_column} <= {high} \
+                 ORDER BY {key_column} LIMIT {page_size}");
+            let rows = sqlx::query(query.as_str()).fetch_all(&mut conn).await.unwrap();
+            let fetched = rows.len();
+            let mut last: Option<i64> = None;
+            for row in rows.iter() {
+                last = Some(row.get(row.len() - 1));
+                result.push((mapper(row), Weight::one()));
+            }
+            match last {
+                Some(last) if fetched == page_size => condition = format!("{key_column} > {last}"),
+                _ => break,
+            }
+        }
+        result
+    })
+}
+
 #[cfg(test)]
 use tuple::declare_tuples;
 
 #[cfg(test)]
 declare_tuples! {
+    Tuple2<T0, T1>,
     Tuple3<T0, T1, T2>,
 }
 
@@ -109,6 +326,64 @@ fn csv_test() {
     ), src);
 }
 
+#[test]
+fn binary_test() {
+    let data: Vec<(Tuple3<bool, Option<String>, Option<u32>>, isize)> = vec![
+        (Tuple3::new(true, Some(String::from("Mihai")), Some(0)), 1),
+        (Tuple3::new(false, None, Some(1)), -1),
+        (Tuple3::new(true, Some(String::from("Leonid")), None), 2),
+    ];
+    let path = std::env::temp_dir().join("readers_binary_test.bin");
+    std::fs::write(&path, bincode::serialize(&data).unwrap()).unwrap();
+    let src = read_binary::<Tuple3<bool, Option<String>, Option<u32>>, isize>(path.to_str().unwrap());
+    std::fs::remove_file(&path).unwrap();
+    assert_eq!(zset!(
+        Tuple3::new(true, Some(String::from("Mihai")), Some(0)) => 1,
+        Tuple3::new(false, None, Some(1)) => -1,
+        Tuple3::new(true, Some(String::from("Leonid")), None) => 2,
+    ), src);
+}
+
+#[test]
+fn csv_batches_test() {
+    use dbsp::{algebra::AddByRef, trace::BatchReader};
+
+    let batches: Vec<OrdZSet<Tuple3<bool, Option<String>, Option<u32>>, isize>> =
+        read_csv_batches("src/test.csv", 3).collect();
+    assert_eq!(3, batches.len());
+    assert_eq!(vec![3, 3, 1], batches.iter().map(|b| b.len()).collect::<Vec<_>>());
+    let mut all = OrdZSet::empty(());
+    for batch in batches {
+        all = all.add_by_ref(&batch);
+    }
+    let src = read_csv::<Tuple3<bool, Option<String>, Option<u32>>, isize>("src/test.csv");
+    assert_eq!(src, all);
+}
+
+#[test]
+fn binary_batches_test() {
+    use dbsp::trace::BatchReader;
+
+    let data: Vec<(Tuple3<bool, Option<String>, Option<u32>>, isize)> = vec![
+        (Tuple3::new(true, Some(String::from("Mihai")), Some(0)), 1),
+        (Tuple3::new(false, None, Some(1)), -1),
+        (Tuple3::new(true, Some(String::from("Leonid")), None), 2),
+    ];
+    // Each batch is prefixed by its size in bytes.
+    let mut bytes = Vec::new();
+    for batch in data.chunks(2) {
+        let serialized = bincode::serialize(&batch.to_vec()).unwrap();
+        bytes.extend_from_slice(&(serialized.len() as u64).to_le_bytes());
+        bytes.extend_from_slice(&serialized);
+    }
+    let path = std::env::temp_dir().join("readers_binary_batches_test.bin");
+    std::fs::write(&path, bytes).unwrap();
+    let batches: Vec<OrdZSet<Tuple3<bool, Option<String>, Option<u32>>, isize>> =
+        read_binary_batches(path.to_str().unwrap()).collect();
+    std::fs::remove_file(&path).unwrap();
+    assert_eq!(vec![2, 1], batches.iter().map(|b| b.len()).collect::<Vec<_>>());
+}
+
 #[async_std::test]
 async fn sql_test_sqlite() {
     let conn_str = "sqlite:///tmp/test.db";
@@ -124,3 +399,23 @@ async fn sql_test_sqlite() {
         Tuple3::new(73, String::from("name1"), true) => 1isize,
     ), zset);
 }
+
+#[async_std::test]
+async fn sql_test_sqlite_paged() {
+    let conn_str = "sqlite:///tmp/test_paged.db";
+    if !sqlx::Sqlite::database_exists(conn_str).await.unwrap() {
+        sqlx::Sqlite::create_database(conn_str).await.unwrap();
+        let mut conn = SqliteConnection::connect(conn_str).await.unwrap();
+        conn.execute("create table t1(id integer, name varchar)").await.unwrap();
+        for i in 0..100 {
+            conn.execute(format!("insert into t1 values({i}, 'name{i}')").as_str()).await.unwrap();
+        }
+        conn.close();
+    }
+    let zset = read_db_paged::<Tuple2<i32, String>, isize>(
+        conn_str, "t1", "rowid", 7, 3,
+        |row: &AnyRow| Tuple2::new(row.try_get_unchecked(0).unwrap(), row.try_get_unchecked(1).unwrap()));
+    let expected = read_db::<Tuple2<i32, String>, isize>(
+        conn_str, "t1", |row: &AnyRow| Tuple2::new(row.get(0), row.get(1)));
+    assert_eq!(expected, zset);
+}
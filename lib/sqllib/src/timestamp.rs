@@ -5,7 +5,7 @@ use std::{
     ops::Add
 };
 use size_of::SizeOf;
-use chrono::{DateTime, Datelike, NaiveDateTime, TimeZone, Timelike, Utc};
+use chrono::{DateTime, Datelike, NaiveDate, NaiveDateTime, TimeZone, Timelike, Utc};
 use serde::{de::Error as _, ser::Error as _, Deserialize, Deserializer, Serialize, Serializer};
 use crate::interval::{
     ShortInterval,
@@ -556,10 +556,10 @@ impl<'de> Deserialize<'de> for Date {
         D: Deserializer<'de>,
     {
         let str: &'de str = Deserialize::deserialize(deserializer)?;
-        let timestamp = NaiveDateTime::parse_from_str(&str, "%Y-%m-%d").map_err(|e| {
+        let date = NaiveDate::parse_from_str(&str, "%Y-%m-%d").map_err(|e| {
             D::Error::custom(format!("invalid date string '{str}': {e}"))
         })?;
-        Ok(Self::new((timestamp.timestamp() / 86400) as i32))
+        Ok(Self::new((date.and_hms_opt(0, 0, 0).unwrap().timestamp() / 86400) as i32))
     }
 }
 
@@ -0,0 +1,94 @@
+// Automatically-generated file
+#![allow(dead_code)]
+#![allow(non_snake_case)]
+#![allow(unused_imports)]
+#![allow(unused_parens)]
+#![allow(unused_variables)]
+#![allow(unused_mut)]
+
+use dbsp::{
+    algebra::{ZSet, MulByRef, F32, F64, Semigroup, SemigroupValue,
+    UnimplementedSemigroup, DefaultSemigroup},
+    circuit::{Circuit, Stream},
+    operator::{
+        Generator,
+        FilterMap,
+        Fold,
+        time_series::{RelRange, RelOffset, OrdPartitionedIndexedZSet},
+        MaxSemigroup,
+        MinSemigroup,
+    },
+    trace::ord::{OrdIndexedZSet, OrdZSet},
+    zset,
+    DBWeight,
+    DBData,
+    DBSPHandle,
+    Runtime,
+};
+use dbsp_adapters::Catalog;
+use genlib::*;
+use size_of::*;
+use ::serde::{Deserialize,Serialize};
+use compare::{Compare, Extract};
+use std::{
+    convert::identity,
+    fmt::{Debug, Formatter, Result as FmtResult},
+    cell::RefCell,
+    rc::Rc,
+    marker::PhantomData,
+    str::FromStr,
+};
+use rust_decimal::Decimal;
+use tuple::declare_tuples;
+use sqllib::{
+    casts::*,
+    geopoint::*,
+    timestamp::*,
+    interval::*,
+};
+use sqllib::*;
+use sqlvalue::*;
+use hashing::*;
+use readers::*;
+use sqlx::{AnyConnection, any::AnyRow, Row};
+
+type Weight = i64;
+declare_tuples! {
+    Tuple1<T0>,
+    Tuple2<T0, T1>,
+}
+
+
+pub fn circuit(workers: usize) -> (DBSPHandle, Catalog) {
+    let mut catalog = Catalog::new();
+    let (circuit, handles) = Runtime::init_circuit(workers, |circuit| {
+        // rel#658:LogicalTableScan.(table=[schema, T])
+        // DBSPSourceOperator 7
+        // CREATE TABLE `T` (`COL1` INTEGER NOT NULL, `COL2` DOUBLE NOT NULL)
+        let (T, handle0) = circuit.add_input_zset::<Tuple2<i32, F64>, Weight>();
+        let map0: _ = move |t: &Tuple2<i32, F64>, | -> Tuple1<i32> {
+            Tuple1::new(t.0)
+        };
+        // rel#698:LogicalProject.(input=LogicalTableScan#658,inputs=0)
+        // DBSPMapOperator 86
+        let stream13: Stream<_, OrdZSet<Tuple1<i32>, Weight>> = T.map(map0);
+        let cond0: _ = move |t: &Tuple1<i32>, | -> bool {
+            gt_i32_i32(t.0, 5i32)
+        };
+        // rel#700:LogicalFilter.(input=LogicalProject#698,condition=>($0, 5))
+        // DBSPFilterOperator 89
+        let stream15: Stream<_, OrdZSet<Tuple1<i32>, Weight>> = stream13.filter(cond0);
+        // CreateRelationStatement{tableName='V', columns=[#0: COL1 INTEGER]}
+        // CREATE VIEW `V` AS
+        // SELECT `COL1`
+        // FROM `T`
+        // WHERE `COL1` > 5
+        // DBSPSinkOperator 90
+        let handle1 = stream15.output();
+        (handle0,handle1,)
+    }).unwrap();
+    catalog.register_input_zset_handle("T", handles.0);
+    catalog.register_output_batch_handle("V", handles.1);
+    (circuit, catalog)
+}
+